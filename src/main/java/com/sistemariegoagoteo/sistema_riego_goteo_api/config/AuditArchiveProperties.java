@@ -0,0 +1,46 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Archivo en frío de {@code change_history}.
+ * <p>
+ * Los meses cerrados cuyo último día es anterior a {@code hot-retention} se
+ * exportan a {@code directory} como CSV comprimido con gzip y se borran de la
+ * tabla. El archivado se ejecuta en un solo nodo, pero cualquiera lee los
+ * ficheros al consultar el historial.
+ * </p>
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "audit.archive")
+public class AuditArchiveProperties {
+
+    /**
+     * Activa el archivado programado.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Carpeta donde se guardan los ficheros mensuales. Debe ser un almacenamiento
+     * compartido por todos los nodos (NFS, volumen de un bucket montado...): el
+     * índice de meses archivados está en la base y cualquier nodo puede tener
+     * que leer un mes. Sin carpeta configurada no se archiva nada.
+     */
+    private Path directory;
+
+    /**
+     * Antigüedad mínima de un mes para salir de la tabla.
+     */
+    private Duration hotRetention = Duration.ofDays(90);
+
+    /**
+     * Filas leídas o borradas por consulta y transacción.
+     */
+    private int chunkSize = 1000;
+}
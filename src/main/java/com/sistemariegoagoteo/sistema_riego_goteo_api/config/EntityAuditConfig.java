@@ -0,0 +1,31 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.EntityAuditListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registra {@link EntityAuditListener} en los eventos post-insert, post-update
+ * y post-delete de Hibernate.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class EntityAuditConfig {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityAuditListener entityAuditListener;
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, entityAuditListener);
+        registry.appendListeners(EventType.POST_UPDATE, entityAuditListener);
+        registry.appendListeners(EventType.POST_DELETE, entityAuditListener);
+    }
+}
@@ -0,0 +1,67 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Alinea la tabla {@code id_generator} con los ids ya existentes.
+ * <p>
+ * Las entidades de alto volumen (riegos, fertilizaciones, mantenimientos,
+ * precipitaciones) toman sus ids de {@code id_generator} en bloques de
+ * {@code allocationSize}, lo que permite a Hibernate agrupar los inserts
+ * ({@code hibernate.jdbc.batch_size}); con {@code IDENTITY} cada insert era un
+ * viaje a la base. Antes de la primera asignación, cada segmento debe quedar
+ * por encima del mayor id de su tabla, que hasta ahora generaba el
+ * AUTO_INCREMENT.
+ * </p>
+ * Se ejecuta al arrancar, antes de los inicializadores y tareas programadas.
+ * Solo sube el valor guardado, nunca lo baja, así que repetirlo es seguro.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class IdGeneratorMigration {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignTableGenerators() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .forEachEntityDescriptor(this::align);
+    }
+
+    private void align(EntityPersister persister) {
+        if (!(persister.getGenerator() instanceof TableGenerator generator)) {
+            return;
+        }
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + persister.getIdentifierColumnNames()[0]
+                + "), 0) FROM " + persister.getIdentifierTableDetails().getTableName(), Long.class);
+        // El optimizador pooled entrega hasta (valor leído - incremento + 1)
+        long nextValue = Math.max(maxId + generator.getIncrementSize() + 1, generator.getInitialValue());
+
+        String table = generator.getTableName();
+        String segmentColumn = generator.getSegmentColumnName();
+        String valueColumn = generator.getValueColumnName();
+        int raised = jdbcTemplate.update("UPDATE " + table + " SET " + valueColumn + " = ? WHERE " + segmentColumn
+                + " = ? AND " + valueColumn + " < ?", nextValue, generator.getSegmentValue(), nextValue);
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE " + segmentColumn
+                + " = ?", Integer.class, generator.getSegmentValue());
+        if (rows != null && rows == 0) {
+            jdbcTemplate.update("INSERT INTO " + table + " (" + segmentColumn + ", " + valueColumn
+                    + ") VALUES (?, ?)", generator.getSegmentValue(), nextValue);
+            raised = 1;
+        }
+        if (raised > 0) {
+            log.info("Generador de ids '{}' alineado en {} (máximo id actual: {})", generator.getSegmentValue(),
+                    nextValue, maxId);
+        }
+    }
+}
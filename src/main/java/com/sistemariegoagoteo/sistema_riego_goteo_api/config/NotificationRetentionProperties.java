@@ -0,0 +1,59 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.NotificationType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Política de retención de {@code app_notification}.
+ * <p>
+ * Ejemplo en {@code application.properties}:
+ * {@code notifications.retention.ttl.INFO=30d},
+ * {@code notifications.retention.ttl.WARNING=90d}. Los tipos sin TTL no se
+ * purgan.
+ * </p>
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "notifications.retention")
+public class NotificationRetentionProperties {
+
+    /**
+     * Activa la purga programada.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Antigüedad máxima por tipo de notificación.
+     */
+    private Map<NotificationType, Duration> ttl = new EnumMap<>(Map.of(
+            NotificationType.INFO, Duration.ofDays(30),
+            NotificationType.SUCCESS, Duration.ofDays(30),
+            NotificationType.WARNING, Duration.ofDays(90)));
+
+    /**
+     * Si es {@code true}, las filas vencidas se copian a
+     * {@code app_notification_archive} antes de borrarse.
+     */
+    private boolean archive = true;
+
+    /**
+     * Antigüedad máxima en el archivo; {@code null} lo conserva indefinidamente.
+     */
+    private Duration archiveTtl = Duration.ofDays(365);
+
+    /**
+     * Filas movidas o borradas por transacción.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * Pausa entre lotes para no acaparar la base de datos.
+     */
+    private Duration pauseBetweenChunks = Duration.ofMillis(100);
+}
@@ -0,0 +1,89 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.http.ProviderGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Clientes HTTP para las APIs externas (clima y geocodificación).
+ * <p>
+ * Cada proveedor tiene su propio pool de conexiones reutilizables, con
+ * timeouts de conexión, de respuesta y de espera por el pool, y su propio
+ * {@link ProviderGuard}; así un proveedor caído o lento no consume las
+ * conexiones ni los hilos del otro. Los {@link RestTemplate} se construyen con
+ * {@link RestTemplateBuilder}, por lo que Spring Boot registra las métricas
+ * {@code http.client.requests} de cada llamada.
+ * </p>
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient weatherHttpClient(OutboundHttpProperties properties) {
+        return buildClient(properties.getWeather());
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient geocodingHttpClient(OutboundHttpProperties properties) {
+        return buildClient(properties.getGeocoding());
+    }
+
+    @Bean
+    public RestTemplate weatherRestTemplate(RestTemplateBuilder builder, OutboundHttpProperties properties) {
+        CloseableHttpClient client = weatherHttpClient(properties);
+        return builder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(client)).build();
+    }
+
+    @Bean
+    public RestTemplate geocodingRestTemplate(RestTemplateBuilder builder, OutboundHttpProperties properties) {
+        CloseableHttpClient client = geocodingHttpClient(properties);
+        return builder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(client)).build();
+    }
+
+    @Bean
+    public ProviderGuard weatherGuard(OutboundHttpProperties properties, MeterRegistry meterRegistry) {
+        return buildGuard("weather", properties.getWeather(), meterRegistry);
+    }
+
+    @Bean
+    public ProviderGuard geocodingGuard(OutboundHttpProperties properties, MeterRegistry meterRegistry) {
+        return buildGuard("geocoding", properties.getGeocoding(), meterRegistry);
+    }
+
+    private static CloseableHttpClient buildClient(OutboundHttpProperties.Provider provider) {
+        return HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(provider.getMaxConnections())
+                        .setMaxConnPerRoute(provider.getMaxConnections())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(provider.getConnectTimeout()))
+                                .setSocketTimeout(Timeout.of(provider.getReadTimeout()))
+                                .setTimeToLive(TimeValue.ofMinutes(5))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(provider.getPoolTimeout()))
+                        .setResponseTimeout(Timeout.of(provider.getReadTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+    }
+
+    private static ProviderGuard buildGuard(String name, OutboundHttpProperties.Provider provider,
+            MeterRegistry meterRegistry) {
+        return new ProviderGuard(name, provider.getMaxConcurrent(), provider.getFailureThreshold(),
+                provider.getOpenDuration().toMillis(), meterRegistry);
+    }
+}
@@ -0,0 +1,71 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Límites de las llamadas HTTP salientes, por proveedor.
+ * <p>
+ * Ejemplo: {@code http.client.weather.read-timeout=3s},
+ * {@code http.client.geocoding.max-concurrent=2}.
+ * </p>
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "http.client")
+public class OutboundHttpProperties {
+
+    private Provider weather = new Provider(20, 20);
+
+    private Provider geocoding = new Provider(5, 5);
+
+    @Data
+    public static class Provider {
+
+        /**
+         * Tiempo máximo para establecer la conexión.
+         */
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        /**
+         * Tiempo máximo de espera de la respuesta.
+         */
+        private Duration readTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Tiempo máximo de espera por una conexión libre del pool.
+         */
+        private Duration poolTimeout = Duration.ofSeconds(1);
+
+        /**
+         * Conexiones del pool del proveedor.
+         */
+        private int maxConnections;
+
+        /**
+         * Llamadas simultáneas admitidas por el bulkhead.
+         */
+        private int maxConcurrent;
+
+        /**
+         * Fallos consecutivos que abren el circuito.
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * Tiempo que el circuito permanece abierto antes de probar de nuevo.
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        public Provider() {
+        }
+
+        public Provider(int maxConnections, int maxConcurrent) {
+            this.maxConnections = maxConnections;
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sustituye el {@link DataSource} de Spring Boot por un
+ * {@link ReadReplicaRoutingDataSource} cuando
+ * {@code datasource.read-replicas.enabled=true}.
+ * <p>
+ * Hibernate pasa a liberar la conexión al terminar cada transacción: con
+ * open-in-view la sesión vive toda la petición y, reteniendo la conexión, una
+ * escritura podría reutilizar la de una réplica obtenida en una lectura
+ * anterior.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean(autowireCandidate = false)
+    public ReadReplicaRoutingDataSource readReplicaRoutingDataSource(DataSourceProperties properties,
+            ReadReplicaProperties replicaProperties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        List<DataSource> replicas = new ArrayList<>();
+        for (ReadReplicaProperties.Node node : replicaProperties.getNodes()) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(node.getUrl())
+                    .username(node.getUsername() != null ? node.getUsername() : properties.determineUsername())
+                    .password(node.getPassword() != null ? node.getPassword() : properties.determinePassword())
+                    .build();
+            replica.setPoolName(ReadReplicaRoutingDataSource.REPLICA_PREFIX + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReadReplicaRoutingDataSource(primary, replicas, replicaProperties.getMaxStaleness(),
+                replicaProperties.getMaxTrackedUsers());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, ReadReplicaProperties replicaProperties) {
+        return new LazyConnectionDataSourceProxy(readReplicaRoutingDataSource(properties, replicaProperties));
+    }
+
+    @Bean
+    public RecentWriterSync recentWriterSync(DataSourceProperties properties, ReadReplicaProperties replicaProperties,
+            CacheInvalidationBus invalidationBus) {
+        ReadReplicaRoutingDataSource routingDataSource = readReplicaRoutingDataSource(properties, replicaProperties);
+        RecentWriterSync sync = new RecentWriterSync(routingDataSource, invalidationBus);
+        routingDataSource.setWritePublisher(sync);
+        return sync;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
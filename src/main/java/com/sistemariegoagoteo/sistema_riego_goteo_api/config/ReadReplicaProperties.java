@@ -0,0 +1,55 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lectura para las transacciones {@code readOnly}.
+ * <p>
+ * Con {@code enabled=true} y al menos un nodo, las transacciones de sólo
+ * lectura se reparten entre {@code nodes}; el resto sigue en
+ * {@code spring.datasource}. Usuario, contraseña y driver de cada réplica se
+ * toman de {@code spring.datasource} si no se indican.
+ * </p>
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "datasource.read-replicas")
+public class ReadReplicaProperties {
+
+    /**
+     * Activa el enrutamiento a réplicas.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Réplicas disponibles, usadas por turnos.
+     */
+    private List<Node> nodes = new ArrayList<>();
+
+    /**
+     * Tiempo tras un commit con escrituras de un usuario durante el que sus
+     * lecturas siguen yendo al primario, y tras el que se repite cada
+     * invalidación de la caché de segundo nivel. Debe cubrir el retraso máximo
+     * esperado de las réplicas.
+     */
+    private Duration maxStaleness = Duration.ofSeconds(5);
+
+    /**
+     * Usuarios con escrituras recientes que se recuerdan como máximo.
+     */
+    private int maxTrackedUsers = 10_000;
+
+    @Data
+    public static class Node {
+
+        private String url;
+        private String username;
+        private String password;
+    }
+}
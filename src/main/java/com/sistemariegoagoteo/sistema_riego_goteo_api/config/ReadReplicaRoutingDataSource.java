@@ -0,0 +1,261 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * {@link DataSource} que envía las transacciones de sólo lectura a las
+ * réplicas y todo lo demás al primario.
+ * <p>
+ * Van a una réplica (por turnos) las conexiones pedidas dentro de una
+ * transacción {@code readOnly}, salvo que el usuario autenticado haya
+ * confirmado una escritura hace menos de {@code maxStaleness}: así cada
+ * usuario lee siempre lo que acaba de escribir aunque la réplica vaya
+ * atrasada. Si una réplica no entrega conexión, la lectura se sirve desde el
+ * primario.
+ * </p>
+ * <p>
+ * Sólo cuenta como escritura una transacción que ejecutó un INSERT, UPDATE o
+ * DELETE en el primario y confirmó; las transacciones de lectura-escritura
+ * que sólo leen no desvían nada. Justo antes del commit se entrega la
+ * escritura al {@link WritePublisher}, que la propaga a los demás nodos con
+ * la hora del commit.
+ * </p>
+ * La decisión depende de la transacción en curso, que Spring marca después de
+ * pedir la conexión; por eso debe usarse envuelto en un
+ * {@link LazyConnectionDataSourceProxy}, que la pide al ejecutar la primera
+ * sentencia.
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA_PREFIX = "replica-";
+
+    private static final Pattern WRITE_SQL = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)*(?:insert|update|delete|replace|merge|truncate)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * Propaga a los demás nodos las escrituras confirmadas por un usuario.
+     */
+    @FunctionalInterface
+    public interface WritePublisher {
+
+        /**
+         * Se invoca con la conexión de la transacción justo antes de su commit,
+         * de modo que lo publicado se confirma junto con la escritura.
+         */
+        void publish(Connection connection, String user, long writtenAt);
+    }
+
+    private final DataSource primary;
+    private final int replicaCount;
+    private final long maxStalenessMs;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile WritePublisher writePublisher;
+
+    /**
+     * Hora (ms) del último commit con escrituras de cada usuario, durante
+     * {@code maxStaleness}.
+     */
+    private final Cache<String, Long> recentWriters;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxStaleness,
+            int maxTrackedUsers) {
+        this.primary = primary;
+        this.replicaCount = replicas.size();
+        this.maxStalenessMs = maxStaleness.toMillis();
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(maxStaleness)
+                .maximumSize(maxTrackedUsers)
+                .build();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(REPLICA_PREFIX + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public void setWritePublisher(WritePublisher writePublisher) {
+        this.writePublisher = writePublisher;
+    }
+
+    /**
+     * Registra que {@code user} confirmó una escritura a las {@code writtenAt}
+     * (ms); sus lecturas irán al primario hasta {@code writtenAt + maxStaleness}.
+     * Se usa también con las escrituras recibidas de otros nodos.
+     */
+    public void recordWrite(String user, long writtenAt) {
+        if (System.currentTimeMillis() - writtenAt < maxStalenessMs) {
+            recentWriters.asMap().merge(user, writtenAt, Math::max);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || replicaCount == 0 || isRecentWriter(currentUser())) {
+            return PRIMARY;
+        }
+        return REPLICA_PREFIX + Math.floorMod(nextReplica.getAndIncrement(), replicaCount);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target == primary) {
+            return trackWrites(primary.getConnection());
+        }
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            log.warn("Réplica de lectura no disponible, se lee del primario: {}", e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Cierra los pools del primario y de las réplicas.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : getResolvedDataSources().values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private boolean isRecentWriter(String user) {
+        Long writtenAt = user != null ? recentWriters.getIfPresent(user) : null;
+        return writtenAt != null && System.currentTimeMillis() - writtenAt < maxStalenessMs;
+    }
+
+    /**
+     * Envuelve la conexión del primario de una transacción de lectura-escritura
+     * con usuario para saber si llegó a escribir.
+     */
+    private Connection trackWrites(Connection connection) {
+        String user = currentUser();
+        if (replicaCount == 0 || user == null || !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new WriteTrackingConnection(connection, user));
+    }
+
+    private static boolean isWrite(Object sql) {
+        return sql instanceof String text && WRITE_SQL.matcher(text).lookingAt();
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Marca la conexión como escrita al preparar o ejecutar una sentencia de
+     * modificación y, en el commit, publica y registra la escritura.
+     */
+    private final class WriteTrackingConnection implements InvocationHandler {
+
+        private final Connection target;
+        private final String user;
+        private boolean wrote;
+
+        WriteTrackingConnection(Connection target, String user) {
+            this.target = target;
+            this.user = user;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "prepareStatement", "prepareCall":
+                    wrote |= isWrite(args[0]);
+                    break;
+                case "commit":
+                    commit();
+                    return null;
+                case "rollback":
+                    if (args == null) {
+                        wrote = false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            Object result = invokeTarget(target, method, args);
+            if ("createStatement".equals(method.getName())) {
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                        (statementProxy, statementMethod, statementArgs) -> {
+                            String name = statementMethod.getName();
+                            if (statementArgs != null && (name.startsWith("execute") || "addBatch".equals(name))) {
+                                wrote |= isWrite(statementArgs[0]);
+                            }
+                            return invokeTarget(result, statementMethod, statementArgs);
+                        });
+            }
+            return result;
+        }
+
+        private void commit() throws SQLException {
+            if (!wrote) {
+                target.commit();
+                return;
+            }
+            long writtenAt = System.currentTimeMillis();
+            WritePublisher publisher = writePublisher;
+            if (publisher != null) {
+                publisher.publish(target, user, writtenAt);
+            }
+            target.commit();
+            wrote = false;
+            recordWrite(user, writtenAt);
+        }
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,41 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationListener;
+import lombok.RequiredArgsConstructor;
+
+import java.sql.Connection;
+
+/**
+ * Comparte entre nodos las escrituras recientes de cada usuario que usa
+ * {@link ReadReplicaRoutingDataSource}, para que sus lecturas vayan al
+ * primario en cualquier nodo que atienda la petición siguiente.
+ * <p>
+ * Cada commit con escrituras publica en {@link CacheInvalidationBus} el
+ * usuario (clave) y la hora del commit (versión). Los demás nodos lo aplican
+ * en su siguiente sondeo del bus ({@code cache.invalidation.poll-interval-ms}).
+ * </p>
+ */
+@RequiredArgsConstructor
+public class RecentWriterSync implements ReadReplicaRoutingDataSource.WritePublisher, CacheInvalidationListener {
+
+    public static final String CACHE_NAME = "read-replica-writers";
+
+    private final ReadReplicaRoutingDataSource routingDataSource;
+    private final CacheInvalidationBus invalidationBus;
+
+    @Override
+    public void publish(Connection connection, String user, long writtenAt) {
+        invalidationBus.publish(connection, CACHE_NAME, user, writtenAt);
+    }
+
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+
+    @Override
+    public void onInvalidation(String key, long version) {
+        routingDataSource.recordWrite(key, version);
+    }
+}
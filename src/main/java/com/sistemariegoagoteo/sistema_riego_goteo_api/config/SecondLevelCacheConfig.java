@@ -0,0 +1,91 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché de segundo nivel de Hibernate para las entidades de referencia.
+ * <p>
+ * Fincas, sectores, equipos, fuentes de agua, roles y permisos se leen en casi
+ * todas las escrituras y validaciones y cambian muy poco. Cada una tiene su
+ * región en un {@link CacheManager} JCache de Caffeine propio de la
+ * aplicación, acotada a {@code cache.l2.max-entries} entradas y con una
+ * expiración de seguridad de {@code cache.l2.ttl-minutes}. Las regiones se
+ * crean aquí y Hibernate falla al arrancar si una entidad pide otra, así que
+ * ninguna caché queda sin límite.
+ * </p>
+ * Las escrituras de este nodo las invalida Hibernate; las de los demás nodos
+ * llegan por {@code SecondLevelCacheInvalidator}. Por región se exponen las
+ * métricas {@code cache.gets}, {@code cache.evictions}... de Caffeine (con
+ * {@code cache=l2.<región>}) y {@code cache.l2.hit.ratio}.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    /**
+     * Regiones de entidades y colecciones cacheadas; deben coincidir con las
+     * de las anotaciones {@code @Cache}.
+     */
+    public static final List<String> REGIONS = List.of("farm", "sector", "irrigation-equipment", "water-source",
+            "role", "role.permissions", "permission");
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${cache.l2.max-entries:10000}") long maxEntries,
+            @Value("${cache.l2.ttl-minutes:60}") long ttlMinutes) {
+        // Un gestor por contexto: el proveedor comparte los gestores por URI
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxEntries));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MINUTES.toNanos(ttlMinutes)));
+            configuration.setNativeStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> {
+            for (String region : REGIONS) {
+                Cache<Object, Object> cache = hibernateCacheManager.getCache(region);
+                com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache =
+                        cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+                CaffeineCacheMetrics.monitor(registry, nativeCache, "l2." + region);
+                Gauge.builder("cache.l2.hit.ratio", nativeCache, c -> c.stats().hitRate())
+                        .description("Proporción de lecturas servidas por la caché de segundo nivel")
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.SecondLevelCacheInvalidator;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registra {@link SecondLevelCacheInvalidator} en los eventos de Hibernate que
+ * invalidan la caché de segundo nivel. Va aparte de
+ * {@link SecondLevelCacheConfig} porque ésta participa en la creación del
+ * {@link EntityManagerFactory}.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class SecondLevelCacheListenerConfig {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final SecondLevelCacheInvalidator secondLevelCacheInvalidator;
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_UPDATE, secondLevelCacheInvalidator);
+        registry.appendListeners(EventType.POST_DELETE, secondLevelCacheInvalidator);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, secondLevelCacheInvalidator);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, secondLevelCacheInvalidator);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, secondLevelCacheInvalidator);
+    }
+}
@@ -1,6 +1,7 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.config.jwt;
 
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -16,7 +17,12 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter; // Asegura que el filtro se ejecute solo una vez por request
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.JwtService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.PrincipalCache;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.TokenVersionRegistry;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.TokenVersionRegistry.TokenStatus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmMembershipIndex;
 
 import java.io.IOException;
 
@@ -32,6 +38,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService; // Nuestro JpaUserDetailsService será inyectado aquí
+    private final PrincipalCache principalCache; // Evita consultar la BD en cada petición autenticada
+    private final TokenVersionRegistry tokenVersionRegistry; // Revocación de tokens autocontenidos
+    private final FarmMembershipIndex farmMembershipIndex; // Fincas vigentes (no las del token)
 
     /**
      * Lógica principal del filtro.
@@ -65,18 +74,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7); // Longitud de "Bearer "
 
         try {
-            // 4. Extraer el username del token usando JwtService
-            username = jwtService.extractUsername(jwt);
+            // 4. Verificar el token una sola vez y extraer el username de sus claims
+            final Claims claims = jwtService.parseAndVerify(jwt);
+            username = claims.getSubject();
 
             // 5. Validar el token:
             //    - El username no es nulo.
             //    - No hay ya una autenticación establecida en el SecurityContext (evita reprocesar)
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Cargar los detalles del usuario desde la BD usando UserDetailsService
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                final int tokenVersion = jwtService.extractTokenVersion(claims);
+                final Long userId = jwtService.extractUserId(claims);
+                final TokenStatus status = tokenVersionRegistry.status(userId, tokenVersion);
+                if (status == TokenStatus.REVOKED) {
+                    log.warn("Token JWT revocado para el usuario: {}", username);
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+
+                // Token autocontenido y vigente: el principal se construye desde los claims
+                // y las fincas desde el índice de pertenencia. En caso de duda, cargar los
+                // detalles desde la caché (o la BD si no está).
+                UserDetails userDetails = status == TokenStatus.CURRENT && farmMembershipIndex.isLoaded()
+                        ? jwtService.toPrincipal(claims, farmMembershipIndex.farmsOf(userId))
+                        : principalCache.get(username, tokenVersion,
+                                () -> this.userDetailsService.loadUserByUsername(username));
 
-                // Validar el token contra los UserDetails cargados
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                // Validar el token contra los UserDetails cargados, su versión y el estado de la cuenta
+                if (jwtService.isTokenValid(claims, userDetails) && userDetails.isEnabled()
+                        && isCurrentTokenVersion(userDetails, tokenVersion)) {
                     // Si el token es válido, crear un objeto de autenticación
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, // Principal (el objeto UserDetails)
@@ -105,4 +130,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // 6. Pasar la petición al siguiente filtro en la cadena
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Comprueba que el token no haya sido revocado por un cambio de credenciales
+     * posterior a su emisión.
+     */
+    private boolean isCurrentTokenVersion(UserDetails userDetails, int tokenVersion) {
+        return !(userDetails instanceof User user) || user.currentTokenVersion() == tokenVersion;
+    }
 }
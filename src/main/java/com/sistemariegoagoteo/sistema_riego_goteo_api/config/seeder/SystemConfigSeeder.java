@@ -3,6 +3,8 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.config.seeder;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.ConfigType;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.SystemConfig;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.config.SystemConfigRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -20,6 +22,7 @@ import java.util.List;
 public class SystemConfigSeeder implements CommandLineRunner {
 
     private final SystemConfigRepository systemConfigRepository;
+    private final SystemConfigService systemConfigService;
 
     @Override
     @Transactional
@@ -76,6 +79,8 @@ public class SystemConfigSeeder implements CommandLineRunner {
                 new SystemConfig("WTH_API_KEY", "", ConfigType.STRING, "API Key del clima"));
 
         systemConfigRepository.saveAll(defaultConfigs);
+        // La copia en memoria pudo cargarse antes del seeding
+        TransactionUtils.afterCommit(systemConfigService::reload);
         log.info("SystemConfigSeeder finalizado. Insertados {} registros en system_config.", defaultConfigs.size());
     }
 }
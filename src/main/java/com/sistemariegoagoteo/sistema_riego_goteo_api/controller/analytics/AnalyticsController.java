@@ -1,9 +1,11 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.controller.analytics;
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.analytics.IrrigationPercentileDTO;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.analytics.IrrigationRecordDTO;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.analytics.IrrigationSectorSummaryDTO;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.analytics.IrrigationTimeseriesDTO;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.analytics.AnalyticsService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.analytics.IrrigationSketchService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -23,6 +25,7 @@ import java.util.List;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final IrrigationSketchService irrigationSketchService;
 
     /**
      * Obtiene un resumen consolidado de riego agrupado por sectores.
@@ -83,4 +86,25 @@ public class AnalyticsController {
         Page<IrrigationRecordDTO> records = analyticsService.getIrrigationRecords(farmId, startDate, endDate, sectorIds, pageable);
         return ResponseEntity.ok(records);
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtiene los percentiles aproximados (p50, p90, p99) de horas de riego y
+     * volumen de agua por sector, combinando los sketches diarios del rango.
+     *
+     * @param farmId ID de la finca.
+     * @param startDate Fecha de inicio (LocalDate).
+     * @param endDate Fecha de fin (LocalDate).
+     * @param sectorIds Lista opcional de sectores.
+     * @return Lista con los percentiles por sector.
+     */
+    @GetMapping("/irrigation/percentiles")
+    public ResponseEntity<List<IrrigationPercentileDTO>> getIrrigationPercentiles(
+            @RequestParam Integer farmId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) List<Integer> sectorIds) {
+
+        List<IrrigationPercentileDTO> percentiles = irrigationSketchService.getPercentiles(farmId, startDate, endDate, sectorIds);
+        return ResponseEntity.ok(percentiles);
+    }
+}
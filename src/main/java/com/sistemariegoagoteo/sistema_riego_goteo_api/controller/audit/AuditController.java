@@ -1,17 +1,20 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.controller.audit;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.audit.BatchSyncRequest;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.audit.BulkSyncStatusRequest;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.audit.ChangeHistoryResponse;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.audit.SynchronizationRecordResponse;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.audit.SynchronizationStatusUpdateRequest;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistory;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.Synchronization;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.SynchronizationBulkUpdater;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -43,7 +46,7 @@ public class AuditController {
             @RequestParam(required = false) String searchTerm,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date endDate,
-            @PageableDefault(size = 20, sort = "changeDatetime,desc") Pageable pageable) {
+            @PageableDefault(size = 20, sort = "changeDatetime", direction = Sort.Direction.DESC) Pageable pageable) {
 
         log.info("Fetching change history with params: userId={}, affectedTable={}, actionType={}, searchTerm={}",
                 userId, affectedTable, actionType, searchTerm);
@@ -112,4 +115,19 @@ public class AuditController {
         int updatedCount = auditService.batchUpdateSynchronizationStatus(request.getSyncIds(), request.getIsSynchronized());
         return ResponseEntity.ok(Map.of("message", "Batch update processed.", "updatedCount", updatedCount));
     }
+
+    /**
+     * Actualización masiva del estado de sincronización, por lista de IDs o por
+     * tabla y rango de IDs de registro, en sentencias UPDATE por lotes.
+     */
+    @PostMapping("/synchronization/bulk-update-status")
+    public ResponseEntity<Map<String, Object>> bulkUpdateSynchronizationStatus(
+            @Valid @RequestBody BulkSyncStatusRequest request) {
+        log.info("Bulk updating synchronization status to {}: {} IDs, table {} [{}, {}]", request.getIsSynchronized(),
+                request.getSyncIds() != null ? request.getSyncIds().size() : 0, request.getModifiedTable(),
+                request.getFromRecordId(), request.getToRecordId());
+        SynchronizationBulkUpdater.BulkUpdateResult result = auditService.bulkUpdateSynchronizationStatus(request);
+        return ResponseEntity.ok(Map.of("message", "Bulk update processed.", "updatedCount", result.updatedCount(),
+                "statements", result.statements()));
+    }
 }
\ No newline at end of file
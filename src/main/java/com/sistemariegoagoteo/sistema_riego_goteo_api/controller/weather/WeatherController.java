@@ -3,7 +3,7 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.controller.weather;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmService;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -19,12 +19,13 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class WeatherController {
 
-    private final WeatherService weatherService;
+    private final WeatherCache weatherCache;
     private final FarmService farmService;
 
     /**
      * Obtiene el clima actual para una finca específica.
-     * Utiliza las coordenadas de la finca para consultar un servicio externo de clima.
+     * Utiliza las coordenadas de la finca para consultar un servicio externo de clima,
+     * a través de la caché compartida con el scheduler.
      *
      * @param farmId ID de la finca.
      * @return Datos del clima actual.
@@ -37,9 +38,9 @@ public class WeatherController {
         // Si la finca no existe, farmService lanza ResourceNotFoundException (manejado globalmente)
         Farm farm = farmService.getFarmById(farmId);
         
-        // Si falla la API externa o faltan coordenadas, weatherService lanza la excepción apropiada
+        // Si falla la API externa o faltan coordenadas, weatherCache lanza la excepción apropiada
         // (asegúrate de que GlobalExceptionHandler capture IllegalStateException o una personalizada)
-        WeatherResponse weatherResponse = weatherService.getCurrentWeather(farm);
+        WeatherResponse weatherResponse = weatherCache.get(farm);
         
         return ResponseEntity.ok(weatherResponse);
     }
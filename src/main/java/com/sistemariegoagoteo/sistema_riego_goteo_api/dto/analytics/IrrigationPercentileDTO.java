@@ -0,0 +1,26 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Percentiles aproximados (error relativo ~1 %) de duración y volumen de riego
+ * de un sector en un rango de fechas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IrrigationPercentileDTO {
+    private Integer sectorId;
+    private String sectorName;
+    private long irrigationCount;
+    private BigDecimal hoursP50;
+    private BigDecimal hoursP90;
+    private BigDecimal hoursP99;
+    private BigDecimal waterP50;
+    private BigDecimal waterP90;
+    private BigDecimal waterP99;
+}
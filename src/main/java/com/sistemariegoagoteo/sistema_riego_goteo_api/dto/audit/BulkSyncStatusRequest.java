@@ -0,0 +1,21 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.dto.audit;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Actualización masiva del estado de sincronización: por lista de ids o por
+ * tabla y rango de ids de registro modificado.
+ */
+@Data
+public class BulkSyncStatusRequest {
+    private List<Integer> syncIds;
+
+    private String modifiedTable;
+    private Integer fromRecordId;
+    private Integer toRecordId;
+
+    @NotNull(message = "El estado de sincronización es requerido.")
+    private Boolean isSynchronized;
+}
@@ -21,6 +21,7 @@ public class ChangeHistoryResponse {
     private String newValue;
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX", timezone = "UTC")
     private Date changeDatetime;
+    private String diff;
 
     public ChangeHistoryResponse(ChangeHistory changeHistory) {
         this.id = changeHistory.getId();
@@ -35,5 +36,6 @@ public class ChangeHistoryResponse {
         this.oldValue = changeHistory.getOldValue();
         this.newValue = changeHistory.getNewValue();
         this.changeDatetime = changeHistory.getChangeDatetime();
+        this.diff = changeHistory.getDiff();
     }
 }
\ No newline at end of file
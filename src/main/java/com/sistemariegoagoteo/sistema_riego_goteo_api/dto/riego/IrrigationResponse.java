@@ -30,6 +30,7 @@ public class IrrigationResponse {
 
     private BigDecimal waterAmount;
     private BigDecimal irrigationHours;
+    private BigDecimal meteredWaterAmount;
 
     public IrrigationResponse(Irrigation irrigation) {
         this.id = irrigation.getId();
@@ -49,5 +50,6 @@ public class IrrigationResponse {
         this.endDatetime = irrigation.getEndDatetime();
         this.waterAmount = irrigation.getWaterAmount();
         this.irrigationHours = irrigation.getIrrigationHours();
+        this.meteredWaterAmount = irrigation.getMeteredWaterAmount();
     }
 }
\ No newline at end of file
@@ -36,4 +36,8 @@ public class IrrigationSyncItem {
 
     @PositiveOrZero(message = "Las horas de riego deben ser un valor positivo o cero.")
     private BigDecimal irrigationHours;
+
+    // Lectura del caudalímetro en hL (opcional, solo equipos con caudalímetro)
+    @PositiveOrZero(message = "El volumen medido debe ser un valor positivo o cero.")
+    private BigDecimal meteredWaterAmount;
 }
\ No newline at end of file
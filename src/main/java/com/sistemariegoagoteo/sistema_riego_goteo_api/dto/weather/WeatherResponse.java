@@ -14,8 +14,14 @@ public class WeatherResponse {
 
     private Main main;
     private Wind wind;
+    private Rain rain;
     private List<Weather> weather;
 
+    /**
+     * Momento de la medición (segundos desde epoch, UTC).
+     */
+    private Long dt;
+
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Main {
@@ -30,6 +36,13 @@ public class WeatherResponse {
         private BigDecimal speed;
     }
 
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Rain {
+        @JsonProperty("1h")
+        private BigDecimal oneHour; // mm en la última hora
+    }
+
     @Data
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Weather {
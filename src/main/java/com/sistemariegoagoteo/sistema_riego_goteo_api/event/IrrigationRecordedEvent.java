@@ -0,0 +1,31 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.event;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Irrigation;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Se publica cada vez que se persiste un nuevo registro de riego, ya sea desde
+ * la API web o desde la sincronización móvil.
+ */
+public record IrrigationRecordedEvent(Integer irrigationId, Integer farmId, Integer sectorId, Integer equipmentId,
+        String equipmentName, LocalDateTime startDatetime, BigDecimal irrigationHours, BigDecimal waterAmount,
+        BigDecimal meteredWaterAmount) {
+
+    /**
+     * Construye el evento a partir de un riego ya persistido.
+     */
+    public static IrrigationRecordedEvent of(Irrigation irrigation) {
+        return new IrrigationRecordedEvent(
+                irrigation.getId(),
+                irrigation.getSector().getFarm().getId(),
+                irrigation.getSector().getId(),
+                irrigation.getEquipment().getId(),
+                irrigation.getEquipment().getName(),
+                irrigation.getStartDatetime(),
+                irrigation.getIrrigationHours(),
+                irrigation.getWaterAmount(),
+                irrigation.getMeteredWaterAmount());
+    }
+}
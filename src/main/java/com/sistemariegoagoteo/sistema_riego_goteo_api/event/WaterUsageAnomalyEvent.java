@@ -0,0 +1,5 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.event;
+
+public record WaterUsageAnomalyEvent(Integer equipmentId, Integer farmId, String equipmentName,
+        double observedWaterPerHour, double expectedWaterPerHour, double zScore) {
+}
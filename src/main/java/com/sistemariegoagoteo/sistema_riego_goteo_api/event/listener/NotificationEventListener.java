@@ -4,17 +4,26 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.event.HumidityAlertCreated
 import com.sistemariegoagoteo.sistema_riego_goteo_api.event.MaintenanceCreatedEvent;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.event.TaskAssignedEvent;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.event.TaskStatusUpdatedEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.WaterUsageAnomalyEvent;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.AppNotification;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.NotificationType;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.notification.NotificationRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.AlertCoalescer;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.NotificationBatchWriter;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.UnreadNotificationCounter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.List;
+import java.util.Locale;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
@@ -22,6 +31,16 @@ public class NotificationEventListener {
 
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final NotificationBatchWriter notificationBatchWriter;
+    private final AlertCoalescer alertCoalescer;
+    private final UnreadNotificationCounter unreadCounter;
+
+    /**
+     * Roles que reciben las alertas de todas las fincas, además de los usuarios
+     * asignados a cada una.
+     */
+    @Value("${notifications.farm-alert-roles:ADMIN,ANALISTA}")
+    private List<String> farmAlertRoles = List.of("ADMIN", "ANALISTA");
 
     @Async
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
@@ -36,6 +55,7 @@ public class NotificationEventListener {
             notif.setActionUrl("/tasks/assigned-to-me/" + event.taskId());
 
             notificationRepository.save(notif);
+            unreadCounter.increment(user.getId());
             log.info("AppNotification persistida para el usuario {} sobre asignación de tarea {}", user.getUsername(),
                     event.taskId());
         });
@@ -55,6 +75,7 @@ public class NotificationEventListener {
             notif.setActionUrl("/tasks/created-by-me/" + event.taskId());
 
             notificationRepository.save(notif);
+            unreadCounter.increment(user.getId());
             log.info("AppNotification persistida para el analista {} sobre actualización de tarea {}",
                     user.getUsername(), event.taskId());
         });
@@ -63,40 +84,50 @@ public class NotificationEventListener {
     @Async
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void handleHumidityAlertCreatedEvent(HumidityAlertCreatedEvent event) {
-        // Notificar a administradores o analistas de la finca (simplificado a buscar
-        // admins/analistas para este ejemplo)
-        userRepository.findAll().stream()
-                .filter(u -> u.getRol().getRoleName().equals("ADMIN") || u.getRol().getRoleName().equals("ANALISTA"))
-                .forEach(user -> {
-                    AppNotification notif = new AppNotification();
-                    notif.setDestinatario(user);
-                    notif.setType(NotificationType.WARNING);
-                    notif.setMessage("Alerta en " + event.sensorName() + ": Nivel de humedad crítico del "
-                            + event.humidityLevel() + "%");
-                    notif.setEntityType("ALERT");
-                    notif.setEntityId(event.alertId().longValue());
-                    notif.setActionUrl("/farms/" + event.farmId() + "/alerts/" + event.alertId());
-
-                    notificationRepository.save(notif);
-                });
+        alertCoalescer.notifyOnce("humidity:" + event.farmId() + ":" + event.sensorName(),
+                () -> notifyFarmRecipients(event.farmId(), NotificationType.WARNING,
+                        "Alerta en " + event.sensorName() + ": Nivel de humedad crítico del "
+                                + event.humidityLevel() + "%",
+                        "ALERT", event.alertId().longValue(),
+                        "/farms/" + event.farmId() + "/alerts/" + event.alertId()));
     }
 
     @Async
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void handleMaintenanceCreatedEvent(MaintenanceCreatedEvent event) {
-        userRepository.findAll().stream()
-                .filter(u -> u.getRol().getRoleName().equals("ADMIN") || u.getRol().getRoleName().equals("ANALISTA"))
-                .forEach(user -> {
-                    AppNotification notif = new AppNotification();
-                    notif.setDestinatario(user);
-                    notif.setType(NotificationType.INFO);
-                    notif.setMessage(
-                            "Mantenimiento registrado en " + event.equipmentName() + ": " + event.description());
-                    notif.setEntityType("MAINTENANCE");
-                    notif.setEntityId(event.maintenanceId().longValue());
-                    notif.setActionUrl("/farms/" + event.farmId() + "/maintenances/" + event.maintenanceId());
+        notifyFarmRecipients(event.farmId(), NotificationType.INFO,
+                "Mantenimiento registrado en " + event.equipmentName() + ": " + event.description(),
+                "MAINTENANCE", event.maintenanceId().longValue(),
+                "/farms/" + event.farmId() + "/maintenances/" + event.maintenanceId());
+    }
+
+    /**
+     * El evento se publica desde un listener AFTER_COMMIT (fuera de la
+     * transacción del riego), por eso se escucha con {@link EventListener}.
+     */
+    @Async
+    @EventListener
+    public void handleWaterUsageAnomalyEvent(WaterUsageAnomalyEvent event) {
+        String message = String.format(Locale.ROOT,
+                "Consumo anómalo en %s: %.2f hL/h (esperado %.2f hL/h). Revise posibles fugas u obstrucciones.",
+                event.equipmentName(), event.observedWaterPerHour(), event.expectedWaterPerHour());
+        alertCoalescer.notifyOnce("equipment:" + event.farmId() + ":" + event.equipmentId(),
+                () -> notifyFarmRecipients(event.farmId(), NotificationType.WARNING, message, "EQUIPMENT",
+                        event.equipmentId().longValue(),
+                        "/farms/" + event.farmId() + "/equipments/" + event.equipmentId()));
+    }
 
-                    notificationRepository.save(notif);
-                });
+    /**
+     * Resuelve los destinatarios de la finca (sólo IDs) y les inserta la
+     * notificación en un único lote. Reciben la alerta los usuarios asignados a
+     * la finca y los de {@code farmAlertRoles}.
+     */
+    private void notifyFarmRecipients(Integer farmId, NotificationType type, String message, String entityType,
+            Long entityId, String actionUrl) {
+        List<Long> recipientIds = userRepository.findFarmAlertRecipientIds(farmId, farmAlertRoles);
+        int inserted = notificationBatchWriter.insertForRecipients(recipientIds, type, message, entityType, entityId,
+                actionUrl);
+        log.info("{} notificaciones {} creadas para la finca {} ({}:{})", inserted, type, farmId, entityType,
+                entityId);
     }
 }
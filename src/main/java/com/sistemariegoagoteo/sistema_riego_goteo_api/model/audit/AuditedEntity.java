@@ -0,0 +1,27 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca una entidad cuyas altas, modificaciones y bajas se auditan
+ * automáticamente a partir de los eventos de Hibernate.
+ * <p>
+ * Cada cambio genera una única fila en {@code change_history} con la
+ * diferencia en JSON de las propiedades afectadas, sin que el servicio tenga
+ * que comparar campos a mano.
+ * </p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface AuditedEntity {
+
+    /**
+     * Propiedades que no deben aparecer en la diferencia.
+     */
+    String[] exclude() default {};
+}
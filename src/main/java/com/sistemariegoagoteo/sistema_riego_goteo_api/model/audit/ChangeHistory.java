@@ -11,7 +11,11 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "change_history")
+@Table(name = "change_history", indexes = {
+        @Index(name = "idx_change_history_datetime", columnList = "change_datetime"),
+        @Index(name = "idx_change_history_user_datetime", columnList = "user_id, change_datetime"),
+        @Index(name = "idx_change_history_table_datetime", columnList = "affected_table, change_datetime")
+})
 public class ChangeHistory {
 
     @Id
@@ -41,4 +45,9 @@ public class ChangeHistory {
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "change_datetime")
     private Date changeDatetime;
+
+    // Diferencia en JSON de una auditoría a nivel de entidad ({@code EntityAuditListener}).
+    // Sin @Lob: la búsqueda por texto le aplica lower(), que Hibernate no admite sobre un CLOB
+    @Column(name = "diff", columnDefinition = "TEXT")
+    private String diff;
 }
\ No newline at end of file
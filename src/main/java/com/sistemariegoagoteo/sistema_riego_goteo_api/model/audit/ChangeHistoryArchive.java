@@ -0,0 +1,40 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Índice de los meses de {@code change_history} exportados a fichero. Permite
+ * saber qué ficheros leer para un rango de fechas o un id sin abrirlos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "change_history_archive")
+public class ChangeHistoryArchive {
+
+    // Mes archivado en formato yyyy-MM
+    @Id
+    @Column(name = "archive_month", length = 7)
+    private String archiveMonth;
+
+    @Column(name = "file_name", nullable = false, length = 100)
+    private String fileName;
+
+    @Column(name = "row_count", nullable = false)
+    private long rowCount;
+
+    @Column(name = "min_history_id")
+    private Integer minHistoryId;
+
+    @Column(name = "max_history_id")
+    private Integer maxHistoryId;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
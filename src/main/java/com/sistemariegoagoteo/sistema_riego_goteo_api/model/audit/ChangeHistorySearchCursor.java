@@ -0,0 +1,25 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progreso del backfill del índice de búsqueda de {@code change_history}:
+ * última auditoría ya indexada. Tabla de una sola fila.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "change_history_search_cursor")
+public class ChangeHistorySearchCursor {
+
+    @Id
+    @Column(name = "cursor_id")
+    private Integer id;
+
+    @Column(name = "last_history_id", nullable = false)
+    private Integer lastHistoryId;
+}
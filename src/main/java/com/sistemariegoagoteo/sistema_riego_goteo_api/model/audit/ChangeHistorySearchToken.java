@@ -0,0 +1,44 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Entrada del índice invertido de trigramas de {@code change_history}.
+ * <p>
+ * Cada fila indica que el trigrama {@code gram} (normalizado a minúsculas y
+ * sin acentos) aparece en el campo, valor anterior o valor nuevo de la
+ * auditoría {@code historyId}. La clave primaria (gram, history_id) es el
+ * propio índice de búsqueda.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(ChangeHistorySearchToken.Key.class)
+@Table(name = "change_history_search", indexes = {
+        @Index(name = "idx_change_history_search_history", columnList = "history_id")
+})
+public class ChangeHistorySearchToken {
+
+    @Id
+    @Column(name = "gram", length = 3, nullable = false)
+    private String gram;
+
+    @Id
+    @Column(name = "history_id", nullable = false)
+    private Integer historyId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String gram;
+        private Integer historyId;
+    }
+}
@@ -10,7 +10,12 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "synchronization")
+@Table(name = "synchronization", indexes = {
+        @Index(name = "idx_sync_pending_datetime", columnList = "is_synchronized, modification_datetime"),
+        @Index(name = "idx_sync_table_pending_datetime",
+                columnList = "modified_table, is_synchronized, modification_datetime"),
+        @Index(name = "idx_sync_table_record", columnList = "modified_table, modified_record_id")
+})
 public class Synchronization {
 
     @Id
@@ -0,0 +1,15 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit;
+
+/**
+ * Entidad auditada que también escribe el sistema (tareas programadas). Las
+ * escrituras de filas generadas por el sistema sin un usuario autenticado no
+ * se auditan: no aportan quién hizo el cambio y, por su frecuencia, llenarían
+ * {@code change_history}.
+ */
+public interface SystemGenerated {
+
+    /**
+     * @return {@code true} si la fila la generó el sistema.
+     */
+    boolean isSystemGenerated();
+}
@@ -0,0 +1,40 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.cache;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Resultado de geocodificación persistido por ubicación normalizada.
+ * <p>
+ * {@code found = false} registra que el proveedor no encontró la ubicación
+ * (caché negativa), para no volver a consultarla hasta que venza.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "geocoding_cache")
+public class GeocodingCacheEntry {
+
+    @Id
+    @Column(name = "normalized_location", length = 255)
+    private String normalizedLocation;
+
+    @Column(name = "found", nullable = false)
+    private boolean found;
+
+    @Column(name = "latitude", precision = 10, scale = 7)
+    private BigDecimal latitude;
+
+    @Column(name = "longitude", precision = 10, scale = 7)
+    private BigDecimal longitude;
+
+    @Column(name = "resolved_at", nullable = false)
+    private LocalDateTime resolvedAt;
+}
@@ -0,0 +1,47 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.cache;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del registro de invalidaciones de caché compartido entre nodos.
+ * <p>
+ * Cada escritura que afecta a una caché en memoria agrega una fila
+ * (caché, clave, versión); los demás nodos leen las filas nuevas por
+ * {@code id} y descartan las entradas correspondientes. Las filas antiguas se
+ * purgan periódicamente.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "invalidation_log", indexes = {
+        @Index(name = "idx_invalidation_log_created", columnList = "created_at")
+})
+public class InvalidationLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "invalidation_id")
+    private Long id;
+
+    @Column(name = "cache_name", nullable = false, length = 100)
+    private String cacheName;
+
+    @Column(name = "cache_key", nullable = false, length = 255)
+    private String cacheKey;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
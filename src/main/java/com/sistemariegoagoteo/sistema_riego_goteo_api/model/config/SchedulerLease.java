@@ -0,0 +1,31 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.config;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Concesión de una tarea programada que debe ejecutarse en un solo nodo. El
+ * nodo {@code owner} la tiene hasta {@code leaseUntil} y la renueva en cada
+ * ejecución; los demás sólo pueden tomarla cuando vence.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "scheduler_lease")
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    @Column(name = "owner", nullable = false, length = 64)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+}
@@ -12,7 +12,13 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "app_notification")
+// destinatario + fecha sirve al listado paginado y al conteo de no leídas;
+// tipo + fecha, a la purga por retención
+@Table(name = "app_notification", indexes = {
+        @Index(name = "idx_notification_dest_created", columnList = "destinatario_id, created_at"),
+        @Index(name = "idx_notification_dest_read", columnList = "destinatario_id, is_read"),
+        @Index(name = "idx_notification_type_created", columnList = "type, created_at")
+})
 public class AppNotification {
 
     @Id
@@ -0,0 +1,57 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Copia de una {@link AppNotification} vencida, movida fuera de la tabla
+ * caliente por {@code NotificationRetentionService}. Conserva el {@code id}
+ * original.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "app_notification_archive", indexes = {
+        @Index(name = "idx_notification_archive_archived", columnList = "archived_at"),
+        @Index(name = "idx_notification_archive_dest", columnList = "destinatario_id, created_at")
+})
+public class ArchivedNotification {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false, length = 500)
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NotificationType type;
+
+    @Column(name = "is_read", nullable = false)
+    private boolean isRead;
+
+    @Column(name = "destinatario_id", nullable = false)
+    private Long destinatarioId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    @Column(name = "entity_type", length = 50)
+    private String entityType;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    @Column(name = "action_url", length = 255)
+    private String actionUrl;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "archived_at", nullable = false)
+    private Date archivedAt;
+}
@@ -0,0 +1,34 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contador persistido de notificaciones no leídas por usuario.
+ * <p>
+ * Se actualiza en la misma transacción que crea o marca notificaciones y se
+ * reconcilia periódicamente contra {@code app_notification}, de modo que el
+ * conteo de no leídas no requiere recorrer las notificaciones del usuario.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "notification_unread_counter")
+public class NotificationUnreadCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "unread_count", nullable = false)
+    private Long unreadCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
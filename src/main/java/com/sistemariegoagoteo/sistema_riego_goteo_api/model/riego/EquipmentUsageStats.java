@@ -0,0 +1,47 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot de las estadísticas acumuladas de consumo (hL/h) de un equipo de
+ * riego.
+ * <p>
+ * Guarda el estado del algoritmo de Welford (media y suma de cuadrados M2) y la
+ * media móvil exponencial (EWMA), de modo que el detector de anomalías pueda
+ * reanudarse sin volver a recorrer el historial de riegos.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "equipment_usage_stats")
+public class EquipmentUsageStats {
+
+    @Id
+    @Column(name = "equipment_id")
+    private Integer equipmentId;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "mean", nullable = false)
+    private double mean;
+
+    @Column(name = "m2", nullable = false)
+    private double m2;
+
+    @Column(name = "ewma", nullable = false)
+    private double ewma;
+
+    @Column(name = "last_value")
+    private Double lastValue;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
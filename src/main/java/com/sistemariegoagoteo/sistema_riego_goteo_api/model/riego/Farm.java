@@ -2,6 +2,8 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
@@ -24,6 +26,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "farm")
 @Table(name = "farm")
 public class Farm {
 
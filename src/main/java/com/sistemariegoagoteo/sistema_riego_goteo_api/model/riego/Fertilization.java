@@ -15,7 +15,9 @@ import java.util.Date;
 public class Fertilization {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "fertilization_id")
+    @TableGenerator(name = "fertilization_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "fertilization", allocationSize = 50)
     @Column(name = "fertilization_id")
     private Integer id;
 
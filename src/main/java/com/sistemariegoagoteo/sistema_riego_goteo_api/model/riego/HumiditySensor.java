@@ -1,5 +1,6 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.AuditedEntity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,6 +17,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@AuditedEntity
 @Table(name = "humidity_sensor")
 public class HumiditySensor {
 
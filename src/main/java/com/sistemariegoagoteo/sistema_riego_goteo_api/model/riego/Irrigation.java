@@ -18,7 +18,9 @@ import java.util.UUID; // Importar UUID
 public class Irrigation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "irrigation_id")
+    @TableGenerator(name = "irrigation_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "irrigation", allocationSize = 50)
     @Column(name = "irrigation_id")
     private Integer id; // ID del servidor
 
@@ -43,6 +45,14 @@ public class Irrigation {
     @Column(name = "irrigation_hours", precision = 5, scale = 2)
     private BigDecimal irrigationHours;
 
+    /**
+     * Volumen leído del caudalímetro del equipo (hL), si lo tiene. A diferencia
+     * de {@code waterAmount}, que se calcula con el caudal nominal, es una
+     * medición real.
+     */
+    @Column(name = "metered_water_amount", precision = 10, scale = 2)
+    private BigDecimal meteredWaterAmount;
+
     // Método para generar un localMobileId si no se proporciona (aunque el móvil
     // debería enviarlo)
     @PrePersist
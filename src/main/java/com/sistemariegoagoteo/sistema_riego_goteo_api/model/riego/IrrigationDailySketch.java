@@ -0,0 +1,53 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Sketch de cuantiles diario por sector para las horas de riego y el volumen
+ * de agua.
+ * <p>
+ * Cada fila resume todos los riegos de un sector en un día en un formato
+ * binario compacto ({@code QuantileSketch}); los percentiles de cualquier rango
+ * se obtienen combinando las filas diarias, sin ordenar los riegos.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "irrigation_daily_sketch", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "sector_id", "sketch_date" })
+})
+public class IrrigationDailySketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "sketch_id")
+    private Long id;
+
+    @Column(name = "sector_id", nullable = false)
+    private Integer sectorId;
+
+    @Column(name = "sketch_date", nullable = false)
+    private LocalDate sketchDate;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Lob
+    @Column(name = "hours_sketch", nullable = false)
+    private byte[] hoursSketch;
+
+    @Lob
+    @Column(name = "water_sketch", nullable = false)
+    private byte[] waterSketch;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -1,6 +1,8 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -15,6 +17,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "irrigation-equipment")
 @Table(name = "irrigation_equipment")
 public class IrrigationEquipment {
 
@@ -0,0 +1,36 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marca de la reconstrucción inicial de los sketches de riego. Tabla de una
+ * sola fila: el nodo que la bloquea ejecuta el backfill y los demás esperan a
+ * que quede completada.
+ * <p>
+ * {@code lastIrrigationId} es el mayor ID de riego que leyó el backfill: los
+ * riegos con ID menor o igual ya están en los sketches y sus eventos se
+ * descartan. Es nulo si no hizo falta reconstruir nada.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "irrigation_sketch_backfill")
+public class IrrigationSketchBackfill {
+
+    @Id
+    @Column(name = "backfill_id")
+    private Integer id;
+
+    @Column(name = "last_irrigation_id")
+    private Integer lastIrrigationId;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
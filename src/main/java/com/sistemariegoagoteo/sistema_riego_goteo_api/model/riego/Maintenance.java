@@ -15,7 +15,9 @@ import java.util.Date;
 public class Maintenance {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "maintenance_id")
+    @TableGenerator(name = "maintenance_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "maintenance", allocationSize = 50)
     @Column(name = "maintenance_id")
     private Integer id;
 
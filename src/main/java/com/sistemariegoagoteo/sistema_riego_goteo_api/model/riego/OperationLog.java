@@ -1,5 +1,6 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.AuditedEntity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +11,7 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@AuditedEntity
 @Table(name = "operation_log")
 public class OperationLog {
 
@@ -1,5 +1,7 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.AuditedEntity;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.SystemGenerated;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,11 +13,14 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@AuditedEntity
 @Table(name = "precipitation")
-public class Precipitation {
+public class Precipitation implements SystemGenerated {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "precipitation_id")
+    @TableGenerator(name = "precipitation_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "precipitation", allocationSize = 50)
     @Column(name = "precipitation_id")
     private Integer id;
 
@@ -31,4 +36,18 @@ public class Precipitation {
 
     @Column(name = "mm_effective_rain", precision = 6, scale = 2) // Lluvia efectiva calculada
     private BigDecimal mmEffectiveRain;
+
+    // Origen del registro; null en los registros anteriores (carga manual)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "source", length = 20)
+    private PrecipitationSource source;
+
+    /**
+     * La lluvia observada ({@link PrecipitationSource#WEATHER_API}) la acumula
+     * el scheduler del clima en cada volcado y no se audita.
+     */
+    @Override
+    public boolean isSystemGenerated() {
+        return source == PrecipitationSource.WEATHER_API;
+    }
 }
\ No newline at end of file
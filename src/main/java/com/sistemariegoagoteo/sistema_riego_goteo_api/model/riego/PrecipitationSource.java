@@ -0,0 +1,16 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
+
+/**
+ * Origen de un registro de {@link Precipitation}.
+ */
+public enum PrecipitationSource {
+    /**
+     * Cargado por un usuario.
+     */
+    MANUAL,
+    /**
+     * Acumulado automáticamente a partir de las observaciones del proveedor de
+     * clima.
+     */
+    WEATHER_API
+}
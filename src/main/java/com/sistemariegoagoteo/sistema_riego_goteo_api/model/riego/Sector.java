@@ -1,6 +1,9 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.AuditedEntity;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -21,6 +24,8 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@AuditedEntity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "sector")
 @Table(name = "sector")
 public class Sector {
 
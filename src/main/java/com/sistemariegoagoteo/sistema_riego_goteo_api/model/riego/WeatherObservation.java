@@ -0,0 +1,55 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Observación del clima de una finca tomada por el scheduler. Tabla de sólo
+ * inserción: una fila por finca y medición del proveedor (restricción única,
+ * que también sirve de índice para las consultas por finca y fecha).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "weather_observation", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_weather_observation_farm_time", columnNames = { "farm_id", "observed_at" })
+})
+public class WeatherObservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "observation_id")
+    private Long id;
+
+    @Column(name = "farm_id", nullable = false)
+    private Integer farmId;
+
+    @Column(name = "observed_at", nullable = false)
+    private LocalDateTime observedAt;
+
+    @Column(name = "temperature", precision = 5, scale = 2)
+    private BigDecimal temperature;
+
+    @Column(name = "humidity", precision = 5, scale = 2)
+    private BigDecimal humidity;
+
+    @Column(name = "wind_speed", precision = 5, scale = 2)
+    private BigDecimal windSpeed;
+
+    // Lluvia de la última hora informada por el proveedor
+    @Column(name = "rain_1h_mm", precision = 6, scale = 2)
+    private BigDecimal rain1hMm;
+
+    // Lluvia atribuida al intervalo desde la observación anterior
+    @Column(name = "rain_mm", precision = 6, scale = 2)
+    private BigDecimal rainMm;
+
+    @Column(name = "weather_main", length = 30)
+    private String weatherMain;
+}
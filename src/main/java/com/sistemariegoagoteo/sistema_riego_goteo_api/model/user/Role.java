@@ -1,6 +1,8 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.model.user;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -22,6 +24,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "role")
 @Table(name = "role")
 public class Role {
 
@@ -51,6 +54,7 @@ public class Role {
      * y no siempre los necesitas inmediatamente.
      */
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "role.permissions")
     @JoinTable(name = "role_permission", // Tabla de unión según el MER
             joinColumns = @JoinColumn(name = "role_id"), // FK a esta entidad (Role)
             inverseJoinColumns = @JoinColumn(name = "permission_id") // FK a la otra entidad (Permission)
@@ -93,6 +93,14 @@ public class User implements UserDetails {
     @Column(name = "is_active", columnDefinition = "TINYINT(1) DEFAULT 1")
     private boolean isActive = true;
 
+    /**
+     * Versión de credenciales del usuario. Se incrementa al cambiar la contraseña
+     * o desactivar la cuenta, invalidando los tokens emitidos con una versión
+     * anterior.
+     */
+    @Column(name = "token_version", columnDefinition = "INT DEFAULT 0")
+    private Integer tokenVersion = 0;
+
     /**
      * Relación Many-to-Many con la entidad Farm, a través de la tabla intermedia
      * 'user_farm'.
@@ -113,6 +121,22 @@ public class User implements UserDetails {
         this.rol = rol;
         this.isActive = true;
         this.failedAttempts = 0;
+        this.tokenVersion = 0;
+    }
+
+    /**
+     * Devuelve la versión de token efectiva (las filas antiguas pueden tenerla
+     * nula).
+     */
+    public int currentTokenVersion() {
+        return tokenVersion != null ? tokenVersion : 0;
+    }
+
+    /**
+     * Incrementa la versión de token, revocando los JWT emitidos hasta ahora.
+     */
+    public void incrementTokenVersion() {
+        this.tokenVersion = currentTokenVersion() + 1;
     }
 
     // --- Implementación de UserDetails ---
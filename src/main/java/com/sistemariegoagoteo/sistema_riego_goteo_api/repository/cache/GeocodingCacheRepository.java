@@ -0,0 +1,12 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.repository.cache;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.cache.GeocodingCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio para la caché persistente de geocodificación.
+ */
+@Repository
+public interface GeocodingCacheRepository extends JpaRepository<GeocodingCacheEntry, String> {
+}
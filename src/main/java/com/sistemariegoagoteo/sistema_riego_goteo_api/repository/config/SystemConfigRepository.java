@@ -1,12 +1,26 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.repository.config;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.SystemConfig;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SystemConfigRepository extends JpaRepository<SystemConfig, String> {
     List<SystemConfig> findByConfigKeyIn(List<String> keys);
+
+    /**
+     * Lee una fila bloqueándola hasta el fin de la transacción. Se usa para
+     * incrementar la versión de la configuración sin perder actualizaciones
+     * concurrentes.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM SystemConfig c WHERE c.configKey = :key")
+    Optional<SystemConfig> findForUpdate(@Param("key") String key);
 }
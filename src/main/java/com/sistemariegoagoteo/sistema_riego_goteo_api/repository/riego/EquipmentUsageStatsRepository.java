@@ -0,0 +1,23 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.EquipmentUsageStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EquipmentUsageStatsRepository extends JpaRepository<EquipmentUsageStats, Integer> {
+
+    /**
+     * Obtiene las estadísticas de un equipo bloqueándolas para escritura, de
+     * modo que dos nodos no pisen sus muestras al fusionar.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM EquipmentUsageStats s WHERE s.equipmentId = :equipmentId")
+    Optional<EquipmentUsageStats> findForUpdate(@Param("equipmentId") Integer equipmentId);
+}
@@ -1,11 +1,14 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,4 +21,24 @@ public interface FarmRepository extends JpaRepository<Farm, Integer> {
     Optional<Farm> findByName(String name);
     @Query("SELECT f FROM Farm f JOIN f.users u WHERE u.username = :username")
     List<Farm> findFarmsByUsername(@Param("username") String username);
+
+    /**
+     * Fincas con ubicación pero sin coordenadas, por id ascendente a partir de
+     * {@code afterId} (paginación por clave para reanudar el backfill).
+     *
+     * @return Filas [id, location].
+     */
+    @Query("SELECT f.id, f.location FROM Farm f WHERE f.id > :afterId AND f.location IS NOT NULL "
+            + "AND (f.latitude IS NULL OR f.longitude IS NULL) ORDER BY f.id")
+    List<Object[]> findMissingCoordinates(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Completa las coordenadas sólo si siguen vacías y la ubicación es la que se
+     * geocodificó, para no pisar una edición concurrente.
+     */
+    @Modifying
+    @Query("UPDATE Farm f SET f.latitude = :latitude, f.longitude = :longitude "
+            + "WHERE f.id = :id AND f.location = :location AND (f.latitude IS NULL OR f.longitude IS NULL)")
+    int fillCoordinates(@Param("id") Integer id, @Param("location") String location,
+            @Param("latitude") BigDecimal latitude, @Param("longitude") BigDecimal longitude);
 }
\ No newline at end of file
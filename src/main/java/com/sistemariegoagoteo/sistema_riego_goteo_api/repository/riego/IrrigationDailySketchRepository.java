@@ -0,0 +1,30 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationDailySketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IrrigationDailySketchRepository extends JpaRepository<IrrigationDailySketch, Long> {
+
+    List<IrrigationDailySketch> findBySectorIdInAndSketchDateBetween(Collection<Integer> sectorIds, LocalDate startDate,
+            LocalDate endDate);
+
+    /**
+     * Obtiene el sketch de un sector y día bloqueándolo para escritura, de modo
+     * que dos nodos no pisen sus incrementos al fusionar.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM IrrigationDailySketch s WHERE s.sectorId = :sectorId AND s.sketchDate = :sketchDate")
+    Optional<IrrigationDailySketch> findForUpdate(@Param("sectorId") Integer sectorId,
+            @Param("sketchDate") LocalDate sketchDate);
+}
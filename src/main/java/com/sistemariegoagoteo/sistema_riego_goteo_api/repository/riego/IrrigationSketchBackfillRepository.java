@@ -0,0 +1,23 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationSketchBackfill;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface IrrigationSketchBackfillRepository extends JpaRepository<IrrigationSketchBackfill, Integer> {
+
+    /**
+     * Obtiene la marca bloqueándola para escritura: un solo nodo reconstruye los
+     * sketches y el resto espera su resultado.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM IrrigationSketchBackfill b WHERE b.id = :id")
+    Optional<IrrigationSketchBackfill> findForUpdate(@Param("id") Integer id);
+}
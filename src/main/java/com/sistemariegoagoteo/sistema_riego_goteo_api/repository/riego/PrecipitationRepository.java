@@ -3,12 +3,14 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Precipitation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +20,19 @@ public interface PrecipitationRepository extends JpaRepository<Precipitation, In
 
         List<Precipitation> findByPrecipitationDate(LocalDate date);
 
+        @Query("SELECT p FROM Precipitation p WHERE p.farm.id IN :farmIds AND p.precipitationDate IN :dates")
+        List<Precipitation> findByFarmIdsAndDates(@Param("farmIds") Collection<Integer> farmIds,
+                        @Param("dates") Collection<LocalDate> dates);
+
+        /**
+         * Elimina los registros automáticos ({@code WEATHER_API}) de la finca y el
+         * día, que una carga manual reemplaza.
+         */
+        @Modifying
+        @Query("DELETE FROM Precipitation p WHERE p.farm.id = :farmId AND p.precipitationDate = :date "
+                        + "AND p.source = com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.PrecipitationSource.WEATHER_API")
+        int deleteObservedRain(@Param("farmId") Integer farmId, @Param("date") LocalDate date);
+
         List<Precipitation> findByFarmAndPrecipitationDateBetween(Farm farm, LocalDate startDate, LocalDate endDate);
 
         List<Precipitation> findByFarmOrderByPrecipitationDateDesc(Farm farm);
@@ -5,8 +5,10 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List; // Importar List
 import java.util.Optional;
 
@@ -85,4 +87,32 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT r.roleName, COUNT(u) FROM User u JOIN u.rol r GROUP BY r.roleName")
     List<Object[]> countUsersByRole();
 
+    /**
+     * Devuelve [id, versión de token, activo] de todos los usuarios. Alimenta el
+     * registro en memoria de revocación de tokens.
+     * @return Una lista de arrays [userId, tokenVersion, isActive].
+     */
+    @Query("SELECT u.id, u.tokenVersion, u.isActive FROM User u")
+    List<Object[]> findAllTokenStates();
+
+    /**
+     * Devuelve todos los pares [userId, farmId] de la tabla user_farm. Alimenta
+     * el índice en memoria de pertenencia a fincas.
+     * @return Una lista de arrays [userId, farmId].
+     */
+    @Query("SELECT u.id, f.id FROM User u JOIN u.farms f")
+    List<Object[]> findAllFarmMemberships();
+
+    /**
+     * IDs de los destinatarios de las alertas de una finca: los usuarios activos
+     * asignados a ella y los que tienen alguno de los roles indicados.
+     * @param farmId ID de la finca.
+     * @param roleNames Roles que reciben las alertas de todas las fincas.
+     * @return Lista de IDs de usuario sin repetidos.
+     */
+    @Query("SELECT u.id FROM User u JOIN u.rol r LEFT JOIN u.farms f ON f.id = :farmId "
+            + "WHERE u.isActive = true AND (f.id IS NOT NULL OR r.roleName IN :roleNames)")
+    List<Long> findFarmAlertRecipientIds(@Param("farmId") Integer farmId,
+            @Param("roleNames") Collection<String> roleNames);
+
 }
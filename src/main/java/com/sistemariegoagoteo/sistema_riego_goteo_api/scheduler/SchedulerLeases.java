@@ -0,0 +1,59 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Reparte entre los nodos las tareas programadas que sólo deben ejecutarse en
+ * uno, mediante la tabla {@code scheduler_lease}. La concesión es pegajosa: el
+ * nodo que la tiene la renueva en cada ejecución y otro sólo la toma cuando
+ * vence, por ejemplo si el primero se detuvo.
+ */
+@Component
+@Slf4j
+public class SchedulerLeases {
+
+    private static final String RENEW_SQL = "UPDATE scheduler_lease SET owner = ?, lease_until = ? "
+            + "WHERE job_name = ? AND (owner = ? OR lease_until < ?)";
+    private static final String INSERT_SQL = "INSERT INTO scheduler_lease (job_name, owner, lease_until) "
+            + "VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+
+    public SchedulerLeases(JdbcTemplate jdbcTemplate, CacheInvalidationBus invalidationBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = invalidationBus.getNodeId();
+    }
+
+    /**
+     * Toma o renueva la concesión de la tarea durante {@code lease}.
+     *
+     * @return {@code true} si este nodo debe ejecutar la tarea.
+     */
+    public boolean tryAcquire(String jobName, Duration lease) {
+        Instant now = Instant.now();
+        Timestamp until = Timestamp.from(now.plus(lease));
+        try {
+            if (jdbcTemplate.update(RENEW_SQL, nodeId, until, jobName, nodeId, Timestamp.from(now)) > 0) {
+                return true;
+            }
+            jdbcTemplate.update(INSERT_SQL, jobName, nodeId, until);
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("La tarea {} se ejecuta en otro nodo.", jobName);
+            return false;
+        } catch (DataAccessException e) {
+            log.error("No se pudo tomar la concesión de la tarea {}: {}", jobName, e.getMessage());
+            return false;
+        }
+    }
+}
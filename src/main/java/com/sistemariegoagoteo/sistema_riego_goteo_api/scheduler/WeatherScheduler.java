@@ -1,49 +1,194 @@
 // src/main/java/com/sistemariegoagoteo/sistema_riego_goteo_api/scheduler/WeatherScheduler.java
 package com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler;
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.config.WeatherConfigDTO;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.NotificationType;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.NotificationService;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.NotificationBatchWriter;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmMembershipIndex;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherCache;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherCell;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherObservationRecorder;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherPoller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
+/**
+ * Consulta periódica del clima para alertar de lluvia a los usuarios de cada
+ * finca.
+ * <p>
+ * El intervalo y la activación se leen de la configuración del sistema
+ * ({@code WTH_UPDATE_INTERVAL_MIN}, {@code WTH_ENABLED}) antes de cada
+ * ejecución, por lo que un cambio desde el panel se aplica sin reiniciar. Las
+ * fincas se agrupan por {@link WeatherCell} y cada celda se consulta una vez
+ * mediante {@link WeatherPoller}. Cada respuesta se guarda además como
+ * observación de sus fincas mediante {@link WeatherObservationRecorder}, que
+ * también acumula la lluvia observada en {@code precipitation}. La alerta de
+ * lluvia se envía al empezar a llover en la finca, no en cada consulta. Sólo
+ * consulta el nodo que tiene la concesión {@code weather-polling}.
+ * </p>
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class WeatherScheduler {
+public class WeatherScheduler implements SchedulingConfigurer {
+
+    static final String LEASE_JOB = "weather-polling";
 
     private final FarmRepository farmRepository;
-    private final WeatherService weatherService;
-    private final NotificationService notificationService;
+    private final UserRepository userRepository;
+    private final SystemConfigService systemConfigService;
+    private final WeatherPoller weatherPoller;
+    private final WeatherCache weatherCache;
+    private final WeatherObservationRecorder observationRecorder;
+    private final NotificationBatchWriter notificationBatchWriter;
+    private final FarmMembershipIndex farmMembershipIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeases schedulerLeases;
+
+    /**
+     * Fincas con lluvia en la última consulta. Sólo se notifica cuando una finca
+     * pasa a tener lluvia, no en cada consulta mientras siga lloviendo; una
+     * consulta sin respuesta para la celda no cambia su estado.
+     */
+    private final Set<Integer> rainingFarms = ConcurrentHashMap.newKeySet();
+    private volatile boolean holdsLease;
+
+    @Value("${weather.polling.initial-delay-ms:60000}")
+    private long initialDelayMs = 60000;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addTriggerTask(this::checkForRain, nextExecution());
+    }
+
+    /**
+     * Próxima ejecución: el intervalo configurado contado desde el fin de la
+     * anterior.
+     */
+    Trigger nextExecution() {
+        return context -> {
+            Instant lastCompletion = context.lastCompletion();
+            if (lastCompletion == null) {
+                return Instant.now().plusMillis(initialDelayMs);
+            }
+            return lastCompletion.plus(currentInterval());
+        };
+    }
+
+    Duration currentInterval() {
+        Integer minutes = systemConfigService.getWeatherConfig().getWeatherUpdateIntervalMinutes();
+        return Duration.ofMinutes(minutes != null && minutes > 0 ? minutes : 15);
+    }
 
-    // Se ejecuta cada hora
-    @Scheduled(fixedRate = 3600000)
     public void checkForRain() {
+        WeatherConfigDTO config = systemConfigService.getWeatherConfig();
+        if (!Boolean.TRUE.equals(config.getWeatherServiceEnabled())) {
+            log.debug("Servicio de clima desactivado (WTH_ENABLED=false): se omite la verificación de lluvia.");
+            return;
+        }
+        if (!acquireLease()) {
+            return;
+        }
         log.info("Ejecutando tarea programada: Verificando pronóstico de lluvia...");
-        List<Farm> farms = farmRepository.findAll();
-
-        for (Farm farm : farms) {
-            try {
-                weatherService.getCurrentWeather(farm).getWeather().stream()
-                        .filter(weather -> "Rain".equalsIgnoreCase(weather.getMain()))
-                        .findFirst()
-                        .ifPresent(weather -> {
-                            String message = String.format(
-                                    "Alerta de Lluvia para la finca '%s': %s.",
-                                    farm.getName(),
-                                    weather.getDescription());
-                            // Notificar a todos los usuarios de la finca
-                            farm.getUsers().forEach(user -> notificationService.createNotification(user, message,
-                                    "FARM", Long.valueOf(farm.getId()), "/farms/" + farm.getId() + "/dashboard"));
-                        });
-            } catch (Exception e) {
-                log.error("Error al obtener el clima para la finca ID {}: {}", farm.getId(), e.getMessage());
+
+        Map<WeatherCell, List<Farm>> farmsByCell = farmRepository.findAll().stream()
+                .filter(farm -> weatherCache.cellOf(farm) != null)
+                .collect(Collectors.groupingBy(weatherCache::cellOf, LinkedHashMap::new,
+                        Collectors.toList()));
+        Map<WeatherCell, WeatherResponse> weatherByCell = weatherPoller.fetch(farmsByCell.keySet());
+        log.info("Clima consultado para {} celdas ({} con respuesta) que cubren {} fincas.", farmsByCell.size(),
+                weatherByCell.size(), farmsByCell.values().stream().mapToInt(List::size).sum());
+
+        recordObservations(farmsByCell, weatherByCell);
+
+        weatherByCell.forEach((cell, response) -> {
+            Optional<WeatherResponse.Weather> rain = response.getWeather() == null ? Optional.empty()
+                    : response.getWeather().stream()
+                            .filter(weather -> "Rain".equalsIgnoreCase(weather.getMain()))
+                            .findFirst();
+            for (Farm farm : farmsByCell.get(cell)) {
+                if (rain.isEmpty()) {
+                    rainingFarms.remove(farm.getId());
+                } else if (!rainingFarms.contains(farm.getId()) && notifyRain(farm, rain.get().getDescription())) {
+                    rainingFarms.add(farm.getId());
+                }
             }
+        });
+    }
+
+    /**
+     * La consulta se ejecuta en un solo nodo: si no, cada nodo guardaría la misma
+     * observación, sumaría su lluvia y enviaría su propia alerta. Al tomar la
+     * concesión de otro nodo se descarta el estado en memoria, que puede ser de
+     * una etapa anterior como titular.
+     */
+    private boolean acquireLease() {
+        if (!schedulerLeases.tryAcquire(LEASE_JOB, currentInterval().multipliedBy(2))) {
+            holdsLease = false;
+            log.debug("La consulta del clima la ejecuta otro nodo.");
+            return false;
+        }
+        if (!holdsLease) {
+            rainingFarms.clear();
+            observationRecorder.forgetLastObserved();
+            holdsLease = true;
+        }
+        return true;
+    }
+
+    private void recordObservations(Map<WeatherCell, List<Farm>> farmsByCell,
+            Map<WeatherCell, WeatherResponse> weatherByCell) {
+        try {
+            weatherByCell.forEach((cell, response) -> farmsByCell.get(cell)
+                    .forEach(farm -> observationRecorder.record(farm.getId(), response)));
+            observationRecorder.flush();
+        } catch (Exception e) {
+            log.error("Error al registrar las observaciones del clima: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return {@code true} si la notificación se insertó.
+     */
+    private boolean notifyRain(Farm farm, String description) {
+        try {
+            String message = String.format("Alerta de Lluvia para la finca '%s': %s.", farm.getName(), description);
+            // Notificar a todos los usuarios de la finca
+            Collection<Long> recipients = farmMembershipIndex.isLoaded()
+                    ? farmMembershipIndex.usersOf(farm.getId())
+                    : userRepository.findByFarms_Id(farm.getId()).stream().map(User::getId)
+                            .filter(Objects::nonNull).toList();
+            transactionTemplate.executeWithoutResult(status -> notificationBatchWriter.insertForRecipients(
+                    recipients, NotificationType.INFO, message, "FARM", Long.valueOf(farm.getId()),
+                    "/farms/" + farm.getId() + "/dashboard"));
+            return true;
+        } catch (Exception e) {
+            log.error("Error al notificar la lluvia de la finca ID {}: {}", farm.getId(), e.getMessage());
+            return false;
         }
     }
-}
\ No newline at end of file
+}
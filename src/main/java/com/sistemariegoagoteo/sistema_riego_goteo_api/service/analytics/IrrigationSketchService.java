@@ -0,0 +1,380 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.analytics;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.analytics.IrrigationPercentileDTO;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.IrrigationRecordedEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Irrigation;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationDailySketch;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationSketchBackfill;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Sector;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationDailySketchRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationSketchBackfillRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.SectorRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.QuantileSketch;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mantiene sketches de cuantiles diarios por sector (horas de riego y volumen
+ * de agua) y responde consultas de percentiles combinándolos.
+ * <p>
+ * Cada riego confirmado se agrega a un sketch pendiente en memoria; un proceso
+ * programado fusiona los pendientes con la fila diaria persistida bajo bloqueo
+ * pesimista. Las consultas combinan las filas del rango con los pendientes aún
+ * no volcados, por lo que nunca se ordenan los riegos.
+ * </p>
+ * <p>
+ * La reconstrucción desde el historial se hace una sola vez por base de datos
+ * (marca {@code irrigation_sketch_backfill}); hasta que termina, cada nodo
+ * retiene los riegos recibidos y luego descarta los que el backfill ya leyó
+ * (ID menor o igual que el último leído). Un riego cuya transacción seguía
+ * abierta mientras el backfill leía con un ID menor que ese último no se
+ * cuenta.
+ * </p>
+ * Las modificaciones o borrados posteriores de un riego no se restan del sketch
+ * (los sketches sólo admiten inserciones); los percentiles son aproximados.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IrrigationSketchService {
+
+    private static final int BACKFILL_PAGE_SIZE = 1000;
+    private static final Integer BACKFILL_MARKER_ID = 1;
+
+    private final IrrigationDailySketchRepository sketchRepository;
+    private final IrrigationRepository irrigationRepository;
+    private final SectorRepository sectorRepository;
+    private final IrrigationSketchBackfillRepository backfillRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Incrementos pendientes de volcar, por sector y día.
+     */
+    private final Map<SketchKey, DailySketch> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Riegos recibidos mientras el backfill no ha terminado. Se protege con su
+     * propio monitor.
+     */
+    private final List<IrrigationRecordedEvent> awaitingBackfill = new ArrayList<>();
+
+    /**
+     * Mayor ID de riego leído por el backfill; los riegos hasta él ya están en
+     * los sketches. Nulo si no hubo reconstrucción.
+     */
+    private volatile Integer lastBackfilledId;
+
+    private volatile boolean backfillSettled;
+
+    private volatile boolean backfillFailed;
+
+    @Value("${irrigation.sketch.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    record SketchKey(Integer sectorId, LocalDate date) {
+    }
+
+    /**
+     * Par de sketches (horas y agua) de un sector en un día.
+     */
+    static class DailySketch {
+        final QuantileSketch hours;
+        final QuantileSketch water;
+
+        DailySketch() {
+            this(new QuantileSketch(), new QuantileSketch());
+        }
+
+        DailySketch(QuantileSketch hours, QuantileSketch water) {
+            this.hours = hours;
+            this.water = water;
+        }
+
+        void add(BigDecimal irrigationHours, BigDecimal waterAmount) {
+            hours.add(irrigationHours != null ? irrigationHours.doubleValue() : 0.0);
+            water.add(waterAmount != null ? waterAmount.doubleValue() : 0.0);
+        }
+
+        void merge(DailySketch other) {
+            hours.merge(other.hours);
+            water.merge(other.water);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onIrrigationRecorded(IrrigationRecordedEvent event) {
+        if (event.sectorId() == null || event.startDatetime() == null) {
+            return;
+        }
+        if (!isBackfillSettled()) {
+            synchronized (awaitingBackfill) {
+                if (!isBackfillSettled()) {
+                    awaitingBackfill.add(event);
+                    return;
+                }
+            }
+        }
+        accept(event);
+    }
+
+    private boolean isBackfillSettled() {
+        return backfillSettled || !backfillOnStartup;
+    }
+
+    /**
+     * Agrega el riego a los pendientes salvo que el backfill ya lo contara.
+     */
+    private void accept(IrrigationRecordedEvent event) {
+        Integer mark = lastBackfilledId;
+        if (mark != null && event.irrigationId() != null && event.irrigationId() <= mark) {
+            log.debug("Riego ID {} ya incluido en el backfill de sketches; se descarta.", event.irrigationId());
+            return;
+        }
+        SketchKey key = new SketchKey(event.sectorId(), event.startDatetime().toLocalDate());
+        pending.compute(key, (k, sketch) -> {
+            DailySketch target = sketch != null ? sketch : new DailySketch();
+            synchronized (target) {
+                target.add(event.irrigationHours(), event.waterAmount());
+            }
+            return target;
+        });
+    }
+
+    /**
+     * Fusiona los sketches pendientes con las filas diarias persistidas. Si la
+     * transacción falla, los pendientes se devuelven a memoria para el próximo
+     * intento.
+     */
+    @Scheduled(fixedDelayString = "${irrigation.sketch.flush-interval-ms:30000}")
+    @PreDestroy
+    public void flushPending() {
+        if (!isBackfillSettled()) {
+            if (backfillFailed) {
+                backfillIfEmpty();
+            } else {
+                settleFromMarker();
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<SketchKey, DailySketch> drained = new HashMap<>();
+        for (SketchKey key : List.copyOf(pending.keySet())) {
+            DailySketch sketch = pending.remove(key);
+            if (sketch != null) {
+                drained.put(key, sketch);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> drained.forEach(this::mergeIntoStore));
+            log.debug("Sketches de riego volcados: {} sector-día.", drained.size());
+        } catch (Exception e) {
+            log.error("No se pudieron volcar los sketches de riego: {}", e.getMessage());
+            drained.forEach((key, sketch) -> pending.merge(key, sketch, (current, failed) -> {
+                synchronized (current) {
+                    current.merge(failed);
+                }
+                return current;
+            }));
+        }
+    }
+
+    private void mergeIntoStore(SketchKey key, DailySketch delta) {
+        IrrigationDailySketch row = sketchRepository.findForUpdate(key.sectorId(), key.date())
+                .orElseGet(() -> {
+                    IrrigationDailySketch fresh = new IrrigationDailySketch();
+                    fresh.setSectorId(key.sectorId());
+                    fresh.setSketchDate(key.date());
+                    return fresh;
+                });
+        DailySketch stored = toDailySketch(row);
+        stored.merge(delta);
+        row.setHoursSketch(stored.hours.toBytes());
+        row.setWaterSketch(stored.water.toBytes());
+        row.setSampleCount(stored.hours.getCount());
+        row.setUpdatedAt(LocalDateTime.now());
+        sketchRepository.save(row);
+    }
+
+    /**
+     * Calcula p50, p90 y p99 de horas y agua por sector en el rango indicado.
+     *
+     * @param farmId    ID de la finca.
+     * @param startDate Fecha de inicio (inclusive).
+     * @param endDate   Fecha de fin (inclusive).
+     * @param sectorIds Lista opcional de sectores; si es nula se usan todos los
+     *                  de la finca.
+     * @return Percentiles por sector (los sectores sin riegos tienen valores
+     *         nulos).
+     */
+    public List<IrrigationPercentileDTO> getPercentiles(Integer farmId, LocalDate startDate, LocalDate endDate,
+            List<Integer> sectorIds) {
+        List<Sector> sectors = sectorRepository.findByFarm_Id(farmId);
+        if (sectorIds != null && !sectorIds.isEmpty()) {
+            Set<Integer> requested = new HashSet<>(sectorIds);
+            sectors = sectors.stream().filter(s -> requested.contains(s.getId())).toList();
+        }
+        if (sectors.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, DailySketch> merged = new HashMap<>();
+        sectors.forEach(s -> merged.put(s.getId(), new DailySketch()));
+
+        sketchRepository.findBySectorIdInAndSketchDateBetween(merged.keySet(), startDate, endDate)
+                .forEach(row -> merged.get(row.getSectorId()).merge(toDailySketch(row)));
+
+        pending.forEach((key, sketch) -> {
+            DailySketch target = merged.get(key.sectorId());
+            if (target != null && !key.date().isBefore(startDate) && !key.date().isAfter(endDate)) {
+                synchronized (sketch) {
+                    target.merge(sketch);
+                }
+            }
+        });
+
+        return sectors.stream()
+                .map(sector -> {
+                    DailySketch sketch = merged.get(sector.getId());
+                    return new IrrigationPercentileDTO(
+                            sector.getId(),
+                            sector.getName(),
+                            sketch.hours.getCount(),
+                            toDecimal(sketch.hours.quantile(0.50)),
+                            toDecimal(sketch.hours.quantile(0.90)),
+                            toDecimal(sketch.hours.quantile(0.99)),
+                            toDecimal(sketch.water.quantile(0.50)),
+                            toDecimal(sketch.water.quantile(0.90)),
+                            toDecimal(sketch.water.quantile(0.99)));
+                })
+                .toList();
+    }
+
+    /**
+     * Reconstruye los sketches a partir del historial si la tabla de sketches
+     * está vacía. Se ejecuta una sola vez por base de datos: el nodo que bloquea
+     * la marca {@code irrigation_sketch_backfill} la hace y la deja completada
+     * en la misma transacción; los demás esperan el bloqueo y solo leen el
+     * resultado. Si falla, se reintenta en el siguiente volcado.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            createMarkerIfAbsent();
+            IrrigationSketchBackfill marker = transactionTemplate.execute(status -> backfillUnderLock());
+            backfillFailed = false;
+            settle(marker.getLastIrrigationId());
+        } catch (Exception e) {
+            backfillFailed = true;
+            log.error("No se pudieron reconstruir los sketches de riego (se reintentará): {}", e.getMessage());
+        }
+    }
+
+    private void createMarkerIfAbsent() {
+        if (backfillRepository.existsById(BACKFILL_MARKER_ID)) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> backfillRepository
+                    .saveAndFlush(new IrrigationSketchBackfill(BACKFILL_MARKER_ID, null, null)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("La marca de backfill de sketches la creó otro nodo.");
+        }
+    }
+
+    private IrrigationSketchBackfill backfillUnderLock() {
+        IrrigationSketchBackfill marker = backfillRepository.findForUpdate(BACKFILL_MARKER_ID)
+                .orElseThrow(() -> new IllegalStateException("Falta la marca de backfill de sketches"));
+        if (marker.getCompletedAt() != null) {
+            return marker;
+        }
+        if (sketchRepository.count() == 0 && irrigationRepository.count() > 0) {
+            log.info("Tabla de sketches de riego vacía: reconstruyendo desde el historial...");
+            Map<SketchKey, DailySketch> rebuilt = new HashMap<>();
+            int pageNumber = 0;
+            Integer lastId = null;
+            Page<Irrigation> page;
+            do {
+                page = irrigationRepository.findAll(PageRequest.of(pageNumber++, BACKFILL_PAGE_SIZE, Sort.by("id")));
+                for (Irrigation irrigation : page) {
+                    lastId = irrigation.getId();
+                    if (irrigation.getStartDatetime() == null) {
+                        continue;
+                    }
+                    SketchKey key = new SketchKey(irrigation.getSector().getId(),
+                            irrigation.getStartDatetime().toLocalDate());
+                    rebuilt.computeIfAbsent(key, k -> new DailySketch())
+                            .add(irrigation.getIrrigationHours(), irrigation.getWaterAmount());
+                }
+            } while (page.hasNext());
+            rebuilt.forEach(this::mergeIntoStore);
+            marker.setLastIrrigationId(lastId);
+            log.info("Sketches de riego reconstruidos para {} sector-día.", rebuilt.size());
+        }
+        marker.setCompletedAt(LocalDateTime.now());
+        return backfillRepository.save(marker);
+    }
+
+    /**
+     * Lee la marca sin bloquear y, si otro nodo ya terminó el backfill, adopta su
+     * último ID leído.
+     */
+    private void settleFromMarker() {
+        try {
+            backfillRepository.findById(BACKFILL_MARKER_ID)
+                    .filter(marker -> marker.getCompletedAt() != null)
+                    .ifPresent(marker -> settle(marker.getLastIrrigationId()));
+        } catch (Exception e) {
+            log.error("No se pudo consultar la marca de backfill de sketches: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fija el último ID del backfill y libera los riegos retenidos, descartando
+     * los que el backfill ya contó.
+     */
+    private void settle(Integer lastIrrigationId) {
+        synchronized (awaitingBackfill) {
+            if (backfillSettled) {
+                return;
+            }
+            lastBackfilledId = lastIrrigationId;
+            backfillSettled = true;
+            awaitingBackfill.forEach(this::accept);
+            awaitingBackfill.clear();
+        }
+    }
+
+    private DailySketch toDailySketch(IrrigationDailySketch row) {
+        return new DailySketch(QuantileSketch.fromBytes(row.getHoursSketch()),
+                QuantileSketch.fromBytes(row.getWaterSketch()));
+    }
+
+    private BigDecimal toDecimal(Double value) {
+        return value != null ? BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP) : null;
+    }
+}
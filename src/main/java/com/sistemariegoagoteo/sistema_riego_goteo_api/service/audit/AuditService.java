@@ -1,6 +1,8 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.audit.BulkSyncStatusRequest;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistory;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistorySearchToken;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.Synchronization;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.audit.ChangeHistoryRepository;
@@ -10,18 +12,24 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ResourceNotFoun
 
 import org.springframework.data.jpa.domain.Specification;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -31,9 +39,15 @@ public class AuditService {
     private final ChangeHistoryRepository changeHistoryRepository;
     private final SynchronizationRepository synchronizationRepository;
     private final UserRepository userRepository;
+    private final AuditWriter auditWriter;
+    private final ChangeHistoryArchiveService archiveService;
+    private final SynchronizationBulkUpdater synchronizationBulkUpdater;
+    private final ChangeHistorySearchIndex searchIndex;
 
     /**
-     * Guarda un registro de auditoría detallado.
+     * Guarda un registro de auditoría detallado. La fila se acumula en el lote
+     * de la transacción actual y se inserta justo antes del commit (ver
+     * {@link AuditWriter}).
      * @param user El usuario que realiza la acción.
      * @param actionType El tipo de acción (CREATE, UPDATE, DELETE).
      * @param affectedTable La tabla afectada.
@@ -43,23 +57,26 @@ public class AuditService {
      */
     @Transactional
     public void logChange(User user, String actionType, String affectedTable, String changedField, String oldValue, String newValue) {
-        ChangeHistory logEntry = new ChangeHistory();
-        logEntry.setUser(user);
-        logEntry.setActionType(actionType); // Se guarda el tipo de acción
-        logEntry.setAffectedTable(affectedTable);
-        logEntry.setChangedField(changedField);
-        logEntry.setOldValue(oldValue);
-        logEntry.setNewValue(newValue);
-        logEntry.setChangeDatetime(new Date());
-        changeHistoryRepository.save(logEntry);
+        auditWriter.write(new AuditWriter.AuditEntry(user != null ? user.getId() : null, actionType, affectedTable,
+                changedField, oldValue, newValue, new Timestamp(System.currentTimeMillis())));
         log.debug("Change logged: User '{}' performed {} on table '{}', field '{}'", user.getUsername(), actionType, affectedTable, changedField);
     }
 
+    /**
+     * Historial de cambios filtrado y paginado. Cuando se indica alguna fecha y
+     * el rango alcanza meses ya archivados, sus filas se leen de los ficheros
+     * de {@link ChangeHistoryArchiveService} y se agregan a continuación de las
+     * de la tabla (los meses archivados son siempre anteriores a los que siguen
+     * en ella). Eso sólo vale para el orden por defecto, de la más reciente a la
+     * más antigua: con otro orden la búsqueda se rechaza.
+     */
     @Transactional(readOnly = true)
     public Page<ChangeHistory> getChangeHistory(
             Long userId, String affectedTable, String actionType, String searchTerm,
             Date startDate, Date endDate, Pageable pageable) {
-        
+
+        Set<String> grams = searchTerm != null ? ChangeHistorySearchIndex.trigrams(searchTerm) : Set.of();
+        int indexedUpTo = grams.isEmpty() ? 0 : searchIndex.indexedUpTo();
         Specification<ChangeHistory> spec = (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
             if (userId != null) {
@@ -76,10 +93,24 @@ public class AuditService {
             }
             // ------------------------------------------
             if (searchTerm != null && !searchTerm.isEmpty()) {
+                // Candidatas por el índice de trigramas; el LIKE sólo se evalúa sobre ellas.
+                // Las filas que el backfill aún no recorrió se evalúan sólo con el LIKE.
+                if (indexedUpTo > 0 && query != null) {
+                    Subquery<Integer> candidates = query.subquery(Integer.class);
+                    Root<ChangeHistorySearchToken> token = candidates.from(ChangeHistorySearchToken.class);
+                    candidates.select(token.get("historyId"))
+                            .where(token.get("gram").in(grams))
+                            .groupBy(token.get("historyId"))
+                            .having(criteriaBuilder.equal(criteriaBuilder.count(token), (long) grams.size()));
+                    Predicate indexed = criteriaBuilder.and(
+                            criteriaBuilder.le(root.get("id"), indexedUpTo), root.get("id").in(candidates));
+                    predicates.add(criteriaBuilder.or(indexed, criteriaBuilder.gt(root.get("id"), indexedUpTo)));
+                }
                 Predicate oldValuePredicate = criteriaBuilder.like(criteriaBuilder.lower(root.get("oldValue")), "%" + searchTerm.toLowerCase() + "%");
                 Predicate newValuePredicate = criteriaBuilder.like(criteriaBuilder.lower(root.get("newValue")), "%" + searchTerm.toLowerCase() + "%");
                 Predicate changedFieldPredicate = criteriaBuilder.like(criteriaBuilder.lower(root.get("changedField")), "%" + searchTerm.toLowerCase() + "%");
-                predicates.add(criteriaBuilder.or(oldValuePredicate, newValuePredicate, changedFieldPredicate));
+                Predicate diffPredicate = criteriaBuilder.like(criteriaBuilder.lower(root.get("diff")), "%" + searchTerm.toLowerCase() + "%");
+                predicates.add(criteriaBuilder.or(oldValuePredicate, newValuePredicate, changedFieldPredicate, diffPredicate));
             }
             if (startDate != null) {
                 predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("changeDatetime"), startDate));
@@ -92,15 +123,56 @@ public class AuditService {
             }
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
-        return changeHistoryRepository.findAll(spec, pageable);
+        boolean readsArchive = (startDate != null || endDate != null)
+                && !archiveService.archivedMonths(startDate, endDate).isEmpty();
+        if (readsArchive && !isNewestFirst(pageable.getSort())) {
+            throw new IllegalArgumentException("Las búsquedas que alcanzan meses archivados sólo admiten el orden "
+                    + "por defecto (changeDatetime,desc).");
+        }
+        Page<ChangeHistory> hotPage = changeHistoryRepository.findAll(spec, pageable);
+        if (!readsArchive) {
+            return hotPage;
+        }
+        return appendArchived(hotPage, new ChangeHistoryArchiveService.ArchiveQuery(userId, affectedTable,
+                actionType, searchTerm, startDate, endDate), pageable);
+    }
+
+    /**
+     * Orden compatible con agregar el archivo tras la tabla: del más reciente
+     * al más antiguo, que es el de por defecto.
+     */
+    private static boolean isNewestFirst(Sort sort) {
+        if (sort.isUnsorted()) {
+            return true;
+        }
+        Sort.Order first = sort.iterator().next();
+        return "changeDatetime".equals(first.getProperty()) && first.isDescending();
+    }
+
+    /**
+     * Completa la página de la tabla con las filas archivadas que le
+     * corresponden según el desplazamiento global. Sólo se leen los meses
+     * necesarios para llenar la página (ver {@link ChangeHistoryArchiveService#page}).
+     */
+    private Page<ChangeHistory> appendArchived(Page<ChangeHistory> hotPage,
+            ChangeHistoryArchiveService.ArchiveQuery query, Pageable pageable) {
+        long hotTotal = hotPage.getTotalElements();
+        List<ChangeHistory> content = new ArrayList<>(hotPage.getContent());
+        ChangeHistoryArchiveService.ArchivePage archived = pageable.isPaged()
+                ? archiveService.page(query, Math.max(0, pageable.getOffset() - hotTotal),
+                        pageable.getPageSize() - content.size())
+                : archiveService.page(query, 0, Integer.MAX_VALUE);
+        content.addAll(archived.content());
+        return new PageImpl<>(content, pageable, hotTotal + archived.total());
     }
 
     @Transactional(readOnly = true)
     public Optional<ChangeHistory> getChangeHistoryDetail(Integer logId) {
-        return changeHistoryRepository.findById(logId);
+        Optional<ChangeHistory> hot = changeHistoryRepository.findById(logId);
+        return hot.isPresent() ? hot : archiveService.findById(logId);
     }
 
-    // --- Métodos de Synchronization (sin cambios) ---
+    // --- Métodos de Synchronization ---
     
     @Transactional
     public void recordModificationForSync(String tableName, Integer recordId) {
@@ -155,12 +227,41 @@ public class AuditService {
         return synchronizationRepository.save(syncRecord);
     }
 
-    @Transactional
+    /**
+     * Cambia el estado de una lista de registros. Las sentencias van por lotes,
+     * cada una en su propia transacción ({@link SynchronizationBulkUpdater}).
+     *
+     * @return Filas cuyo estado cambió.
+     */
     public int batchUpdateSynchronizationStatus(List<Integer> syncIds, boolean synchronizedStatus) {
         if (syncIds == null || syncIds.isEmpty()) {
             return 0;
         }
         log.info("Batch updating synchronization status for {} IDs to: {}", syncIds.size(), synchronizedStatus);
-        return synchronizationRepository.updateSynchronizationStatusForIds(syncIds, synchronizedStatus, new Date());
+        return synchronizationBulkUpdater.updateByIds(syncIds, synchronizedStatus).updatedCount();
+    }
+
+    /**
+     * Cambia el estado por lista de ids o por tabla y rango de ids de registro.
+     *
+     * @throws IllegalArgumentException Si no se indica ni la lista ni un rango
+     *                                  completo y válido.
+     */
+    public SynchronizationBulkUpdater.BulkUpdateResult bulkUpdateSynchronizationStatus(
+            BulkSyncStatusRequest request) {
+        boolean status = request.getIsSynchronized();
+        if (request.getSyncIds() != null && !request.getSyncIds().isEmpty()) {
+            return synchronizationBulkUpdater.updateByIds(request.getSyncIds(), status);
+        }
+        if (request.getModifiedTable() == null || request.getModifiedTable().isBlank()
+                || request.getFromRecordId() == null || request.getToRecordId() == null) {
+            throw new IllegalArgumentException(
+                    "Debe indicarse una lista de IDs o una tabla con el rango de registros (desde y hasta).");
+        }
+        if (request.getFromRecordId() > request.getToRecordId()) {
+            throw new IllegalArgumentException("El inicio del rango no puede ser mayor que el final.");
+        }
+        return synchronizationBulkUpdater.updateByRange(request.getModifiedTable(), request.getFromRecordId(),
+                request.getToRecordId(), status);
     }
 }
\ No newline at end of file
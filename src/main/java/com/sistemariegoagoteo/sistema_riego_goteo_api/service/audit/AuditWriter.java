@@ -0,0 +1,210 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Escritura por lotes de {@code change_history}.
+ * <p>
+ * {@link #write} acumula las entradas de la transacción actual y las inserta
+ * en un único lote JDBC justo antes del commit, dentro de la misma
+ * transacción: si ésta se revierte, la auditoría también. Sin transacción
+ * activa la entrada se inserta de inmediato. Cada fila se añade en el mismo
+ * paso al índice de búsqueda ({@link ChangeHistorySearchIndex}).
+ * </p>
+ * {@link #enqueue} es para categorías de mejor esfuerzo (por ejemplo LOGIN):
+ * las entradas pasan a una cola acotada que se vuelca periódicamente fuera de
+ * cualquier transacción de negocio. Si la cola está llena la entrada se
+ * descarta y se contabiliza en {@code audit.async.dropped}.
+ */
+@Component
+@Slf4j
+public class AuditWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO change_history (user_id, action_type, affected_table, "
+            + "changed_field, old_value, new_value, change_datetime, diff) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeHistorySearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<AuditEntry> queue;
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+
+    /**
+     * Fila de {@code change_history} pendiente de escribir.
+     */
+    public record AuditEntry(Long userId, String actionType, String affectedTable, String changedField,
+            String oldValue, String newValue, Timestamp changeDatetime, String diff) {
+
+        public AuditEntry(Long userId, String actionType, String affectedTable, String changedField,
+                String oldValue, String newValue, Timestamp changeDatetime) {
+            this(userId, actionType, affectedTable, changedField, oldValue, newValue, changeDatetime, null);
+        }
+    }
+
+    public AuditWriter(JdbcTemplate jdbcTemplate, ChangeHistorySearchIndex searchIndex,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+            @Value("${audit.async.max-pending:10000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(maxPending);
+        Gauge.builder("audit.async.pending", queue, BlockingQueue::size)
+                .description("Entradas de auditoría de mejor esfuerzo pendientes de volcar")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("audit.async.dropped")
+                .description("Entradas de auditoría descartadas por cola llena")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("audit.rows.written")
+                .description("Filas de change_history insertadas")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra la entrada en el lote de la transacción actual (o la inserta de
+     * inmediato si no hay transacción).
+     */
+    public void write(AuditEntry entry) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            transactionTemplate.executeWithoutResult(status -> insert(List.of(entry)));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<AuditEntry> buffer = (List<AuditEntry>) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            List<AuditEntry> newBuffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, newBuffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (!newBuffer.isEmpty()) {
+                        insert(List.copyOf(newBuffer));
+                        newBuffer.clear();
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AuditWriter.this);
+                }
+            });
+            buffer = newBuffer;
+        }
+        buffer.add(entry);
+    }
+
+    /**
+     * Inserta de inmediato un lote en la transacción actual, sin pasar por el
+     * lote de {@link #write}. Lo usa {@link EntityAuditListener}, que acumula
+     * por su cuenta los cambios de la sesión hasta después del último flush.
+     */
+    public void writeBatch(List<AuditEntry> entries) {
+        if (!entries.isEmpty()) {
+            insert(entries);
+        }
+    }
+
+    /**
+     * Encola una entrada de mejor esfuerzo.
+     *
+     * @return {@code false} si la cola estaba llena y la entrada se descartó.
+     */
+    public boolean enqueue(AuditEntry entry) {
+        if (queue.offer(entry)) {
+            return true;
+        }
+        droppedCounter.increment();
+        log.warn("Cola de auditoría llena: se descarta {} de la tabla '{}'", entry.actionType(),
+                entry.affectedTable());
+        return false;
+    }
+
+    /**
+     * Vuelca la cola de mejor esfuerzo. Si falla, las entradas vuelven a la cola
+     * mientras haya espacio.
+     */
+    @Scheduled(fixedDelayString = "${audit.async.flush-interval-ms:2000}")
+    @PreDestroy
+    public void flushQueued() {
+        List<AuditEntry> drained = new ArrayList<>();
+        queue.drainTo(drained);
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(drained));
+        } catch (Exception e) {
+            log.error("No se pudieron volcar {} auditorías de mejor esfuerzo: {}", drained.size(), e.getMessage());
+            drained.forEach(this::enqueue);
+        }
+    }
+
+    /**
+     * Entradas de mejor esfuerzo aún no volcadas.
+     */
+    public int pendingQueued() {
+        return queue.size();
+    }
+
+    private void insert(List<AuditEntry> entries) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        AuditEntry e = entries.get(i);
+                        ps.setObject(1, e.userId(), Types.BIGINT);
+                        ps.setString(2, e.actionType());
+                        ps.setString(3, e.affectedTable());
+                        ps.setString(4, e.changedField());
+                        ps.setString(5, e.oldValue());
+                        ps.setString(6, e.newValue());
+                        ps.setTimestamp(7, e.changeDatetime());
+                        ps.setString(8, e.diff());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return entries.size();
+                    }
+                }, keyHolder);
+        writtenCounter.increment(entries.size());
+
+        // Las claves generadas llegan en el orden del lote
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        Map<Integer, String[]> rowsById = new HashMap<>();
+        for (int i = 0; i < keys.size() && i < entries.size(); i++) {
+            AuditEntry e = entries.get(i);
+            Number id = (Number) keys.get(i).values().iterator().next();
+            rowsById.put(id.intValue(), new String[] { e.changedField(), e.oldValue(), e.newValue(), e.diff() });
+        }
+        searchIndex.index(rowsById);
+    }
+}
@@ -0,0 +1,415 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.CSVWriter;
+import com.opencsv.enums.CSVReaderNullFieldIndicator;
+import com.opencsv.exceptions.CsvValidationException;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.config.AuditArchiveProperties;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ServiceUnavailableException;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistory;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistoryArchive;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler.SchedulerLeases;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archivo en frío de {@code change_history} por meses.
+ * <p>
+ * La tabla sólo conserva los meses recientes: {@link #archive()} exporta cada
+ * mes cerrado con más de {@code audit.archive.hot-retention} de antigüedad a un
+ * fichero {@code change_history-yyyy-MM.csv.gz}, lo registra en el índice
+ * {@code change_history_archive} (filas y rango de ids) y después borra sus
+ * filas de la tabla y del índice de búsqueda por lotes. El fichero se escribe
+ * con un nombre temporal y se renombra al terminar, y un mes ya registrado no
+ * se vuelve a exportar: si una ejecución se interrumpe, la siguiente sólo
+ * completa el borrado. Sólo archiva el nodo que tiene la concesión
+ * {@code audit-archive}, para que dos nodos no exporten el mismo mes a la vez.
+ * </p>
+ * {@link #page} y {@link #findById} leen los ficheros de los meses que indica
+ * el índice, de modo que el historial archivado se sigue consultando desde
+ * {@code AuditController}; por eso la carpeta debe ser compartida.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeHistoryArchiveService {
+
+    private static final String[] HEADER = { "history_id", "user_id", "username", "action_type", "affected_table",
+            "changed_field", "old_value", "new_value", "change_datetime", "diff" };
+    private static final String SELECT_OLDEST_SQL = "SELECT MIN(change_datetime) FROM change_history";
+    private static final String SELECT_MONTH_SQL = "SELECT ch.history_id, ch.user_id, u.username, ch.action_type, "
+            + "ch.affected_table, ch.changed_field, ch.old_value, ch.new_value, ch.change_datetime, ch.diff "
+            + "FROM change_history ch LEFT JOIN user u ON u.user_id = ch.user_id "
+            + "WHERE ch.change_datetime >= ? AND ch.change_datetime < ? AND ch.history_id > ? "
+            + "ORDER BY ch.history_id LIMIT ?";
+    private static final String SELECT_ARCHIVED_IDS_SQL = "SELECT history_id FROM change_history "
+            + "WHERE change_datetime >= ? AND change_datetime < ? AND history_id <= ? ORDER BY history_id LIMIT ?";
+    private static final String DELETE_TOKENS_SQL = "DELETE FROM change_history_search WHERE history_id IN (%s)";
+    private static final String DELETE_ROWS_SQL = "DELETE FROM change_history WHERE history_id IN (%s)";
+    private static final String INSERT_INDEX_SQL = "INSERT INTO change_history_archive (archive_month, file_name, "
+            + "row_count, min_history_id, max_history_id, archived_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_INDEX_SQL = "SELECT archive_month, file_name, row_count, min_history_id, "
+            + "max_history_id, archived_at FROM change_history_archive";
+
+    static final String LEASE_JOB = "audit-archive";
+    // Menos de un día: si el nodo titular cae, otro lo toma en la ejecución siguiente
+    private static final Duration LEASE = Duration.ofHours(23);
+    private static final Comparator<ChangeHistory> NEWEST_FIRST = Comparator
+            .comparing(ChangeHistory::getChangeDatetime).thenComparing(ChangeHistory::getId).reversed();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditArchiveProperties properties;
+    private final SchedulerLeases schedulerLeases;
+
+    /**
+     * Filtros de una búsqueda sobre el historial archivado; los nulos no filtran.
+     */
+    public record ArchiveQuery(Long userId, String affectedTable, String actionType, String searchTerm,
+            Date startDate, Date endDate) {
+    }
+
+    /**
+     * Archiva los meses cerrados que superan la retención en caliente.
+     *
+     * @return Filas retiradas de {@code change_history}.
+     */
+    @Scheduled(cron = "${audit.archive.cron:0 15 4 * * *}")
+    public long archive() {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        if (properties.getDirectory() == null) {
+            log.warn("Archivo del historial de cambios sin carpeta compartida (audit.archive.directory): "
+                    + "no se archiva.");
+            return 0;
+        }
+        if (!schedulerLeases.tryAcquire(LEASE_JOB, LEASE)) {
+            log.debug("El archivo del historial de cambios lo ejecuta otro nodo.");
+            return 0;
+        }
+        YearMonth firstHotMonth = YearMonth.from(LocalDateTime.now().minus(properties.getHotRetention()));
+        Timestamp oldest = jdbcTemplate.queryForObject(SELECT_OLDEST_SQL, Timestamp.class);
+        long removed = 0;
+        if (oldest == null) {
+            return removed;
+        }
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(firstHotMonth);
+                month = month.plusMonths(1)) {
+            try {
+                removed += archiveMonth(month);
+            } catch (Exception e) {
+                log.error("Error al archivar el historial de cambios de {}: {}", month, e.getMessage());
+                break;
+            }
+        }
+        if (removed > 0) {
+            log.info("Archivo del historial de cambios: {} filas retiradas de la tabla.", removed);
+        }
+        return removed;
+    }
+
+    private long archiveMonth(YearMonth month) throws IOException {
+        Optional<ChangeHistoryArchive> existing = findIndex(" WHERE archive_month = ?", month.toString())
+                .stream().findFirst();
+        ChangeHistoryArchive entry = existing.isPresent() ? existing.get() : export(month);
+        if (entry.getRowCount() == 0) {
+            return 0;
+        }
+        return deleteArchivedRows(month, entry.getMaxHistoryId());
+    }
+
+    private ChangeHistoryArchive export(YearMonth month) throws IOException {
+        Files.createDirectories(properties.getDirectory());
+        String fileName = "change_history-" + month + ".csv.gz";
+        Path target = properties.getDirectory().resolve(fileName);
+        Path tmp = properties.getDirectory().resolve(fileName + ".tmp");
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+
+        long rowCount = 0;
+        Integer minId = null;
+        int lastId = 0;
+        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            writer.writeNext(HEADER);
+            List<String[]> rows;
+            do {
+                rows = jdbcTemplate.query(SELECT_MONTH_SQL, (rs, i) -> new String[] {
+                        rs.getString("history_id"), rs.getString("user_id"), rs.getString("username"),
+                        rs.getString("action_type"), rs.getString("affected_table"), rs.getString("changed_field"),
+                        rs.getString("old_value"), rs.getString("new_value"),
+                        String.valueOf(rs.getTimestamp("change_datetime").getTime()), rs.getString("diff") },
+                        from, to, lastId, properties.getChunkSize());
+                for (String[] row : rows) {
+                    writer.writeNext(row);
+                    lastId = Integer.parseInt(row[0]);
+                    minId = minId != null ? minId : lastId;
+                    rowCount++;
+                }
+            } while (rows.size() == properties.getChunkSize());
+        }
+        if (rowCount == 0) {
+            Files.deleteIfExists(tmp);
+            return new ChangeHistoryArchive(month.toString(), fileName, 0, null, null, LocalDateTime.now());
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        ChangeHistoryArchive entry = new ChangeHistoryArchive(month.toString(), fileName, rowCount, minId, lastId,
+                LocalDateTime.now());
+        jdbcTemplate.update(INSERT_INDEX_SQL, entry.getArchiveMonth(), entry.getFileName(), entry.getRowCount(),
+                entry.getMinHistoryId(), entry.getMaxHistoryId(), Timestamp.valueOf(entry.getArchivedAt()));
+        log.info("Historial de cambios de {} exportado a {} ({} filas).", month, fileName, rowCount);
+        return entry;
+    }
+
+    private long deleteArchivedRows(YearMonth month, Integer maxHistoryId) {
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        long removed = 0;
+        Integer deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                List<Integer> ids = jdbcTemplate.queryForList(SELECT_ARCHIVED_IDS_SQL, Integer.class, from, to,
+                        maxHistoryId, properties.getChunkSize());
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                String in = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+                jdbcTemplate.update(String.format(DELETE_TOKENS_SQL, in));
+                return jdbcTemplate.update(String.format(DELETE_ROWS_SQL, in));
+            });
+            removed += deleted != null ? deleted : 0;
+        } while (deleted != null && deleted == properties.getChunkSize());
+        return removed;
+    }
+
+    /**
+     * Meses archivados que se solapan con el rango (extremos nulos = abierto),
+     * del más reciente al más antiguo.
+     */
+    public List<ChangeHistoryArchive> archivedMonths(Date startDate, Date endDate) {
+        String from = startDate != null ? YearMonth.from(toLocalDateTime(startDate)).toString() : "0000-01";
+        String to = endDate != null ? YearMonth.from(toLocalDateTime(endDate)).toString() : "9999-12";
+        return findIndex(" WHERE archive_month BETWEEN ? AND ? AND row_count > 0 ORDER BY archive_month DESC", from,
+                to);
+    }
+
+    /**
+     * Página de filas archivadas que cumplen los filtros, de la más reciente a la
+     * más antigua, y total de filas.
+     * <p>
+     * Los meses se recorren del más reciente al más antiguo y cada fichero se lee
+     * en streaming, guardando sólo las {@code offset + limit} filas más recientes
+     * que faltan. Los meses completos que quedan antes del desplazamiento, si no
+     * hay más filtros que las fechas, se saltan con el recuento del índice sin
+     * abrirlos. Una vez llena la página, los meses restantes sólo se cuentan:
+     * con el recuento del índice si el filtro los cubre enteros, o leyéndolos
+     * sin guardar filas en otro caso, de modo que el total siempre es exacto.
+     * </p>
+     */
+    public ArchivePage page(ArchiveQuery query, long offset, int limit) {
+        Predicate<ChangeHistory> filter = matches(query);
+        boolean onlyDates = query.userId() == null && isBlank(query.affectedTable())
+                && isBlank(query.actionType()) && isBlank(query.searchTerm());
+        List<ChangeHistory> content = new ArrayList<>();
+        long skip = offset;
+        long total = 0;
+        for (ChangeHistoryArchive month : archivedMonths(query.startDate(), query.endDate())) {
+            boolean wholeMonth = onlyDates && coversMonth(query, month);
+            if (content.size() >= limit) {
+                total += wholeMonth ? month.getRowCount() : count(month, filter);
+                continue;
+            }
+            if (wholeMonth && skip >= month.getRowCount()) {
+                skip -= month.getRowCount();
+                total += month.getRowCount();
+                continue;
+            }
+            long keep = skip + limit - content.size();
+            PriorityQueue<ChangeHistory> newest = new PriorityQueue<>(NEWEST_FIRST.reversed());
+            long[] matched = { 0 };
+            readMonth(month, row -> {
+                if (filter.test(row)) {
+                    matched[0]++;
+                    newest.add(row);
+                    if (newest.size() > keep) {
+                        newest.poll();
+                    }
+                }
+                return true;
+            });
+            total += matched[0];
+            List<ChangeHistory> rows = new ArrayList<>(newest);
+            rows.sort(NEWEST_FIRST);
+            rows.stream().skip(skip).forEach(content::add);
+            skip = Math.max(0, skip - matched[0]);
+        }
+        return new ArchivePage(content, total);
+    }
+
+    private long count(ChangeHistoryArchive month, Predicate<ChangeHistory> filter) {
+        long[] matched = { 0 };
+        readMonth(month, row -> {
+            if (filter.test(row)) {
+                matched[0]++;
+            }
+            return true;
+        });
+        return matched[0];
+    }
+
+    /**
+     * Filas de una página del archivo y total de filas que cumplen los filtros.
+     */
+    public record ArchivePage(List<ChangeHistory> content, long total) {
+    }
+
+    private static boolean coversMonth(ArchiveQuery query, ChangeHistoryArchive month) {
+        YearMonth yearMonth = YearMonth.parse(month.getArchiveMonth());
+        return (query.startDate() == null
+                || !toLocalDateTime(query.startDate()).isAfter(yearMonth.atDay(1).atStartOfDay()))
+                && (query.endDate() == null
+                        || !toLocalDateTime(query.endDate()).isBefore(yearMonth.plusMonths(1).atDay(1).atStartOfDay()));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * Busca una fila archivada por id leyendo sólo el mes que la contiene.
+     */
+    public Optional<ChangeHistory> findById(Integer historyId) {
+        List<ChangeHistoryArchive> months = findIndex(" WHERE min_history_id <= ? AND max_history_id >= ?",
+                historyId, historyId);
+        for (ChangeHistoryArchive month : months) {
+            List<ChangeHistory> found = new ArrayList<>(1);
+            readMonth(month, row -> {
+                if (historyId.equals(row.getId())) {
+                    found.add(row);
+                    return false;
+                }
+                return true;
+            });
+            if (!found.isEmpty()) {
+                return Optional.of(found.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private interface RowVisitor {
+        /**
+         * @return {@code false} para dejar de leer el fichero.
+         */
+        boolean visit(ChangeHistory row);
+    }
+
+    private void readMonth(ChangeHistoryArchive month, RowVisitor visitor) {
+        if (properties.getDirectory() == null) {
+            throw new ServiceUnavailableException("El archivo de auditoría no está configurado en este nodo "
+                    + "(audit.archive.directory).");
+        }
+        Path file = properties.getDirectory().resolve(month.getFileName());
+        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))
+                .withCSVParser(new CSVParserBuilder()
+                        .withFieldAsNull(CSVReaderNullFieldIndicator.EMPTY_SEPARATORS).build())
+                .withSkipLines(1)
+                .build()) {
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                if (!visitor.visit(toChangeHistory(line))) {
+                    return;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            throw new ServiceUnavailableException("El archivo de auditoría " + file + " no está disponible; "
+                    + "audit.archive.directory debe ser un almacenamiento compartido por todos los nodos.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el archivo de auditoría " + file, e);
+        } catch (CsvValidationException e) {
+            throw new IllegalStateException("Archivo de auditoría inválido: " + file, e);
+        }
+    }
+
+    private static ChangeHistory toChangeHistory(String[] line) {
+        ChangeHistory history = new ChangeHistory();
+        history.setId(Integer.valueOf(line[0]));
+        if (line[1] != null) {
+            User user = new User();
+            user.setId(Long.valueOf(line[1]));
+            user.setUsername(line[2]);
+            history.setUser(user);
+        }
+        history.setActionType(line[3]);
+        history.setAffectedTable(line[4]);
+        history.setChangedField(line[5]);
+        history.setOldValue(line[6]);
+        history.setNewValue(line[7]);
+        history.setChangeDatetime(new Date(Long.parseLong(line[8])));
+        history.setDiff(line.length > 9 ? line[9] : null);
+        return history;
+    }
+
+    private static Predicate<ChangeHistory> matches(ArchiveQuery q) {
+        String term = q.searchTerm() != null && !q.searchTerm().isEmpty() ? q.searchTerm().toLowerCase() : null;
+        return row -> (q.userId() == null || (row.getUser() != null && q.userId().equals(row.getUser().getId())))
+                && (q.affectedTable() == null || q.affectedTable().isEmpty()
+                        || q.affectedTable().equals(row.getAffectedTable()))
+                && (q.actionType() == null || q.actionType().isEmpty()
+                        || q.actionType().equalsIgnoreCase(row.getActionType()))
+                && (term == null || contains(row.getOldValue(), term) || contains(row.getNewValue(), term)
+                        || contains(row.getChangedField(), term) || contains(row.getDiff(), term))
+                && (q.startDate() == null || !row.getChangeDatetime().before(q.startDate()))
+                && (q.endDate() == null || !row.getChangeDatetime().after(q.endDate()));
+    }
+
+    private static boolean contains(String value, String lowerTerm) {
+        return value != null && value.toLowerCase().contains(lowerTerm);
+    }
+
+    private List<ChangeHistoryArchive> findIndex(String where, Object... args) {
+        return jdbcTemplate.query(SELECT_INDEX_SQL + where, (rs, i) -> new ChangeHistoryArchive(
+                rs.getString("archive_month"), rs.getString("file_name"), rs.getLong("row_count"),
+                rs.getObject("min_history_id", Integer.class),
+                rs.getObject("max_history_id", Integer.class),
+                rs.getTimestamp("archived_at").toLocalDateTime()), args);
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return new Timestamp(date.getTime()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,211 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de trigramas sobre {@code change_history}
+ * ({@code change_history_search}).
+ * <p>
+ * Permite resolver la búsqueda por texto ({@code LIKE '%término%'} sobre
+ * campo, valor anterior, valor nuevo y valores de la diferencia JSON) sin recorrer la tabla: las auditorías
+ * candidatas son las que contienen todos los trigramas del término, y el
+ * {@code LIKE} original sólo se evalúa sobre ellas. {@link AuditWriter} indexa
+ * cada fila al insertarla; {@link #backfill()} indexa las anteriores (y
+ * cualquier fila escrita por otra vía) recorriendo la tabla por id con un
+ * cursor persistido en {@code change_history_search_cursor}.
+ * </p>
+ * Los textos se normalizan a minúsculas sin acentos y se omiten los trigramas
+ * con espacios, igual al indexar que al buscar. Los términos de menos de tres
+ * caracteres no tienen trigramas y se resuelven sólo con {@code LIKE}.
+ */
+@Component
+@Slf4j
+public class ChangeHistorySearchIndex {
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO change_history_search (gram, history_id) VALUES (?, ?)";
+    private static final String SELECT_BATCH_SQL = "SELECT history_id, changed_field, old_value, new_value, diff "
+            + "FROM change_history WHERE history_id > ? ORDER BY history_id LIMIT ?";
+    private static final String SELECT_CURSOR_SQL =
+            "SELECT last_history_id FROM change_history_search_cursor WHERE cursor_id = 1";
+    private static final String INSERT_CURSOR_SQL =
+            "INSERT INTO change_history_search_cursor (cursor_id, last_history_id) VALUES (1, ?)";
+    private static final String UPDATE_CURSOR_SQL =
+            "UPDATE change_history_search_cursor SET last_history_id = ? WHERE cursor_id = 1";
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ChangeHistorySearchIndex(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            @Value("${audit.search.backfill.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Trigramas normalizados de los textos indicados (los nulos se ignoran).
+     */
+    public static Set<String> trigrams(String... values) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            String normalized = normalize(value);
+            for (int i = 0; i + 3 <= normalized.length(); i++) {
+                String gram = normalized.substring(i, i + 3);
+                if (gram.chars().noneMatch(Character::isWhitespace)) {
+                    grams.add(gram);
+                }
+            }
+        }
+        return grams;
+    }
+
+    static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Textos a indexar de una auditoría: la diferencia JSON se sustituye por sus
+     * valores, uno por línea (los trigramas con espacios se omiten, así que no
+     * se mezclan valores contiguos).
+     */
+    static String[] searchableValues(String[] values) {
+        String[] searchable = values.clone();
+        int diff = searchable.length - 1;
+        if (diff >= 0 && searchable[diff] != null) {
+            searchable[diff] = diffValues(searchable[diff]);
+        }
+        return searchable;
+    }
+
+    /**
+     * Valores de las hojas de la diferencia JSON (incluidos los pares
+     * [antes, después]), sin claves ni puntuación. Si no es JSON válido se indexa
+     * tal cual.
+     */
+    static String diffValues(String diff) {
+        JsonNode root;
+        try {
+            root = JSON.readTree(diff);
+        } catch (JsonProcessingException e) {
+            return diff;
+        }
+        StringBuilder text = new StringBuilder();
+        collectValues(root, text);
+        return text.toString();
+    }
+
+    private static void collectValues(JsonNode node, StringBuilder text) {
+        if (node.isContainerNode()) {
+            node.elements().forEachRemaining(child -> collectValues(child, text));
+        } else if (!node.isNull()) {
+            text.append(node.asText()).append('\n');
+        }
+    }
+
+    /**
+     * Indexa las auditorías indicadas (id → campo, valor anterior, valor nuevo y
+     * diferencia JSON). De la diferencia sólo se indexan los valores: las claves
+     * y la puntuación JSON multiplicarían las filas del índice en cada alta y
+     * baja.
+     * Se ejecuta en la transacción actual, si la hay.
+     */
+    public void index(Map<Integer, String[]> rowsById) {
+        List<Object[]> batch = new ArrayList<>();
+        rowsById.forEach((historyId, values) -> trigrams(searchableValues(values))
+                .forEach(gram -> batch.add(new Object[] { gram, historyId })));
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        }
+    }
+
+    /**
+     * Mayor id recorrido por {@link #backfill()}: las auditorías hasta él están
+     * indexadas; las posteriores pueden no estarlo todavía. 0 si el backfill
+     * aún no ha empezado.
+     */
+    public int indexedUpTo() {
+        List<Integer> cursor = jdbcTemplate.queryForList(SELECT_CURSOR_SQL, Integer.class);
+        return cursor.isEmpty() ? 0 : cursor.get(0);
+    }
+
+    /**
+     * Indexa las auditorías posteriores al cursor en lotes de
+     * {@code audit.search.backfill.batch-size}. Cada lote y el avance del cursor
+     * se confirman juntos, por lo que una ejecución interrumpida se reanuda
+     * donde quedó.
+     *
+     * @return Número de auditorías indexadas.
+     */
+    @Scheduled(initialDelayString = "${audit.search.backfill.initial-delay-ms:30000}",
+            fixedDelayString = "${audit.search.backfill.interval-ms:300000}")
+    public int backfill() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        int indexed = 0;
+        try {
+            Integer processed;
+            do {
+                processed = transactionTemplate.execute(status -> backfillBatch());
+                indexed += processed != null ? processed : 0;
+            } while (processed != null && processed == batchSize);
+        } catch (Exception e) {
+            log.error("Error al indexar el historial de cambios para búsqueda: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+        if (indexed > 0) {
+            log.info("Índice de búsqueda de auditoría: {} filas indexadas.", indexed);
+        }
+        return indexed;
+    }
+
+    private int backfillBatch() {
+        List<Integer> cursor = jdbcTemplate.queryForList(SELECT_CURSOR_SQL, Integer.class);
+        int afterId = cursor.isEmpty() ? 0 : cursor.get(0);
+        Map<Integer, String[]> rows = new HashMap<>();
+        int[] lastId = { afterId };
+        jdbcTemplate.query(SELECT_BATCH_SQL, rs -> {
+            lastId[0] = rs.getInt("history_id");
+            rows.put(lastId[0], new String[] { rs.getString("changed_field"), rs.getString("old_value"),
+                    rs.getString("new_value"), rs.getString("diff") });
+        }, afterId, batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        index(rows);
+        if (cursor.isEmpty()) {
+            jdbcTemplate.update(INSERT_CURSOR_SQL, lastId[0]);
+        } else {
+            jdbcTemplate.update(UPDATE_CURSOR_SQL, lastId[0]);
+        }
+        return rows.size();
+    }
+}
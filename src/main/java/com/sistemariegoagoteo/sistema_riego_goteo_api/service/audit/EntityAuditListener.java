@@ -0,0 +1,286 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.AuditedEntity;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.SystemGenerated;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Auditoría a nivel de entidad a partir de los eventos de Hibernate.
+ * <p>
+ * Para cada alta, modificación o baja de una entidad marcada con
+ * {@link AuditedEntity} escribe una única fila en {@code change_history} con
+ * la diferencia en JSON de las propiedades afectadas. Las propiedades
+ * modificadas las calcula Hibernate en el flush, así que los servicios ya no
+ * comparan campos a mano. Las colecciones se omiten y las asociaciones se
+ * registran por su identificador ({@code farm_id}, {@code equipment_id}...).
+ * Las filas {@link SystemGenerated} que escribe el sistema sin usuario no se
+ * auditan.
+ * </p>
+ * Dentro de una transacción las filas de la sesión se acumulan y se insertan
+ * en un único lote al terminar el último flush, justo antes del commit JDBC:
+ * si la transacción se revierte, la auditoría también. Los flush que ocurren
+ * al confirmar se producen después de las sincronizaciones {@code beforeCommit}
+ * de Spring, por eso no se usa el lote de {@link AuditWriter#write}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EntityAuditListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    static final int MAX_CHANGED_FIELD_LENGTH = 100;
+    static final int MAX_VALUE_LENGTH = 255;
+    static final int MAX_DIFF_STRING_LENGTH = 1000;
+
+    private final AuditWriter auditWriter;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Filas pendientes por sesión; se vacían antes del commit o al terminar la
+     * transacción.
+     */
+    private final Map<EventSource, List<AuditWriter.AuditEntry>> pendingBySession = new ConcurrentHashMap<>();
+
+    /**
+     * Propiedades excluidas por clase; {@code Optional.empty()} si la clase no
+     * se audita.
+     */
+    private final Map<Class<?>, Optional<Set<String>>> auditedClasses = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Set<String> excluded = excludedProperties(event.getPersister());
+        if (excluded == null || isUnattendedSystemWrite(event.getEntity())) {
+            return;
+        }
+        Map<String, Object> diff = newDiff(event.getId());
+        collect(diff, event.getPersister(), event.getState(), excluded, event.getSession());
+        String id = String.valueOf(event.getId());
+        record(event.getSession(), event.getPersister(), "CREATE", "id", null, id, diff);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Set<String> excluded = excludedProperties(event.getPersister());
+        if (excluded == null || isUnattendedSystemWrite(event.getEntity())) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object[] oldState = event.getOldState();
+        Object[] state = event.getState();
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+
+        int[] dirty = event.getDirtyProperties();
+        if (dirty == null) {
+            // Sin comprobación previa (por ejemplo, update de una entidad separada)
+            List<Integer> changed = new ArrayList<>();
+            for (int i = 0; i < names.length; i++) {
+                if (oldState == null || !types[i].isEqual(oldState[i], state[i])) {
+                    changed.add(i);
+                }
+            }
+            dirty = changed.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        Map<String, Object> diff = newDiff(event.getId());
+        List<String> changedFields = new ArrayList<>();
+        String oldValue = null;
+        String newValue = null;
+        for (int i : dirty) {
+            if (types[i].isCollectionType() || excluded.contains(names[i])) {
+                continue;
+            }
+            Object before = oldState != null ? auditValue(types[i], oldState[i], event.getSession()) : null;
+            Object after = auditValue(types[i], state[i], event.getSession());
+            String key = diffKey(types[i], names[i]);
+            diff.put(key, oldState != null ? new Object[] { before, after } : after);
+            changedFields.add(key);
+            oldValue = before != null ? before.toString() : null;
+            newValue = after != null ? after.toString() : null;
+        }
+        if (changedFields.isEmpty()) {
+            return;
+        }
+        if (changedFields.size() > 1) {
+            // Los valores de varias propiedades solo caben en la diferencia
+            oldValue = null;
+            newValue = null;
+        }
+        record(event.getSession(), persister, "UPDATE", String.join(",", changedFields), oldValue, newValue, diff);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Set<String> excluded = excludedProperties(event.getPersister());
+        if (excluded == null || isUnattendedSystemWrite(event.getEntity())) {
+            return;
+        }
+        Map<String, Object> diff = newDiff(event.getId());
+        collect(diff, event.getPersister(), event.getDeletedState(), excluded, event.getSession());
+        String id = String.valueOf(event.getId());
+        record(event.getSession(), event.getPersister(), "DELETE", "id", id, null, diff);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Filas acumuladas de sesiones con transacción en curso.
+     */
+    int pendingSessions() {
+        return pendingBySession.size();
+    }
+
+    private Set<String> excludedProperties(EntityPersister persister) {
+        return auditedClasses.computeIfAbsent(persister.getMappedClass(), type -> {
+            AuditedEntity audited = type.getAnnotation(AuditedEntity.class);
+            return audited == null ? Optional.empty() : Optional.of(Set.of(audited.exclude()));
+        }).orElse(null);
+    }
+
+    /**
+     * Escritura de una fila generada por el sistema fuera de una petición de
+     * usuario (ver {@link SystemGenerated}).
+     */
+    private static boolean isUnattendedSystemWrite(Object entity) {
+        return entity instanceof SystemGenerated generated && generated.isSystemGenerated()
+                && currentUserId() == null;
+    }
+
+    private static Map<String, Object> newDiff(Object id) {
+        Map<String, Object> diff = new LinkedHashMap<>();
+        diff.put("id", id);
+        return diff;
+    }
+
+    /**
+     * Vuelca en la diferencia todas las propiedades de un alta (estado nuevo) o
+     * de una baja (estado eliminado).
+     */
+    private static void collect(Map<String, Object> diff, EntityPersister persister, Object[] values,
+            Set<String> excluded, EventSource session) {
+        if (values == null) {
+            return;
+        }
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < names.length; i++) {
+            if (types[i].isCollectionType() || excluded.contains(names[i])) {
+                continue;
+            }
+            Object value = auditValue(types[i], values[i], session);
+            if (value != null) {
+                diff.put(diffKey(types[i], names[i]), value);
+            }
+        }
+    }
+
+    private static String diffKey(Type type, String name) {
+        return type.isEntityType() ? name + "_id" : name;
+    }
+
+    /**
+     * Convierte un valor de propiedad en algo compacto y serializable: las
+     * asociaciones por su id, los enumerados por su nombre y las fechas en ISO.
+     */
+    private static Object auditValue(Type type, Object value, EventSource session) {
+        if (value == null) {
+            return null;
+        }
+        if (type.isEntityType()) {
+            if (value instanceof HibernateProxy proxy) {
+                return proxy.getHibernateLazyInitializer().getInternalIdentifier();
+            }
+            String entityName = ((EntityType) type).getAssociatedEntityName();
+            return session.getEntityPersister(entityName, value).getIdentifier(value, session);
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        if (value instanceof Date date) {
+            return date.toInstant().toString();
+        }
+        if (value instanceof TemporalAccessor) {
+            return value.toString();
+        }
+        return truncate(value.toString(), MAX_DIFF_STRING_LENGTH);
+    }
+
+    private void record(EventSource session, EntityPersister persister, String actionType, String changedField,
+            String oldValue, String newValue, Map<String, Object> diff) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(diff);
+        } catch (JsonProcessingException e) {
+            log.error("No se pudo serializar la diferencia de {}: {}", persister.getEntityName(), e.getMessage());
+            return;
+        }
+        AuditWriter.AuditEntry entry = new AuditWriter.AuditEntry(currentUserId(), actionType,
+                persister.getMappedClass().getSimpleName(), truncate(changedField, MAX_CHANGED_FIELD_LENGTH),
+                truncate(oldValue, MAX_VALUE_LENGTH), truncate(newValue, MAX_VALUE_LENGTH),
+                new Timestamp(System.currentTimeMillis()), json);
+
+        if (!session.isTransactionInProgress()) {
+            auditWriter.write(entry);
+            return;
+        }
+        pendingBySession.computeIfAbsent(session, key -> {
+            // Se ejecuta tras el último flush y antes del commit JDBC
+            key.getActionQueue().registerProcess(s -> {
+                List<AuditWriter.AuditEntry> pending = pendingBySession.remove(key);
+                if (pending != null) {
+                    auditWriter.writeBatch(pending);
+                }
+            });
+            key.getActionQueue().registerProcess((success, s) -> pendingBySession.remove(key));
+            return new ArrayList<>();
+        }).add(entry);
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -0,0 +1,110 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Actualización masiva del estado de {@code synchronization} con sentencias
+ * UPDATE por lotes.
+ * <p>
+ * Cada lote es una sentencia en su propia transacción corta, de modo que
+ * marcar miles de registros no mantiene bloqueadas todas las filas hasta el
+ * final. Solo se tocan las filas cuyo estado cambia realmente: repetir la
+ * operación no reescribe nada y el recuento devuelto son las filas
+ * modificadas.
+ * </p>
+ */
+@Component
+@Slf4j
+public class SynchronizationBulkUpdater {
+
+    private static final String UPDATE_SQL = "UPDATE synchronization SET is_synchronized = ?, "
+            + "modification_datetime = ? WHERE ";
+    private static final String STATUS_CHANGES = " AND (is_synchronized IS NULL OR is_synchronized <> ?)";
+    private static final String BY_IDS_SQL = UPDATE_SQL + "sync_id IN (%s)" + STATUS_CHANGES;
+    private static final String BY_RANGE_SQL = UPDATE_SQL
+            + "modified_table = ? AND modified_record_id BETWEEN ? AND ?" + STATUS_CHANGES + " LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    /**
+     * Resultado de una actualización masiva.
+     *
+     * @param updatedCount filas cuyo estado cambió.
+     * @param statements   sentencias UPDATE ejecutadas.
+     */
+    public record BulkUpdateResult(int updatedCount, int statements) {
+    }
+
+    public SynchronizationBulkUpdater(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            @Value("${audit.sync.bulk.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Cambia el estado de los registros indicados, en lotes de
+     * {@code audit.sync.bulk.chunk-size} ids por sentencia.
+     */
+    public BulkUpdateResult updateByIds(Collection<Integer> syncIds, boolean synchronizedStatus) {
+        List<Integer> ids = syncIds.stream().filter(Objects::nonNull).distinct().toList();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int updated = 0;
+        int statements = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            String sql = String.format(BY_IDS_SQL, String.join(",", Collections.nCopies(chunk.size(), "?")));
+            List<Object> args = new ArrayList<>(chunk.size() + 3);
+            args.add(synchronizedStatus);
+            args.add(now);
+            args.addAll(chunk);
+            args.add(synchronizedStatus);
+            updated += execute(sql, args.toArray());
+            statements++;
+        }
+        log.info("Sincronización masiva por ids: {} de {} registros pasan a {} en {} sentencias", updated,
+                ids.size(), synchronizedStatus, statements);
+        return new BulkUpdateResult(updated, statements);
+    }
+
+    /**
+     * Cambia el estado de los registros de una tabla cuyo id modificado está en
+     * [{@code fromRecordId}, {@code toRecordId}]. Cada sentencia actualiza como
+     * mucho {@code audit.sync.bulk.chunk-size} filas; se repite hasta que una
+     * devuelve menos.
+     */
+    public BulkUpdateResult updateByRange(String modifiedTable, int fromRecordId, int toRecordId,
+            boolean synchronizedStatus) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int updated = 0;
+        int statements = 0;
+        int affected;
+        do {
+            affected = execute(BY_RANGE_SQL, synchronizedStatus, now, modifiedTable, fromRecordId, toRecordId,
+                    synchronizedStatus, chunkSize);
+            updated += affected;
+            statements++;
+        } while (affected == chunkSize);
+        log.info("Sincronización masiva de '{}' [{}, {}]: {} registros pasan a {} en {} sentencias", modifiedTable,
+                fromRecordId, toRecordId, updated, synchronizedStatus, statements);
+        return new BulkUpdateResult(updated, statements);
+    }
+
+    private int execute(String sql, Object... args) {
+        Integer affected = transactionTemplate.execute(status -> jdbcTemplate.update(sql, args));
+        return affected != null ? affected : 0;
+    }
+}
@@ -14,14 +14,13 @@ import org.springframework.transaction.annotation.Transactional; // Para manejar
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.auth.AuthRequest;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.auth.AuthResponse;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.auth.RegisterRequest;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ServiceUnavailableException;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.RoleRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 
-import java.util.Date; // Para actualizar fecha_ultimo_login
-
 /**
  * Servicio para manejar la lógica de autenticación (login) y
  * el registro inicial del usuario Administrador.
@@ -61,30 +60,44 @@ public class AuthService {
      */
     private final AuditService auditService;
 
+    /**
+     * Pool acotado donde se verifica la contraseña (BCrypt) fuera de los hilos de
+     * Tomcat.
+     */
+    private final LoginBulkhead loginBulkhead;
+
+    /**
+     * Acumula último login, intentos fallidos y auditoría LOGIN para volcarlos por
+     * lotes.
+     */
+    private final LoginBookkeeper loginBookkeeper;
+
     /**
      * Autentica a un usuario basado en sus credenciales (username/password).
      * Si la autenticación es exitosa, genera y devuelve un token JWT.
-     * Actualiza la fecha del último login.
+     * La verificación de la contraseña se ejecuta en {@link LoginBulkhead}; la
+     * fecha del último login, los intentos fallidos y la auditoría se registran
+     * en {@link LoginBookkeeper} y se persisten por lotes, por lo que el método
+     * no abre transacción.
      *
      * @param authRequest DTO con username y password.
      * @return DTO con el token JWT.
      * @throws BadCredentialsException Si las credenciales son inválidas.
+     * @throws ServiceUnavailableException Si el pool de login está saturado.
      * @throws RuntimeException        Si el usuario no está activo o no se
      *                                 encuentra (manejado por
      *                                 AuthenticationManager).
      */
-    @Transactional // La transacción asegura que la actualización de fecha_ultimo_login se haga
-                   // junto con la autenticación exitosa
     public AuthResponse authenticate(AuthRequest authRequest) {
         log.info("Intentando autenticar al usuario: {}", authRequest.getUsername());
         try {
             // Intenta autenticar usando el AuthenticationManager configurado en
             // SecurityConfig.
             // Este manager utiliza nuestro JpaUserDetailsService y PasswordEncoder.
-            Authentication authentication = authenticationManager.authenticate(
+            Authentication authentication = loginBulkhead.call(() -> authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             authRequest.getUsername(),
-                            authRequest.getPassword()));
+                            authRequest.getPassword())));
 
             // Si la autenticación llega hasta aquí, fue exitosa.
             // Obtenemos los detalles del usuario autenticado.
@@ -98,17 +111,12 @@ public class AuthService {
                 throw new RuntimeException("La cuenta del usuario está inactiva.");
             }
 
-            // Actualizar fecha de último login (opcional pero útil)
-            user.setLastLogin(new Date(System.currentTimeMillis())); // Actualiza la fecha de último login
-            user.setFailedAttempts(0); // Reiniciar intentos fallidos al loguearse correctamente
-            userRepository.save(user); // Guardar los cambios
-
             // Generar el token JWT
             String jwtToken = jwtService.generateToken(userDetails);
             log.info("Usuario autenticado exitosamente: {}", authRequest.getUsername());
 
-            // --- AUDITORÍA DE LOGIN ---
-            auditService.logChange(user, "LOGIN", "user", "username", null, user.getUsername());
+            // --- ÚLTIMO LOGIN, REINICIO DE INTENTOS Y AUDITORÍA (por lotes) ---
+            loginBookkeeper.recordSuccess(user);
 
             // --- MODIFICACIÓN ---
             // Se retorna el AuthResponse incluyendo el estado 'active' del usuario.
@@ -118,11 +126,11 @@ public class AuthService {
 
         } catch (BadCredentialsException e) {
             log.warn("Credenciales inválidas para el usuario: {}", authRequest.getUsername());
-            // Opcional: Incrementar contador de intentos fallidos aquí si se maneja el
-            // bloqueo
-            // handleFailedLoginAttempt(authRequest.getUsername());
+            loginBookkeeper.recordFailure(authRequest.getUsername());
             throw new BadCredentialsException("Credenciales inválidas.", e); // Re-lanzar para que el controlador la
                                                                              // maneje
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error durante la autenticación para {}: {}", authRequest.getUsername(), e.getMessage());
             // Captura otras posibles excepciones (ej. UsernameNotFoundException,
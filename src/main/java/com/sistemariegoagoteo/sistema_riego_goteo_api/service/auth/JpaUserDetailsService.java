@@ -3,12 +3,14 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
 
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // Importante para operaciones de lectura
 
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
 
 /**
@@ -32,12 +34,18 @@ public class JpaUserDetailsService implements UserDetailsService {
      * @throws UsernameNotFoundException Si no se encuentra ningún usuario con ese username.
      */
     @Override
-    @Transactional(readOnly = true) // Optimiza la transacción para lectura
+    // Sin readOnly: el login lee del primario, nunca de una réplica atrasada con
+    // una contraseña o un estado de cuenta anteriores
+    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         // Busca el usuario en la base de datos a través del repositorio
-        return userRepository.findByUsername(username)
+        User user = userRepository.findByUsername(username)
                 // Si no se encuentra, lanza la excepción estándar de Spring Security
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado con username: " + username));
+        // Las fincas viajan en el JWT: se cargan aquí porque el principal se usa
+        // fuera de esta transacción (pool de login y caché de principales)
+        Hibernate.initialize(user.getFarms());
+        return user;
 
         // Nota: La entidad User ya implementa UserDetails, por lo que podemos devolverla directamente.
         // Spring Security utilizará los métodos de UserDetails (getPassword, getAuthorities, etc.)
@@ -1,8 +1,15 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.config.jwt.JwtConfig; // <-- IMPORTAR
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Permission;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User; // <-- IMPORTAR USER
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -14,8 +21,15 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfi
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.config.SecurityConfigDTO;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -37,6 +51,31 @@ public class JwtService {
     private final JwtConfig jwtConfig;
     private final SystemConfigService systemConfigService;
 
+    /**
+     * Claim con la versión de credenciales del usuario al emitir el token.
+     */
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String PERMISSIONS_CLAIM = "perms";
+    public static final String FARMS_CLAIM = "farms";
+
+    /**
+     * Clave de firma y parser, construidos una sola vez a partir del secreto.
+     */
+    private volatile SecretKey signingKey;
+    private volatile JwtParser jwtParser;
+
+    /**
+     * Claims de tokens verificados recientemente, indexados por el hash SHA-256
+     * del token. Un token "caliente" se verifica criptográficamente una sola vez
+     * mientras permanece en la caché; la expiración se sigue comprobando en
+     * cada uso.
+     */
+    private final Cache<String, Claims> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+
     // Ya no necesitamos los campos individuales con @Value
     // @Value("${jwt.secret}")
     // private String secretKeyString;
@@ -53,6 +92,52 @@ public class JwtService {
         return extractClaim(token, Claims::getSubject);
     }
 
+    /**
+     * Extrae la versión de credenciales del token. Los tokens emitidos antes de
+     * existir el claim se consideran versión 0.
+     *
+     * @param token El token JWT.
+     * @return La versión de token.
+     */
+    public int extractTokenVersion(String token) {
+        return extractTokenVersion(parseAndVerify(token));
+    }
+
+    /**
+     * Extrae la versión de credenciales de unos claims ya verificados.
+     *
+     * @param claims Claims del token.
+     * @return La versión de token (0 si no existe el claim).
+     */
+    public int extractTokenVersion(Claims claims) {
+        Integer version = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * Verifica la firma y la expiración del token una única vez y devuelve sus
+     * claims. Es el punto de entrada del filtro de autenticación: el resto de
+     * comprobaciones trabajan sobre el objeto {@link Claims} devuelto.
+     *
+     * @param token El token JWT.
+     * @return Los claims verificados.
+     * @throws io.jsonwebtoken.JwtException Si el token es inválido o ha expirado.
+     */
+    public Claims parseAndVerify(String token) {
+        String tokenHash = sha256(token);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            if (isExpired(cached)) {
+                verifiedTokens.invalidate(tokenHash);
+                throw new ExpiredJwtException(null, cached, "El token JWT ha expirado");
+            }
+            return cached;
+        }
+        Claims claims = getParser().parseClaimsJws(token).getBody();
+        verifiedTokens.put(tokenHash, claims);
+        return claims;
+    }
+
     /**
      * Extrae un "claim" específico del token utilizando un resolver.
      *
@@ -62,7 +147,7 @@ public class JwtService {
      * @return El valor del claim extraído.
      */
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseAndVerify(token);
         return claimsResolver.apply(claims);
     }
 
@@ -78,6 +163,22 @@ public class JwtService {
         if (userDetails instanceof User) {
             User user = (User) userDetails;
             extraClaims.put("name", user.getName()); // <-- AÑADIR EL NOMBRE COMPLETO
+            extraClaims.put(TOKEN_VERSION_CLAIM, user.currentTokenVersion());
+            // Claims de autorización: permiten autenticar sin cargar el usuario de la BD
+            if (user.getId() != null) {
+                extraClaims.put(USER_ID_CLAIM, user.getId());
+            }
+            if (user.getRol() != null && user.getRol().getPermissions() != null) {
+                extraClaims.put(PERMISSIONS_CLAIM, user.getRol().getPermissions().stream()
+                        .map(Permission::getPermissionName)
+                        .sorted()
+                        .toList());
+            }
+            // Informativo para el cliente: el servidor toma las fincas del índice de pertenencia
+            extraClaims.put(FARMS_CLAIM, user.getFarms().stream()
+                    .map(Farm::getId)
+                    .sorted()
+                    .toList());
         }
         // --- FIN DE LA MODIFICACIÓN ---
         String rol = userDetails.getAuthorities().stream()
@@ -124,57 +225,115 @@ public class JwtService {
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
         try {
-            final String username = extractUsername(token);
-            return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+            return isTokenValid(parseAndVerify(token), userDetails);
         } catch (Exception e) {
             return false;
         }
     }
 
     /**
-     * Comprueba si el token ha superado su fecha de expiración.
+     * Valida unos claims ya verificados contra el usuario esperado, sin volver a
+     * comprobar la firma.
      *
-     * @param token El token JWT.
-     * @return {@code true} si el token ha expirado, {@code false} en caso
-     *         contrario.
+     * @param claims      Claims obtenidos con {@link #parseAndVerify(String)}.
+     * @param userDetails Los detalles del usuario esperado.
+     * @return {@code true} si el token pertenece al usuario y no ha expirado.
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return userDetails != null && claims.getSubject() != null
+                && claims.getSubject().equals(userDetails.getUsername()) && !isExpired(claims);
+    }
+
+    /**
+     * Extrae el ID de usuario de los claims, o {@code null} si el token se emitió
+     * sin claims de autorización.
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Long extractUserId(Claims claims) {
+        Object userId = claims.get(USER_ID_CLAIM);
+        return userId instanceof Number number ? number.longValue() : null;
     }
 
     /**
-     * Extrae la fecha de expiración de un token.
+     * Reconstruye un principal {@link User} desacoplado de la BD a partir de los
+     * claims de autorización (id, username, nombre, rol, permisos y versión).
+     * Sólo debe usarse cuando la versión del token ya se ha comprobado como
+     * vigente.
+     * <p>
+     * Las fincas no se toman del token: una asignación posterior a su emisión no
+     * lo revoca. El resto de datos del usuario (email, último acceso, etc.) no
+     * están en el principal; quien los necesite debe cargar el usuario.
+     * </p>
      *
-     * @param token El token JWT.
-     * @return La fecha de expiración.
+     * @param claims  Claims verificados.
+     * @param farmIds Fincas asignadas actualmente al usuario.
+     * @return Usuario no gestionado por JPA con los datos del token.
+     */
+    public User toPrincipal(Claims claims, Collection<Integer> farmIds) {
+        Role role = new Role(claims.get("rol", String.class));
+        List<?> permissions = claims.get(PERMISSIONS_CLAIM, List.class);
+        if (permissions != null) {
+            permissions.forEach(p -> role.getPermissions().add(new Permission(String.valueOf(p))));
+        }
+
+        User user = new User();
+        user.setId(extractUserId(claims));
+        user.setUsername(claims.getSubject());
+        user.setName(claims.get("name", String.class));
+        user.setRol(role);
+        user.setActive(true);
+        user.setTokenVersion(extractTokenVersion(claims));
+        farmIds.forEach(id -> {
+            Farm farm = new Farm();
+            farm.setId(id);
+            user.getFarms().add(farm);
+        });
+        return user;
+    }
+
+    /**
+     * Comprueba si los claims han superado su fecha de expiración.
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
     }
 
     /**
-     * Extrae todos los claims contenidos en el token.
+     * Devuelve el parser de tokens, construyéndolo la primera vez.
      *
-     * @param token El token JWT.
-     * @return Objeto Claims con toda la información del token.
-     */
-    private Claims extractAllClaims(String token) {
-        // Usamos el valor desde jwtConfig
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey()) // El método getSigningKey ya usará la nueva variable
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+     * @return Parser configurado con la clave de firma.
+     */
+    private JwtParser getParser() {
+        JwtParser parser = jwtParser;
+        if (parser == null) {
+            parser = Jwts.parserBuilder().setSigningKey(getSigningKey()).build();
+            jwtParser = parser;
+        }
+        return parser;
     }
 
     /**
-     * Obtiene la clave de firma a partir del secreto configurado en Base64.
+     * Obtiene la clave de firma a partir del secreto configurado en Base64. Se
+     * decodifica una sola vez y se reutiliza.
      *
      * @return La clave secreta para firmar/validar tokens.
      */
     private SecretKey getSigningKey() {
-        // Usamos el valor desde jwtConfig
-        byte[] keyBytes = Decoders.BASE64.decode(jwtConfig.getSecret());
-        return Keys.hmacShaKeyFor(keyBytes);
+        SecretKey key = signingKey;
+        if (key == null) {
+            byte[] keyBytes = Decoders.BASE64.decode(jwtConfig.getSecret());
+            key = Keys.hmacShaKeyFor(keyBytes);
+            signingKey = key;
+        }
+        return key;
+    }
+
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acumula en memoria la contabilidad de los inicios de sesión (último login,
+ * intentos fallidos y auditoría LOGIN) y la vuelca a la base de datos por lotes.
+ * <p>
+ * Así un login exitoso no escribe dos filas de forma síncrona y una ráfaga de
+ * intentos fallidos por fuerza bruta no genera una escritura por intento: los
+ * fallos se suman en un {@link ConcurrentHashMap} (cada {@code merge} bloquea
+ * sólo el bin del usuario) y se aplican como un único incremento por usuario.
+ * La auditoría LOGIN se encola como entrada de mejor esfuerzo en
+ * {@link AuditWriter}.
+ * </p>
+ * Si un volcado falla, los datos pendientes se conservan para el siguiente.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoginBookkeeper {
+
+    private static final String UPDATE_LAST_LOGIN_SQL =
+            "UPDATE user SET last_login = ?, failed_attempts = 0 WHERE user_id = ?";
+    private static final String ADD_FAILED_ATTEMPTS_SQL =
+            "UPDATE user SET failed_attempts = COALESCE(failed_attempts, 0) + ? WHERE username = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditWriter auditWriter;
+
+    private final Map<Long, Timestamp> lastLogins = new ConcurrentHashMap<>();
+    private final Map<String, Integer> failedAttempts = new ConcurrentHashMap<>();
+
+    /**
+     * Registra un login exitoso: último acceso, reinicio de intentos fallidos y
+     * auditoría LOGIN.
+     */
+    public void recordSuccess(User user) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        lastLogins.put(user.getId(), now);
+        failedAttempts.remove(user.getUsername());
+        auditWriter.enqueue(new AuditWriter.AuditEntry(user.getId(), "LOGIN", "user", "username", null,
+                user.getUsername(), now));
+    }
+
+    /**
+     * Suma un intento fallido al contador en memoria del usuario.
+     */
+    public void recordFailure(String username) {
+        failedAttempts.merge(username, 1, Integer::sum);
+    }
+
+    /**
+     * Intentos fallidos aún no volcados para el usuario.
+     */
+    public int pendingFailures(String username) {
+        return failedAttempts.getOrDefault(username, 0);
+    }
+
+    @Scheduled(fixedDelayString = "${security.login.flush-interval-ms:2000}")
+    @PreDestroy
+    public void flush() {
+        flushLastLogins();
+        flushFailedAttempts();
+    }
+
+    private void flushLastLogins() {
+        if (lastLogins.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (Long userId : List.copyOf(lastLogins.keySet())) {
+            Timestamp loginAt = lastLogins.remove(userId);
+            if (loginAt != null) {
+                batch.add(new Object[] { loginAt, userId });
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_SQL, batch);
+        } catch (Exception e) {
+            log.error("No se pudo volcar el último login de {} usuarios: {}", batch.size(), e.getMessage());
+            batch.forEach(row -> lastLogins.putIfAbsent((Long) row[1], (Timestamp) row[0]));
+        }
+    }
+
+    private void flushFailedAttempts() {
+        if (failedAttempts.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (String username : List.copyOf(failedAttempts.keySet())) {
+            Integer attempts = failedAttempts.remove(username);
+            if (attempts != null) {
+                batch.add(new Object[] { attempts, username });
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(ADD_FAILED_ATTEMPTS_SQL, batch);
+        } catch (Exception e) {
+            log.error("No se pudieron volcar los intentos fallidos de {} usuarios: {}", batch.size(), e.getMessage());
+            batch.forEach(row -> failedAttempts.merge((String) row[1], (Integer) row[0], Integer::sum));
+        }
+    }
+}
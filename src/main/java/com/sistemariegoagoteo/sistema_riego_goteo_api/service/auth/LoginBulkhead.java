@@ -0,0 +1,92 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool acotado en el que se ejecuta la verificación de contraseñas (BCrypt).
+ * <p>
+ * BCrypt consume CPU de forma deliberada; si se ejecuta en los hilos de Tomcat,
+ * una ráfaga de logins (por ejemplo, al cambio de turno) deja sin hilos al
+ * resto de la API. Aquí el trabajo se limita a
+ * {@code security.login.threads} hilos y una cola de
+ * {@code security.login.queue-capacity}; cuando ambos se llenan, o la espera
+ * supera {@code security.login.timeout-ms}, el login se rechaza con
+ * {@link ServiceUnavailableException} (503) en lugar de encolar sin límite.
+ * </p>
+ */
+@Component
+@Slf4j
+public class LoginBulkhead {
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    public LoginBulkhead(@Value("${security.login.threads:0}") int threads,
+            @Value("${security.login.queue-capacity:64}") int queueCapacity,
+            @Value("${security.login.timeout-ms:5000}") long timeoutMs) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Ejecuta la tarea en el pool de login y espera su resultado. Las
+     * excepciones de la tarea se propagan tal cual.
+     *
+     * @throws ServiceUnavailableException Si el pool está saturado o la tarea no
+     *                                     termina a tiempo.
+     */
+    public <T> T call(Supplier<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task::get);
+        } catch (RejectedExecutionException e) {
+            log.warn("Pool de login saturado: se rechaza el intento.");
+            throw new ServiceUnavailableException("Demasiados inicios de sesión simultáneos. Intente nuevamente.", e);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceUnavailableException("El inicio de sesión tardó demasiado. Intente nuevamente.", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Inicio de sesión interrumpido.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,92 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationListener;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TransactionUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Caché acotada y con expiración de los principales autenticados.
+ * <p>
+ * Evita que {@code JwtAuthenticationFilter} consulte la base de datos (usuario,
+ * rol y permisos) en cada petición. La clave combina el username con la versión
+ * de token del JWT, de modo que un token emitido tras un cambio de credenciales
+ * nunca reutiliza un principal anterior. {@code UserService} invalida la entrada
+ * explícitamente al modificar estado, contraseña, datos o fincas del usuario,
+ * y la invalidación se propaga al resto de nodos por {@link CacheInvalidationBus}.
+ * </p>
+ */
+@Component
+@Slf4j
+public class PrincipalCache implements CacheInvalidationListener {
+
+    public static final String CACHE_NAME = "principals";
+
+    private final Cache<PrincipalKey, UserDetails> cache;
+    private final CacheInvalidationBus invalidationBus;
+
+    record PrincipalKey(String username, int tokenVersion) {
+    }
+
+    public PrincipalCache(CacheInvalidationBus invalidationBus,
+            @Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${security.principal-cache.max-size:10000}") long maxSize) {
+        this.invalidationBus = invalidationBus;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Devuelve el principal cacheado para el username y versión indicados, o lo
+     * carga con {@code loader} si no está.
+     */
+    public UserDetails get(String username, int tokenVersion, Supplier<UserDetails> loader) {
+        return cache.get(new PrincipalKey(username, tokenVersion), key -> loader.get());
+    }
+
+    /**
+     * Elimina inmediatamente todas las versiones cacheadas de un usuario.
+     */
+    public void evict(String username) {
+        cache.asMap().keySet().removeIf(key -> key.username().equals(username));
+        log.debug("Principal cacheado invalidado para el usuario {}", username);
+    }
+
+    /**
+     * Invalida el usuario cuando la transacción actual confirma (o de inmediato si
+     * no hay transacción), para que ninguna petición concurrente vuelva a cachear
+     * el estado anterior al commit.
+     */
+    public void evictAfterCommit(String username) {
+        invalidationBus.publish(CACHE_NAME, username);
+        TransactionUtils.afterCommit(() -> evict(username));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+
+    @Override
+    public void onInvalidation(String key, long version) {
+        if (CacheInvalidationBus.ALL_KEYS.equals(key)) {
+            invalidateAll();
+        } else {
+            evict(key);
+        }
+    }
+}
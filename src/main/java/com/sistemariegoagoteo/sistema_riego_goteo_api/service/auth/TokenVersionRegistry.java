@@ -0,0 +1,136 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationListener;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapa en memoria de la versión de token y el estado de cada usuario.
+ * <p>
+ * Permite que {@code JwtAuthenticationFilter} acepte un token autocontenido
+ * (rol y permisos en los claims) sin cargar el usuario: basta con que
+ * la versión del token coincida con la registrada y la cuenta siga activa. El
+ * mapa se refresca completo desde la base de datos de forma periódica (una sola
+ * consulta de tres columnas), de modo que los cambios hechos en otro nodo se
+ * ven como máximo tras {@code security.token-version.refresh-interval-ms}; el
+ * nodo que realiza el cambio lo aplica en cuanto confirma la transacción y lo
+ * publica en {@link CacheInvalidationBus}: al recibirlo, los demás nodos
+ * descartan la entrada y verifican ese usuario contra la base de datos hasta
+ * el siguiente refresco.
+ * </p>
+ * Ante cualquier duda (usuario desconocido, mapa aún no cargado o un token más
+ * nuevo que el mapa) se responde {@link TokenStatus#UNKNOWN} y el filtro
+ * consulta la base de datos.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenVersionRegistry implements CacheInvalidationListener {
+
+    public static final String CACHE_NAME = "token-versions";
+
+    private final UserRepository userRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Map<Long, TokenState> states = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public enum TokenStatus {
+        /** La versión coincide y la cuenta está activa. */
+        CURRENT,
+        /** El token fue revocado (versión anterior o cuenta inactiva). */
+        REVOKED,
+        /** No hay información fiable: se debe verificar contra la base de datos. */
+        UNKNOWN
+    }
+
+    record TokenState(int version, boolean active) {
+    }
+
+    /**
+     * Evalúa si un token con la versión indicada sigue vigente para el usuario.
+     */
+    public TokenStatus status(Long userId, int tokenVersion) {
+        if (!loaded || userId == null) {
+            return TokenStatus.UNKNOWN;
+        }
+        TokenState state = states.get(userId);
+        if (state == null || tokenVersion > state.version()) {
+            return TokenStatus.UNKNOWN;
+        }
+        if (!state.active() || tokenVersion < state.version()) {
+            return TokenStatus.REVOKED;
+        }
+        return TokenStatus.CURRENT;
+    }
+
+    /**
+     * Recarga el mapa completo desde la base de datos.
+     */
+    @Scheduled(fixedDelayString = "${security.token-version.refresh-interval-ms:5000}")
+    public void refresh() {
+        Map<Long, TokenState> fresh = new ConcurrentHashMap<>();
+        for (Object[] row : userRepository.findAllTokenStates()) {
+            Long userId = (Long) row[0];
+            int version = row[1] != null ? ((Number) row[1]).intValue() : 0;
+            boolean active = Boolean.TRUE.equals(row[2]);
+            fresh.put(userId, new TokenState(version, active));
+        }
+        states.keySet().retainAll(fresh.keySet());
+        // Una versión más nueva aplicada localmente nunca se pisa con una lectura
+        // anterior a su commit.
+        fresh.forEach((userId, state) -> update(userId, state.version(), state.active()));
+        loaded = true;
+        log.trace("Registro de versiones de token refrescado: {} usuarios.", fresh.size());
+    }
+
+    public void update(Long userId, int version, boolean active) {
+        states.merge(userId, new TokenState(version, active),
+                (current, next) -> next.version() >= current.version() ? next : current);
+    }
+
+    public void remove(Long userId) {
+        states.remove(userId);
+    }
+
+    /**
+     * Aplica la nueva versión y estado del usuario cuando la transacción actual
+     * confirma (o de inmediato si no hay transacción).
+     */
+    public void updateAfterCommit(Long userId, int version, boolean active) {
+        invalidationBus.publish(CACHE_NAME, String.valueOf(userId), version);
+        TransactionUtils.afterCommit(() -> update(userId, version, active));
+    }
+
+    public void removeAfterCommit(Long userId) {
+        invalidationBus.publish(CACHE_NAME, String.valueOf(userId), Integer.MAX_VALUE);
+        TransactionUtils.afterCommit(() -> remove(userId));
+    }
+
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Descarta el estado conocido si la versión publicada no es anterior a la
+     * registrada; el usuario queda {@link TokenStatus#UNKNOWN} hasta el próximo
+     * refresco.
+     */
+    @Override
+    public void onInvalidation(String key, long version) {
+        if (CacheInvalidationBus.ALL_KEYS.equals(key)) {
+            states.clear();
+            return;
+        }
+        states.computeIfPresent(Long.valueOf(key), (userId, state) -> version >= state.version() ? null : state);
+    }
+}
@@ -13,6 +13,7 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.NotificationService; // <-- IMPORTACIÓN CLAVE
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmMembershipIndex;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -45,6 +46,9 @@ public class UserService {
         private final FarmRepository farmRepository;
         private final AuditService auditService;
         private final NotificationService notificationService; // <-- DEPENDENCIA INYECTADA
+        private final PrincipalCache principalCache;
+        private final TokenVersionRegistry tokenVersionRegistry;
+        private final FarmMembershipIndex farmMembershipIndex;
 
         @Transactional
         @PreAuthorize("hasRole('ADMIN')")
@@ -132,6 +136,7 @@ public class UserService {
                 user.setEmail(updateRequest.getEmail());
 
                 User updatedUser = userRepository.save(user);
+                refreshAuthState(user);
                 log.info("Usuario con ID: {} actualizado exitosamente por admin.", id);
                 return updatedUser;
         }
@@ -151,8 +156,13 @@ public class UserService {
                                         String.valueOf(user.isActive()), String.valueOf(status));
                 }
 
+                if (user.isActive() && !status) {
+                        // Revoca los tokens vigentes del usuario desactivado
+                        user.incrementTokenVersion();
+                }
                 user.setActive(status);
                 User updatedUser = userRepository.save(user);
+                refreshAuthState(user);
 
                 // --- NOTIFICACIÓN ---
                 String statusText = status ? "activada" : "desactivada";
@@ -177,6 +187,9 @@ public class UserService {
                                 null);
 
                 userRepository.delete(user);
+                principalCache.evictAfterCommit(user.getUsername());
+                tokenVersionRegistry.removeAfterCommit(user.getId());
+                farmMembershipIndex.removeUserAfterCommit(user.getId());
                 log.info("Usuario con ID: {} eliminado permanentemente por admin.", id);
         }
 
@@ -195,7 +208,10 @@ public class UserService {
 
                 user.setPassword(passwordEncoder.encode(rawPassword));
                 user.setFailedAttempts(0);
+                // Un restablecimiento por el administrador revoca los tokens vigentes
+                user.incrementTokenVersion();
                 userRepository.save(user);
+                refreshAuthState(user);
 
                 // --- NOTIFICACIÓN ---
                 String message = String.format("Un administrador (%s) ha restablecido tu contraseña.",
@@ -234,7 +250,10 @@ public class UserService {
                 auditService.logChange(currentUser, "ASSIGN", "user_farm", "farm_id", null, farmId.toString());
 
                 user.getFarms().add(farm);
+                // Sin revocar el token: el filtro toma las fincas del índice de pertenencia
                 userRepository.save(user);
+                principalCache.evictAfterCommit(user.getUsername());
+                farmMembershipIndex.assignAfterCommit(user.getId(), farmId);
 
                 // --- NOTIFICACIÓN ---
                 String message = String.format("Has sido asignado a la finca '%s' por el administrador %s.",
@@ -264,6 +283,8 @@ public class UserService {
                         auditService.logChange(currentUser, "UNASSIGN", "user_farm", "farm_id", farmId.toString(),
                                         null);
                         userRepository.save(user);
+                        principalCache.evictAfterCommit(user.getUsername());
+                        farmMembershipIndex.unassignAfterCommit(user.getId(), farmId);
 
                         // --- NOTIFICACIÓN ---
                         String message = String.format("Has sido desasignado de la finca '%s'.", farm.getName());
@@ -323,7 +344,10 @@ public class UserService {
                 auditService.logChange(user, "UPDATE", User.class.getSimpleName(), "password", "********", "********");
 
                 user.setPassword(passwordEncoder.encode(newPassword));
+                // Cambiar la contraseña revoca los tokens emitidos con la anterior
+                user.incrementTokenVersion();
                 userRepository.save(user);
+                refreshAuthState(user);
 
                 // --- NOTIFICACIÓN ---
                 notificationService.createNotification(user, "Tu contraseña ha sido actualizada exitosamente.",
@@ -333,6 +357,16 @@ public class UserService {
                 log.info("Contraseña del usuario {} actualizada exitosamente.", username);
         }
 
+        /**
+         * Carga el usuario autenticado con todos sus datos. El principal del
+         * token solo lleva los de autorización (sin email ni último acceso).
+         */
+        @Transactional(readOnly = true)
+        public User getOwnProfile(String username) {
+                return userRepository.findByUsername(username)
+                                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+        }
+
         @Transactional
         public User updateOwnProfile(String username, UserUpdateRequest request) {
                 log.info("Usuario {} intentando actualizar su perfil.", username);
@@ -358,7 +392,9 @@ public class UserService {
                 user.setName(request.getName());
                 user.setEmail(request.getEmail());
 
-                return userRepository.save(user);
+                User updatedUser = userRepository.save(user);
+                refreshAuthState(user);
+                return updatedUser;
         }
 
         @Transactional(readOnly = true)
@@ -368,9 +404,21 @@ public class UserService {
                 if (!farmRepository.existsById(farmId)) {
                         throw new ResourceNotFoundException("Farm", "id", farmId);
                 }
+                if (farmMembershipIndex.isLoaded()) {
+                        return userRepository.findAllById(farmMembershipIndex.usersOf(farmId));
+                }
                 return userRepository.findByFarms_Id(farmId);
         }
 
+        /**
+         * Tras el commit, invalida el principal cacheado del usuario y publica su
+         * versión de token y estado en el registro de revocación.
+         */
+        private void refreshAuthState(User user) {
+                principalCache.evictAfterCommit(user.getUsername());
+                tokenVersionRegistry.updateAfterCommit(user.getId(), user.currentTokenVersion(), user.isActive());
+        }
+
         // --- MÉTODO PARA EL DASHBOARD ---
 
         @Transactional(readOnly = true)
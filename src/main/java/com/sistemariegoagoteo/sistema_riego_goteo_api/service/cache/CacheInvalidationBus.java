@@ -0,0 +1,284 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bus de invalidación de cachés entre nodos respaldado por la tabla
+ * {@code invalidation_log}, sin broker externo.
+ * <p>
+ * {@link #publish} agrega una fila (caché, clave, versión) dentro de la
+ * transacción de la escritura, por lo que sólo se propaga si ésta confirma.
+ * Cada nodo lee periódicamente las filas con {@code id} mayor que su marca
+ * (consulta por clave primaria) y entrega las ajenas a los
+ * {@link CacheInvalidationListener} de esa caché; las propias se ignoran porque
+ * el nodo ya se invalidó localmente.
+ * </p>
+ * Los {@code id} autoincrementales pueden confirmarse fuera de orden (el
+ * {@code id} se asigna al insertar, no al confirmar): la marca sólo avanza
+ * sobre {@code id} consecutivos y se detiene en el primer hueco, que se relee
+ * en cada sondeo hasta que aparece la fila. Un hueco que no se llena (una
+ * transacción revertida) se salta cuando la fila siguiente lleva vista más de
+ * {@code cache.invalidation.gap-timeout-ms}, que debe superar con holgura la
+ * transacción más larga. Las filas ya aplicadas por encima de la marca se
+ * recuerdan para no entregarlas dos veces. Expone las métricas {@code cache.invalidation.lag}
+ * (ms entre la escritura y su aplicación), {@code cache.invalidation.applied}
+ * y {@code cache.invalidation.errors}.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationBus {
+
+    /**
+     * Clave que indica que se debe vaciar la caché completa.
+     */
+    public static final String ALL_KEYS = "*";
+
+    private static final String INSERT_SQL = "INSERT INTO invalidation_log "
+            + "(cache_name, cache_key, version, origin_node, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_SQL = "SELECT invalidation_id, cache_name, cache_key, version, origin_node, "
+            + "created_at FROM invalidation_log WHERE invalidation_id > ? ORDER BY invalidation_id LIMIT ?";
+    private static final String GAP_SQL = "SELECT invalidation_id, cache_name, cache_key, version, origin_node, "
+            + "created_at FROM invalidation_log WHERE invalidation_id > ? AND invalidation_id < ? "
+            + "ORDER BY invalidation_id";
+    private static final String INITIAL_WATERMARK_SQL = "SELECT COALESCE(MAX(invalidation_id), 0) "
+            + "FROM invalidation_log WHERE created_at < ?";
+    private static final String PRUNE_SQL = "DELETE FROM invalidation_log WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<CacheInvalidationListener> listenerProvider;
+
+    @Getter
+    private final String nodeId;
+
+    @Value("${cache.invalidation.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${cache.invalidation.gap-timeout-ms:600000}")
+    private long gapTimeoutMs = 600_000;
+
+    @Value("${cache.invalidation.retention-minutes:60}")
+    private long retentionMinutes = 60;
+
+    private volatile Map<String, List<CacheInvalidationListener>> listeners;
+    private long watermark = -1;
+
+    /**
+     * Filas ya aplicadas por encima de la marca y hora (ms) en que se vieron.
+     */
+    private final NavigableMap<Long, Long> seenAboveWatermark = new TreeMap<>();
+
+    private final AtomicLong lastLagMs = new AtomicLong();
+    private final Counter appliedCounter;
+    private final Counter errorCounter;
+
+    record Invalidation(long id, String cacheName, String key, long version, String originNode,
+            Timestamp createdAt) {
+    }
+
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate, ObjectProvider<CacheInvalidationListener> listenerProvider,
+            MeterRegistry meterRegistry, @Value("${cache.invalidation.node-id:}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listenerProvider = listenerProvider;
+        this.nodeId = nodeId != null && !nodeId.isBlank() ? nodeId : UUID.randomUUID().toString();
+        Gauge.builder("cache.invalidation.lag", lastLagMs, AtomicLong::get)
+                .description("Milisegundos entre la escritura y su aplicación en este nodo")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.appliedCounter = Counter.builder("cache.invalidation.applied")
+                .description("Invalidaciones de otros nodos aplicadas")
+                .register(meterRegistry);
+        this.errorCounter = Counter.builder("cache.invalidation.errors")
+                .description("Errores al publicar o leer invalidaciones")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publica una invalidación para los demás nodos. Si hay una transacción
+     * activa, la fila se inserta dentro de ella.
+     */
+    public void publish(String cacheName, String key, long version) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, cacheName, key, version, nodeId,
+                    new Timestamp(System.currentTimeMillis()));
+        } catch (DataAccessException e) {
+            // La caché local ya se invalida por su cuenta; los demás nodos
+            // convergen por expiración o recarga periódica.
+            errorCounter.increment();
+            log.error("No se pudo publicar la invalidación {}:{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    public void publish(String cacheName, String key) {
+        publish(cacheName, key, 0L);
+    }
+
+    /**
+     * Publica una invalidación por clave con un único lote de inserciones,
+     * dentro de la transacción activa si la hay.
+     */
+    public void publishAll(String cacheName, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, keys.stream()
+                    .map(key -> new Object[] { cacheName, key, 0L, nodeId, now })
+                    .toList());
+        } catch (DataAccessException e) {
+            errorCounter.increment();
+            log.error("No se pudieron publicar {} invalidaciones de {}: {}", keys.size(), cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Publica una invalidación con la conexión indicada, dentro de la
+     * transacción que ésta tenga abierta. Para código que trabaja por debajo
+     * de Spring, sobre la conexión JDBC.
+     */
+    public void publish(Connection connection, String cacheName, String key, long version) {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            statement.setString(1, cacheName);
+            statement.setString(2, key);
+            statement.setLong(3, version);
+            statement.setString(4, nodeId);
+            statement.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            errorCounter.increment();
+            log.error("No se pudo publicar la invalidación {}:{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    /**
+     * Lee las invalidaciones nuevas y las entrega a los listeners locales.
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        try {
+            long now = System.currentTimeMillis();
+            if (watermark < 0) {
+                watermark = jdbcTemplate.queryForObject(INITIAL_WATERMARK_SQL, Long.class,
+                        new Timestamp(now - gapTimeoutMs));
+            }
+            List<Invalidation> rows = new ArrayList<>();
+            long highestSeen = seenAboveWatermark.isEmpty() ? watermark : seenAboveWatermark.lastKey();
+            if (seenAboveWatermark.size() < highestSeen - watermark) {
+                rows.addAll(jdbcTemplate.query(GAP_SQL, CacheInvalidationBus::mapRow, watermark, highestSeen));
+            }
+            rows.addAll(jdbcTemplate.query(SELECT_SQL, CacheInvalidationBus::mapRow, highestSeen, batchSize));
+
+            for (Invalidation row : rows) {
+                if (seenAboveWatermark.putIfAbsent(row.id(), now) == null && !nodeId.equals(row.originNode())) {
+                    dispatch(row);
+                }
+            }
+            advanceWatermark(now);
+        } catch (DataAccessException e) {
+            errorCounter.increment();
+            log.warn("No se pudo leer el registro de invalidaciones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Avanza la marca sobre los {@code id} consecutivos ya vistos. Se detiene en
+     * un hueco salvo que la fila que lo sigue lleve vista más de
+     * {@code gapTimeoutMs}.
+     */
+    private void advanceWatermark(long now) {
+        Iterator<Map.Entry<Long, Long>> iterator = seenAboveWatermark.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> seen = iterator.next();
+            if (seen.getKey() != watermark + 1 && now - seen.getValue() < gapTimeoutMs) {
+                return;
+            }
+            watermark = seen.getKey();
+            iterator.remove();
+        }
+    }
+
+    private static Invalidation mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Invalidation(
+                rs.getLong("invalidation_id"),
+                rs.getString("cache_name"),
+                rs.getString("cache_key"),
+                rs.getLong("version"),
+                rs.getString("origin_node"),
+                rs.getTimestamp("created_at"));
+    }
+
+    private void dispatch(Invalidation row) {
+        for (CacheInvalidationListener listener : listenersFor(row.cacheName())) {
+            try {
+                listener.onInvalidation(row.key(), row.version());
+            } catch (RuntimeException e) {
+                log.error("Error aplicando la invalidación {}:{}: {}", row.cacheName(), row.key(), e.getMessage());
+            }
+        }
+        appliedCounter.increment();
+        lastLagMs.set(Math.max(0L, System.currentTimeMillis() - row.createdAt().getTime()));
+    }
+
+    private List<CacheInvalidationListener> listenersFor(String cacheName) {
+        Map<String, List<CacheInvalidationListener>> byName = listeners;
+        if (byName == null) {
+            Map<String, List<CacheInvalidationListener>> loaded = new HashMap<>();
+            listenerProvider.orderedStream().forEach(listener -> loaded
+                    .computeIfAbsent(listener.cacheName(), k -> new ArrayList<>()).add(listener));
+            loaded.replaceAll((k, v) -> List.copyOf(v));
+            byName = Map.copyOf(loaded);
+            listeners = byName;
+        }
+        return byName.getOrDefault(cacheName, List.of());
+    }
+
+    /**
+     * Elimina las filas más antiguas que la retención configurada.
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.prune-interval-ms:600000}")
+    public void prune() {
+        try {
+            int deleted = jdbcTemplate.update(PRUNE_SQL,
+                    new Timestamp(System.currentTimeMillis() - retentionMinutes * 60_000L));
+            if (deleted > 0) {
+                log.debug("Registro de invalidaciones purgado: {} filas.", deleted);
+            }
+        } catch (DataAccessException e) {
+            errorCounter.increment();
+            log.warn("No se pudo purgar el registro de invalidaciones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Milisegundos entre la última invalidación aplicada y su escritura.
+     */
+    public long getLastLagMs() {
+        return lastLagMs.get();
+    }
+}
@@ -0,0 +1,24 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache;
+
+/**
+ * Caché en memoria que recibe las invalidaciones publicadas por otros nodos a
+ * través de {@link CacheInvalidationBus}.
+ */
+public interface CacheInvalidationListener {
+
+    /**
+     * Nombre lógico de la caché; sólo se entregan las invalidaciones publicadas
+     * con este nombre.
+     */
+    String cacheName();
+
+    /**
+     * Descarta la entrada indicada.
+     *
+     * @param key     Clave afectada o {@link CacheInvalidationBus#ALL_KEYS} para
+     *                vaciar la caché completa.
+     * @param version Versión del dato tras la escritura (0 si la caché no
+     *                versiona sus entradas).
+     */
+    void onInvalidation(String key, long version);
+}
@@ -0,0 +1,224 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.config.ReadReplicaProperties;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Propaga a los demás nodos las invalidaciones de la caché de segundo nivel de
+ * Hibernate.
+ * <p>
+ * Cada modificación o baja de una entidad cacheada, y cada cambio en una
+ * colección cacheada, se publica en {@link CacheInvalidationBus} con la clave
+ * {@code <entidad o rol>#<id>}. Dentro de una transacción las claves de la
+ * sesión se acumulan y se publican tras el último flush, antes del commit
+ * JDBC, por lo que una escritura revertida no invalida nada. Los nodos que
+ * reciben la clave descartan esa entrada de su caché local; en este nodo ya la
+ * invalidó Hibernate.
+ * </p>
+ * <p>
+ * Con réplicas de lectura, una carga {@code readOnly} desde una réplica
+ * atrasada podría volver a dejar en la caché el estado anterior justo después
+ * de la invalidación. Por eso cada clave invalidada, aquí o en otro nodo, se
+ * invalida de nuevo pasado {@code datasource.read-replicas.max-staleness}.
+ * </p>
+ * Las sentencias UPDATE/DELETE en bloque no pasan por estos eventos: quien las
+ * ejecute debe llamar a {@link #publishEviction}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SecondLevelCacheInvalidator implements PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener,
+        CacheInvalidationListener {
+
+    public static final String CACHE_NAME = "hibernate-l2";
+    private static final char ID_SEPARATOR = '#';
+
+    private final CacheInvalidationBus invalidationBus;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ReadReplicaProperties readReplicaProperties;
+
+    /**
+     * Claves pendientes por sesión; se publican antes del commit o se
+     * descartan al terminar la transacción.
+     */
+    private final Map<EventSource, Set<String>> pendingBySession = new ConcurrentHashMap<>();
+
+    /**
+     * Claves que se invalidarán de nuevo y hora (ms) a partir de la que toca.
+     */
+    private final Map<String, Long> deferredEvictions = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        entityChanged(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        entityChanged(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        collectionChanged(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        collectionChanged(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        collectionChanged(event);
+    }
+
+    /**
+     * Publica la invalidación de una entidad modificada fuera de la sesión
+     * (UPDATE en bloque, JDBC). Si hay una transacción activa se publica dentro
+     * de ella.
+     */
+    public void publishEviction(Class<?> entityClass, Object id) {
+        invalidationBus.publish(CACHE_NAME, entityClass.getName() + ID_SEPARATOR + id);
+    }
+
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+
+    @Override
+    public void onInvalidation(String key, long version) {
+        evict(key);
+        deferEviction(key);
+    }
+
+    /**
+     * Repite las invalidaciones cuyo margen para las réplicas ya pasó.
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-interval-ms:1000}")
+    public void evictDeferred() {
+        long now = System.currentTimeMillis();
+        deferredEvictions.forEach((key, due) -> {
+            if (due <= now && deferredEvictions.remove(key, due)) {
+                evict(key);
+            }
+        });
+    }
+
+    /**
+     * Número de sesiones con claves pendientes de publicar (para tests).
+     */
+    int pendingSessions() {
+        return pendingBySession.size();
+    }
+
+    private void deferEviction(String key) {
+        if (readReplicaProperties.isEnabled() && !readReplicaProperties.getNodes().isEmpty()) {
+            deferredEvictions.put(key, System.currentTimeMillis()
+                    + readReplicaProperties.getMaxStaleness().toMillis());
+        }
+    }
+
+    private void evict(String key) {
+        SessionFactoryImplementor factory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        if (CacheInvalidationBus.ALL_KEYS.equals(key)) {
+            factory.getCache().evictAllRegions();
+            return;
+        }
+        int separator = key.lastIndexOf(ID_SEPARATOR);
+        if (separator < 0) {
+            log.warn("Clave de invalidación de la caché de segundo nivel no válida: {}", key);
+            return;
+        }
+        String name = key.substring(0, separator);
+        String rawId = key.substring(separator + 1);
+        MappingMetamodel metamodel = factory.getMappingMetamodel();
+        EntityPersister entity = metamodel.findEntityDescriptor(name);
+        if (entity != null) {
+            factory.getCache().evictEntityData(name, entity.getIdentifierMapping().getJavaType().fromString(rawId));
+            return;
+        }
+        CollectionPersister collection = metamodel.findCollectionDescriptor(name);
+        if (collection != null) {
+            factory.getCache().evictCollectionData(name, collection.getOwnerEntityPersister().getIdentifierMapping()
+                    .getJavaType().fromString(rawId));
+            return;
+        }
+        log.warn("Invalidación recibida para una entidad o colección desconocida: {}", key);
+    }
+
+    private void entityChanged(EventSource session, EntityPersister persister, Object id) {
+        if (persister.canWriteToCache()) {
+            record(session, persister.getEntityName() + ID_SEPARATOR + id);
+        }
+    }
+
+    private void collectionChanged(AbstractCollectionEvent event) {
+        Object ownerId = event.getAffectedOwnerIdOrNull();
+        String role = event.getCollection().getRole();
+        if (ownerId == null || role == null) {
+            return;
+        }
+        CollectionPersister persister = event.getSession().getFactory().getMappingMetamodel()
+                .getCollectionDescriptor(role);
+        if (persister.hasCache()) {
+            record(event.getSession(), role + ID_SEPARATOR + ownerId);
+        }
+    }
+
+    private void record(EventSource session, String key) {
+        if (!session.isTransactionInProgress()) {
+            invalidationBus.publish(CACHE_NAME, key);
+            deferEviction(key);
+            return;
+        }
+        pendingBySession.computeIfAbsent(session, s -> {
+            // Se ejecuta tras el último flush y antes del commit JDBC
+            s.getActionQueue().registerProcess(x -> {
+                Set<String> pending = pendingBySession.get(s);
+                if (pending != null) {
+                    pending.forEach(pendingKey -> invalidationBus.publish(CACHE_NAME, pendingKey));
+                }
+            });
+            s.getActionQueue().registerProcess((success, x) -> {
+                Set<String> pending = pendingBySession.remove(s);
+                if (success && pending != null) {
+                    pending.forEach(this::deferEviction);
+                }
+            });
+            return new LinkedHashSet<>();
+        }).add(key);
+    }
+}
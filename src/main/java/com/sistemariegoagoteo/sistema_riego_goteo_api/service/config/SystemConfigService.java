@@ -9,22 +9,45 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.ConfigType;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.SystemConfig;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.config.SystemConfigRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationListener;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Lectura y actualización de la configuración del sistema.
+ * <p>
+ * Las lecturas se resuelven contra un {@link SystemConfigSnapshot} inmutable
+ * que se reemplaza de forma atómica tras el commit de cada actualización. Cada
+ * actualización incrementa además la fila {@value SystemConfigSnapshot#VERSION_KEY};
+ * el cambio se publica en {@link CacheInvalidationBus} para que los demás nodos
+ * recarguen su copia, y un proceso periódico compara la versión persistida con
+ * la local como respaldo.
+ * </p>
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class SystemConfigService {
+public class SystemConfigService implements CacheInvalidationListener {
+
+    public static final String CACHE_NAME = "system-config";
 
     private final SystemConfigRepository systemConfigRepository;
     private final AuditService auditService;
     private final ObjectMapper objectMapper;
+    private final CacheInvalidationBus invalidationBus;
+
+    private static final Object VERSION_BUMP_KEY = new Object();
+
+    private final AtomicReference<SystemConfigSnapshot> snapshot = new AtomicReference<>();
 
     // --- AGRONOMIC ---
     public AgronomicConfigDTO getAgronomicConfig() {
@@ -184,31 +207,29 @@ public class SystemConfigService {
 
     // --- HELPERS PARA LECTURA SEGURA (Con Defaults) ---
     private String getStringValue(String key, String defaultValue) {
-        return systemConfigRepository.findById(key)
-                .map(SystemConfig::getConfigValue)
-                .orElse(defaultValue);
+        return getSnapshot().getString(key, defaultValue);
     }
 
     private Integer getIntValue(String key, Integer defaultValue) {
-        return systemConfigRepository.findById(key)
-                .map(c -> Integer.parseInt(c.getConfigValue()))
-                .orElse(defaultValue);
+        return getSnapshot().getInt(key, defaultValue);
     }
 
     private Float getFloatValue(String key, Float defaultValue) {
-        return systemConfigRepository.findById(key)
-                .map(c -> Float.parseFloat(c.getConfigValue()))
-                .orElse(defaultValue);
+        return getSnapshot().getFloat(key, defaultValue);
     }
 
     private Boolean getBooleanValue(String key, Boolean defaultValue) {
-        return systemConfigRepository.findById(key)
-                .map(c -> Boolean.parseBoolean(c.getConfigValue()))
-                .orElse(defaultValue);
+        return getSnapshot().getBoolean(key, defaultValue);
     }
 
     // --- HELPER PARA ACTUALIZACIÓN ESCRITURA Y AUDITORÍA ---
     private void updateConfig(String key, String newValue, ConfigType type, String description, User admin) {
+        if (saveConfig(key, newValue, type, description, admin)) {
+            publishChange();
+        }
+    }
+
+    private boolean saveConfig(String key, String newValue, ConfigType type, String description, User admin) {
         Optional<SystemConfig> existingOpt = systemConfigRepository.findById(key);
         String oldValue = existingOpt.map(SystemConfig::getConfigValue).orElse(null);
 
@@ -230,6 +251,81 @@ public class SystemConfigService {
                 auditService.logChange(admin, action, "system_config", key, oldValue == null ? "NULL" : oldValue,
                         newValue);
             }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Incrementa la versión de la configuración (bajo bloqueo de fila) y programa
+     * la recarga de la copia local tras el commit. Dentro de una misma
+     * transacción la versión se incrementa una sola vez.
+     */
+    private void publishChange() {
+        if (!TransactionUtils.firstInTransaction(VERSION_BUMP_KEY)) {
+            return;
+        }
+        SystemConfig versionRow = systemConfigRepository.findForUpdate(SystemConfigSnapshot.VERSION_KEY)
+                .orElseGet(() -> new SystemConfig(SystemConfigSnapshot.VERSION_KEY, "0", ConfigType.INTEGER,
+                        "Versión de la configuración (uso interno)"));
+        long nextVersion = SystemConfigSnapshot.parseVersion(versionRow.getConfigValue()) + 1;
+        versionRow.setConfigValue(String.valueOf(nextVersion));
+        systemConfigRepository.save(versionRow);
+        invalidationBus.publish(CACHE_NAME, CacheInvalidationBus.ALL_KEYS, nextVersion);
+        TransactionUtils.afterCommit(this::reload);
+    }
+
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+
+    @Override
+    public void onInvalidation(String key, long version) {
+        SystemConfigSnapshot current = snapshot.get();
+        if (current == null || version != current.getVersion()) {
+            reload();
+        }
+    }
+
+    // --- COPIA EN MEMORIA ---
+
+    /**
+     * Devuelve la copia vigente de la configuración, cargándola la primera vez.
+     */
+    public SystemConfigSnapshot getSnapshot() {
+        SystemConfigSnapshot current = snapshot.get();
+        return current != null ? current : reload();
+    }
+
+    /**
+     * Relee todas las filas de {@code system_config} y reemplaza la copia en
+     * memoria.
+     */
+    public SystemConfigSnapshot reload() {
+        SystemConfigSnapshot fresh = SystemConfigSnapshot.of(systemConfigRepository.findAll());
+        snapshot.set(fresh);
+        log.debug("Configuración del sistema cargada (versión {}).", fresh.getVersion());
+        return fresh;
+    }
+
+    /**
+     * Recarga la copia si la versión persistida difiere de la local (cambios
+     * realizados desde otro nodo). Sólo lee la fila de versión.
+     */
+    @Scheduled(fixedDelayString = "${system-config.version-check-interval-ms:10000}")
+    public void reloadIfStale() {
+        SystemConfigSnapshot current = snapshot.get();
+        if (current == null) {
+            return;
+        }
+        long persisted = systemConfigRepository.findById(SystemConfigSnapshot.VERSION_KEY)
+                .map(c -> SystemConfigSnapshot.parseVersion(c.getConfigValue()))
+                .orElse(0L);
+        if (persisted != current.getVersion()) {
+            log.info("Configuración del sistema obsoleta (local {}, persistida {}): recargando.",
+                    current.getVersion(), persisted);
+            reload();
         }
     }
 }
@@ -0,0 +1,118 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.config;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.ConfigType;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.SystemConfig;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copia inmutable de todas las filas de {@code system_config}.
+ * <p>
+ * Los valores se convierten una sola vez, al construir la copia, según su
+ * {@link ConfigType}; las lecturas no consultan la base de datos ni vuelven a
+ * parsear. {@link #getVersion()} es el valor de la fila
+ * {@value #VERSION_KEY}, que se incrementa con cada actualización y permite a
+ * otros nodos detectar que su copia quedó obsoleta.
+ * </p>
+ */
+@Slf4j
+public final class SystemConfigSnapshot {
+
+    /**
+     * Clave de la fila que guarda la versión de la configuración.
+     */
+    public static final String VERSION_KEY = "CONFIG_VERSION";
+
+    static final SystemConfigSnapshot EMPTY = new SystemConfigSnapshot(0L, Map.of(), Map.of());
+
+    @Getter
+    private final long version;
+    private final Map<String, String> rawValues;
+    private final Map<String, Object> typedValues;
+
+    private SystemConfigSnapshot(long version, Map<String, String> rawValues, Map<String, Object> typedValues) {
+        this.version = version;
+        this.rawValues = rawValues;
+        this.typedValues = typedValues;
+    }
+
+    /**
+     * Construye la copia a partir de las filas leídas de la base de datos. Las
+     * filas sin valor se ignoran (se usará el valor por defecto).
+     */
+    public static SystemConfigSnapshot of(Collection<SystemConfig> rows) {
+        Map<String, String> raw = new HashMap<>();
+        Map<String, Object> typed = new HashMap<>();
+        for (SystemConfig row : rows) {
+            if (row.getConfigValue() == null) {
+                continue;
+            }
+            raw.put(row.getConfigKey(), row.getConfigValue());
+            Object value = parse(row);
+            if (value != null) {
+                typed.put(row.getConfigKey(), value);
+            }
+        }
+        long version = parseVersion(raw.get(VERSION_KEY));
+        return new SystemConfigSnapshot(version, Map.copyOf(raw), Map.copyOf(typed));
+    }
+
+    static long parseVersion(String value) {
+        if (value == null || value.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static Object parse(SystemConfig row) {
+        String value = row.getConfigValue();
+        try {
+            return switch (row.getConfigType() != null ? row.getConfigType() : ConfigType.STRING) {
+                case INTEGER -> Integer.valueOf(value.trim());
+                case FLOAT -> Float.valueOf(value.trim());
+                case BOOLEAN -> Boolean.valueOf(value.trim());
+                default -> value;
+            };
+        } catch (NumberFormatException e) {
+            log.warn("Valor inválido para la configuración {} ({}): '{}'", row.getConfigKey(), row.getConfigType(),
+                    value);
+            return null;
+        }
+    }
+
+    public String getString(String key, String defaultValue) {
+        return rawValues.getOrDefault(key, defaultValue);
+    }
+
+    public Integer getInt(String key, Integer defaultValue) {
+        if (typedValues.get(key) instanceof Integer value) {
+            return value;
+        }
+        String raw = rawValues.get(key);
+        return raw != null ? Integer.valueOf(raw.trim()) : defaultValue;
+    }
+
+    public Float getFloat(String key, Float defaultValue) {
+        if (typedValues.get(key) instanceof Float value) {
+            return value;
+        }
+        String raw = rawValues.get(key);
+        return raw != null ? Float.valueOf(raw.trim()) : defaultValue;
+    }
+
+    public Boolean getBoolean(String key, Boolean defaultValue) {
+        if (typedValues.get(key) instanceof Boolean value) {
+            return value;
+        }
+        String raw = rawValues.get(key);
+        return raw != null ? Boolean.valueOf(raw.trim()) : defaultValue;
+    }
+}
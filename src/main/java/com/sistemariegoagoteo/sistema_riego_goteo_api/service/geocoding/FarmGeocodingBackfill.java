@@ -0,0 +1,150 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.SecondLevelCacheInvalidator;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TokenBucketRateLimiter;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Completa en segundo plano las coordenadas de las fincas que no las tienen.
+ * <p>
+ * Recorre las fincas sin latitud o longitud por id ascendente, en lotes de
+ * {@code geocoding.backfill.batch-size}, y consulta al proveedor a un ritmo
+ * máximo de {@code geocoding.backfill.requests-per-second} (las ubicaciones ya
+ * cacheadas no consumen cuota). Cada finca se actualiza en su propia
+ * transacción, por lo que una ejecución interrumpida se reanuda sola: la
+ * siguiente sólo encuentra las fincas que siguen pendientes.
+ * </p>
+ * Se ejecuta periódicamente y también tras crear o editar una finca cuya
+ * ubicación no estaba en caché. El UPDATE en bloque no pasa por los eventos de
+ * Hibernate, así que la invalidación de la finca en la caché de segundo nivel
+ * de los demás nodos se publica aquí.
+ */
+@Component
+@Slf4j
+public class FarmGeocodingBackfill {
+
+    private final FarmRepository farmRepository;
+    private final GeocodingService geocodingService;
+    private final TransactionTemplate transactionTemplate;
+    private final SecondLevelCacheInvalidator cacheInvalidator;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final int batchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "geocoding-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean rerunRequested = new AtomicBoolean();
+
+    @Value("${geocoding.backfill.permit-timeout-ms:30000}")
+    private long permitTimeoutMs = 30000;
+
+    public FarmGeocodingBackfill(FarmRepository farmRepository, GeocodingService geocodingService,
+            TransactionTemplate transactionTemplate, SecondLevelCacheInvalidator cacheInvalidator,
+            @Value("${geocoding.backfill.requests-per-second:1}") double requestsPerSecond,
+            @Value("${geocoding.backfill.batch-size:50}") int batchSize) {
+        this.farmRepository = farmRepository;
+        this.geocodingService = geocodingService;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheInvalidator = cacheInvalidator;
+        this.rateLimiter = new TokenBucketRateLimiter(requestsPerSecond, 1);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Programa una ejecución cuando la transacción actual confirme. Si ya hay
+     * una en curso, ésta repetirá la pasada al terminar.
+     */
+    public void requestAfterCommit() {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                log.debug("Backfill de geocodificación detenido: se omite la solicitud.");
+            }
+        });
+    }
+
+    /**
+     * @return Número de fincas a las que se asignaron coordenadas.
+     */
+    @Scheduled(initialDelayString = "${geocoding.backfill.interval-ms:600000}",
+            fixedDelayString = "${geocoding.backfill.interval-ms:600000}")
+    public int run() {
+        if (!running.compareAndSet(false, true)) {
+            rerunRequested.set(true);
+            return 0;
+        }
+        int filled = 0;
+        try {
+            do {
+                rerunRequested.set(false);
+                filled += pass();
+            } while (rerunRequested.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+        if (filled > 0) {
+            log.info("Backfill de geocodificación: {} fincas completadas.", filled);
+        }
+        return filled;
+    }
+
+    private int pass() throws InterruptedException {
+        int filled = 0;
+        int afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = farmRepository.findMissingCoordinates(afterId, PageRequest.of(0, batchSize));
+            for (Object[] row : rows) {
+                Integer farmId = (Integer) row[0];
+                String location = (String) row[1];
+                afterId = farmId;
+                if (!geocodingService.isCached(location) && !rateLimiter.tryAcquire(permitTimeoutMs)) {
+                    log.warn("Backfill de geocodificación sin cuota disponible: se reanudará en la próxima ejecución.");
+                    return filled;
+                }
+                Optional<GeocodingService.Coordinates> coordinates = geocodingService.getCoordinates(location);
+                if (coordinates.isPresent()) {
+                    Integer updated = transactionTemplate.execute(status -> {
+                        int count = farmRepository.fillCoordinates(farmId, location, coordinates.get().latitude(),
+                                coordinates.get().longitude());
+                        if (count > 0) {
+                            cacheInvalidator.publishEviction(Farm.class, farmId);
+                        }
+                        return count;
+                    });
+                    if (updated != null && updated > 0) {
+                        filled++;
+                    }
+                }
+            }
+        } while (rows.size() == batchSize);
+        return filled;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
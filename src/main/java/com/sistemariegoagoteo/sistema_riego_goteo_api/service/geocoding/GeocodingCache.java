@@ -0,0 +1,95 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.cache.GeocodingCacheEntry;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.cache.GeocodingCacheRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Caché de geocodificación en dos niveles: memoria (Caffeine) delante de la
+ * tabla {@code geocoding_cache}.
+ * <p>
+ * La clave es la ubicación normalizada (minúsculas, sin tildes y con espacios
+ * colapsados), de modo que "San Martín,  Mendoza" y "san martin, mendoza"
+ * comparten entrada. Los resultados positivos no vencen; los negativos
+ * (ubicación no encontrada) vencen a las {@code geocoding.cache.negative-ttl-hours}.
+ * </p>
+ */
+@Component
+@Slf4j
+public class GeocodingCache {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final GeocodingCacheRepository repository;
+    private final Cache<String, GeocodingCacheEntry> memory;
+    private final Duration negativeTtl;
+
+    public GeocodingCache(GeocodingCacheRepository repository,
+            @Value("${geocoding.cache.max-size:10000}") long maxSize,
+            @Value("${geocoding.cache.negative-ttl-hours:24}") long negativeTtlHours) {
+        this.repository = repository;
+        this.memory = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.negativeTtl = Duration.ofHours(negativeTtlHours);
+    }
+
+    /**
+     * @return La entrada vigente para la ubicación, o vacío si hay que consultar
+     *         al proveedor.
+     */
+    public Optional<GeocodingCacheEntry> find(String location) {
+        String key = normalize(location);
+        GeocodingCacheEntry entry = memory.getIfPresent(key);
+        if (entry == null) {
+            entry = repository.findById(key).orElse(null);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            memory.put(key, entry);
+        }
+        if (!entry.isFound() && entry.getResolvedAt().isBefore(LocalDateTime.now().minus(negativeTtl))) {
+            memory.invalidate(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Guarda el resultado de una consulta al proveedor; vacío significa que la
+     * ubicación no se encontró.
+     */
+    public void store(String location, Optional<GeocodingService.Coordinates> coordinates) {
+        String key = normalize(location);
+        GeocodingCacheEntry entry = new GeocodingCacheEntry(key, coordinates.isPresent(),
+                coordinates.map(GeocodingService.Coordinates::latitude).orElse(null),
+                coordinates.map(GeocodingService.Coordinates::longitude).orElse(null),
+                LocalDateTime.now());
+        memory.put(key, entry);
+        try {
+            repository.save(entry);
+        } catch (DataAccessException e) {
+            // Otra petición guardó la misma ubicación en paralelo: la caché en
+            // memoria ya tiene el valor y la fila existente es equivalente.
+            log.debug("No se pudo persistir la geocodificación de '{}': {}", key, e.getMessage());
+        }
+    }
+
+    static String normalize(String location) {
+        String key = Normalizer.normalize(location.trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replaceAll("\\s+", " ")
+                .replaceAll("\\s*,\\s*", ", ")
+                .toLowerCase(Locale.ROOT);
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+}
@@ -1,7 +1,10 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.geocoding.GeocodingResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.cache.GeocodingCacheEntry;
 import lombok.extern.slf4j.Slf4j;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.http.ProviderGuard;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -15,6 +18,8 @@ import java.util.Optional;
 public class GeocodingService {
 
     private final RestTemplate restTemplate;
+    private final ProviderGuard guard;
+    private final GeocodingCache geocodingCache;
 
     @Value("${geocoding.api.key}")
     private String apiKey;
@@ -22,15 +27,59 @@ public class GeocodingService {
     @Value("${geocoding.api.url}")
     private String apiUrl;
 
-    public GeocodingService(RestTemplate restTemplate) {
+    public GeocodingService(@Qualifier("geocodingRestTemplate") RestTemplate restTemplate,
+            @Qualifier("geocodingGuard") ProviderGuard guard, GeocodingCache geocodingCache) {
         this.restTemplate = restTemplate;
+        this.guard = guard;
+        this.geocodingCache = geocodingCache;
     }
 
+    /**
+     * Coordenadas de la ubicación: primero desde {@link GeocodingCache} y, si no
+     * están, consultando al proveedor (el resultado, positivo o negativo, se
+     * guarda en la caché). Los errores del proveedor no se cachean.
+     */
     public Optional<Coordinates> getCoordinates(String location) {
         if (location == null || location.isBlank()) {
             return Optional.empty();
         }
 
+        Optional<GeocodingCacheEntry> cached = geocodingCache.find(location);
+        if (cached.isPresent()) {
+            return toCoordinates(cached.get());
+        }
+
+        try {
+            Optional<Coordinates> coordinates = fetch(location);
+            geocodingCache.store(location, coordinates);
+            return coordinates;
+        } catch (Exception e) {
+            log.error("Error al llamar a la API de geocodificación para la ubicación '{}': {}", location,
+                    e.getMessage());
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Coordenadas de la ubicación sólo si ya están en caché; nunca sale a la red.
+     */
+    public Optional<Coordinates> getCachedCoordinates(String location) {
+        if (location == null || location.isBlank()) {
+            return Optional.empty();
+        }
+        return geocodingCache.find(location).flatMap(GeocodingService::toCoordinates);
+    }
+
+    /**
+     * @return {@code true} si la ubicación ya tiene un resultado en caché
+     *         (incluido "no encontrada").
+     */
+    public boolean isCached(String location) {
+        return location != null && !location.isBlank() && geocodingCache.find(location).isPresent();
+    }
+
+    private Optional<Coordinates> fetch(String location) {
         // Construimos la URL de la API con los parámetros necesarios
         String url = UriComponentsBuilder.fromUriString(apiUrl)
                 .queryParam("q", location)
@@ -39,23 +88,22 @@ public class GeocodingService {
                 .queryParam("countrycode", "ar") // Priorizamos resultados en Argentina (ideal para Mendoza)
                 .toUriString();
 
-        try {
-            GeocodingResponse response = restTemplate.getForObject(url, GeocodingResponse.class);
+        GeocodingResponse response = guard.call(() -> restTemplate.getForObject(url, GeocodingResponse.class));
 
-            if (response != null && response.getResults() != null && !response.getResults().isEmpty()) {
-                GeocodingResponse.Geometry geometry = response.getResults().get(0).getGeometry();
-                if (geometry != null && geometry.getLat() != null && geometry.getLng() != null) {
-                    return Optional.of(new Coordinates(geometry.getLat(), geometry.getLng()));
-                }
+        if (response != null && response.getResults() != null && !response.getResults().isEmpty()) {
+            GeocodingResponse.Geometry geometry = response.getResults().get(0).getGeometry();
+            if (geometry != null && geometry.getLat() != null && geometry.getLng() != null) {
+                return Optional.of(new Coordinates(geometry.getLat(), geometry.getLng()));
             }
-        } catch (Exception e) {
-            log.error("Error al llamar a la API de geocodificación para la ubicación '{}': {}", location,
-                    e.getMessage());
         }
-
         return Optional.empty();
     }
 
+    private static Optional<Coordinates> toCoordinates(GeocodingCacheEntry entry) {
+        return entry.isFound() ? Optional.of(new Coordinates(entry.getLatitude(), entry.getLongitude()))
+                : Optional.empty();
+    }
+
     // Clase auxiliar (record) para devolver las coordenadas de forma limpia
     public record Coordinates(BigDecimal latitude, BigDecimal longitude) {
     }
@@ -0,0 +1,142 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.http;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead y circuit breaker para las llamadas a un proveedor externo.
+ * <p>
+ * El bulkhead limita a {@code maxConcurrent} las llamadas simultáneas, de modo
+ * que un proveedor lento no acapare los hilos de la API. El circuito se abre
+ * tras {@code failureThreshold} fallos consecutivos y, mientras está abierto,
+ * rechaza las llamadas sin salir a la red; pasados {@code openMs} deja pasar
+ * una única llamada de prueba que decide si vuelve a cerrarse.
+ * </p>
+ * Las llamadas rechazadas lanzan {@link ServiceUnavailableException}. Métricas:
+ * {@code http.client.circuit.state} (0 cerrado, 1 abierto, 2 semiabierto) y
+ * {@code http.client.rejected} (por motivo), etiquetadas con el proveedor.
+ */
+@Slf4j
+public class ProviderGuard {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Getter
+    private final String provider;
+    private final Semaphore bulkhead;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private final Counter bulkheadRejections;
+    private final Counter circuitRejections;
+
+    public ProviderGuard(String provider, int maxConcurrent, int failureThreshold, long openMs,
+            MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        Gauge.builder("http.client.circuit.state", this, guard -> guard.getState().ordinal())
+                .tag("provider", provider)
+                .description("Estado del circuito: 0 cerrado, 1 abierto, 2 semiabierto")
+                .register(meterRegistry);
+        this.bulkheadRejections = Counter.builder("http.client.rejected")
+                .tag("provider", provider).tag("reason", "bulkhead")
+                .register(meterRegistry);
+        this.circuitRejections = Counter.builder("http.client.rejected")
+                .tag("provider", provider).tag("reason", "circuit-open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la llamada protegida. Cualquier excepción de la llamada cuenta como
+     * fallo y se propaga tal cual.
+     *
+     * @throws ServiceUnavailableException Si el circuito está abierto o el
+     *                                     bulkhead está lleno.
+     */
+    public <T> T call(Supplier<T> call) {
+        boolean probe = acquirePermission();
+        if (!bulkhead.tryAcquire()) {
+            if (probe) {
+                releaseProbe();
+            }
+            bulkheadRejections.increment();
+            throw new ServiceUnavailableException(
+                    "Demasiadas consultas simultáneas al proveedor " + provider + ". Intente nuevamente.");
+        }
+        try {
+            T result = call.get();
+            onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return {@code true} si la llamada es la prueba de un circuito semiabierto.
+     */
+    private synchronized boolean acquirePermission() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return false;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        circuitRejections.increment();
+        throw new ServiceUnavailableException(
+                "El proveedor " + provider + " no está disponible momentáneamente. Intente nuevamente.");
+    }
+
+    private synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Circuito del proveedor {} cerrado.", provider);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("Circuito del proveedor {} abierto tras {} fallos consecutivos.", provider,
+                        consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+}
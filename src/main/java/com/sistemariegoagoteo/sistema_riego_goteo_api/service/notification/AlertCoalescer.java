@@ -0,0 +1,63 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Agrupa alertas repetidas del mismo origen (p. ej. finca + sensor) dentro de
+ * una ventana de tiempo, para que una tormenta de alertas genere una sola
+ * notificación por origen y ventana.
+ */
+@Component
+@Slf4j
+public class AlertCoalescer {
+
+    private final Cache<String, Boolean> recentAlerts;
+
+    public AlertCoalescer(@Value("${notifications.coalesce-window-seconds:300}") long windowSeconds) {
+        this.recentAlerts = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(Math.max(windowSeconds, 0)))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * Ejecuta {@code notification} sólo si la clave no se ha notificado dentro de
+     * la ventana. La clave queda reservada mientras se notifica, para que las
+     * repeticiones concurrentes se agrupen, y sólo se conserva si la notificación
+     * termina bien (tras el commit si hay una transacción activa): un fallo al
+     * insertar o un rollback la liberan y la siguiente alerta vuelve a notificarse.
+     *
+     * @return {@code true} si se notificó; {@code false} si era una repetición.
+     */
+    public boolean notifyOnce(String key, Runnable notification) {
+        if (recentAlerts.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            log.debug("Alerta repetida agrupada: {}", key);
+            return false;
+        }
+        try {
+            notification.run();
+        } catch (RuntimeException e) {
+            recentAlerts.invalidate(key);
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        recentAlerts.invalidate(key);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.NotificationType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Inserta la misma notificación para muchos destinatarios en un único lote
+ * JDBC, en lugar de un {@code save} de JPA por usuario, y actualiza sus
+ * contadores de no leídas.
+ * <p>
+ * En MySQL el lote se envía como un solo {@code INSERT} multi-fila si la URL de
+ * conexión incluye {@code rewriteBatchedStatements=true}.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationBatchWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO app_notification "
+            + "(message, type, is_read, destinatario_id, created_at, entity_type, entity_id, action_url) "
+            + "VALUES (?, ?, FALSE, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UnreadNotificationCounter unreadCounter;
+
+    /**
+     * @return Número de notificaciones insertadas.
+     */
+    public int insertForRecipients(Collection<Long> recipientIds, NotificationType type, String message,
+            String entityType, Long entityId, String actionUrl) {
+        if (recipientIds.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = recipientIds.stream()
+                .map(recipientId -> new Object[] { message, type.name(), recipientId, now, entityType, entityId,
+                        actionUrl })
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        unreadCounter.add(recipientIds, 1);
+        log.debug("{} notificaciones {} insertadas en lote para {}:{}", rows.size(), type, entityType, entityId);
+        return rows.size();
+    }
+}
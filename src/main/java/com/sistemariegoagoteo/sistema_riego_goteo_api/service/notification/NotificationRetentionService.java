@@ -0,0 +1,203 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.config.NotificationRetentionProperties;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.NotificationType;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler.SchedulerLeases;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Purga de notificaciones según la retención configurada por tipo en
+ * {@link NotificationRetentionProperties}.
+ * <p>
+ * Las filas vencidas se procesan en lotes de {@code chunk-size} ids, cada uno
+ * en su propia transacción corta (copia opcional a
+ * {@code app_notification_archive} y borrado por clave primaria), con una pausa
+ * entre lotes: nunca se bloquea la tabla completa ni se mantiene una
+ * transacción larga. Al terminar se reconcilian los contadores de no leídas.
+ * La pasada programada se ejecuta en un único nodo mediante
+ * {@link SchedulerLeases}.
+ * </p>
+ * Métricas: {@code notifications.rows} y {@code notifications.archive.rows}
+ * (tamaño tras la última purga), {@code notifications.retention.duration} y
+ * {@code notifications.retention.purged} por tipo.
+ */
+@Service
+@Slf4j
+public class NotificationRetentionService {
+
+    static final String LEASE_JOB = "notification-retention";
+    private static final Duration LEASE = Duration.ofHours(23);
+
+    private static final String SELECT_EXPIRED_SQL =
+            "SELECT id FROM app_notification WHERE type = ? AND created_at < ? ORDER BY id LIMIT ?";
+    private static final String ARCHIVE_SQL = "INSERT INTO app_notification_archive "
+            + "(id, message, type, is_read, destinatario_id, created_at, entity_type, entity_id, action_url, "
+            + "archived_at) SELECT id, message, type, is_read, destinatario_id, created_at, entity_type, entity_id, "
+            + "action_url, ? FROM app_notification WHERE id IN (%s)";
+    private static final String DELETE_SQL = "DELETE FROM app_notification WHERE id IN (%s)";
+    private static final String SELECT_EXPIRED_ARCHIVE_SQL =
+            "SELECT id FROM app_notification_archive WHERE archived_at < ? ORDER BY id LIMIT ?";
+    private static final String DELETE_ARCHIVE_SQL = "DELETE FROM app_notification_archive WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UnreadNotificationCounter unreadCounter;
+    private final NotificationRetentionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final SchedulerLeases schedulerLeases;
+
+    private final AtomicLong tableRows = new AtomicLong();
+    private final AtomicLong archiveRows = new AtomicLong();
+    private final Timer purgeTimer;
+
+    public NotificationRetentionService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            UnreadNotificationCounter unreadCounter, NotificationRetentionProperties properties,
+            MeterRegistry meterRegistry, SchedulerLeases schedulerLeases) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.unreadCounter = unreadCounter;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.schedulerLeases = schedulerLeases;
+        Gauge.builder("notifications.rows", tableRows, AtomicLong::get)
+                .description("Filas en app_notification tras la última purga")
+                .register(meterRegistry);
+        Gauge.builder("notifications.archive.rows", archiveRows, AtomicLong::get)
+                .description("Filas en app_notification_archive tras la última purga")
+                .register(meterRegistry);
+        this.purgeTimer = Timer.builder("notifications.retention.duration")
+                .description("Duración de cada ejecución de la purga de notificaciones")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${notifications.retention.cron:0 30 3 * * *}")
+    public void scheduledPurge() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!schedulerLeases.tryAcquire(LEASE_JOB, LEASE)) {
+            log.debug("Purga de notificaciones omitida: la ejecuta otro nodo.");
+            return;
+        }
+        purge();
+    }
+
+    /**
+     * Ejecuta una pasada completa de retención.
+     *
+     * @return Número de notificaciones eliminadas de la tabla principal, por tipo.
+     */
+    public Map<NotificationType, Integer> purge() {
+        return purgeTimer.record(() -> {
+            Map<NotificationType, Integer> purged = new EnumMap<>(NotificationType.class);
+            long now = System.currentTimeMillis();
+            for (Map.Entry<NotificationType, Duration> entry : properties.getTtl().entrySet()) {
+                Timestamp cutoff = new Timestamp(now - entry.getValue().toMillis());
+                int count = purgeType(entry.getKey(), cutoff);
+                purged.put(entry.getKey(), count);
+                Counter.builder("notifications.retention.purged")
+                        .tag("type", entry.getKey().name())
+                        .register(meterRegistry)
+                        .increment(count);
+            }
+            int archivePurged = purgeArchive(now);
+            if (purged.values().stream().anyMatch(count -> count > 0)) {
+                unreadCounter.reconcile();
+            }
+            refreshSizes();
+            log.info("Retención de notificaciones: eliminadas {} (archivo depurado: {}).", purged, archivePurged);
+            return purged;
+        });
+    }
+
+    private int purgeType(NotificationType type, Timestamp cutoff) {
+        int total = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(SELECT_EXPIRED_SQL, Long.class, type.name(), cutoff,
+                    properties.getChunkSize());
+            if (!ids.isEmpty()) {
+                total += moveChunk(ids);
+                pause();
+            }
+        } while (ids.size() == properties.getChunkSize());
+        return total;
+    }
+
+    private int moveChunk(List<Long> ids) {
+        String placeholders = placeholders(ids.size());
+        Integer deleted = transactionTemplate.execute(status -> {
+            if (properties.isArchive()) {
+                List<Object> args = new ArrayList<>(ids.size() + 1);
+                args.add(new Timestamp(System.currentTimeMillis()));
+                args.addAll(ids);
+                jdbcTemplate.update(String.format(ARCHIVE_SQL, placeholders), args.toArray());
+            }
+            return jdbcTemplate.update(String.format(DELETE_SQL, placeholders), ids.toArray());
+        });
+        return deleted != null ? deleted : 0;
+    }
+
+    private int purgeArchive(long now) {
+        Duration archiveTtl = properties.getArchiveTtl();
+        if (archiveTtl == null) {
+            return 0;
+        }
+        Timestamp cutoff = new Timestamp(now - archiveTtl.toMillis());
+        int total = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(SELECT_EXPIRED_ARCHIVE_SQL, Long.class, cutoff,
+                    properties.getChunkSize());
+            if (!ids.isEmpty()) {
+                total += jdbcTemplate.update(String.format(DELETE_ARCHIVE_SQL, placeholders(ids.size())),
+                        ids.toArray());
+                pause();
+            }
+        } while (ids.size() == properties.getChunkSize());
+        return total;
+    }
+
+    private void refreshSizes() {
+        tableRows.set(count("app_notification"));
+        archiveRows.set(count("app_notification_archive"));
+    }
+
+    private long count(String table) {
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return rows != null ? rows : 0L;
+    }
+
+    private void pause() {
+        long pauseMs = properties.getPauseBetweenChunks().toMillis();
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
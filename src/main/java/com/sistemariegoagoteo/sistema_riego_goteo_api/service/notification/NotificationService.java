@@ -18,6 +18,7 @@ import java.util.List;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
+    private final UnreadNotificationCounter unreadCounter;
 
     @Transactional(readOnly = true)
     public List<AppNotification> getUnreadNotificationsForUser(User user) {
@@ -29,9 +30,12 @@ public class NotificationService {
         return notificationRepository.findByDestinatarioOrderByCreatedAtDesc(user, pageable);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Conteo de no leídas servido desde {@link UnreadNotificationCounter}, sin
+     * recorrer las notificaciones del usuario.
+     */
     public long getUnreadCountForUser(User user) {
-        return notificationRepository.countByDestinatarioAndIsReadFalse(user);
+        return unreadCounter.get(user.getId());
     }
 
     @Transactional
@@ -43,13 +47,17 @@ public class NotificationService {
             throw new SecurityException("No tienes permiso para modificar esta notificación.");
         }
 
-        notification.setRead(true);
+        if (!notification.isRead()) {
+            notification.setRead(true);
+            unreadCounter.decrement(user.getId());
+        }
         return notificationRepository.save(notification);
     }
 
     @Transactional
     public void markAllAsRead(User user) {
         notificationRepository.markAllAsReadForUser(user);
+        unreadCounter.reset(user.getId());
     }
 
     @Transactional
@@ -63,5 +71,6 @@ public class NotificationService {
         notification.setType(NotificationType.INFO);
         notification.setCreatedAt(new Date());
         notificationRepository.save(notification);
+        unreadCounter.increment(recipient.getId());
     }
 }
\ No newline at end of file
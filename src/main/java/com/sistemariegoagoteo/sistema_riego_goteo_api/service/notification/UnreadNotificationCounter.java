@@ -0,0 +1,166 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler.SchedulerLeases;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationListener;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contador de notificaciones no leídas por usuario.
+ * <p>
+ * El valor autoritativo vive en {@code notification_unread_counter} y se
+ * modifica con sentencias atómicas dentro de la transacción que crea o marca
+ * las notificaciones. Cada nodo guarda una copia en memoria: el endpoint de
+ * conteo responde desde ella y, tras un cambio, la entrada se descarta (aquí y
+ * en los demás nodos vía {@link CacheInvalidationBus}) y se relee con una
+ * búsqueda por clave primaria. Una reconciliación periódica corrige cualquier
+ * deriva contra {@code app_notification}; la programada se ejecuta en un único
+ * nodo mediante {@link SchedulerLeases}.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadNotificationCounter implements CacheInvalidationListener {
+
+    public static final String CACHE_NAME = "unread-notifications";
+    static final String LEASE_JOB = "unread-counter-reconcile";
+
+    private static final String SELECT_SQL = "SELECT unread_count FROM notification_unread_counter WHERE user_id = ?";
+    private static final String COUNT_SQL =
+            "SELECT COUNT(*) FROM app_notification WHERE destinatario_id = ? AND is_read = FALSE";
+    private static final String INSERT_SQL =
+            "INSERT INTO notification_unread_counter (user_id, unread_count, updated_at) VALUES (?, ?, ?)";
+    private static final String ADD_SQL = "UPDATE notification_unread_counter "
+            + "SET unread_count = GREATEST(unread_count + ?, 0), updated_at = ? WHERE user_id = ?";
+    private static final String RESET_SQL =
+            "UPDATE notification_unread_counter SET unread_count = 0, updated_at = ? WHERE user_id = ?";
+    private static final String RECONCILE_SQL = "UPDATE notification_unread_counter c SET unread_count = "
+            + "(SELECT COUNT(*) FROM app_notification n WHERE n.destinatario_id = c.user_id AND n.is_read = FALSE), "
+            + "updated_at = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final SchedulerLeases schedulerLeases;
+
+    @Value("${notifications.unread-counter.reconcile-interval-ms:600000}")
+    private long reconcileIntervalMs = 600_000;
+
+    private final Map<Long, Long> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Devuelve las no leídas del usuario; sólo consulta la base de datos si la
+     * entrada no está en memoria.
+     */
+    public long get(Long userId) {
+        return counts.computeIfAbsent(userId, this::load);
+    }
+
+    private Long load(Long userId) {
+        List<Long> stored = jdbcTemplate.queryForList(SELECT_SQL, Long.class, userId);
+        if (!stored.isEmpty()) {
+            return stored.get(0);
+        }
+        // Primera lectura del usuario: se inicializa el contador desde la tabla
+        Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, userId);
+        try {
+            jdbcTemplate.update(INSERT_SQL, userId, count, now());
+        } catch (DuplicateKeyException e) {
+            return jdbcTemplate.queryForObject(SELECT_SQL, Long.class, userId);
+        }
+        return count;
+    }
+
+    /**
+     * Suma {@code delta} no leídas a cada usuario indicado.
+     */
+    public void add(Collection<Long> userIds, long delta) {
+        if (userIds.isEmpty() || delta == 0) {
+            return;
+        }
+        Timestamp now = now();
+        jdbcTemplate.batchUpdate(ADD_SQL, userIds.stream()
+                .map(userId -> new Object[] { delta, now, userId })
+                .toList());
+        publishChanges(userIds);
+    }
+
+    public void increment(Long userId) {
+        add(List.of(userId), 1);
+    }
+
+    public void decrement(Long userId) {
+        add(List.of(userId), -1);
+    }
+
+    /**
+     * Pone a cero las no leídas del usuario (marcar todas como leídas).
+     */
+    public void reset(Long userId) {
+        jdbcTemplate.update(RESET_SQL, now(), userId);
+        publishChanges(List.of(userId));
+    }
+
+    /**
+     * Publica el cambio de todos los usuarios en un lote y descarta sus
+     * entradas locales tras el commit.
+     */
+    private void publishChanges(Collection<Long> userIds) {
+        List<Long> changed = List.copyOf(userIds);
+        invalidationBus.publishAll(CACHE_NAME, changed.stream().map(String::valueOf).toList());
+        TransactionUtils.afterCommit(() -> changed.forEach(counts::remove));
+    }
+
+    @Scheduled(initialDelayString = "${notifications.unread-counter.reconcile-interval-ms:600000}",
+            fixedDelayString = "${notifications.unread-counter.reconcile-interval-ms:600000}")
+    public void scheduledReconcile() {
+        if (!schedulerLeases.tryAcquire(LEASE_JOB, Duration.ofMillis(2 * reconcileIntervalMs))) {
+            log.debug("Reconciliación de no leídas omitida: la ejecuta otro nodo.");
+            return;
+        }
+        reconcile();
+    }
+
+    /**
+     * Recalcula todos los contadores persistidos desde {@code app_notification} y
+     * vacía la copia en memoria, aquí y en los demás nodos.
+     */
+    public void reconcile() {
+        int updated = jdbcTemplate.update(RECONCILE_SQL, now());
+        invalidationBus.publish(CACHE_NAME, CacheInvalidationBus.ALL_KEYS);
+        counts.clear();
+        log.debug("Contadores de notificaciones no leídas reconciliados: {} usuarios.", updated);
+    }
+
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+
+    @Override
+    public void onInvalidation(String key, long version) {
+        if (CacheInvalidationBus.ALL_KEYS.equals(key)) {
+            counts.clear();
+        } else {
+            counts.remove(Long.valueOf(key));
+        }
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,251 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationListener;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice bidireccional en memoria de la tabla {@code user_farm} (usuario ↔
+ * finca).
+ * <p>
+ * Se construye al arrancar con una única consulta y se mantiene al día tras el
+ * commit de {@code assignUserToFarm}, {@code unassignUserFromFarm},
+ * {@code deleteFarm} y {@code deleteUser}. Ofrece comprobaciones de pertenencia
+ * en O(1) y las fincas de un usuario (o los usuarios de una finca) sin tocar la
+ * tabla de unión. Los cambios se publican en {@link CacheInvalidationBus} y
+ * los demás nodos reconstruyen su índice al recibirlos; una reconstrucción
+ * periódica corrige cualquier deriva restante.
+ * </p>
+ * Mientras el índice no está cargado {@link #isLoaded()} devuelve
+ * {@code false} y los servicios deben recurrir a la base de datos.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FarmMembershipIndex implements CacheInvalidationListener {
+
+    public static final String CACHE_NAME = "farm-membership";
+
+    private final UserRepository userRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Set<Integer>> farmsByUser = new HashMap<>();
+    private Map<Integer, Set<Long>> usersByFarm = new HashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Secuencia de cambios locales e inicios de reconstrucción (bajo el lock).
+     */
+    private long sequence;
+
+    /**
+     * Secuencia de inicio de la reconstrucción cuyo resultado está publicado.
+     */
+    private long appliedRebuild = -1;
+
+    private int rebuildsInFlight;
+
+    /**
+     * Cambios locales aplicados mientras hay reconstrucciones en curso; se
+     * reaplican sobre el resultado de la lectura para no perderlos.
+     */
+    private final List<JournaledChange> journal = new ArrayList<>();
+
+    /**
+     * Cambio de pertenencia aplicable a un par de mapas del índice.
+     */
+    private interface MembershipChange {
+        void applyTo(Map<Long, Set<Integer>> farmsByUser, Map<Integer, Set<Long>> usersByFarm);
+    }
+
+    private record JournaledChange(long sequence, MembershipChange change) {
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Reconstruye el índice completo desde {@code user_farm}.
+     * <p>
+     * La lectura se hace fuera del lock. Para no perder un alta o una baja
+     * confirmada mientras tanto, los cambios locales aplicados durante la
+     * lectura se reaplican sobre el resultado antes de publicarlo, y el resultado
+     * de una reconstrucción nunca sustituye al de otra iniciada después.
+     * </p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${security.farm-index.rebuild-interval-ms:300000}",
+            fixedDelayString = "${security.farm-index.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        long startedAt;
+        lock.writeLock().lock();
+        try {
+            startedAt = ++sequence;
+            rebuildsInFlight++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            Map<Long, Set<Integer>> newFarmsByUser = new HashMap<>();
+            Map<Integer, Set<Long>> newUsersByFarm = new HashMap<>();
+            for (Object[] row : userRepository.findAllFarmMemberships()) {
+                addLink(newFarmsByUser, newUsersByFarm, (Long) row[0], (Integer) row[1]);
+            }
+            lock.writeLock().lock();
+            try {
+                if (startedAt < appliedRebuild) {
+                    log.debug("Reconstrucción del índice de fincas descartada: hay una más reciente.");
+                    return;
+                }
+                for (JournaledChange journaled : journal) {
+                    if (journaled.sequence() > startedAt) {
+                        journaled.change().applyTo(newFarmsByUser, newUsersByFarm);
+                    }
+                }
+                farmsByUser = newFarmsByUser;
+                usersByFarm = newUsersByFarm;
+                appliedRebuild = startedAt;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Índice de pertenencia a fincas reconstruido: {} usuarios, {} fincas.", newFarmsByUser.size(),
+                    newUsersByFarm.size());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (--rebuildsInFlight == 0) {
+                    journal.clear();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isMember(Long userId, Integer farmId) {
+        lock.readLock().lock();
+        try {
+            Set<Integer> farms = farmsByUser.get(userId);
+            return farms != null && farms.contains(farmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Copia inmutable de los IDs de finca asignados al usuario.
+     */
+    public Set<Integer> farmsOf(Long userId) {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(farmsByUser.getOrDefault(userId, Set.of()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Copia inmutable de los IDs de usuario asignados a la finca.
+     */
+    public Set<Long> usersOf(Integer farmId) {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(usersByFarm.getOrDefault(farmId, Set.of()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void assignAfterCommit(Long userId, Integer farmId) {
+        invalidationBus.publish(CACHE_NAME, "user:" + userId);
+        TransactionUtils.afterCommit(() -> apply((farms, users) -> addLink(farms, users, userId, farmId)));
+    }
+
+    public void unassignAfterCommit(Long userId, Integer farmId) {
+        invalidationBus.publish(CACHE_NAME, "user:" + userId);
+        TransactionUtils.afterCommit(() -> apply((farms, users) -> removeLink(farms, users, userId, farmId)));
+    }
+
+    public void removeFarmAfterCommit(Integer farmId) {
+        invalidationBus.publish(CACHE_NAME, "farm:" + farmId);
+        TransactionUtils.afterCommit(() -> apply((farms, users) -> {
+            for (Long userId : List.copyOf(users.getOrDefault(farmId, Set.of()))) {
+                removeLink(farms, users, userId, farmId);
+            }
+            users.remove(farmId);
+        }));
+    }
+
+    public void removeUserAfterCommit(Long userId) {
+        invalidationBus.publish(CACHE_NAME, "user:" + userId);
+        TransactionUtils.afterCommit(() -> apply((farms, users) -> {
+            for (Integer farmId : List.copyOf(farms.getOrDefault(userId, Set.of()))) {
+                removeLink(farms, users, userId, farmId);
+            }
+            farms.remove(userId);
+        }));
+    }
+
+    /**
+     * Aplica un cambio local al índice publicado y, si hay reconstrucciones en
+     * curso, lo anota para reaplicarlo sobre su resultado.
+     */
+    private void apply(MembershipChange change) {
+        lock.writeLock().lock();
+        try {
+            change.applyTo(farmsByUser, usersByFarm);
+            if (rebuildsInFlight > 0) {
+                journal.add(new JournaledChange(++sequence, change));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+
+    @Override
+    public void onInvalidation(String key, long version) {
+        rebuild();
+    }
+
+    private static void addLink(Map<Long, Set<Integer>> farmsByUser, Map<Integer, Set<Long>> usersByFarm,
+            Long userId, Integer farmId) {
+        farmsByUser.computeIfAbsent(userId, k -> new HashSet<>()).add(farmId);
+        usersByFarm.computeIfAbsent(farmId, k -> new HashSet<>()).add(userId);
+    }
+
+    private static void removeLink(Map<Long, Set<Integer>> farmsByUser, Map<Integer, Set<Long>> usersByFarm,
+            Long userId, Integer farmId) {
+        Set<Integer> farms = farmsByUser.get(userId);
+        if (farms != null && farms.remove(farmId) && farms.isEmpty()) {
+            farmsByUser.remove(userId);
+        }
+        Set<Long> users = usersByFarm.get(farmId);
+        if (users != null && users.remove(userId) && users.isEmpty()) {
+            usersByFarm.remove(farmId);
+        }
+    }
+}
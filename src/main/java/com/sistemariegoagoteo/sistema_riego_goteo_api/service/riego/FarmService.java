@@ -6,6 +6,7 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding.FarmGeocodingBackfill;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding.GeocodingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,10 +15,12 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * Servicio encargado de la gestión de fincas.
@@ -49,48 +52,91 @@ public class FarmService {
      */
     private final GeocodingService geocodingService;
 
+    /**
+     * Índice en memoria de pertenencia usuario ↔ finca.
+     */
+    private final FarmMembershipIndex farmMembershipIndex;
+
+    /**
+     * Transacciones explícitas para dejar las llamadas externas fuera de ellas.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Geocodificación en segundo plano de las fincas sin coordenadas.
+     */
+    private final FarmGeocodingBackfill farmGeocodingBackfill;
+
     /**
      * Crea una nueva finca en el sistema.
-     * Si no se proporcionan coordenadas, intenta obtenerlas automáticamente vía
-     * geocodificación.
+     * Si no se proporcionan coordenadas, las toma de la caché de
+     * geocodificación; si la ubicación aún no está resuelta, la finca se guarda
+     * sin coordenadas y {@link FarmGeocodingBackfill} las completa en segundo
+     * plano, de modo que la creación nunca espera al proveedor externo.
      *
      * @param farmRequest DTO con los datos de la finca a crear.
      * @return La entidad Farm persistida.
      */
-    @Transactional
     public Farm createFarm(FarmRequest farmRequest) {
         User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
-        Farm farm = new Farm();
-        farm.setName(farmRequest.getName());
-        farm.setLocation(farmRequest.getLocation());
-        farm.setReservoirCapacity(farmRequest.getReservoirCapacity());
-        farm.setFarmSize(farmRequest.getFarmSize());
-
+        Optional<GeocodingService.Coordinates> geocoded = Optional.empty();
         if (farmRequest.getLatitude() == null || farmRequest.getLongitude() == null) {
-            log.info("No se proveyeron coordenadas para la finca '{}'. Intentando geocodificar...",
+            log.info("No se proveyeron coordenadas para la finca '{}'. Buscando en la caché de geocodificación...",
                     farmRequest.getName());
-            geocodingService.getCoordinates(farmRequest.getLocation()).ifPresent(coords -> {
-                farm.setLatitude(coords.latitude());
-                farm.setLongitude(coords.longitude());
-                log.info("Geocodificación exitosa. Lat: {}, Lon: {}", coords.latitude(), coords.longitude());
-            });
-        } else {
-            farm.setLatitude(farmRequest.getLatitude());
-            farm.setLongitude(farmRequest.getLongitude());
+            geocoded = geocodingService.getCachedCoordinates(farmRequest.getLocation());
         }
+        Optional<GeocodingService.Coordinates> coordinates = geocoded;
+
+        return transactionTemplate.execute(status -> {
+            Farm farm = new Farm();
+            farm.setName(farmRequest.getName());
+            farm.setLocation(farmRequest.getLocation());
+            farm.setReservoirCapacity(farmRequest.getReservoirCapacity());
+            farm.setFarmSize(farmRequest.getFarmSize());
 
-        Farm savedFarm = farmRepository.save(farm);
-        auditService.logChange(currentUser, "CREATE", Farm.class.getSimpleName(), "all", null,
-                "Nueva finca ID: " + savedFarm.getId());
-        return savedFarm;
+            if (farmRequest.getLatitude() == null || farmRequest.getLongitude() == null) {
+                coordinates.ifPresentOrElse(coords -> {
+                    farm.setLatitude(coords.latitude());
+                    farm.setLongitude(coords.longitude());
+                    log.info("Geocodificación exitosa. Lat: {}, Lon: {}", coords.latitude(), coords.longitude());
+                }, farmGeocodingBackfill::requestAfterCommit);
+            } else {
+                farm.setLatitude(farmRequest.getLatitude());
+                farm.setLongitude(farmRequest.getLongitude());
+            }
+
+            Farm savedFarm = farmRepository.save(farm);
+            auditService.logChange(currentUser, "CREATE", Farm.class.getSimpleName(), "all", null,
+                    "Nueva finca ID: " + savedFarm.getId());
+            return savedFarm;
+        });
     }
 
-    @Transactional
+    /**
+     * Actualiza una finca. Si cambió la ubicación o faltan coordenadas, se
+     * toman de la caché de geocodificación (fuera de la transacción); si no
+     * están, quedan vacías hasta que {@link FarmGeocodingBackfill} las complete.
+     */
     public Farm updateFarm(Integer farmId, FarmRequest farmRequest) {
         User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Farm farm = getFarmById(farmId);
+        Farm current = getFarmById(farmId);
 
+        boolean needsGeocoding = !Objects.equals(current.getLocation(), farmRequest.getLocation())
+                || current.getLatitude() == null || current.getLongitude() == null;
+        Optional<GeocodingService.Coordinates> geocoded = Optional.empty();
+        if (needsGeocoding) {
+            log.info("La ubicación de la finca ID {} cambió o no tiene coordenadas. Re-geocodificando...", farmId);
+            geocoded = geocodingService.getCachedCoordinates(farmRequest.getLocation());
+        }
+        Optional<GeocodingService.Coordinates> coordinates = geocoded;
+
+        return transactionTemplate.execute(
+                status -> applyUpdate(getFarmById(farmId), farmRequest, currentUser, needsGeocoding, coordinates));
+    }
+
+    private Farm applyUpdate(Farm farm, FarmRequest farmRequest, User currentUser, boolean geocodingRequested,
+            Optional<GeocodingService.Coordinates> coordinates) {
         // --- LÓGICA DE AUDITORÍA IMPLEMENTADA ---
         if (!Objects.equals(farm.getName(), farmRequest.getName())) {
             auditService.logChange(currentUser, "UPDATE", Farm.class.getSimpleName(), "name", farm.getName(),
@@ -116,9 +162,8 @@ public class FarmService {
             farm.setLocation(farmRequest.getLocation());
         }
 
-        if (locationChanged || farm.getLatitude() == null || farm.getLongitude() == null) {
-            log.info("La ubicación de la finca ID {} cambió o no tiene coordenadas. Re-geocodificando...", farmId);
-            geocodingService.getCoordinates(farmRequest.getLocation()).ifPresentOrElse(
+        if (geocodingRequested) {
+            coordinates.ifPresentOrElse(
                     coords -> {
                         if (!Objects.equals(farm.getLatitude(), coords.latitude())) {
                             auditService.logChange(currentUser, "UPDATE", Farm.class.getSimpleName(), "latitude",
@@ -133,10 +178,11 @@ public class FarmService {
                         log.info("Re-geocodificación exitosa. Lat: {}, Lon: {}", coords.latitude(), coords.longitude());
                     },
                     () -> {
-                        log.warn("No se pudieron obtener nuevas coordenadas para la ubicación: {}",
+                        log.info("Ubicación '{}' sin coordenadas en caché: se geocodificará en segundo plano.",
                                 farmRequest.getLocation());
                         farm.setLatitude(null);
                         farm.setLongitude(null);
+                        farmGeocodingBackfill.requestAfterCommit();
                     });
         }
 
@@ -163,6 +209,9 @@ public class FarmService {
         }
 
         if (role.equals("ROLE_OPERARIO")) {
+            if (farmMembershipIndex.isLoaded()) {
+                return farmRepository.findAllById(farmMembershipIndex.farmsOf(currentUser.getId()));
+            }
             return farmRepository.findFarmsByUsername(username);
         }
 
@@ -189,6 +238,7 @@ public class FarmService {
         auditService.logChange(currentUser, "DELETE", Farm.class.getSimpleName(), "id", farm.getId().toString(), null);
 
         farmRepository.delete(farm);
+        farmMembershipIndex.removeFarmAfterCommit(farm.getId());
     }
 
     @Transactional(readOnly = true)
@@ -4,19 +4,15 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.HumiditySensorRe
 import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ResourceNotFoundException;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.HumiditySensor;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Sector;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User; // <-- IMPORTAR
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.HumiditySensorRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.SectorRepository;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder; // <-- IMPORTAR
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Objects; // <-- IMPORTAR
 
 @Service
 @RequiredArgsConstructor
@@ -25,11 +21,9 @@ public class HumiditySensorService {
 
     private final HumiditySensorRepository humiditySensorRepository;
     private final SectorRepository sectorRepository;
-    private final AuditService auditService;
 
     @Transactional
     public HumiditySensor createHumiditySensor(Integer farmId, Integer sectorId, HumiditySensorRequest request) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Sector sector = sectorRepository.findByIdAndFarm_Id(sectorId, farmId)
                 .orElseThrow(() -> new ResourceNotFoundException("Sector", "id", sectorId + " para la finca ID " + farmId));
 
@@ -41,29 +35,14 @@ public class HumiditySensorService {
 
         HumiditySensor savedSensor = humiditySensorRepository.save(sensor);
 
-        // --- AUDITORÍA DE CREACIÓN ---
-        auditService.logChange(currentUser, "CREATE", HumiditySensor.class.getSimpleName(), "sensorType", null, savedSensor.getSensorType());
-
         log.info("Creando sensor de humedad tipo '{}' para sector ID {}", request.getSensorType(), sectorId);
         return savedSensor;
     }
 
     @Transactional
     public HumiditySensor updateHumiditySensor(Integer sensorId, HumiditySensorRequest request) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         HumiditySensor sensor = getHumiditySensorById(sensorId);
 
-        // --- AUDITORÍA DE ACTUALIZACIÓN ---
-        if (!Objects.equals(sensor.getSensorType(), request.getSensorType())) {
-            auditService.logChange(currentUser, "UPDATE", HumiditySensor.class.getSimpleName(), "sensorType", sensor.getSensorType(), request.getSensorType());
-        }
-        if (!Objects.equals(sensor.getHumidityLevel(), request.getHumidityLevel())) {
-             auditService.logChange(currentUser, "UPDATE", HumiditySensor.class.getSimpleName(), "humidityLevel", Objects.toString(sensor.getHumidityLevel(), null), Objects.toString(request.getHumidityLevel(), null));
-        }
-        if (!Objects.equals(sensor.getMeasurementDatetime(), request.getMeasurementDatetime())) {
-             auditService.logChange(currentUser, "UPDATE", HumiditySensor.class.getSimpleName(), "measurementDatetime", Objects.toString(sensor.getMeasurementDatetime(), null), Objects.toString(request.getMeasurementDatetime(), null));
-        }
-
         sensor.setSensorType(request.getSensorType());
         sensor.setHumidityLevel(request.getHumidityLevel());
         sensor.setMeasurementDatetime(request.getMeasurementDatetime());
@@ -74,12 +53,8 @@ public class HumiditySensorService {
 
     @Transactional
     public void deleteHumiditySensor(Integer sensorId) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         HumiditySensor sensor = getHumiditySensorById(sensorId);
 
-        // --- AUDITORÍA DE BORRADO ---
-        auditService.logChange(currentUser, "DELETE", HumiditySensor.class.getSimpleName(), "id", sensor.getId().toString(), null);
-
         log.warn("Eliminando sensor de humedad ID {}", sensorId);
         humiditySensorRepository.delete(sensor);
     }
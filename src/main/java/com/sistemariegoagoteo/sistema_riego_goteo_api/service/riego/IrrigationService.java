@@ -3,6 +3,7 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.IrrigationRequest;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.calendar.IrrigationCalendarEventDTO;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.calendar.SectorMonthlyIrrigationDTO;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.IrrigationRecordedEvent;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ResourceNotFoundException;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Irrigation;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationEquipment;
@@ -17,6 +18,7 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.SectorRep
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -70,6 +72,11 @@ public class IrrigationService {
      */
     private final PrecipitationRepository precipitationRepository;
 
+    /**
+     * Publicador de eventos (detección de anomalías de consumo, etc.).
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
     /**
      * Factor de conversión de Metros Cúbicos a Hectolitros (1 m³ = 10 hL).
      */
@@ -107,12 +114,15 @@ public class IrrigationService {
         irrigation.setEndDatetime(request.getEndDateTime());
         irrigation.setIrrigationHours(irrigationHours);
         irrigation.setWaterAmount(waterAmount);
+        irrigation.setMeteredWaterAmount(request.getMeteredWaterAmount());
 
         Irrigation savedIrrigation = irrigationRepository.save(irrigation);
 
         auditService.logChange(currentUser, "CREATE", Irrigation.class.getSimpleName(), "id", null,
                 savedIrrigation.getId().toString());
 
+        eventPublisher.publishEvent(IrrigationRecordedEvent.of(savedIrrigation));
+
         log.info("Usuario {} registró un nuevo riego (ID: {}) para el sector {}", currentUser.getUsername(),
                 savedIrrigation.getId(), sector.getName());
         return savedIrrigation;
@@ -148,6 +158,7 @@ public class IrrigationService {
         irrigation.setEndDatetime(request.getEndDateTime());
         irrigation.setIrrigationHours(newIrrigationHours);
         irrigation.setWaterAmount(newWaterAmount);
+        irrigation.setMeteredWaterAmount(request.getMeteredWaterAmount());
 
         log.info("Actualizando registro de riego ID {}", irrigationId);
         return irrigationRepository.save(irrigation);
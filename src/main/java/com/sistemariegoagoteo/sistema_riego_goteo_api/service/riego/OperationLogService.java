@@ -4,18 +4,14 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.OperationLogRequ
 import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ResourceNotFoundException;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.OperationLog;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.OperationLogRepository;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -24,11 +20,9 @@ public class OperationLogService {
 
     private final OperationLogRepository operationLogRepository;
     private final FarmRepository farmRepository;
-    private final AuditService auditService;
 
     @Transactional
     public OperationLog createOperationLog(Integer farmId, OperationLogRequest request) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Farm farm = farmRepository.findById(farmId)
                 .orElseThrow(() -> new ResourceNotFoundException("Farm", "id", farmId));
 
@@ -39,7 +33,6 @@ public class OperationLogService {
         operationLog.setDescription(request.getDescription());
 
         OperationLog savedLog = operationLogRepository.save(operationLog);
-        auditService.logChange(currentUser, "CREATE", OperationLog.class.getSimpleName(), "id", null, savedLog.getId().toString());
 
         log.info("Registrando bitácora (tipo: {}) para finca ID {}", request.getOperationType(), farmId);
         return savedLog;
@@ -47,20 +40,8 @@ public class OperationLogService {
 
     @Transactional
     public OperationLog updateOperationLog(Integer logId, OperationLogRequest request) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         OperationLog operationLog = getOperationLogById(logId);
 
-        // Auditoría
-        if (!Objects.equals(operationLog.getOperationDatetime(), request.getOperationDatetime())) {
-            auditService.logChange(currentUser, "UPDATE", OperationLog.class.getSimpleName(), "operationDatetime", Objects.toString(operationLog.getOperationDatetime(), null), Objects.toString(request.getOperationDatetime(), null));
-        }
-        if (!Objects.equals(operationLog.getOperationType(), request.getOperationType())) {
-            auditService.logChange(currentUser, "UPDATE", OperationLog.class.getSimpleName(), "operationType", operationLog.getOperationType(), request.getOperationType());
-        }
-        if (!Objects.equals(operationLog.getDescription(), request.getDescription())) {
-            auditService.logChange(currentUser, "UPDATE", OperationLog.class.getSimpleName(), "description", operationLog.getDescription(), request.getDescription());
-        }
-
         operationLog.setOperationDatetime(request.getOperationDatetime()); // <-- CAMBIO DE NOMBRE
         operationLog.setOperationType(request.getOperationType());         // <-- LÍNEA AÑADIDA
         operationLog.setDescription(request.getDescription());
@@ -72,9 +53,7 @@ public class OperationLogService {
     // Los métodos GET y DELETE no necesitan cambios en su lógica interna
     @Transactional
     public void deleteOperationLog(Integer logId) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         OperationLog operationLog = getOperationLogById(logId);
-        auditService.logChange(currentUser, "DELETE", OperationLog.class.getSimpleName(), "id", operationLog.getId().toString(), null);
         log.warn("Eliminando bitácora de operación ID {}", logId);
         operationLogRepository.delete(operationLog);
     }
@@ -5,24 +5,26 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.PrecipitationSum
 import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ResourceNotFoundException;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Precipitation;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User; // <-- IMPORTAR
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.PrecipitationSource;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.PrecipitationRepository;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.config.AgronomicConfigDTO;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder; // <-- IMPORTAR
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects; // <-- IMPORTAR
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -31,12 +33,10 @@ public class PrecipitationService {
 
     private final PrecipitationRepository precipitationRepository;
     private final FarmRepository farmRepository;
-    private final AuditService auditService;
     private final SystemConfigService systemConfigService;
 
     @Transactional
     public Precipitation createPrecipitation(Integer farmId, PrecipitationRequest request) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Farm farm = farmRepository.findById(farmId)
                 .orElseThrow(() -> new ResourceNotFoundException("Farm", "id", farmId));
 
@@ -45,12 +45,10 @@ public class PrecipitationService {
         precipitation.setPrecipitationDate(request.getPrecipitationDate());
         precipitation.setMmRain(request.getMmRain().setScale(2, RoundingMode.HALF_UP));
         precipitation.setMmEffectiveRain(calculateEffectiveRain(precipitation.getMmRain()));
+        precipitation.setSource(PrecipitationSource.MANUAL);
 
         Precipitation savedPrecipitation = precipitationRepository.save(precipitation);
-
-        // --- AUDITORÍA DE CREACIÓN ---
-        auditService.logChange(currentUser, "CREATE", Precipitation.class.getSimpleName(), "mmRain", null,
-                savedPrecipitation.getMmRain().toString());
+        replaceObservedRain(farmId, request.getPrecipitationDate());
 
         log.info("Registrando precipitación para finca ID {} en fecha {}: {}mm total, {}mm efectiva",
                 farmId, request.getPrecipitationDate(), precipitation.getMmRain(), precipitation.getMmEffectiveRain());
@@ -59,38 +57,39 @@ public class PrecipitationService {
 
     @Transactional
     public Precipitation updatePrecipitation(Integer precipitationId, PrecipitationRequest request) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Precipitation precipitation = getPrecipitationById(precipitationId);
 
-        // --- AUDITORÍA DE ACTUALIZACIÓN ---
-        if (!Objects.equals(precipitation.getPrecipitationDate(), request.getPrecipitationDate())) {
-            auditService.logChange(currentUser, "UPDATE", Precipitation.class.getSimpleName(), "precipitationDate",
-                    Objects.toString(precipitation.getPrecipitationDate(), null),
-                    Objects.toString(request.getPrecipitationDate(), null));
-        }
-        if (precipitation.getMmRain().compareTo(request.getMmRain()) != 0) {
-            auditService.logChange(currentUser, "UPDATE", Precipitation.class.getSimpleName(), "mmRain",
-                    precipitation.getMmRain().toString(), request.getMmRain().toString());
-        }
-
         precipitation.setPrecipitationDate(request.getPrecipitationDate());
         precipitation.setMmRain(request.getMmRain().setScale(2, RoundingMode.HALF_UP));
         precipitation.setMmEffectiveRain(calculateEffectiveRain(precipitation.getMmRain()));
 
         log.info("Actualizando precipitación ID {}: {}mm total, {}mm efectiva",
                 precipitationId, precipitation.getMmRain(), precipitation.getMmEffectiveRain());
-        return precipitationRepository.save(precipitation);
+        Precipitation saved = precipitationRepository.save(precipitation);
+        if (saved.getSource() != PrecipitationSource.WEATHER_API) {
+            replaceObservedRain(saved.getFarm().getId(), saved.getPrecipitationDate());
+        }
+        return saved;
+    }
+
+    /**
+     * Una carga manual prevalece sobre la lluvia observada del mismo día: se
+     * eliminan los registros automáticos para que las sumas no cuenten el día
+     * dos veces. Los volcados posteriores de ese día ya no suman lluvia (ver
+     * {@link #addObservedRain}).
+     */
+    private void replaceObservedRain(Integer farmId, LocalDate date) {
+        int deleted = precipitationRepository.deleteObservedRain(farmId, date);
+        if (deleted > 0) {
+            log.info("Carga manual de la finca ID {} en {}: se descartan {} registros de lluvia observada",
+                    farmId, date, deleted);
+        }
     }
 
     @Transactional
     public void deletePrecipitation(Integer precipitationId) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Precipitation precipitation = getPrecipitationById(precipitationId);
 
-        // --- AUDITORÍA DE BORRADO ---
-        auditService.logChange(currentUser, "DELETE", Precipitation.class.getSimpleName(), "id",
-                precipitation.getId().toString(), null);
-
         log.warn("Eliminando precipitación ID {}", precipitationId);
         precipitationRepository.delete(precipitation);
     }
@@ -110,6 +109,67 @@ public class PrecipitationService {
                 .orElseThrow(() -> new ResourceNotFoundException("Precipitation", "id", precipitationId));
     }
 
+    /**
+     * Suma la lluvia observada por el proveedor de clima a los registros diarios
+     * automáticos ({@link PrecipitationSource#WEATHER_API}) en una sola
+     * transacción. Si para ese día ya existe una carga manual, ésta prevalece: la
+     * observación no se suma y se eliminan los registros automáticos que queden,
+     * para no contar dos veces la misma lluvia.
+     *
+     * @param rainByFarmDay Lluvia (mm) a sumar por finca y día.
+     * @return Número de registros creados o actualizados.
+     */
+    @Transactional
+    public int addObservedRain(Map<FarmDay, BigDecimal> rainByFarmDay) {
+        if (rainByFarmDay.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> farmIds = new HashSet<>();
+        Set<LocalDate> dates = new HashSet<>();
+        rainByFarmDay.keySet().forEach(key -> {
+            farmIds.add(key.farmId());
+            dates.add(key.date());
+        });
+        Map<FarmDay, List<Precipitation>> existing = precipitationRepository
+                .findByFarmIdsAndDates(farmIds, dates).stream()
+                .collect(Collectors.groupingBy(p -> new FarmDay(p.getFarm().getId(), p.getPrecipitationDate())));
+
+        List<Precipitation> toSave = new ArrayList<>();
+        List<Precipitation> toDelete = new ArrayList<>();
+        rainByFarmDay.forEach((key, mm) -> {
+            List<Precipitation> rows = existing.getOrDefault(key, List.of());
+            if (rows.stream().anyMatch(p -> p.getSource() != PrecipitationSource.WEATHER_API)) {
+                // Un registro automático que convive con uno manual (se guardaron a la
+                // vez) se elimina aquí
+                rows.stream().filter(p -> p.getSource() == PrecipitationSource.WEATHER_API).forEach(toDelete::add);
+                return;
+            }
+            Precipitation precipitation = rows.isEmpty() ? newObservedPrecipitation(key) : rows.get(0);
+            precipitation.setMmRain(precipitation.getMmRain().add(mm).setScale(2, RoundingMode.HALF_UP));
+            precipitation.setMmEffectiveRain(calculateEffectiveRain(precipitation.getMmRain()));
+            toSave.add(precipitation);
+        });
+        precipitationRepository.deleteAll(toDelete);
+        precipitationRepository.saveAll(toSave);
+        log.debug("Lluvia observada acumulada en {} registros diarios.", toSave.size());
+        return toSave.size();
+    }
+
+    private Precipitation newObservedPrecipitation(FarmDay key) {
+        Precipitation precipitation = new Precipitation();
+        precipitation.setFarm(farmRepository.getReferenceById(key.farmId()));
+        precipitation.setPrecipitationDate(key.date());
+        precipitation.setMmRain(BigDecimal.ZERO);
+        precipitation.setSource(PrecipitationSource.WEATHER_API);
+        return precipitation;
+    }
+
+    /**
+     * Clave finca + día para acumular lluvia observada.
+     */
+    public record FarmDay(Integer farmId, LocalDate date) {
+    }
+
     private BigDecimal calculateEffectiveRain(BigDecimal mmRainTotal) {
         AgronomicConfigDTO config = systemConfigService.getAgronomicConfig();
         BigDecimal threshold = BigDecimal.valueOf(config.getPrecipitationEffectivenessThresholdMm());
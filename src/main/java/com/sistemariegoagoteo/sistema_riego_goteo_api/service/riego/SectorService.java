@@ -5,26 +5,23 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ResourceNotFoun
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationEquipment;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Sector;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationEquipmentRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.SectorRepository;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Objects;
 
 /**
  * Servicio encargado de la gestión de sectores dentro de las fincas.
  * <p>
  * Permite organizar la finca en unidades menores y asignar equipos de riego
- * específicos a cada sector.
+ * específicos a cada sector. La auditoría de altas, cambios y bajas la
+ * registra {@code EntityAuditListener} a partir de los eventos de Hibernate.
  * </p>
  */
 @Service
@@ -47,11 +44,6 @@ public class SectorService {
      */
     private final IrrigationEquipmentRepository irrigationEquipmentRepository;
 
-    /**
-     * Servicio de auditoría para registrar operaciones sobre sectores.
-     */
-    private final AuditService auditService;
-
     /**
      * Crea un nuevo sector dentro de una finca específica.
      * Valida que no exista otro sector con el mismo nombre en la misma finca.
@@ -63,7 +55,6 @@ public class SectorService {
      */
     @Transactional
     public Sector createSector(Integer farmId, SectorRequest sectorRequest) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Farm farm = farmRepository.findById(farmId)
                 .orElseThrow(() -> new ResourceNotFoundException("Farm", "id", farmId));
 
@@ -89,22 +80,12 @@ public class SectorService {
 
         Sector savedSector = sectorRepository.save(sector);
 
-        // --- AUDITORÍA DE CREACIÓN ---
-        auditService.logChange(currentUser, "CREATE", Sector.class.getSimpleName(), "name", null,
-                savedSector.getName());
-        auditService.logChange(currentUser, "CREATE", Sector.class.getSimpleName(), "farm_id", null, farmId.toString());
-        if (savedSector.getEquipment() != null) {
-            auditService.logChange(currentUser, "CREATE", Sector.class.getSimpleName(), "equipment_id", null,
-                    savedSector.getEquipment().getId().toString());
-        }
-
         log.info("Creando sector '{}' para la finca ID {}", sector.getName(), farmId);
         return savedSector;
     }
 
     @Transactional
     public Sector updateSector(Integer farmId, Integer sectorId, SectorRequest sectorRequest) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         if (!farmRepository.existsById(farmId)) {
             throw new ResourceNotFoundException("Farm", "id", farmId);
         }
@@ -113,18 +94,6 @@ public class SectorService {
                 .orElseThrow(
                         () -> new ResourceNotFoundException("Sector", "id", sectorId + " para la finca " + farmId));
 
-        // --- AUDITORÍA DE ACTUALIZACIÓN ---
-        if (!Objects.equals(sector.getName(), sectorRequest.getName())) {
-            auditService.logChange(currentUser, "UPDATE", Sector.class.getSimpleName(), "name", sector.getName(),
-                    sectorRequest.getName());
-        }
-
-        Integer oldEquipmentId = (sector.getEquipment() != null) ? sector.getEquipment().getId() : null;
-        if (!Objects.equals(oldEquipmentId, sectorRequest.getEquipmentId())) {
-            auditService.logChange(currentUser, "UPDATE", Sector.class.getSimpleName(), "equipment_id",
-                    Objects.toString(oldEquipmentId, null), Objects.toString(sectorRequest.getEquipmentId(), null));
-        }
-
         sector.setName(sectorRequest.getName());
 
         if (sectorRequest.getEquipmentId() != null) {
@@ -146,15 +115,10 @@ public class SectorService {
 
     @Transactional
     public void deleteSector(Integer farmId, Integer sectorId) {
-        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Sector sector = sectorRepository.findByIdAndFarm_Id(sectorId, farmId)
                 .orElseThrow(
                         () -> new ResourceNotFoundException("Sector", "id", sectorId + " para la finca " + farmId));
 
-        // --- AUDITORÍA DE BORRADO ---
-        auditService.logChange(currentUser, "DELETE", Sector.class.getSimpleName(), "id", sector.getId().toString(),
-                null);
-
         log.warn("Eliminando sector ID {} de la finca ID {}", sectorId, farmId);
         sectorRepository.delete(sector);
     }
@@ -0,0 +1,283 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.IrrigationRecordedEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.WaterUsageAnomalyEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.EquipmentUsageStats;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.EquipmentUsageStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detector en streaming de anomalías de consumo de agua por equipo de riego.
+ * <p>
+ * Mantiene por cada {@code IrrigationEquipment} la media y varianza del consumo
+ * horario medido por el caudalímetro (algoritmo de Welford) y una media
+ * móvil exponencial (EWMA). Cada riego nuevo actualiza las estadísticas en
+ * O(1); si el valor puntual o la EWMA se alejan de la media más de
+ * {@code irrigation.anomaly.z-threshold} desviaciones se publica un {@link WaterUsageAnomalyEvent}, que termina en una
+ * notificación (posible fuga u obstrucción de goteros).
+ * </p>
+ * <p>
+ * Solo se usan riegos con {@code meteredWaterAmount}: el {@code waterAmount}
+ * se calcula como caudal nominal × horas, así que su consumo horario es
+ * constante por equipo y no puede delatar ninguna anomalía.
+ * </p>
+ * <p>
+ * El estado vive en memoria y se persiste periódicamente en
+ * {@code equipment_usage_stats}; nunca se recorre el historial de riegos.
+ * Cada nodo acumula aparte las muestras recibidas desde su último volcado y,
+ * al volcar, las fusiona con la fila bajo bloqueo de escritura mediante la
+ * combinación paralela de Welford (count, media y M2), de modo que las muestras
+ * de varios nodos se suman en lugar de sobrescribirse. La EWMA y el último
+ * valor miden lo reciente y no se pueden combinar: quedan los del último nodo
+ * que vuelca.
+ * </p>
+ */
+@Service
+@Slf4j
+public class WaterUsageAnomalyService {
+
+    private final EquipmentUsageStatsRepository statsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Estadísticas vivas por ID de equipo.
+     */
+    private final Map<Integer, RunningStats> statsByEquipment = new ConcurrentHashMap<>();
+
+    /**
+     * Muestras recibidas por este nodo desde el último volcado, por ID de
+     * equipo. Se modifican bajo el monitor de las estadísticas vivas del equipo.
+     */
+    private final Map<Integer, RunningStats> pendingByEquipment = new ConcurrentHashMap<>();
+
+    @Value("${irrigation.anomaly.z-threshold:3.0}")
+    private double zThreshold = 3.0;
+
+    @Value("${irrigation.anomaly.min-samples:10}")
+    private long minSamples = 10;
+
+    @Value("${irrigation.anomaly.ewma-alpha:0.2}")
+    private double ewmaAlpha = 0.2;
+
+    public WaterUsageAnomalyService(EquipmentUsageStatsRepository statsRepository,
+            ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate) {
+        this.statsRepository = statsRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Incorpora un riego confirmado a las estadísticas de su equipo. Se ejecuta
+     * después del commit para no contaminar el estado con transacciones
+     * revertidas. Los riegos sin lectura de caudalímetro se ignoran.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onIrrigationRecorded(IrrigationRecordedEvent event) {
+        if (event.equipmentId() == null || event.irrigationHours() == null || event.meteredWaterAmount() == null
+                || event.irrigationHours().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+        double waterPerHour = event.meteredWaterAmount().divide(event.irrigationHours(), 4, RoundingMode.HALF_UP)
+                .doubleValue();
+        recordSample(event.equipmentId(), event.farmId(), event.equipmentName(), waterPerHour);
+    }
+
+    /**
+     * Actualiza las estadísticas del equipo con una nueva muestra y evalúa si es
+     * anómala respecto de la historia previa.
+     *
+     * @return el z-score que disparó la alerta, o {@code null} si la muestra es
+     *         normal o aún no hay suficiente historia.
+     */
+    public Double recordSample(Integer equipmentId, Integer farmId, String equipmentName, double waterPerHour) {
+        RunningStats stats = statsByEquipment.computeIfAbsent(equipmentId, this::loadStats);
+
+        Double anomalyScore;
+        double expected;
+        synchronized (stats) {
+            anomalyScore = stats.count >= minSamples ? stats.anomalyScore(waterPerHour, ewmaAlpha) : null;
+            expected = stats.mean;
+            stats.add(waterPerHour, ewmaAlpha);
+            RunningStats pending = pendingByEquipment.computeIfAbsent(equipmentId, id -> new RunningStats());
+            pending.add(waterPerHour, ewmaAlpha);
+            pending.ewma = stats.ewma;
+        }
+
+        if (anomalyScore != null && Math.abs(anomalyScore) >= zThreshold) {
+            log.warn("Consumo anómalo en equipo ID {}: {} hL/h (esperado {} hL/h, z={})", equipmentId,
+                    waterPerHour, expected, anomalyScore);
+            eventPublisher.publishEvent(new WaterUsageAnomalyEvent(equipmentId, farmId, equipmentName,
+                    waterPerHour, expected, anomalyScore));
+            return anomalyScore;
+        }
+        return null;
+    }
+
+    /**
+     * Fusiona en {@code equipment_usage_stats} las muestras recibidas desde el
+     * último volcado y actualiza las estadísticas vivas con el resultado, que
+     * incluye las muestras volcadas por los demás nodos.
+     */
+    @Scheduled(fixedDelayString = "${irrigation.anomaly.snapshot-interval-ms:60000}")
+    @PreDestroy
+    public void snapshot() {
+        if (pendingByEquipment.isEmpty()) {
+            return;
+        }
+        Map<Integer, RunningStats> drained = new HashMap<>();
+        for (Integer equipmentId : List.copyOf(pendingByEquipment.keySet())) {
+            RunningStats stats = statsByEquipment.get(equipmentId);
+            synchronized (stats) {
+                drained.put(equipmentId, pendingByEquipment.remove(equipmentId));
+            }
+        }
+        Map<Integer, RunningStats> merged = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> drained.forEach((id, delta) -> merged.put(id, mergeIntoStore(id, delta))));
+            log.debug("Snapshot de consumo guardado para {} equipos.", drained.size());
+        } catch (Exception e) {
+            log.error("No se pudo guardar el snapshot de consumo de equipos: {}", e.getMessage());
+            drained.forEach((id, delta) -> {
+                synchronized (statsByEquipment.get(id)) {
+                    pendingByEquipment.merge(id, delta, (current, failed) -> {
+                        failed.merge(current);
+                        return failed;
+                    });
+                }
+            });
+            return;
+        }
+        merged.forEach((id, stored) -> {
+            RunningStats stats = statsByEquipment.get(id);
+            synchronized (stats) {
+                // Las muestras llegadas durante el volcado siguen pendientes
+                RunningStats pending = pendingByEquipment.get(id);
+                stats.copyFrom(stored);
+                if (pending != null) {
+                    stats.merge(pending);
+                }
+            }
+        });
+    }
+
+    private RunningStats mergeIntoStore(Integer equipmentId, RunningStats delta) {
+        EquipmentUsageStats row = statsRepository.findForUpdate(equipmentId)
+                .orElseGet(() -> {
+                    EquipmentUsageStats fresh = new EquipmentUsageStats();
+                    fresh.setEquipmentId(equipmentId);
+                    return fresh;
+                });
+        RunningStats stored = RunningStats.fromSnapshot(row);
+        stored.merge(delta);
+        row.setSampleCount(stored.count);
+        row.setMean(stored.mean);
+        row.setM2(stored.m2);
+        row.setEwma(stored.ewma);
+        row.setLastValue(stored.lastValue);
+        row.setUpdatedAt(LocalDateTime.now());
+        statsRepository.save(row);
+        return stored;
+    }
+
+    private RunningStats loadStats(Integer equipmentId) {
+        return statsRepository.findById(equipmentId)
+                .map(RunningStats::fromSnapshot)
+                .orElseGet(RunningStats::new);
+    }
+
+    /**
+     * Estadísticas incrementales de un equipo: Welford para media/varianza y EWMA
+     * para detectar derivas lentas.
+     */
+    static class RunningStats {
+        long count;
+        double mean;
+        double m2;
+        double ewma;
+        Double lastValue;
+
+        static RunningStats fromSnapshot(EquipmentUsageStats snapshot) {
+            RunningStats stats = new RunningStats();
+            stats.count = snapshot.getSampleCount();
+            stats.mean = snapshot.getMean();
+            stats.m2 = snapshot.getM2();
+            stats.ewma = snapshot.getEwma();
+            stats.lastValue = snapshot.getLastValue();
+            return stats;
+        }
+
+        void add(double value, double alpha) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            ewma = count == 1 ? value : alpha * value + (1 - alpha) * ewma;
+            lastValue = value;
+        }
+
+        /**
+         * Incorpora las muestras de {@code other} con la combinación paralela de
+         * Welford. La EWMA y el último valor se toman de {@code other}, la más
+         * reciente de las dos.
+         */
+        void merge(RunningStats other) {
+            if (other.count == 0) {
+                return;
+            }
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            m2 += other.m2 + delta * delta * count * other.count / total;
+            mean += delta * other.count / total;
+            count = total;
+            ewma = other.ewma;
+            lastValue = other.lastValue;
+        }
+
+        void copyFrom(RunningStats other) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            ewma = other.ewma;
+            lastValue = other.lastValue;
+        }
+
+        double variance() {
+            return count > 1 ? m2 / (count - 1) : 0.0;
+        }
+
+        /**
+         * Devuelve el mayor (en valor absoluto) entre el z-score puntual del valor
+         * y el z-score que tendría la EWMA al incorporarlo. La EWMA tiene una
+         * desviación reducida en sqrt(alpha / (2 - alpha)), lo que permite detectar
+         * derivas graduales que ningún valor individual delata.
+         */
+        Double anomalyScore(double value, double alpha) {
+            double stdDev = Math.sqrt(variance());
+            if (stdDev == 0.0) {
+                return null;
+            }
+            double pointZ = (value - mean) / stdDev;
+            double nextEwma = alpha * value + (1 - alpha) * ewma;
+            double ewmaZ = (nextEwma - mean) / (stdDev * Math.sqrt(alpha / (2 - alpha)));
+            return Math.abs(pointZ) >= Math.abs(ewmaZ) ? pointZ : ewmaZ;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.sync.IrrigationSyncBat
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.sync.IrrigationSyncItem;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.sync.IrrigationSyncResponse;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.sync.IrrigationSyncResultItem;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.IrrigationRecordedEvent;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ResourceNotFoundException;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Irrigation;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationEquipment;
@@ -16,6 +17,7 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserReposi
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -42,6 +44,7 @@ public class MobileSyncService {
     private final SectorRepository sectorRepository;
     private final IrrigationEquipmentRepository equipmentRepository;
     private final AuditService auditService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Constantes para cálculos de precisión
     private static final BigDecimal METERS_CUBIC_TO_HECTOLITERS = new BigDecimal("10");
@@ -134,6 +137,7 @@ public class MobileSyncService {
 
                 irrigation.setIrrigationHours(hours);
                 irrigation.setWaterAmount(water);
+                irrigation.setMeteredWaterAmount(item.getMeteredWaterAmount());
 
                 entitiesToSave.add(irrigation);
 
@@ -175,6 +179,10 @@ public class MobileSyncService {
 
                 auditService.logChange(currentUser, "SYNC_" + action, Irrigation.class.getSimpleName(),
                         "id", oldValue, saved.getId().toString());
+
+                if ("CREATE".equals(action)) {
+                    eventPublisher.publishEvent(IrrigationRecordedEvent.of(saved));
+                }
             }
         }
 
@@ -0,0 +1,155 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caché del clima por {@link WeatherCell}, compartida por
+ * {@code WeatherController} y {@code WeatherScheduler}.
+ * <p>
+ * Una entrada es fresca durante {@code WTH_UPDATE_INTERVAL_MIN} minutos. Pasado
+ * ese plazo se sigue sirviendo (hasta {@code weather.cache.max-stale-minutes})
+ * mientras se revalida en segundo plano. Las consultas concurrentes de una
+ * misma celda sin datos comparten una única llamada al proveedor.
+ * </p>
+ */
+@Component
+@Slf4j
+public class WeatherCache {
+
+    private static final int DEFAULT_TTL_MINUTES = 15;
+
+    private final WeatherService weatherService;
+    private final SystemConfigService systemConfigService;
+    private final Cache<WeatherCell, CachedWeather> cache;
+    private final ConcurrentHashMap<WeatherCell, CompletableFuture<WeatherResponse>> inFlight =
+            new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor revalidationExecutor;
+
+    @Value("${weather.cell-scale:2}")
+    private int cellScale = 2;
+
+    record CachedWeather(WeatherResponse response, long fetchedAt) {
+    }
+
+    public WeatherCache(WeatherService weatherService, SystemConfigService systemConfigService,
+            @Value("${weather.cache.max-stale-minutes:120}") long maxStaleMinutes,
+            @Value("${weather.cache.max-size:10000}") long maxSize) {
+        this.weatherService = weatherService;
+        this.systemConfigService = systemConfigService;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(maxStaleMinutes))
+                .maximumSize(maxSize)
+                .build();
+        AtomicInteger sequence = new AtomicInteger();
+        // Revalidaciones acotadas: si la cola se llena se descartan, la entrada
+        // vieja se sigue sirviendo y se reintenta en la siguiente lectura.
+        this.revalidationExecutor = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100), runnable -> {
+                    Thread thread = new Thread(runnable, "weather-revalidate-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Clima actual de la finca, servido desde la caché cuando es posible.
+     *
+     * @throws IllegalStateException Si la finca no tiene coordenadas.
+     */
+    public WeatherResponse get(Farm farm) {
+        WeatherCell cell = cellOf(farm);
+        if (cell == null) {
+            throw new IllegalStateException("La finca no tiene coordenadas para consultar el clima.");
+        }
+        return get(cell);
+    }
+
+    public WeatherResponse get(WeatherCell cell) {
+        CachedWeather cached = cache.getIfPresent(cell);
+        if (cached == null) {
+            return refresh(cell);
+        }
+        if (System.currentTimeMillis() - cached.fetchedAt() >= ttl().toMillis()) {
+            revalidateAsync(cell);
+        }
+        return cached.response();
+    }
+
+    /**
+     * Consulta al proveedor y actualiza la entrada. Si ya hay una consulta en
+     * curso para la celda, espera su resultado en lugar de repetirla.
+     */
+    public WeatherResponse refresh(WeatherCell cell) {
+        CompletableFuture<WeatherResponse> mine = new CompletableFuture<>();
+        CompletableFuture<WeatherResponse> existing = inFlight.putIfAbsent(cell, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+            }
+        }
+        try {
+            WeatherResponse response = weatherService.getCurrentWeather(cell.latitude(), cell.longitude());
+            if (response != null) {
+                cache.put(cell, new CachedWeather(response, System.currentTimeMillis()));
+            }
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cell, mine);
+        }
+    }
+
+    public WeatherCell cellOf(Farm farm) {
+        return WeatherCell.of(farm, cellScale);
+    }
+
+    private void revalidateAsync(WeatherCell cell) {
+        if (inFlight.containsKey(cell)) {
+            return;
+        }
+        try {
+            revalidationExecutor.execute(() -> {
+                try {
+                    refresh(cell);
+                } catch (RuntimeException e) {
+                    log.warn("No se pudo revalidar el clima de la celda {}: {}", cell, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Cola de revalidación de clima llena: se omite la celda {}", cell);
+        }
+    }
+
+    private Duration ttl() {
+        Integer minutes = systemConfigService.getSnapshot().getInt("WTH_UPDATE_INTERVAL_MIN", DEFAULT_TTL_MINUTES);
+        return Duration.ofMinutes(minutes != null && minutes > 0 ? minutes : DEFAULT_TTL_MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        revalidationExecutor.shutdownNow();
+    }
+}
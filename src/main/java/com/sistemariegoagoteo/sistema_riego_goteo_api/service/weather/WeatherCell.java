@@ -0,0 +1,25 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Celda de coordenadas redondeadas: las fincas que caen en la misma celda
+ * comparten una única consulta al proveedor de clima. Con 2 decimales la
+ * celda mide aproximadamente 1 km.
+ */
+public record WeatherCell(BigDecimal latitude, BigDecimal longitude) {
+
+    /**
+     * @return La celda de la finca, o {@code null} si no tiene coordenadas.
+     */
+    public static WeatherCell of(Farm farm, int scale) {
+        if (farm.getLatitude() == null || farm.getLongitude() == null) {
+            return null;
+        }
+        return new WeatherCell(farm.getLatitude().setScale(scale, RoundingMode.HALF_UP),
+                farm.getLongitude().setScale(scale, RoundingMode.HALF_UP));
+    }
+}
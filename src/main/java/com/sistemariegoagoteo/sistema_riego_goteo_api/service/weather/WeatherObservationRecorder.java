@@ -0,0 +1,194 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.PrecipitationService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.PrecipitationService.FarmDay;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Guarda el histórico de observaciones del clima por finca
+ * ({@code weather_observation}) y acumula la lluvia observada en los registros
+ * diarios de {@code precipitation}.
+ * <p>
+ * {@link #record} sólo encola: descarta las respuestas cuya medición ya se
+ * guardó para la finca (la caché puede devolver la misma respuesta en varias
+ * rondas) y calcula la lluvia atribuible al intervalo desde la observación
+ * anterior a partir del acumulado de la última hora del proveedor, para no
+ * contar dos veces la misma hora. {@link #flush} inserta todas las
+ * observaciones en un lote y suma la lluvia por finca y día en la misma
+ * transacción; si falla, las observaciones se conservan para el siguiente
+ * volcado. Las mediciones ya guardadas en la tabla se omiten, de modo que cada
+ * una suma su lluvia una sola vez.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WeatherObservationRecorder {
+
+    private static final String INSERT_SQL = "INSERT INTO weather_observation (farm_id, observed_at, temperature, "
+            + "humidity, wind_speed, rain_1h_mm, rain_mm, weather_main) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String EXISTING_SQL = "SELECT farm_id, observed_at FROM weather_observation "
+            + "WHERE observed_at BETWEEN ? AND ?";
+    private static final String LAST_OBSERVED_SQL =
+            "SELECT MAX(observed_at) FROM weather_observation WHERE farm_id = ?";
+    private static final Duration RAIN_WINDOW = Duration.ofHours(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PrecipitationService precipitationService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Última medición conocida por finca; se carga de la tabla la primera vez
+    private final Map<Integer, Optional<LocalDateTime>> lastObservedAt = new HashMap<>();
+    private final List<Observation> pending = new ArrayList<>();
+
+    @Value("${weather.observations.max-pending:10000}")
+    private int maxPending = 10000;
+
+    record Observation(Integer farmId, LocalDateTime observedAt, BigDecimal temperature, BigDecimal humidity,
+            BigDecimal windSpeed, BigDecimal rain1hMm, BigDecimal rainMm, String weatherMain) {
+    }
+
+    /**
+     * Encola la observación de una finca.
+     *
+     * @return {@code true} si se encoló; {@code false} si esa medición ya estaba
+     *         registrada o la cola está llena.
+     */
+    public synchronized boolean record(Integer farmId, WeatherResponse response) {
+        LocalDateTime observedAt = observedAt(response);
+        Optional<LocalDateTime> previous = lastObservedAt.computeIfAbsent(farmId, this::loadLastObservedAt);
+        if (previous.isPresent() && !observedAt.isAfter(previous.get())) {
+            return false;
+        }
+        if (pending.size() >= maxPending) {
+            log.warn("Cola de observaciones del clima llena: se descarta la de la finca ID {}", farmId);
+            return false;
+        }
+        lastObservedAt.put(farmId, Optional.of(observedAt));
+
+        BigDecimal rain1h = response.getRain() != null ? response.getRain().getOneHour() : null;
+        pending.add(new Observation(farmId, observedAt,
+                response.getMain() != null ? response.getMain().getTemperature() : null,
+                response.getMain() != null ? response.getMain().getHumidity() : null,
+                response.getWind() != null ? response.getWind().getSpeed() : null,
+                rain1h,
+                rainSince(rain1h, previous.orElse(null), observedAt),
+                response.getWeather() != null && !response.getWeather().isEmpty()
+                        ? response.getWeather().get(0).getMain()
+                        : null));
+        return true;
+    }
+
+    /**
+     * Inserta las observaciones pendientes y suma su lluvia en
+     * {@code precipitation}.
+     *
+     * @return Número de observaciones guardadas.
+     */
+    @PreDestroy
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<Observation> batch = List.copyOf(pending);
+        pending.clear();
+
+        try {
+            int saved = transactionTemplate.execute(status -> {
+                List<Observation> fresh = withoutSaved(batch);
+                Map<FarmDay, BigDecimal> rainByFarmDay = new HashMap<>();
+                for (Observation o : fresh) {
+                    if (o.rainMm() != null && o.rainMm().signum() > 0) {
+                        rainByFarmDay.merge(new FarmDay(o.farmId(), o.observedAt().toLocalDate()), o.rainMm(),
+                                BigDecimal::add);
+                    }
+                }
+                jdbcTemplate.batchUpdate(INSERT_SQL, fresh.stream()
+                        .map(o -> new Object[] { o.farmId(), Timestamp.valueOf(o.observedAt()), o.temperature(),
+                                o.humidity(), o.windSpeed(), o.rain1hMm(), o.rainMm(), o.weatherMain() })
+                        .toList());
+                precipitationService.addObservedRain(rainByFarmDay);
+                log.debug("Guardadas {} observaciones del clima ({} días con lluvia).", fresh.size(),
+                        rainByFarmDay.size());
+                return fresh.size();
+            });
+            return saved;
+        } catch (Exception e) {
+            log.error("No se pudieron guardar {} observaciones del clima: {}", batch.size(), e.getMessage());
+            pending.addAll(0, batch);
+            return 0;
+        }
+    }
+
+    /**
+     * Descarta las observaciones que ya están en la tabla (las guardó otro nodo
+     * o un volcado anterior), para no sumar su lluvia dos veces. Si otro nodo
+     * inserta la misma medición a la vez, la restricción única hace fallar el
+     * volcado y el siguiente la descarta aquí.
+     */
+    private List<Observation> withoutSaved(List<Observation> batch) {
+        LocalDateTime from = batch.stream().map(Observation::observedAt).min(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime to = batch.stream().map(Observation::observedAt).max(LocalDateTime::compareTo).orElseThrow();
+        Set<String> saved = new HashSet<>(jdbcTemplate.query(EXISTING_SQL,
+                (rs, rowNum) -> rs.getInt(1) + "@" + rs.getTimestamp(2).toLocalDateTime(),
+                Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        return batch.stream().filter(o -> !saved.contains(o.farmId() + "@" + o.observedAt())).toList();
+    }
+
+    /**
+     * Olvida las últimas mediciones conocidas, que se vuelven a leer de la tabla.
+     * Se usa cuando este nodo vuelve a encargarse de las observaciones tras un
+     * periodo en que las registró otro.
+     */
+    public synchronized void forgetLastObserved() {
+        lastObservedAt.clear();
+    }
+
+    /**
+     * Lluvia atribuible al intervalo (anterior, actual]: la fracción del
+     * acumulado de la última hora que no cubría ya la observación anterior.
+     */
+    static BigDecimal rainSince(BigDecimal rain1h, LocalDateTime previous, LocalDateTime observedAt) {
+        if (rain1h == null || rain1h.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        if (previous == null) {
+            return rain1h.setScale(2, RoundingMode.HALF_UP);
+        }
+        long elapsed = Math.min(Duration.between(previous, observedAt).toSeconds(), RAIN_WINDOW.toSeconds());
+        return rain1h.multiply(BigDecimal.valueOf(elapsed))
+                .divide(BigDecimal.valueOf(RAIN_WINDOW.toSeconds()), 2, RoundingMode.HALF_UP);
+    }
+
+    private static LocalDateTime observedAt(WeatherResponse response) {
+        Instant instant = response.getDt() != null ? Instant.ofEpochSecond(response.getDt()) : Instant.now();
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private Optional<LocalDateTime> loadLastObservedAt(Integer farmId) {
+        Timestamp last = jdbcTemplate.queryForObject(LAST_OBSERVED_SQL, Timestamp.class, farmId);
+        return Optional.ofNullable(last).map(Timestamp::toLocalDateTime);
+    }
+}
@@ -0,0 +1,122 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.TokenBucketRateLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consulta el clima de muchas {@link WeatherCell} en paralelo.
+ * <p>
+ * Las consultas se ejecutan en un pool de {@code weather.polling.threads}
+ * hilos, pasan por un limitador de {@code weather.polling.requests-per-second}
+ * y la ronda completa tiene un plazo acotado (turnos del limitador más
+ * {@code weather.polling.call-timeout-ms}); cada llamada además está limitada
+ * por los timeouts de conexión y lectura del {@code RestTemplate}. Una llamada
+ * lenta o fallida sólo deja sin datos a su celda y nunca detiene el ciclo.
+ * Cada respuesta actualiza {@link WeatherCache}, de modo que el panel sirve
+ * los datos que trajo el scheduler sin volver a consultar al proveedor.
+ * </p>
+ */
+@Component
+@Slf4j
+public class WeatherPoller {
+
+    private final WeatherCache weatherCache;
+    private final ThreadPoolExecutor executor;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final double requestsPerSecond;
+    private final long callTimeoutMs;
+
+    public WeatherPoller(WeatherCache weatherCache,
+            @Value("${weather.polling.threads:4}") int threads,
+            @Value("${weather.polling.queue-capacity:1000}") int queueCapacity,
+            @Value("${weather.polling.requests-per-second:5}") double requestsPerSecond,
+            @Value("${weather.polling.call-timeout-ms:10000}") long callTimeoutMs) {
+        this.weatherCache = weatherCache;
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "weather-poll-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.rateLimiter = new TokenBucketRateLimiter(requestsPerSecond, Math.max(1, threads));
+        this.requestsPerSecond = requestsPerSecond;
+        this.callTimeoutMs = callTimeoutMs;
+    }
+
+    /**
+     * Consulta cada celda una sola vez.
+     *
+     * @return Respuesta por celda; las celdas que fallaron o vencieron el plazo
+     *         no aparecen.
+     */
+    public Map<WeatherCell, WeatherResponse> fetch(Collection<WeatherCell> cells) {
+        Map<WeatherCell, Future<WeatherResponse>> futures = new LinkedHashMap<>();
+        for (WeatherCell cell : cells) {
+            try {
+                futures.put(cell, executor.submit(() -> fetchCell(cell)));
+            } catch (RejectedExecutionException e) {
+                log.warn("Cola de consultas de clima llena: se omite la celda {}", cell);
+            }
+        }
+
+        Map<WeatherCell, WeatherResponse> results = new HashMap<>();
+        // Plazo de la ronda: lo que tarda el limitador en dar turno a todas las
+        // celdas más el plazo de una consulta, medido desde el inicio.
+        long roundMs = callTimeoutMs + (long) (futures.size() / requestsPerSecond * 1000);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(roundMs);
+        for (Map.Entry<WeatherCell, Future<WeatherResponse>> entry : futures.entrySet()) {
+            Future<WeatherResponse> future = entry.getValue();
+            try {
+                long remaining = Math.max(deadline - System.nanoTime(), 0);
+                WeatherResponse response = future.get(Math.max(remaining, TimeUnit.MILLISECONDS.toNanos(1)),
+                        TimeUnit.NANOSECONDS);
+                if (response != null) {
+                    results.put(entry.getKey(), response);
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("La consulta de clima para la celda {} no terminó dentro de la ronda ({} ms).",
+                        entry.getKey(), roundMs);
+            } catch (ExecutionException e) {
+                log.error("Error al obtener el clima para la celda {}: {}", entry.getKey(),
+                        e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                break;
+            }
+        }
+        return results;
+    }
+
+    private WeatherResponse fetchCell(WeatherCell cell) throws InterruptedException {
+        if (!rateLimiter.tryAcquire(callTimeoutMs)) {
+            log.warn("Límite de consultas de clima alcanzado: se omite la celda {}", cell);
+            return null;
+        }
+        return weatherCache.refresh(cell);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -3,15 +3,20 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.http.ProviderGuard;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.math.BigDecimal;
+
 @Service
 public class WeatherService {
 
     private final RestTemplate restTemplate;
+    private final ProviderGuard guard;
 
     @Value("${weather.api.key}")
     private String apiKey;
@@ -19,8 +24,10 @@ public class WeatherService {
     @Value("${weather.api.url}")
     private String apiUrl;
 
-    public WeatherService(RestTemplate restTemplate) {
+    public WeatherService(@Qualifier("weatherRestTemplate") RestTemplate restTemplate,
+            @Qualifier("weatherGuard") ProviderGuard guard) {
         this.restTemplate = restTemplate;
+        this.guard = guard;
     }
 
     public WeatherResponse getCurrentWeather(Farm farm) {
@@ -28,15 +35,25 @@ public class WeatherService {
             // Puedes lanzar una excepción o devolver un Optional vacío
             throw new IllegalStateException("La finca no tiene coordenadas para consultar el clima.");
         }
+        return getCurrentWeather(farm.getLatitude(), farm.getLongitude());
+    }
 
+    /**
+     * Consulta el clima actual para unas coordenadas (por ejemplo, el centro de
+     * una {@link WeatherCell}).
+     *
+     * @throws com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ServiceUnavailableException
+     *         Si el proveedor está saturado o su circuito está abierto.
+     */
+    public WeatherResponse getCurrentWeather(BigDecimal latitude, BigDecimal longitude) {
         String url = UriComponentsBuilder.fromUriString(apiUrl)
-                .queryParam("lat", farm.getLatitude())
-                .queryParam("lon", farm.getLongitude())
+                .queryParam("lat", latitude)
+                .queryParam("lon", longitude)
                 .queryParam("appid", apiKey)
                 .queryParam("units", "metric") // Para obtener temperatura en Celsius
                 .queryParam("lang", "es") // Para descripciones en español
                 .toUriString();
 
-        return restTemplate.getForObject(url, WeatherResponse.class);
+        return guard.call(() -> restTemplate.getForObject(url, WeatherResponse.class));
     }
 }
\ No newline at end of file
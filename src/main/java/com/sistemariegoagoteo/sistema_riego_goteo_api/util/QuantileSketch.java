@@ -0,0 +1,143 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.util;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sketch de cuantiles mergeable con error relativo acotado (estilo DDSketch).
+ * <p>
+ * Cada valor positivo se asigna a un bucket logarítmico
+ * {@code ceil(log(v) / log(gamma))}, con {@code gamma = (1 + a) / (1 - a)}; el
+ * cuantil estimado queda a menos de un {@code a} (1 %) relativo del valor
+ * exacto. Dos sketches se combinan sumando los contadores de cada bucket, de
+ * modo que los sketches diarios pueden fusionarse para cualquier rango de
+ * fechas sin perder precisión. Los valores cero (o negativos) se cuentan aparte.
+ * </p>
+ * La clase no es thread-safe.
+ */
+public final class QuantileSketch {
+
+    /**
+     * Precisión relativa fija: todos los sketches comparten el mismo mapeo de
+     * buckets y por tanto son siempre combinables.
+     */
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final TreeMap<Integer, Long> bins = new TreeMap<>();
+    private long zeroCount;
+    private long count;
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, long occurrences) {
+        if (occurrences <= 0 || Double.isNaN(value)) {
+            return;
+        }
+        if (value <= 0) {
+            zeroCount += occurrences;
+        } else {
+            bins.merge(indexOf(value), occurrences, Long::sum);
+        }
+        count += occurrences;
+    }
+
+    /**
+     * Incorpora todas las observaciones de otro sketch.
+     */
+    public void merge(QuantileSketch other) {
+        if (other == null || other.count == 0) {
+            return;
+        }
+        other.bins.forEach((index, c) -> bins.merge(index, c, Long::sum));
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Estima el cuantil {@code q} (entre 0 y 1).
+     *
+     * @return el valor estimado, o {@code null} si el sketch está vacío.
+     */
+    public Double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("El cuantil debe estar entre 0 y 1: " + q);
+        }
+        if (count == 0) {
+            return null;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        long cumulative = zeroCount;
+        if (rank < cumulative) {
+            return 0.0;
+        }
+        for (Map.Entry<Integer, Long> bin : bins.entrySet()) {
+            cumulative += bin.getValue();
+            if (rank < cumulative) {
+                return valueOf(bin.getKey());
+            }
+        }
+        return valueOf(bins.lastKey());
+    }
+
+    /**
+     * Serializa el sketch en un formato binario compacto: versión, contador de
+     * ceros, número de buckets y pares (índice, contador).
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + Integer.BYTES
+                + bins.size() * (Integer.BYTES + Long.BYTES));
+        buffer.put(FORMAT_VERSION);
+        buffer.putLong(zeroCount);
+        buffer.putInt(bins.size());
+        bins.forEach((index, c) -> {
+            buffer.putInt(index);
+            buffer.putLong(c);
+        });
+        return buffer.array();
+    }
+
+    public static QuantileSketch fromBytes(byte[] data) {
+        QuantileSketch sketch = new QuantileSketch();
+        if (data == null || data.length == 0) {
+            return sketch;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Versión de sketch no soportada: " + version);
+        }
+        sketch.zeroCount = buffer.getLong();
+        sketch.count = sketch.zeroCount;
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            int index = buffer.getInt();
+            long c = buffer.getLong();
+            sketch.bins.put(index, c);
+            sketch.count += c;
+        }
+        return sketch;
+    }
+
+    private static int indexOf(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private static double valueOf(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
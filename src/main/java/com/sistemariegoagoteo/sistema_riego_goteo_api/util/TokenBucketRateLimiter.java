@@ -0,0 +1,56 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitador de tasa de tipo "token bucket": admite ráfagas de hasta
+ * {@code capacity} permisos y repone {@code permitsPerSecond} por segundo.
+ * Es seguro para uso concurrente.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double capacity;
+    private final double permitsPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int capacity) {
+        if (permitsPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("La tasa y la capacidad deben ser positivas.");
+        }
+        this.capacity = capacity;
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Intenta obtener un permiso esperando como máximo {@code timeoutMs}.
+     *
+     * @return {@code true} si se obtuvo el permiso.
+     */
+    public boolean tryAcquire(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return true;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+            }
+            if (System.nanoTime() + waitNanos > deadline) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
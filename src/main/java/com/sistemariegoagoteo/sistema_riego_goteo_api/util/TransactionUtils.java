@@ -0,0 +1,60 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilidades para coordinar cachés en memoria con las transacciones de Spring.
+ */
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Ejecuta la acción cuando la transacción actual confirma, o de inmediato si
+     * no hay ninguna transacción activa. Si la transacción se revierte la acción
+     * no se ejecuta, de modo que las cachés nunca reflejan cambios no
+     * persistidos.
+     *
+     * @param action Acción a ejecutar tras el commit.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Indica si es la primera vez que se solicita {@code key} dentro de la
+     * transacción actual. Permite que una acción (por ejemplo, incrementar una
+     * versión) se ejecute una sola vez aunque se invoque varias veces en la misma
+     * transacción. Sin transacción activa siempre devuelve {@code true}.
+     *
+     * @param key Objeto único que identifica la acción.
+     * @return {@code true} si la acción no se ha marcado aún en esta transacción.
+     */
+    public static boolean firstInTransaction(Object key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return true;
+        }
+        if (TransactionSynchronizationManager.hasResource(key)) {
+            return false;
+        }
+        TransactionSynchronizationManager.bindResource(key, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(key);
+            }
+        });
+        return true;
+    }
+}
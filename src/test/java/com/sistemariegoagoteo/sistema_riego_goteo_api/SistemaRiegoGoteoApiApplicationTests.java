@@ -1,15 +1,27 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.test.context.ActiveProfiles;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 @ActiveProfiles("test")
 class SistemaRiegoGoteoApiApplicationTests {
 
+	@Autowired
+	private ThreadPoolTaskScheduler taskScheduler;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void tareasProgramadas_usanVariosHilos() {
+		assertThat(taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize()).isGreaterThan(1);
+	}
+
 }
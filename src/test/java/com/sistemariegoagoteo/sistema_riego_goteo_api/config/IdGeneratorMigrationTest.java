@@ -0,0 +1,196 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests de la generación de ids por bloques contra una base H2: alineación
+ * con los ids existentes y comparación de inserts frente a IDENTITY.
+ * <p>
+ * H2 en memoria no tiene latencia de red, así que el rendimiento se mide
+ * contando los viajes a la base (sentencias ejecutadas) y sumando a cada uno
+ * una latencia simulada de {@value #SIMULATED_ROUND_TRIP_MS} ms.
+ * </p>
+ */
+@DisplayName("IdGeneratorMigration - Tests de Integración (H2)")
+class IdGeneratorMigrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorMigrationTest.class);
+    private static final int ROWS = 500;
+    private static final long SIMULATED_ROUND_TRIP_MS = 1;
+
+    // Mapeadas en id-generator-test-orm.xml para que el escaneo de entidades de
+    // la aplicación no las recoja
+    static class IdentityRow {
+        Integer id;
+        String payload;
+    }
+
+    static class PooledRow {
+        Integer id;
+        String payload;
+    }
+
+    /**
+     * Envuelve la conexión para contar cada {@code execute*} como un viaje a
+     * la base y añadirle la latencia simulada.
+     */
+    static final class RoundTripCounter {
+        final AtomicInteger roundTrips = new AtomicInteger();
+        volatile boolean simulateLatency;
+
+        DataSource wrap(DataSource dataSource) {
+            return proxy(DataSource.class, dataSource);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T proxy(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type },
+                    (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (method.getName().startsWith("execute")) {
+                            roundTrips.incrementAndGet();
+                            if (simulateLatency) {
+                                Thread.sleep(SIMULATED_ROUND_TRIP_MS);
+                            }
+                        }
+                        if (result instanceof Connection connection) {
+                            return proxy(Connection.class, connection);
+                        }
+                        if (result instanceof PreparedStatement statement
+                                && method.getReturnType() == PreparedStatement.class) {
+                            return proxy(PreparedStatement.class, statement);
+                        }
+                        if (result instanceof Statement statement && method.getReturnType() == Statement.class) {
+                            return proxy(Statement.class, statement);
+                        }
+                        return result;
+                    });
+        }
+    }
+
+    private final RoundTripCounter counter = new RoundTripCounter();
+    private JdbcTemplate jdbcTemplate;
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:id-generator-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        Configuration configuration = new Configuration().addResource("id-generator-test-orm.xml");
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, counter.wrap(dataSource));
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "create");
+        configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        configuration.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+    }
+
+    private IdGeneratorMigration migration() {
+        return new IdGeneratorMigration(sessionFactory, jdbcTemplate);
+    }
+
+    private long insertAll(Supplier<Object> rows) {
+        long start = System.nanoTime();
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < ROWS; i++) {
+                session.persist(rows.get());
+            }
+        });
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    @DisplayName("Los ids asignados tras la migración deben quedar por encima de los existentes")
+    void alignTableGenerators_respetaIdsExistentes() {
+        // Filas heredadas del AUTO_INCREMENT
+        for (int id = 1; id <= 120; id++) {
+            jdbcTemplate.update("INSERT INTO pooled_row (id, payload) VALUES (?, 'legacy')", id);
+        }
+
+        migration().alignTableGenerators();
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < 60; i++) {
+                PooledRow row = new PooledRow();
+                row.payload = "nuevo";
+                session.persist(row);
+            }
+        });
+
+        List<Integer> newIds = jdbcTemplate.queryForList("SELECT id FROM pooled_row WHERE payload = 'nuevo'",
+                Integer.class);
+        assertThat(newIds).hasSize(60).allMatch(id -> id > 120).doesNotHaveDuplicates();
+
+        // Repetir la migración no baja el valor guardado
+        Long stored = jdbcTemplate.queryForObject("SELECT next_val FROM id_generator WHERE sequence_name = "
+                + "'pooled_row'", Long.class);
+        migration().alignTableGenerators();
+        assertThat(jdbcTemplate.queryForObject("SELECT next_val FROM id_generator WHERE sequence_name = "
+                + "'pooled_row'", Long.class)).isEqualTo(stored);
+    }
+
+    private static long rowsPerSecond(long nanos) {
+        return ROWS * 1_000_000_000L / Math.max(nanos, 1);
+    }
+
+    @Test
+    @DisplayName("Con ids por bloques los inserts deben agruparse en lotes JDBC")
+    void insercion_porBloques_agrupaSentencias() {
+        migration().alignTableGenerators();
+        // Calentamiento para no medir la carga de clases
+        insertAll(IdentityRow::new);
+        insertAll(PooledRow::new);
+        counter.simulateLatency = true;
+
+        counter.roundTrips.set(0);
+        long identityNanos = insertAll(IdentityRow::new);
+        int identityRoundTrips = counter.roundTrips.get();
+
+        counter.roundTrips.set(0);
+        long pooledNanos = insertAll(PooledRow::new);
+        int pooledRoundTrips = counter.roundTrips.get();
+
+        log.info("Inserción de {} filas con {} ms por viaje: IDENTITY {} viajes, {} filas/s; "
+                + "por bloques {} viajes, {} filas/s", ROWS, SIMULATED_ROUND_TRIP_MS, identityRoundTrips,
+                rowsPerSecond(identityNanos), pooledRoundTrips, rowsPerSecond(pooledNanos));
+        assertThat(identityRoundTrips).isGreaterThanOrEqualTo(ROWS);
+        // Un executeBatch por cada 50 filas, más la lectura y actualización del bloque de ids
+        assertThat(pooledRoundTrips).isLessThanOrEqualTo(3 * (ROWS / 50) + 2);
+        assertThat(rowsPerSecond(pooledNanos)).isGreaterThan(3 * rowsPerSecond(identityNanos));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT id) FROM pooled_row", Integer.class))
+                .isEqualTo(2 * ROWS);
+    }
+}
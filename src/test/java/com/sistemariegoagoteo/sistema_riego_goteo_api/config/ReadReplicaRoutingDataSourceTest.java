@@ -0,0 +1,198 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.config;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests del enrutamiento a réplicas con bases H2 independientes; cada una
+ * responde con su propio nombre a {@code SELECT name FROM node}.
+ */
+@DisplayName("ReadReplicaRoutingDataSource - Tests de Integración (H2)")
+class ReadReplicaRoutingDataSourceTest {
+
+    private static final Duration MAX_STALENESS = Duration.ofMillis(300);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE node (name VARCHAR(20) NOT NULL)");
+        template.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private ReadReplicaRoutingDataSource route(DataSource primary, List<DataSource> replicas) {
+        ReadReplicaRoutingDataSource routingDataSource = new ReadReplicaRoutingDataSource(primary, replicas,
+                MAX_STALENESS, 100);
+        use(routingDataSource);
+        return routingDataSource;
+    }
+
+    /**
+     * Conecta el nodo al bus de invalidación, que usa el primario.
+     */
+    private static CacheInvalidationBus connect(ReadReplicaRoutingDataSource routingDataSource, DataSource primary,
+            String nodeId) {
+        StaticListableBeanFactory listeners = new StaticListableBeanFactory();
+        CacheInvalidationBus bus = new CacheInvalidationBus(new JdbcTemplate(primary),
+                listeners.getBeanProvider(CacheInvalidationListener.class), new SimpleMeterRegistry(), nodeId);
+        RecentWriterSync sync = new RecentWriterSync(routingDataSource, bus);
+        routingDataSource.setWritePublisher(sync);
+        listeners.addBean("recentWriterSync", sync);
+        return bus;
+    }
+
+    private void use(ReadReplicaRoutingDataSource routingDataSource) {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String readOnlyNode() {
+        return readOnly.execute(status -> currentNode());
+    }
+
+    private String readWriteNode() {
+        return readWrite.execute(status -> currentNode());
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private void writeAs(String username) {
+        authenticate(username);
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Las transacciones readOnly deben ir a la réplica y el resto al primario")
+    void transaccionReadOnly_vaALaReplica() {
+        route(database("primary"), List.of(database("replica")));
+
+        assertThat(readOnlyNode()).isEqualTo("replica");
+        assertThat(readWriteNode()).isEqualTo("primary");
+        assertThat(currentNode()).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Las réplicas deben usarse por turnos")
+    void variasReplicas_porTurnos() {
+        route(database("primary"), List.of(database("replica-a"), database("replica-b")));
+
+        assertThat(List.of(readOnlyNode(), readOnlyNode(), readOnlyNode(), readOnlyNode()))
+                .containsExactly("replica-a", "replica-b", "replica-a", "replica-b");
+    }
+
+    @Test
+    @DisplayName("Tras escribir, las lecturas del mismo usuario deben ir al primario hasta agotar el margen")
+    void escrituraReciente_leeDelPrimarioDuranteElMargen() throws InterruptedException {
+        route(database("primary"), List.of(database("replica")));
+
+        writeAs("ana");
+        assertThat(readOnlyNode()).isEqualTo("primary");
+
+        authenticate("luis");
+        assertThat(readOnlyNode()).isEqualTo("replica");
+
+        Thread.sleep(MAX_STALENESS.toMillis() + 100);
+        authenticate("ana");
+        assertThat(readOnlyNode()).isEqualTo("replica");
+    }
+
+    @Test
+    @DisplayName("Una escritura revertida no debe desviar las lecturas al primario")
+    void escrituraRevertida_noCuenta() {
+        route(database("primary"), List.of(database("replica")));
+        authenticate("ana");
+
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET name = name");
+            status.setRollbackOnly();
+        });
+
+        assertThat(readOnlyNode()).isEqualTo("replica");
+    }
+
+    @Test
+    @DisplayName("Una transacción de lectura-escritura que sólo lee no debe desviar las lecturas al primario")
+    void transaccionSinEscrituras_noCuenta() {
+        route(database("primary"), List.of(database("replica")));
+        authenticate("ana");
+
+        assertThat(readWriteNode()).isEqualTo("primary");
+
+        assertThat(readOnlyNode()).isEqualTo("replica");
+    }
+
+    @Test
+    @DisplayName("Una escritura en un nodo debe desviar al primario las lecturas del usuario en los demás")
+    void escrituraEnOtroNodo_leeDelPrimario() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+        new JdbcTemplate(primary).execute("CREATE TABLE invalidation_log (invalidation_id BIGINT AUTO_INCREMENT "
+                + "PRIMARY KEY, cache_name VARCHAR(100) NOT NULL, cache_key VARCHAR(255) NOT NULL, "
+                + "version BIGINT NOT NULL, origin_node VARCHAR(64) NOT NULL, created_at TIMESTAMP NOT NULL)");
+        ReadReplicaRoutingDataSource nodeA = new ReadReplicaRoutingDataSource(primary, List.of(replica),
+                MAX_STALENESS, 100);
+        ReadReplicaRoutingDataSource nodeB = new ReadReplicaRoutingDataSource(primary, List.of(replica),
+                MAX_STALENESS, 100);
+        connect(nodeA, primary, "node-a");
+        CacheInvalidationBus busB = connect(nodeB, primary, "node-b");
+
+        use(nodeA);
+        writeAs("ana");
+        use(nodeB);
+        assertThat(readOnlyNode()).isEqualTo("replica");
+
+        busB.poll();
+
+        assertThat(readOnlyNode()).isEqualTo("primary");
+        assertThat(new JdbcTemplate(primary).queryForObject("SELECT cache_key FROM invalidation_log", String.class))
+                .isEqualTo("ana");
+    }
+
+    @Test
+    @DisplayName("Si la réplica no entrega conexión, la lectura debe servirse desde el primario")
+    void replicaCaida_leeDelPrimario() {
+        route(database("primary"), List.of(new DriverManagerDataSource("jdbc:unavailable:replica")));
+
+        assertThat(readOnlyNode()).isEqualTo("primary");
+    }
+}
@@ -8,6 +8,9 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.AuthService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.JwtService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.PrincipalCache;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.TokenVersionRegistry;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmMembershipIndex;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.UserService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -55,6 +58,15 @@ class AuthControllerTest {
         @MockitoBean
         private UserDetailsService userDetailsService;
 
+        @MockitoBean
+        private PrincipalCache principalCache;
+
+        @MockitoBean
+        private TokenVersionRegistry tokenVersionRegistry;
+
+        @MockitoBean
+        private FarmMembershipIndex farmMembershipIndex;
+
         @Test
         @WithMockUser
         @DisplayName("POST /api/auth/login debe retornar 200 OK con token cuando las credenciales son válidas")
@@ -7,6 +7,9 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.TaskStatus;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.JwtService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.PrincipalCache;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.TokenVersionRegistry;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmMembershipIndex;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.report.ExcelReportService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.report.PdfReportService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.report.ReportTaskService;
@@ -68,6 +71,15 @@ class ReportControllerTest {
         @MockitoBean
         private UserDetailsService userDetailsService;
 
+        @MockitoBean
+        private PrincipalCache principalCache;
+
+        @MockitoBean
+        private TokenVersionRegistry tokenVersionRegistry;
+
+        @MockitoBean
+        private FarmMembershipIndex farmMembershipIndex;
+
         private List<Task> sampleTasks;
         private byte[] fakePdfBytes;
         private byte[] fakeXlsxBytes;
@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.FarmRequest;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.JwtService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.PrincipalCache;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.TokenVersionRegistry;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmMembershipIndex;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -53,6 +56,15 @@ class FarmControllerTest {
     @MockitoBean
     private UserDetailsService userDetailsService;
 
+    @MockitoBean
+    private PrincipalCache principalCache;
+
+    @MockitoBean
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @MockitoBean
+    private FarmMembershipIndex farmMembershipIndex;
+
     private Farm testFarm;
     private FarmRequest farmRequest;
 
@@ -0,0 +1,117 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.event.listener;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.HumidityAlertCreatedEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.MaintenanceCreatedEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.NotificationType;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.notification.NotificationRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.AlertCoalescer;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.NotificationBatchWriter;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.UnreadNotificationCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para el reparto de notificaciones de NotificationEventListener.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NotificationEventListener - Tests Unitarios")
+class NotificationEventListenerTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private NotificationBatchWriter notificationBatchWriter;
+    @Mock
+    private UnreadNotificationCounter unreadCounter;
+
+    private NotificationEventListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new NotificationEventListener(notificationRepository, userRepository, notificationBatchWriter,
+                new AlertCoalescer(300), unreadCounter);
+    }
+
+    @Test
+    @DisplayName("Una alerta de humedad debe resolver destinatarios con una consulta e insertar en un lote")
+    void humidityAlert_unaConsultaYUnLote() {
+        when(userRepository.findFarmAlertRecipientIds(5, List.of("ADMIN", "ANALISTA")))
+                .thenReturn(List.of(1L, 2L, 3L));
+
+        listener.handleHumidityAlertCreatedEvent(new HumidityAlertCreatedEvent(10, 5, "Sensor Norte", "12"));
+
+        verify(userRepository, never()).findAll();
+        verify(userRepository).findFarmAlertRecipientIds(anyInt(), anyCollection());
+        verify(notificationBatchWriter).insertForRecipients(eq(List.of(1L, 2L, 3L)), eq(NotificationType.WARNING),
+                contains("Sensor Norte"), eq("ALERT"), eq(10L), eq("/farms/5/alerts/10"));
+        verifyNoInteractions(notificationRepository);
+    }
+
+    @Test
+    @DisplayName("Las alertas repetidas del mismo sensor deben agruparse dentro de la ventana")
+    void humidityAlert_repetidas_seAgrupan() {
+        when(userRepository.findFarmAlertRecipientIds(anyInt(), anyCollection())).thenReturn(List.of(1L));
+
+        listener.handleHumidityAlertCreatedEvent(new HumidityAlertCreatedEvent(10, 5, "Sensor Norte", "12"));
+        listener.handleHumidityAlertCreatedEvent(new HumidityAlertCreatedEvent(11, 5, "Sensor Norte", "10"));
+        listener.handleHumidityAlertCreatedEvent(new HumidityAlertCreatedEvent(12, 5, "Sensor Sur", "11"));
+
+        verify(notificationBatchWriter, times(2)).insertForRecipients(anyCollection(), any(), anyString(),
+                anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("Los mantenimientos no se agrupan")
+    void maintenance_noSeAgrupa() {
+        when(userRepository.findFarmAlertRecipientIds(anyInt(), anyCollection())).thenReturn(List.of(1L));
+
+        listener.handleMaintenanceCreatedEvent(new MaintenanceCreatedEvent(1, 5, "Bomba", "Cambio de filtro"));
+        listener.handleMaintenanceCreatedEvent(new MaintenanceCreatedEvent(2, 5, "Bomba", "Cambio de filtro"));
+
+        verify(notificationBatchWriter, times(2)).insertForRecipients(anyCollection(), eq(NotificationType.INFO),
+                anyString(), eq("MAINTENANCE"), anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("Un mantenimiento debe notificar al operario asignado y al administrador")
+    void maintenance_notificaAsignadoYAdministrador() {
+        when(userRepository.findFarmAlertRecipientIds(5, List.of("ADMIN", "ANALISTA"))).thenReturn(List.of(2L, 7L));
+
+        listener.handleMaintenanceCreatedEvent(new MaintenanceCreatedEvent(1, 5, "Bomba", "Cambio de filtro"));
+
+        verify(notificationBatchWriter).insertForRecipients(eq(List.of(2L, 7L)), eq(NotificationType.INFO),
+                anyString(), eq("MAINTENANCE"), eq(1L), anyString());
+    }
+
+    @Test
+    @DisplayName("Si falla la inserción, la siguiente alerta del mismo sensor debe notificarse")
+    void humidityAlert_insercionFallida_noSeAgrupa() {
+        when(userRepository.findFarmAlertRecipientIds(eq(5), anyCollection())).thenReturn(List.of(1L));
+        when(notificationBatchWriter.insertForRecipients(anyCollection(), any(), anyString(), anyString(),
+                anyLong(), anyString()))
+                .thenThrow(new DataAccessResourceFailureException("sin conexión"))
+                .thenReturn(1);
+
+        assertThatThrownBy(() -> listener.handleHumidityAlertCreatedEvent(
+                new HumidityAlertCreatedEvent(10, 5, "Sensor Norte", "12")))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        listener.handleHumidityAlertCreatedEvent(new HumidityAlertCreatedEvent(11, 5, "Sensor Norte", "10"));
+
+        verify(notificationBatchWriter, times(2)).insertForRecipients(anyCollection(), any(), anyString(),
+                anyString(), anyLong(), anyString());
+    }
+}
@@ -0,0 +1,62 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests de las consultas de destinatarios de UserRepository sobre H2.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("UserRepository - Tests de Integración (H2)")
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private FarmRepository farmRepository;
+
+    private User user(String username, String role, Farm... farms) {
+        User user = new User(username, username, "secreto", username + "@test.com",
+                roleRepository.findByRoleName(role).orElseThrow());
+        user.getFarms().addAll(List.of(farms));
+        return userRepository.save(user);
+    }
+
+    @Test
+    @DisplayName("Las alertas de una finca deben llegar a sus asignados y a los roles de alerta, en una consulta")
+    void destinatariosDeFinca_asignadosYRoles() {
+        Farm farm = new Farm();
+        farm.setName("Finca Norte");
+        farm = farmRepository.save(farm);
+        Farm otherFarm = new Farm();
+        otherFarm.setName("Finca Sur");
+        otherFarm = farmRepository.save(otherFarm);
+        User operario = user("op_norte", "OPERARIO", farm);
+        User admin = user("admin_alertas", "ADMIN");
+        User otherOperario = user("op_sur", "OPERARIO", otherFarm);
+        User inactive = user("op_inactivo", "OPERARIO", farm);
+        inactive.setActive(false);
+        userRepository.flush();
+
+        List<Long> recipients = userRepository.findFarmAlertRecipientIds(farm.getId(), List.of("ADMIN", "ANALISTA"));
+
+        assertThat(recipients).contains(operario.getId(), admin.getId())
+                .doesNotContain(otherOperario.getId(), inactive.getId())
+                .doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,61 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests de las concesiones de tareas programadas con dos nodos sobre una base
+ * H2 compartida.
+ */
+@DisplayName("SchedulerLeases - Tests de Integración (H2)")
+class SchedulerLeasesTest {
+
+    private SchedulerLeases nodeA;
+    private SchedulerLeases nodeB;
+
+    private static SchedulerLeases node(JdbcTemplate jdbcTemplate, String nodeId) {
+        CacheInvalidationBus bus = mock(CacheInvalidationBus.class);
+        when(bus.getNodeId()).thenReturn(nodeId);
+        return new SchedulerLeases(jdbcTemplate, bus);
+    }
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:leases-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE scheduler_lease (job_name VARCHAR(100) PRIMARY KEY, "
+                + "owner VARCHAR(64) NOT NULL, lease_until TIMESTAMP NOT NULL)");
+        nodeA = node(jdbcTemplate, "node-a");
+        nodeB = node(jdbcTemplate, "node-b");
+    }
+
+    @Test
+    @DisplayName("Sólo un nodo debe ejecutar la tarea mientras renueve la concesión")
+    void concesionVigente_unSoloNodo() {
+        assertThat(nodeA.tryAcquire("job", Duration.ofMinutes(5))).isTrue();
+        assertThat(nodeB.tryAcquire("job", Duration.ofMinutes(5))).isFalse();
+        assertThat(nodeA.tryAcquire("job", Duration.ofMinutes(5))).isTrue();
+        assertThat(nodeB.tryAcquire("otro-job", Duration.ofMinutes(5))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Una concesión vencida debe poder tomarla otro nodo")
+    void concesionVencida_laTomaOtroNodo() throws InterruptedException {
+        assertThat(nodeA.tryAcquire("job", Duration.ofMillis(50))).isTrue();
+        Thread.sleep(100);
+
+        assertThat(nodeB.tryAcquire("job", Duration.ofMinutes(5))).isTrue();
+        assertThat(nodeA.tryAcquire("job", Duration.ofMinutes(5))).isFalse();
+    }
+}
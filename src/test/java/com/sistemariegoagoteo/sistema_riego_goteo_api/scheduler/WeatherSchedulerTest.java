@@ -0,0 +1,217 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.config.WeatherConfigDTO;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.NotificationType;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.NotificationBatchWriter;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmMembershipIndex;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherCache;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherObservationRecorder;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherCell;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather.WeatherPoller;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para WeatherScheduler.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("WeatherScheduler - Tests Unitarios")
+class WeatherSchedulerTest {
+
+    @Mock
+    private FarmRepository farmRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private SystemConfigService systemConfigService;
+    @Mock
+    private WeatherPoller weatherPoller;
+    @Mock
+    private WeatherCache weatherCache;
+    @Mock
+    private WeatherObservationRecorder observationRecorder;
+    @Mock
+    private NotificationBatchWriter notificationBatchWriter;
+    @Mock
+    private FarmMembershipIndex farmMembershipIndex;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private SchedulerLeases schedulerLeases;
+
+    @InjectMocks
+    private WeatherScheduler weatherScheduler;
+
+    private WeatherConfigDTO config;
+
+    @BeforeEach
+    void setUp() {
+        when(weatherCache.cellOf(any())).thenAnswer(inv -> WeatherCell.of(inv.getArgument(0), 2));
+        config = new WeatherConfigDTO();
+        config.setWeatherServiceEnabled(true);
+        config.setWeatherUpdateIntervalMinutes(20);
+        when(systemConfigService.getWeatherConfig()).thenReturn(config);
+        when(schedulerLeases.tryAcquire(eq(WeatherScheduler.LEASE_JOB), any())).thenReturn(true);
+        doAnswer(inv -> {
+            inv.<java.util.function.Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static Farm farm(int id, String lat, String lon) {
+        Farm farm = new Farm();
+        farm.setId(id);
+        farm.setName("Finca " + id);
+        farm.setLatitude(new BigDecimal(lat));
+        farm.setLongitude(new BigDecimal(lon));
+        return farm;
+    }
+
+    @Test
+    @DisplayName("Con WTH_ENABLED=false no debe consultar el clima")
+    void checkForRain_desactivado_noConsulta() {
+        config.setWeatherServiceEnabled(false);
+
+        weatherScheduler.checkForRain();
+
+        verifyNoInteractions(weatherPoller, farmRepository);
+    }
+
+    @Test
+    @DisplayName("Fincas vecinas deben compartir una consulta y notificarse por lluvia")
+    @SuppressWarnings("unchecked")
+    void checkForRain_agrupaFincasPorCelda() {
+        Farm a = farm(1, "-32.8895", "-68.8458");
+        Farm b = farm(2, "-32.8899", "-68.8461");
+        Farm c = farm(3, "-34.6100", "-68.3300");
+        when(farmRepository.findAll()).thenReturn(List.of(a, b, c));
+        WeatherResponse.Weather rain = new WeatherResponse.Weather();
+        rain.setMain("Rain");
+        rain.setDescription("lluvia ligera");
+        WeatherResponse response = new WeatherResponse();
+        response.setWeather(List.of(rain));
+        when(weatherPoller.fetch(any())).thenReturn(Map.of(WeatherCell.of(a, 2), response));
+        when(farmMembershipIndex.isLoaded()).thenReturn(true);
+        when(farmMembershipIndex.usersOf(anyInt())).thenReturn(Set.of(7L));
+
+        weatherScheduler.checkForRain();
+
+        ArgumentCaptor<Collection<WeatherCell>> cells = ArgumentCaptor.forClass(Collection.class);
+        verify(weatherPoller).fetch(cells.capture());
+        assertThat(cells.getValue()).hasSize(2);
+        verify(notificationBatchWriter, times(2)).insertForRecipients(eq(Set.of(7L)), eq(NotificationType.INFO),
+                anyString(), eq("FARM"), anyLong(), anyString());
+        verify(observationRecorder).record(1, response);
+        verify(observationRecorder).record(2, response);
+        verify(observationRecorder, never()).record(eq(3), any());
+        verify(observationRecorder).flush();
+    }
+
+    private static WeatherResponse weather(String main) {
+        WeatherResponse.Weather weather = new WeatherResponse.Weather();
+        weather.setMain(main);
+        weather.setDescription(main.toLowerCase());
+        WeatherResponse response = new WeatherResponse();
+        response.setWeather(List.of(weather));
+        return response;
+    }
+
+    @Test
+    @DisplayName("La alerta de lluvia sólo debe enviarse cuando empieza a llover en la finca")
+    void checkForRain_lluviaContinua_noRepiteAlerta() {
+        Farm a = farm(1, "-32.8895", "-68.8458");
+        WeatherCell cell = WeatherCell.of(a, 2);
+        when(farmRepository.findAll()).thenReturn(List.of(a));
+        when(farmMembershipIndex.isLoaded()).thenReturn(true);
+        when(farmMembershipIndex.usersOf(anyInt())).thenReturn(Set.of(7L));
+        when(weatherPoller.fetch(any())).thenReturn(
+                Map.of(cell, weather("Rain")), Map.of(cell, weather("Rain")), Map.of(),
+                Map.of(cell, weather("Clear")), Map.of(cell, weather("Rain")));
+
+        for (int i = 0; i < 5; i++) {
+            weatherScheduler.checkForRain();
+        }
+
+        verify(notificationBatchWriter, times(2)).insertForRecipients(any(), any(), anyString(), anyString(),
+                anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("Si la alerta de lluvia falla, debe reintentarse en la siguiente consulta")
+    void checkForRain_alertaFallida_seReintenta() {
+        Farm a = farm(1, "-32.8895", "-68.8458");
+        when(farmRepository.findAll()).thenReturn(List.of(a));
+        when(farmMembershipIndex.isLoaded()).thenReturn(true);
+        when(farmMembershipIndex.usersOf(anyInt())).thenReturn(Set.of(7L));
+        when(weatherPoller.fetch(any())).thenReturn(Map.of(WeatherCell.of(a, 2), weather("Rain")));
+        when(notificationBatchWriter.insertForRecipients(any(), any(), anyString(), anyString(), anyLong(),
+                anyString())).thenThrow(new IllegalStateException("sin conexión")).thenReturn(1);
+
+        weatherScheduler.checkForRain();
+        weatherScheduler.checkForRain();
+        weatherScheduler.checkForRain();
+
+        verify(notificationBatchWriter, times(2)).insertForRecipients(any(), any(), anyString(), anyString(),
+                anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("Si otro nodo tiene la concesión no debe consultar el clima")
+    void checkForRain_otroNodo_noConsulta() {
+        when(schedulerLeases.tryAcquire(eq(WeatherScheduler.LEASE_JOB), any())).thenReturn(false);
+
+        weatherScheduler.checkForRain();
+
+        verifyNoInteractions(weatherPoller, farmRepository, observationRecorder, notificationBatchWriter);
+    }
+
+    @Test
+    @DisplayName("Al recuperar la concesión debe olvidar el estado de su etapa anterior")
+    void checkForRain_recuperaConcesion_reiniciaEstado() {
+        when(farmRepository.findAll()).thenReturn(List.of());
+        when(weatherPoller.fetch(any())).thenReturn(Map.of());
+        when(schedulerLeases.tryAcquire(eq(WeatherScheduler.LEASE_JOB), any())).thenReturn(true, true, false,
+                true);
+
+        for (int i = 0; i < 4; i++) {
+            weatherScheduler.checkForRain();
+        }
+
+        verify(observationRecorder, times(2)).forgetLastObserved();
+    }
+
+    @Test
+    @DisplayName("El intervalo debe leerse de WTH_UPDATE_INTERVAL_MIN")
+    void currentInterval_usaConfiguracion() {
+        assertThat(weatherScheduler.currentInterval()).isEqualTo(Duration.ofMinutes(20));
+    }
+}
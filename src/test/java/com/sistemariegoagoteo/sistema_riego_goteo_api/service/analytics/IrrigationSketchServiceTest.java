@@ -0,0 +1,286 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.analytics;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.analytics.IrrigationPercentileDTO;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.IrrigationRecordedEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Irrigation;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationDailySketch;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationSketchBackfill;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Sector;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationDailySketchRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationSketchBackfillRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.SectorRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.util.QuantileSketch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para IrrigationSketchService y QuantileSketch.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("IrrigationSketchService - Tests Unitarios")
+class IrrigationSketchServiceTest {
+
+    @Mock
+    private IrrigationDailySketchRepository sketchRepository;
+    @Mock
+    private IrrigationRepository irrigationRepository;
+    @Mock
+    private SectorRepository sectorRepository;
+    @Mock
+    private IrrigationSketchBackfillRepository backfillRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private IrrigationSketchService sketchService;
+
+    private Sector sector;
+    private final LocalDate day = LocalDate.of(2025, 1, 15);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        sector = new Sector();
+        sector.setId(1);
+        sector.setName("Sector A");
+        when(sectorRepository.findByFarm_Id(1)).thenReturn(List.of(sector));
+        doAnswer(inv -> {
+            ((Consumer<Object>) inv.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        doAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+        when(sketchRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(backfillRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private Irrigation irrigation(LocalDate date, String hours, String water) {
+        Irrigation irrigation = new Irrigation();
+        irrigation.setId(1);
+        irrigation.setSector(sector);
+        irrigation.setStartDatetime(date.atTime(8, 0));
+        irrigation.setIrrigationHours(new BigDecimal(hours));
+        irrigation.setWaterAmount(new BigDecimal(water));
+        return irrigation;
+    }
+
+    private long savedSampleCount() {
+        ArgumentCaptor<IrrigationDailySketch> captor = ArgumentCaptor.forClass(IrrigationDailySketch.class);
+        verify(sketchRepository, atLeastOnce()).save(captor.capture());
+        return captor.getValue().getSampleCount();
+    }
+
+    private IrrigationRecordedEvent event(LocalDate date, String hours, String water) {
+        return event(1, date, hours, water);
+    }
+
+    private IrrigationRecordedEvent event(Integer irrigationId, LocalDate date, String hours, String water) {
+        return new IrrigationRecordedEvent(irrigationId, 1, 1, 10, "Bomba", date.atTime(8, 0),
+                new BigDecimal(hours), new BigDecimal(water), null);
+    }
+
+    @Test
+    @DisplayName("QuantileSketch debe estimar percentiles con error relativo acotado")
+    void quantileSketch_percentiles_dentroDelErrorRelativo() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 1; i <= 1000; i++) {
+            sketch.add(i);
+        }
+
+        assertThat(sketch.getCount()).isEqualTo(1000);
+        assertThat(sketch.quantile(0.5)).isCloseTo(500.0, within(500.0 * 0.02));
+        assertThat(sketch.quantile(0.9)).isCloseTo(900.0, within(900.0 * 0.02));
+        assertThat(sketch.quantile(0.99)).isCloseTo(990.0, within(990.0 * 0.02));
+    }
+
+    @Test
+    @DisplayName("QuantileSketch debe conservar los datos al serializar y combinar")
+    void quantileSketch_serializarYCombinar_equivaleASketchUnico() {
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        QuantileSketch all = new QuantileSketch();
+        for (int i = 1; i <= 500; i++) {
+            first.add(i);
+            all.add(i);
+        }
+        for (int i = 501; i <= 1000; i++) {
+            second.add(i);
+            all.add(i);
+        }
+        first.add(0);
+        all.add(0);
+
+        QuantileSketch merged = QuantileSketch.fromBytes(first.toBytes());
+        merged.merge(QuantileSketch.fromBytes(second.toBytes()));
+
+        assertThat(merged.getCount()).isEqualTo(all.getCount());
+        assertThat(merged.quantile(0.0)).isEqualTo(0.0);
+        assertThat(merged.quantile(0.5)).isEqualTo(all.quantile(0.5));
+        assertThat(merged.quantile(0.99)).isEqualTo(all.quantile(0.99));
+    }
+
+    @Test
+    @DisplayName("getPercentiles() debe combinar sketches persistidos con los pendientes")
+    void getPercentiles_combinaPersistidosYPendientes() {
+        QuantileSketch hours = new QuantileSketch();
+        QuantileSketch water = new QuantileSketch();
+        hours.add(1.0);
+        water.add(10.0);
+        IrrigationDailySketch stored = new IrrigationDailySketch(1L, 1, day.minusDays(1), 1, hours.toBytes(),
+                water.toBytes(), null);
+        when(sketchRepository.findBySectorIdInAndSketchDateBetween(any(), eq(day.minusDays(7)), eq(day)))
+                .thenReturn(List.of(stored));
+
+        sketchService.onIrrigationRecorded(event(day, "3.00", "30.00"));
+        sketchService.onIrrigationRecorded(event(day, "3.00", "30.00"));
+        sketchService.onIrrigationRecorded(event(day.plusDays(30), "9.00", "90.00")); // fuera de rango
+
+        List<IrrigationPercentileDTO> result = sketchService.getPercentiles(1, day.minusDays(7), day, null);
+
+        assertThat(result).hasSize(1);
+        IrrigationPercentileDTO dto = result.get(0);
+        assertThat(dto.getSectorName()).isEqualTo("Sector A");
+        assertThat(dto.getIrrigationCount()).isEqualTo(3);
+        assertThat(dto.getHoursP50().doubleValue()).isCloseTo(3.0, within(0.05));
+        assertThat(dto.getWaterP50().doubleValue()).isCloseTo(30.0, within(0.5));
+    }
+
+    @Test
+    @DisplayName("getPercentiles() debe devolver valores nulos para sectores sin riegos")
+    void getPercentiles_sectorSinRiegos_valoresNulos() {
+        when(sketchRepository.findBySectorIdInAndSketchDateBetween(any(), any(), any())).thenReturn(List.of());
+
+        List<IrrigationPercentileDTO> result = sketchService.getPercentiles(1, day, day, List.of(1));
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getIrrigationCount()).isZero();
+        assertThat(result.get(0).getHoursP50()).isNull();
+    }
+
+    @Test
+    @DisplayName("flushPending() debe fusionar los pendientes con la fila diaria existente")
+    void flushPending_fusionaConFilaExistente() {
+        QuantileSketch hours = new QuantileSketch();
+        hours.add(2.0);
+        IrrigationDailySketch stored = new IrrigationDailySketch(5L, 1, day, 1, hours.toBytes(), hours.toBytes(),
+                null);
+        when(sketchRepository.findForUpdate(1, day)).thenReturn(Optional.of(stored));
+
+        sketchService.onIrrigationRecorded(event(day, "4.00", "40.00"));
+        sketchService.flushPending();
+
+        ArgumentCaptor<IrrigationDailySketch> captor = ArgumentCaptor.forClass(IrrigationDailySketch.class);
+        verify(sketchRepository).save(captor.capture());
+        assertThat(captor.getValue().getId()).isEqualTo(5L);
+        assertThat(captor.getValue().getSampleCount()).isEqualTo(2);
+
+        // Sin pendientes no se vuelve a escribir
+        sketchService.flushPending();
+        verify(sketchRepository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("flushPending() debe conservar los pendientes si la transacción falla")
+    void flushPending_errorEnTransaccion_conservaPendientes() {
+        doThrow(new RuntimeException("lock timeout")).when(transactionTemplate).executeWithoutResult(any());
+        sketchService.onIrrigationRecorded(event(day, "4.00", "40.00"));
+
+        sketchService.flushPending();
+
+        when(sketchRepository.findBySectorIdInAndSketchDateBetween(any(), any(), any())).thenReturn(List.of());
+        assertThat(sketchService.getPercentiles(1, day, day, null).get(0).getIrrigationCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("backfillIfEmpty() no debe reconstruir si otro nodo ya completó el backfill")
+    void backfillIfEmpty_marcaCompletada_noReconstruye() {
+        ReflectionTestUtils.setField(sketchService, "backfillOnStartup", true);
+        when(backfillRepository.existsById(1)).thenReturn(true);
+        when(backfillRepository.findForUpdate(1))
+                .thenReturn(Optional.of(new IrrigationSketchBackfill(1, null, LocalDateTime.now())));
+
+        sketchService.backfillIfEmpty();
+        sketchService.onIrrigationRecorded(event(day, "4.00", "40.00"));
+        sketchService.flushPending();
+
+        verify(irrigationRepository, never()).findAll(any(Pageable.class));
+        verify(backfillRepository, never()).save(any());
+        assertThat(savedSampleCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Un riego recibido durante el backfill y ya leído por él no debe contarse dos veces")
+    void backfillIfEmpty_riegoRetenidoIncluidoEnInstantanea_seDescarta() {
+        ReflectionTestUtils.setField(sketchService, "backfillOnStartup", true);
+        when(backfillRepository.findForUpdate(1)).thenReturn(Optional.of(new IrrigationSketchBackfill(1, null, null)));
+        when(sketchRepository.count()).thenReturn(0L);
+        when(irrigationRepository.count()).thenReturn(1L);
+        when(irrigationRepository.findAll(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(irrigation(day, "4.00", "40.00"))));
+
+        // El backfill lee el riego cuyo evento llega mientras tanto
+        sketchService.onIrrigationRecorded(event(day, "4.00", "40.00"));
+        sketchService.flushPending();
+        verify(sketchRepository, never()).save(any());
+
+        sketchService.backfillIfEmpty();
+
+        assertThat(savedSampleCount()).isEqualTo(1);
+        ArgumentCaptor<IrrigationSketchBackfill> marker = ArgumentCaptor.forClass(IrrigationSketchBackfill.class);
+        verify(backfillRepository, atLeastOnce()).save(marker.capture());
+        assertThat(marker.getValue().getLastIrrigationId()).isEqualTo(1);
+        assertThat(marker.getValue().getCompletedAt()).isNotNull();
+
+        when(sketchRepository.findBySectorIdInAndSketchDateBetween(any(), any(), any())).thenReturn(List.of());
+        assertThat(sketchService.getPercentiles(1, day, day, null).get(0).getIrrigationCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Un nodo que espera el backfill de otro debe conservar solo los riegos que éste no leyó")
+    void flushPending_backfillDeOtroNodo_descartaRiegosYaLeidos() {
+        ReflectionTestUtils.setField(sketchService, "backfillOnStartup", true);
+        IrrigationSketchBackfill marker = new IrrigationSketchBackfill(1, null, null);
+        when(backfillRepository.findById(1)).thenReturn(Optional.of(marker));
+
+        // El evento del riego 8 puede llegar antes que el del 7
+        sketchService.onIrrigationRecorded(event(8, day, "6.00", "60.00"));
+        sketchService.onIrrigationRecorded(event(7, day, "4.00", "40.00"));
+
+        sketchService.flushPending();
+        verify(sketchRepository, never()).save(any());
+
+        marker.setLastIrrigationId(7);
+        marker.setCompletedAt(LocalDateTime.now());
+        sketchService.flushPending();
+
+        assertThat(savedSampleCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,75 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistory;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.audit.ChangeHistoryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests de la búsqueda por texto del historial de cambios sobre H2, con filas
+ * indexadas y sin indexar.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("AuditService - Búsqueda por texto (H2)")
+class AuditServiceSearchTest {
+
+    @Autowired
+    private AuditService auditService;
+    @Autowired
+    private ChangeHistoryRepository changeHistoryRepository;
+    @Autowired
+    private ChangeHistorySearchIndex searchIndex;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ChangeHistory history(String newValue) {
+        ChangeHistory history = new ChangeHistory();
+        history.setActionType("UPDATE");
+        history.setAffectedTable("Sector");
+        history.setChangedField("name");
+        history.setNewValue(newValue);
+        history.setChangeDatetime(new Date());
+        return changeHistoryRepository.saveAndFlush(history);
+    }
+
+    private void moveCursorTo(Integer historyId) {
+        jdbcTemplate.update("DELETE FROM change_history_search_cursor");
+        if (historyId != null) {
+            jdbcTemplate.update("INSERT INTO change_history_search_cursor (cursor_id, last_history_id) VALUES (1, ?)",
+                    historyId);
+        }
+    }
+
+    private Iterable<Integer> search(String term) {
+        return auditService.getChangeHistory(null, null, null, term, null, null, PageRequest.of(0, 20))
+                .map(ChangeHistory::getId);
+    }
+
+    @Test
+    @DisplayName("Las filas que el backfill aún no indexó deben aparecer en la búsqueda")
+    void busqueda_incluyeFilasSinIndexar() {
+        ChangeHistory indexed = history("Canal Zetaqua Norte");
+        searchIndex.index(Map.of(indexed.getId(), new String[] { "name", null, indexed.getNewValue(), null }));
+        ChangeHistory pending = history("Zetaqua Sur");
+
+        moveCursorTo(null);
+        assertThat(search("zetaqua")).containsExactlyInAnyOrder(indexed.getId(), pending.getId());
+
+        moveCursorTo(indexed.getId());
+        assertThat(search("zetaqua")).containsExactlyInAnyOrder(indexed.getId(), pending.getId());
+        assertThat(search("zetaqua norte")).containsExactly(indexed.getId());
+    }
+}
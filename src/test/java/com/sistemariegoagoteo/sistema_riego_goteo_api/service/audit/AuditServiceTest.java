@@ -0,0 +1,154 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.audit.BulkSyncStatusRequest;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistory;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistoryArchive;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.audit.ChangeHistoryRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.audit.SynchronizationRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios de la consulta del historial de cambios en AuditService.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AuditService - Tests Unitarios")
+class AuditServiceTest {
+
+    @Mock
+    private ChangeHistoryRepository changeHistoryRepository;
+    @Mock
+    private SynchronizationRepository synchronizationRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private AuditWriter auditWriter;
+    @Mock
+    private ChangeHistoryArchiveService archiveService;
+    @Mock
+    private SynchronizationBulkUpdater synchronizationBulkUpdater;
+    @Mock
+    private ChangeHistorySearchIndex searchIndex;
+
+    @InjectMocks
+    private AuditService auditService;
+
+    private static ChangeHistory history(int id) {
+        ChangeHistory history = new ChangeHistory();
+        history.setId(id);
+        return history;
+    }
+
+    private static List<ChangeHistory> histories(int fromId, int toId) {
+        return IntStream.rangeClosed(fromId, toId).mapToObj(AuditServiceTest::history).toList();
+    }
+
+    @Test
+    @DisplayName("Sin fechas no debe leerse el archivo")
+    void getChangeHistory_sinFechas_soloTabla() {
+        Page<ChangeHistory> hot = new PageImpl<>(histories(1, 2), PageRequest.of(0, 20), 2);
+        when(changeHistoryRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(hot);
+
+        Page<ChangeHistory> page = auditService.getChangeHistory(null, null, null, null, null, null,
+                PageRequest.of(0, 20));
+
+        assertThat(page).isSameAs(hot);
+        verifyNoInteractions(archiveService);
+    }
+
+    @Test
+    @DisplayName("Las filas archivadas deben continuar la paginación tras las de la tabla")
+    void getChangeHistory_conArchivo_continuaLaPaginacion() {
+        Date start = java.sql.Timestamp.valueOf(LocalDateTime.now().minusYears(1));
+        when(archiveService.archivedMonths(start, null)).thenReturn(List.of(new ChangeHistoryArchive()));
+        when(archiveService.page(any(), eq(0L), eq(3)))
+                .thenReturn(new ChangeHistoryArchiveService.ArchivePage(histories(100, 102), 5));
+        when(archiveService.page(any(), eq(3L), eq(5)))
+                .thenReturn(new ChangeHistoryArchiveService.ArchivePage(histories(103, 104), 5));
+        // 12 filas en la tabla; página 2 de tamaño 5 → 2 de la tabla y 3 archivadas
+        when(changeHistoryRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(histories(11, 12), PageRequest.of(2, 5), 12));
+
+        Page<ChangeHistory> page = auditService.getChangeHistory(null, null, null, null, start, null,
+                PageRequest.of(2, 5));
+
+        assertThat(page.getContent()).extracting(ChangeHistory::getId).containsExactly(11, 12, 100, 101, 102);
+        assertThat(page.getTotalElements()).isEqualTo(17);
+
+        when(changeHistoryRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(), PageRequest.of(3, 5), 12));
+        page = auditService.getChangeHistory(null, null, null, null, start, null, PageRequest.of(3, 5));
+        assertThat(page.getContent()).extracting(ChangeHistory::getId).containsExactly(103, 104);
+    }
+
+    @Test
+    @DisplayName("Un orden distinto del de por defecto debe rechazarse si alcanza meses archivados")
+    void getChangeHistory_conArchivo_ordenAscendente_seRechaza() {
+        Date start = java.sql.Timestamp.valueOf(LocalDateTime.now().minusYears(1));
+        when(archiveService.archivedMonths(start, null)).thenReturn(List.of(new ChangeHistoryArchive()));
+
+        assertThatThrownBy(() -> auditService.getChangeHistory(null, null, null, null, start, null,
+                PageRequest.of(0, 5, Sort.by("changeDatetime").ascending())))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(changeHistoryRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("El detalle debe buscarse en el archivo si ya no está en la tabla")
+    void getChangeHistoryDetail_archivada() {
+        when(changeHistoryRepository.findById(7)).thenReturn(Optional.empty());
+        when(archiveService.findById(7)).thenReturn(Optional.of(history(7)));
+
+        assertThat(auditService.getChangeHistoryDetail(7)).get().extracting(ChangeHistory::getId).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("La actualización masiva por rango debe delegar en el actualizador por lotes")
+    void bulkUpdateSynchronizationStatus_porRango() {
+        BulkSyncStatusRequest request = new BulkSyncStatusRequest();
+        request.setModifiedTable("sector");
+        request.setFromRecordId(1);
+        request.setToRecordId(500);
+        request.setIsSynchronized(true);
+        when(synchronizationBulkUpdater.updateByRange("sector", 1, 500, true))
+                .thenReturn(new SynchronizationBulkUpdater.BulkUpdateResult(120, 1));
+
+        assertThat(auditService.bulkUpdateSynchronizationStatus(request).updatedCount()).isEqualTo(120);
+    }
+
+    @Test
+    @DisplayName("La actualización masiva sin ids ni rango completo debe rechazarse")
+    void bulkUpdateSynchronizationStatus_sinCriterio_lanzaExcepcion() {
+        BulkSyncStatusRequest request = new BulkSyncStatusRequest();
+        request.setModifiedTable("sector");
+        request.setFromRecordId(1);
+        request.setIsSynchronized(true);
+
+        assertThatThrownBy(() -> auditService.bulkUpdateSynchronizationStatus(request))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(synchronizationBulkUpdater);
+    }
+}
@@ -0,0 +1,111 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests de la escritura por lotes de auditoría contra una base H2.
+ */
+@DisplayName("AuditWriter - Tests de Integración (H2)")
+class AuditWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private AuditWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:audit-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE change_history (history_id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "user_id BIGINT, action_type VARCHAR(20), affected_table VARCHAR(100), "
+                + "changed_field VARCHAR(100), old_value VARCHAR(255), new_value VARCHAR(255), "
+                + "change_datetime TIMESTAMP, diff CLOB)");
+        jdbcTemplate.execute("CREATE TABLE change_history_search (gram VARCHAR(3) NOT NULL, "
+                + "history_id INT NOT NULL, PRIMARY KEY (gram, history_id))");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new AuditWriter(jdbcTemplate, new ChangeHistorySearchIndex(jdbcTemplate, transactionTemplate, 100),
+                transactionTemplate, meterRegistry, 2);
+    }
+
+    private static AuditWriter.AuditEntry entry(String field) {
+        return new AuditWriter.AuditEntry(1L, "UPDATE", "irrigation", field, "a", "b",
+                new Timestamp(System.currentTimeMillis()));
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_history", Integer.class);
+    }
+
+    @Test
+    @DisplayName("Dentro de una transacción las entradas deben escribirse juntas antes del commit")
+    void write_enTransaccion_seEscribeAlConfirmar() {
+        transactionTemplate.executeWithoutResult(status -> {
+            writer.write(entry("startDatetime"));
+            writer.write(entry("endDatetime"));
+            writer.write(entry("waterAmount"));
+            assertThat(rows()).isZero();
+        });
+
+        assertThat(rows()).isEqualTo(3);
+        assertThat(meterRegistry.counter("audit.rows.written").count()).isEqualTo(3.0);
+        // Cada fila queda indexada con sus propias claves generadas
+        assertThat(jdbcTemplate.queryForList("SELECT history_id FROM change_history_search WHERE gram = 'wat'",
+                Integer.class)).containsExactly(
+                        jdbcTemplate.queryForObject("SELECT history_id FROM change_history "
+                                + "WHERE changed_field = 'waterAmount'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Si la transacción se revierte no debe quedar auditoría")
+    void write_rollback_noEscribe() {
+        transactionTemplate.executeWithoutResult(status -> {
+            writer.write(entry("waterAmount"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(rows()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_history_search", Integer.class))
+                .isZero();
+        // La siguiente transacción empieza con un lote vacío
+        transactionTemplate.executeWithoutResult(status -> writer.write(entry("endDatetime")));
+        assertThat(rows()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sin transacción la entrada debe escribirse de inmediato")
+    void write_sinTransaccion_escribeYa() {
+        writer.write(entry("waterAmount"));
+
+        assertThat(rows()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("La cola de mejor esfuerzo debe descartar al llenarse y volcarse en lote")
+    void enqueue_colaLlena_descartaYCuenta() {
+        assertThat(writer.enqueue(entry("1"))).isTrue();
+        assertThat(writer.enqueue(entry("2"))).isTrue();
+        assertThat(writer.enqueue(entry("3"))).isFalse();
+        assertThat(meterRegistry.counter("audit.async.dropped").count()).isEqualTo(1.0);
+        assertThat(rows()).isZero();
+
+        writer.flushQueued();
+
+        assertThat(rows()).isEqualTo(2);
+        assertThat(writer.pendingQueued()).isZero();
+    }
+}
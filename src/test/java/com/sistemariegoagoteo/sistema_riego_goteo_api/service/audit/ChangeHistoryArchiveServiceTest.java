@@ -0,0 +1,190 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.config.AuditArchiveProperties;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ServiceUnavailableException;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.audit.ChangeHistory;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler.SchedulerLeases;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests del archivo mensual de auditoría contra una base H2.
+ */
+@DisplayName("ChangeHistoryArchiveService - Tests de Integración (H2)")
+class ChangeHistoryArchiveServiceTest {
+
+    @TempDir
+    Path archiveDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private ChangeHistoryArchiveService archiveService;
+    private SchedulerLeases schedulerLeases;
+    private YearMonth oldMonth;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:audit-archive-"
+                + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE user (user_id BIGINT PRIMARY KEY, username VARCHAR(50))");
+        jdbcTemplate.execute("CREATE TABLE change_history (history_id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "user_id BIGINT, action_type VARCHAR(20), affected_table VARCHAR(100), "
+                + "changed_field VARCHAR(100), old_value VARCHAR(255), new_value VARCHAR(255), "
+                + "change_datetime TIMESTAMP, diff CLOB)");
+        jdbcTemplate.execute("CREATE TABLE change_history_search (gram VARCHAR(3) NOT NULL, "
+                + "history_id INT NOT NULL, PRIMARY KEY (gram, history_id))");
+        jdbcTemplate.execute("CREATE TABLE change_history_archive (archive_month VARCHAR(7) PRIMARY KEY, "
+                + "file_name VARCHAR(100) NOT NULL, row_count BIGINT NOT NULL, min_history_id INT, "
+                + "max_history_id INT, archived_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.update("INSERT INTO user (user_id, username) VALUES (1, 'admin')");
+
+        AuditArchiveProperties properties = new AuditArchiveProperties();
+        properties.setDirectory(archiveDir);
+        properties.setChunkSize(2);
+        schedulerLeases = mock(SchedulerLeases.class);
+        when(schedulerLeases.tryAcquire(eq(ChangeHistoryArchiveService.LEASE_JOB), any())).thenReturn(true);
+        archiveService = new ChangeHistoryArchiveService(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), properties, schedulerLeases);
+
+        oldMonth = YearMonth.now().minusMonths(6);
+        insert(1L, "UPDATE", "sector", "name", "Sector Norte", "Sector Sur", oldMonth.atDay(3).atTime(10, 0));
+        insert(null, "DELETE", "farm", "id", "5", null, oldMonth.atDay(10).atTime(9, 0));
+        insert(1L, "CREATE", "farm", "name", null, "Finca, \"La Loma\"", oldMonth.atDay(20).atTime(8, 0));
+        insert(1L, "UPDATE", "sector", "name", "A", "B", LocalDateTime.now().minusDays(1));
+        jdbcTemplate.update("INSERT INTO change_history_search (gram, history_id) VALUES ('nor', 1), ('nor', 4)");
+    }
+
+    private void insert(Long userId, String action, String table, String field, String oldValue, String newValue,
+            LocalDateTime at) {
+        jdbcTemplate.update("INSERT INTO change_history (user_id, action_type, affected_table, changed_field, "
+                + "old_value, new_value, change_datetime) VALUES (?, ?, ?, ?, ?, ?, ?)", userId, action, table,
+                field, oldValue, newValue, Timestamp.valueOf(at));
+    }
+
+    private List<ChangeHistory> search(ChangeHistoryArchiveService.ArchiveQuery query) {
+        return archiveService.page(query, 0, Integer.MAX_VALUE).content();
+    }
+
+    private int hotRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_history", Integer.class);
+    }
+
+    @Test
+    @DisplayName("Los meses antiguos deben exportarse a gzip, indexarse y salir de la tabla")
+    void archive_exportaYBorraMesesAntiguos() {
+        assertThat(archiveService.archive()).isEqualTo(3);
+
+        assertThat(hotRows()).isEqualTo(1);
+        assertThat(Files.exists(archiveDir.resolve("change_history-" + oldMonth + ".csv.gz"))).isTrue();
+        assertThat(jdbcTemplate.queryForList("SELECT history_id FROM change_history_search", Integer.class))
+                .containsExactly(4);
+        assertThat(jdbcTemplate.queryForMap("SELECT row_count, min_history_id, max_history_id "
+                + "FROM change_history_archive WHERE archive_month = ?", oldMonth.toString()))
+                .containsEntry("ROW_COUNT", 3L).containsEntry("MIN_HISTORY_ID", 1).containsEntry("MAX_HISTORY_ID", 3);
+
+        // Una segunda ejecución no vuelve a exportar ni borra nada más
+        assertThat(archiveService.archive()).isZero();
+        assertThat(hotRows()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Las filas archivadas deben poder buscarse con los mismos filtros")
+    void search_filtraFilasArchivadas() {
+        archiveService.archive();
+        Date start = Timestamp.valueOf(oldMonth.atDay(1).atStartOfDay());
+        Date end = Timestamp.valueOf(oldMonth.atEndOfMonth().atTime(23, 59));
+
+        List<ChangeHistory> all = search(
+                new ChangeHistoryArchiveService.ArchiveQuery(null, null, null, null, start, end));
+        assertThat(all).extracting(ChangeHistory::getId).containsExactly(3, 2, 1);
+        assertThat(all.get(0).getNewValue()).isEqualTo("Finca, \"La Loma\"");
+        assertThat(all.get(0).getOldValue()).isNull();
+        assertThat(all.get(0).getUser().getUsername()).isEqualTo("admin");
+        assertThat(all.get(1).getUser()).isNull();
+
+        assertThat(search(
+                new ChangeHistoryArchiveService.ArchiveQuery(1L, "sector", "update", "NORTE", start, end)))
+                .extracting(ChangeHistory::getId).containsExactly(1);
+        assertThat(search(
+                new ChangeHistoryArchiveService.ArchiveQuery(null, null, null, null, null,
+                        Timestamp.valueOf(oldMonth.atDay(15).atStartOfDay()))))
+                .extracting(ChangeHistory::getId).containsExactly(2, 1);
+    }
+
+    @Test
+    @DisplayName("Una página debe leer sólo los meses necesarios para llenarse")
+    void page_noLeeMesesTrasLlenarLaPagina() throws Exception {
+        YearMonth olderMonth = oldMonth.minusMonths(1);
+        insert(1L, "CREATE", "sector", "name", null, "Sector Este", olderMonth.atDay(5).atTime(12, 0));
+        archiveService.archive();
+        Files.delete(archiveDir.resolve("change_history-" + olderMonth + ".csv.gz"));
+        ChangeHistoryArchiveService.ArchiveQuery all =
+                new ChangeHistoryArchiveService.ArchiveQuery(null, null, null, null, null, null);
+
+        ChangeHistoryArchiveService.ArchivePage first = archiveService.page(all, 0, 2);
+        assertThat(first.content()).extracting(ChangeHistory::getId).containsExactly(3, 2);
+        assertThat(first.total()).isEqualTo(4);
+
+        ChangeHistoryArchiveService.ArchivePage second = archiveService.page(all, 2, 1);
+        assertThat(second.content()).extracting(ChangeHistory::getId).containsExactly(1);
+
+        assertThatThrownBy(() -> archiveService.page(all, 3, 1))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    @DisplayName("Con filtros, el total de una página llena debe contar sólo las filas que los cumplen")
+    void page_conFiltros_totalExacto() {
+        YearMonth olderMonth = oldMonth.minusMonths(1);
+        insert(1L, "CREATE", "sector", "name", null, "Sector Este", olderMonth.atDay(5).atTime(12, 0));
+        insert(1L, "DELETE", "farm", "id", "7", null, olderMonth.atDay(6).atTime(12, 0));
+        archiveService.archive();
+        ChangeHistoryArchiveService.ArchiveQuery sectors =
+                new ChangeHistoryArchiveService.ArchiveQuery(null, "sector", null, null, null, null);
+
+        ChangeHistoryArchiveService.ArchivePage page = archiveService.page(sectors, 0, 1);
+
+        assertThat(page.content()).extracting(ChangeHistory::getId).containsExactly(1);
+        assertThat(page.total()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Sin la concesión del archivado no debe exportar nada")
+    void archive_otroNodo_noExporta() {
+        when(schedulerLeases.tryAcquire(eq(ChangeHistoryArchiveService.LEASE_JOB), any())).thenReturn(false);
+
+        assertThat(archiveService.archive()).isZero();
+        assertThat(hotRows()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("El detalle de una fila archivada debe encontrarse por su rango de ids")
+    void findById_leeSoloElMesQueLaContiene() {
+        archiveService.archive();
+
+        assertThat(archiveService.findById(2)).get().extracting(ChangeHistory::getActionType).isEqualTo("DELETE");
+        assertThat(archiveService.findById(4)).isEmpty();
+    }
+}
@@ -0,0 +1,88 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests del índice de trigramas de auditoría contra una base H2.
+ */
+@DisplayName("ChangeHistorySearchIndex - Tests de Integración (H2)")
+class ChangeHistorySearchIndexTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ChangeHistorySearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:audit-search-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE change_history (history_id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "changed_field VARCHAR(100), old_value VARCHAR(255), new_value VARCHAR(255), diff CLOB)");
+        jdbcTemplate.execute("CREATE TABLE change_history_search (gram VARCHAR(3) NOT NULL, "
+                + "history_id INT NOT NULL, PRIMARY KEY (gram, history_id))");
+        jdbcTemplate.execute("CREATE TABLE change_history_search_cursor (cursor_id INT PRIMARY KEY, "
+                + "last_history_id INT NOT NULL)");
+        searchIndex = new ChangeHistorySearchIndex(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), 2);
+    }
+
+    private void insertHistory(String field, String oldValue, String newValue) {
+        jdbcTemplate.update("INSERT INTO change_history (changed_field, old_value, new_value) VALUES (?, ?, ?)",
+                field, oldValue, newValue);
+    }
+
+    private int candidates(String term) {
+        var grams = ChangeHistorySearchIndex.trigrams(term);
+        String in = String.join(",", grams.stream().map(g -> "'" + g + "'").toList());
+        return jdbcTemplate.queryForList("SELECT history_id FROM change_history_search WHERE gram IN (" + in
+                + ") GROUP BY history_id HAVING COUNT(*) = " + grams.size(), Integer.class).size();
+    }
+
+    @Test
+    @DisplayName("Los trigramas deben normalizar mayúsculas y acentos y omitir espacios")
+    void trigrams_normaliza() {
+        assertThat(ChangeHistorySearchIndex.trigrams("Bombá N")).containsExactly("bom", "omb", "mba");
+        assertThat(ChangeHistorySearchIndex.trigrams("id", null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("De la diferencia JSON sólo deben indexarse los valores, sin claves ni puntuación")
+    void searchableValues_diferenciaSoloValores() {
+        String diff = "{\"id\":5,\"name\":[\"Sector Norte\",\"Sector Sur\"],\"farm_id\":1,\"note\":null}";
+
+        assertThat(ChangeHistorySearchIndex.diffValues(diff)).isEqualTo("5\nSector Norte\nSector Sur\n1\n");
+        assertThat(ChangeHistorySearchIndex.trigrams(
+                ChangeHistorySearchIndex.searchableValues(new String[] { "id", null, "5", diff })))
+                .containsExactlyInAnyOrder("sec", "ect", "cto", "tor", "nor", "ort", "rte", "sur");
+        assertThat(ChangeHistorySearchIndex.diffValues("no es json")).isEqualTo("no es json");
+    }
+
+    @Test
+    @DisplayName("El backfill debe indexar por lotes y reanudar desde el cursor")
+    void backfill_indexaPorLotesYReanuda() {
+        insertHistory("name", "Sector Norte", "Sector Sur");
+        insertHistory("waterAmount", "10", "12");
+        insertHistory("name", "Bomba", "Bomba Norte");
+
+        assertThat(searchIndex.backfill()).isEqualTo(3);
+        assertThat(candidates("norte")).isEqualTo(2);
+        assertThat(candidates("SÚR")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_history_id FROM change_history_search_cursor",
+                Integer.class)).isEqualTo(3);
+
+        insertHistory("name", "Finca", "Finca Norte");
+        assertThat(searchIndex.backfill()).isEqualTo(1);
+        assertThat(candidates("norte")).isEqualTo(3);
+        assertThat(searchIndex.backfill()).isZero();
+    }
+}
@@ -0,0 +1,217 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationEquipment;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Precipitation;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.PrecipitationSource;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Sector;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios de la auditoría por eventos de Hibernate.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("EntityAuditListener - Tests Unitarios")
+class EntityAuditListenerTest {
+
+    @Mock
+    private AuditWriter auditWriter;
+    @Mock
+    private EntityPersister persister;
+    @Mock
+    private EventSource session;
+
+    private EntityAuditListener listener;
+    private Farm farm;
+    private IrrigationEquipment equipment;
+    private Sector sector;
+
+    @BeforeEach
+    void setUp() {
+        listener = new EntityAuditListener(auditWriter, new ObjectMapper());
+
+        User user = new User();
+        user.setId(7L);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>()));
+
+        farm = new Farm();
+        farm.setId(1);
+        equipment = new IrrigationEquipment();
+        equipment.setId(10);
+        sector = new Sector();
+        sector.setId(5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Persister de {@link Sector}: name, farm, equipment y una colección.
+     */
+    private void mockSectorPersister() {
+        Type basic = mock(Type.class);
+        Type collection = mock(Type.class);
+        lenient().when(collection.isCollectionType()).thenReturn(true);
+        EntityType farmType = mockEntityType("Farm", farm, 1);
+        EntityType equipmentType = mockEntityType("IrrigationEquipment", equipment, 10);
+
+        doReturn(Sector.class).when(persister).getMappedClass();
+        when(persister.getPropertyNames()).thenReturn(
+                new String[] { "name", "farm", "equipment", "humiditySensors" });
+        when(persister.getPropertyTypes()).thenReturn(new Type[] { basic, farmType, equipmentType, collection });
+    }
+
+    private EntityType mockEntityType(String entityName, Object value, Object id) {
+        EntityType type = mock(EntityType.class);
+        lenient().when(type.isEntityType()).thenReturn(true);
+        lenient().when(type.getAssociatedEntityName()).thenReturn(entityName);
+        EntityPersister associated = mock(EntityPersister.class);
+        lenient().when(session.getEntityPersister(entityName, value)).thenReturn(associated);
+        lenient().when(associated.getIdentifier(value, session)).thenReturn(id);
+        return type;
+    }
+
+    private AuditWriter.AuditEntry writtenEntry() {
+        ArgumentCaptor<AuditWriter.AuditEntry> captor = ArgumentCaptor.forClass(AuditWriter.AuditEntry.class);
+        verify(auditWriter).write(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    @DisplayName("Una modificación de varios campos debe generar una sola fila con la diferencia JSON")
+    void onPostUpdate_variosCampos_unaFila() {
+        mockSectorPersister();
+        Object[] oldState = { "Norte", farm, null, List.of() };
+        Object[] state = { "Sur", farm, equipment, List.of() };
+
+        listener.onPostUpdate(new PostUpdateEvent(sector, 5, state, oldState, new int[] { 0, 2, 3 }, persister,
+                session));
+
+        AuditWriter.AuditEntry entry = writtenEntry();
+        assertThat(entry.userId()).isEqualTo(7L);
+        assertThat(entry.actionType()).isEqualTo("UPDATE");
+        assertThat(entry.affectedTable()).isEqualTo("Sector");
+        assertThat(entry.changedField()).isEqualTo("name,equipment_id");
+        assertThat(entry.oldValue()).isNull();
+        assertThat(entry.newValue()).isNull();
+        assertThat(entry.diff()).isEqualTo("{\"id\":5,\"name\":[\"Norte\",\"Sur\"],\"equipment_id\":[null,10]}");
+    }
+
+    @Test
+    @DisplayName("Si solo cambia un campo también deben rellenarse valor anterior y nuevo")
+    void onPostUpdate_unCampo_rellenaValores() {
+        mockSectorPersister();
+        Object[] oldState = { "Norte", farm, equipment, List.of() };
+        Object[] state = { "Sur", farm, equipment, List.of() };
+
+        listener.onPostUpdate(new PostUpdateEvent(sector, 5, state, oldState, new int[] { 0 }, persister, session));
+
+        AuditWriter.AuditEntry entry = writtenEntry();
+        assertThat(entry.changedField()).isEqualTo("name");
+        assertThat(entry.oldValue()).isEqualTo("Norte");
+        assertThat(entry.newValue()).isEqualTo("Sur");
+    }
+
+    @Test
+    @DisplayName("Dentro de una transacción las filas de la sesión deben escribirse en un lote antes del commit")
+    void transaccion_acumulaYEscribeEnLote() {
+        mockSectorPersister();
+        ActionQueue actionQueue = mock(ActionQueue.class);
+        when(session.isTransactionInProgress()).thenReturn(true);
+        when(session.getActionQueue()).thenReturn(actionQueue);
+        Object[] state = { "Norte", farm, equipment, List.of() };
+
+        listener.onPostInsert(new PostInsertEvent(sector, 5, state, persister, session));
+        listener.onPostDelete(new PostDeleteEvent(sector, 5, state, persister, session));
+
+        verify(auditWriter, never()).write(any());
+        ArgumentCaptor<BeforeTransactionCompletionProcess> beforeCommit =
+                ArgumentCaptor.forClass(BeforeTransactionCompletionProcess.class);
+        verify(actionQueue, times(1)).registerProcess(beforeCommit.capture());
+        verify(actionQueue, times(1)).registerProcess(any(AfterTransactionCompletionProcess.class));
+        assertThat(listener.pendingSessions()).isEqualTo(1);
+
+        beforeCommit.getValue().doBeforeTransactionCompletion(null);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AuditWriter.AuditEntry>> batch = ArgumentCaptor.forClass(List.class);
+        verify(auditWriter).writeBatch(batch.capture());
+        assertThat(batch.getValue()).extracting(AuditWriter.AuditEntry::actionType)
+                .containsExactly("CREATE", "DELETE");
+        assertThat(batch.getValue().get(0).newValue()).isEqualTo("5");
+        assertThat(batch.getValue().get(1).diff())
+                .isEqualTo("{\"id\":5,\"name\":\"Norte\",\"farm_id\":1,\"equipment_id\":10}");
+        assertThat(listener.pendingSessions()).isZero();
+    }
+
+    @Test
+    @DisplayName("La lluvia observada que acumula el scheduler no debe auditarse")
+    void onPostUpdate_lluviaObservadaSinUsuario_noSeAudita() {
+        SecurityContextHolder.clearContext();
+        doReturn(Precipitation.class).when(persister).getMappedClass();
+        Precipitation observed = new Precipitation();
+        observed.setSource(PrecipitationSource.WEATHER_API);
+
+        listener.onPostUpdate(new PostUpdateEvent(observed, 3, new Object[] { 2 }, new Object[] { 1 },
+                new int[] { 0 }, persister, session));
+        listener.onPostInsert(new PostInsertEvent(observed, 3, new Object[] { 2 }, persister, session));
+
+        verifyNoInteractions(auditWriter);
+    }
+
+    @Test
+    @DisplayName("Una carga manual de lluvia sí debe auditarse aunque no haya usuario")
+    void onPostInsert_lluviaManual_seAudita() {
+        SecurityContextHolder.clearContext();
+        doReturn(Precipitation.class).when(persister).getMappedClass();
+        when(persister.getPropertyNames()).thenReturn(new String[] { "mmRain" });
+        when(persister.getPropertyTypes()).thenReturn(new Type[] { mock(Type.class) });
+        Precipitation manual = new Precipitation();
+        manual.setSource(PrecipitationSource.MANUAL);
+
+        listener.onPostInsert(new PostInsertEvent(manual, 3, new Object[] { 2 }, persister, session));
+
+        assertThat(writtenEntry().affectedTable()).isEqualTo("Precipitation");
+    }
+
+    @Test
+    @DisplayName("Las entidades sin @AuditedEntity no deben auditarse")
+    void entidadNoAuditada_seIgnora() {
+        doReturn(Farm.class).when(persister).getMappedClass();
+
+        listener.onPostInsert(new PostInsertEvent(farm, 1, new Object[0], persister, session));
+
+        verifyNoInteractions(auditWriter);
+    }
+}
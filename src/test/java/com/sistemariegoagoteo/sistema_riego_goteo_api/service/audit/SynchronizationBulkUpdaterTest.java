@@ -0,0 +1,83 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests de la actualización masiva de sincronización contra una base H2.
+ */
+@DisplayName("SynchronizationBulkUpdater - Tests de Integración (H2)")
+class SynchronizationBulkUpdaterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SynchronizationBulkUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:sync-bulk-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE synchronization (sync_id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "modified_table VARCHAR(100), modified_record_id INT, modification_datetime TIMESTAMP, "
+                + "is_synchronized BOOLEAN)");
+        Timestamp past = Timestamp.valueOf("2026-01-01 00:00:00");
+        // 25 registros de "sector" (ids de registro 1..25) y 5 de "farm"
+        IntStream.rangeClosed(1, 25).forEach(i -> jdbcTemplate.update("INSERT INTO synchronization "
+                + "(modified_table, modified_record_id, modification_datetime, is_synchronized) VALUES (?, ?, ?, ?)",
+                "sector", i, past, false));
+        IntStream.rangeClosed(1, 5).forEach(i -> jdbcTemplate.update("INSERT INTO synchronization "
+                + "(modified_table, modified_record_id, modification_datetime, is_synchronized) VALUES (?, ?, ?, ?)",
+                "farm", i, past, false));
+        updater = new SynchronizationBulkUpdater(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), 10);
+    }
+
+    private int synchronizedCount(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM synchronization WHERE modified_table = ? "
+                + "AND is_synchronized = TRUE", Integer.class, table);
+    }
+
+    @Test
+    @DisplayName("Por ids debe actualizar en lotes y contar solo las filas que cambian")
+    void updateByIds_porLotes() {
+        List<Integer> ids = IntStream.rangeClosed(1, 23).boxed().toList();
+
+        SynchronizationBulkUpdater.BulkUpdateResult result = updater.updateByIds(ids, true);
+
+        assertThat(result.updatedCount()).isEqualTo(23);
+        assertThat(result.statements()).isEqualTo(3);
+        assertThat(synchronizedCount("sector")).isEqualTo(23);
+
+        // Repetir no reescribe nada; los duplicados se ignoran
+        assertThat(updater.updateByIds(List.of(1, 1, 2, 24), true).updatedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Por rango debe limitarse a la tabla y repetir hasta agotar las filas")
+    void updateByRange_porLotes() {
+        SynchronizationBulkUpdater.BulkUpdateResult result = updater.updateByRange("sector", 3, 24, true);
+
+        assertThat(result.updatedCount()).isEqualTo(22);
+        // Dos lotes completos de 10 y uno final de 2
+        assertThat(result.statements()).isEqualTo(3);
+        assertThat(synchronizedCount("sector")).isEqualTo(22);
+        assertThat(synchronizedCount("farm")).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM synchronization WHERE is_synchronized = TRUE "
+                + "AND modification_datetime > '2026-01-01 00:00:00'", Integer.class)).isEqualTo(22);
+
+        assertThat(updater.updateByRange("sector", 3, 24, true))
+                .isEqualTo(new SynchronizationBulkUpdater.BulkUpdateResult(0, 1));
+    }
+}
@@ -3,6 +3,7 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.auth.AuthRequest;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.auth.AuthResponse;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.auth.RegisterRequest;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ServiceUnavailableException;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.RoleRepository;
@@ -22,6 +23,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -49,6 +51,10 @@ class AuthServiceTest {
         private AuthenticationManager authenticationManager;
         @Mock
         private AuditService auditService;
+        @Mock
+        private LoginBulkhead loginBulkhead;
+        @Mock
+        private LoginBookkeeper loginBookkeeper;
 
         @InjectMocks
         private AuthService authService;
@@ -57,7 +63,9 @@ class AuthServiceTest {
         private User testUser;
 
         @BeforeEach
+        @SuppressWarnings("unchecked")
         void setUp() {
+                lenient().when(loginBulkhead.call(any())).thenAnswer(inv -> ((Supplier<Object>) inv.getArgument(0)).get());
                 adminRole = new Role("ADMIN");
                 adminRole.setId(1);
                 testUser = new User("Admin Test", "admin_test", "encodedPass", "admin@test.com", adminRole);
@@ -74,7 +82,6 @@ class AuthServiceTest {
                 when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                                 .thenReturn(authMock);
                 when(authMock.getPrincipal()).thenReturn(testUser);
-                when(userRepository.save(any(User.class))).thenReturn(testUser);
                 when(jwtService.generateToken(any(User.class))).thenReturn("mock.jwt.token");
 
                 AuthResponse response = authService.authenticate(request);
@@ -82,10 +89,11 @@ class AuthServiceTest {
                 assertThat(response).isNotNull();
                 assertThat(response.getToken()).isEqualTo("mock.jwt.token");
                 assertThat(response.getTokenType()).isEqualTo("Bearer");
-                verify(userRepository, times(1)).save(any(User.class));
                 verify(jwtService, times(1)).generateToken(any(User.class));
-                verify(auditService, times(1)).logChange(any(), eq("LOGIN"), eq("user"), eq("username"), isNull(),
-                                anyString());
+                verify(loginBookkeeper, times(1)).recordSuccess(testUser);
+                // La contabilidad del login se vuelca por lotes, no en la petición
+                verify(userRepository, never()).save(any(User.class));
+                verify(auditService, never()).logChange(any(), anyString(), anyString(), anyString(), any(), any());
         }
 
         @Test
@@ -98,6 +106,19 @@ class AuthServiceTest {
                 assertThatThrownBy(() -> authService.authenticate(request))
                                 .isInstanceOf(BadCredentialsException.class);
                 verify(jwtService, never()).generateToken(any());
+                verify(loginBookkeeper, times(1)).recordFailure("admin_test");
+        }
+
+        @Test
+        @DisplayName("authenticate() debe propagar ServiceUnavailableException si el pool de login está saturado")
+        void authenticate_poolSaturado_lanzaServiceUnavailableException() {
+                AuthRequest request = new AuthRequest("admin_test", "password123");
+                doThrow(new ServiceUnavailableException("saturado")).when(loginBulkhead).call(any());
+
+                assertThatThrownBy(() -> authService.authenticate(request))
+                                .isInstanceOf(ServiceUnavailableException.class);
+                verify(authenticationManager, never()).authenticate(any());
+                verifyNoInteractions(loginBookkeeper);
         }
 
         @Test
@@ -1,8 +1,12 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.config.jwt.JwtConfig;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Permission;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,7 +17,10 @@ import static org.mockito.Mockito.when;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.config.SecurityConfigDTO;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Tests unitarios para JwtService.
@@ -100,4 +107,59 @@ class JwtServiceTest {
 
         assertThat(rol).isEqualTo("ADMIN");
     }
+
+    @Test
+    @DisplayName("generateToken() debe incluir la versión de token del usuario")
+    void generateToken_debeIncluirVersionDeToken() {
+        testUser.incrementTokenVersion();
+
+        String token = jwtService.generateToken(testUser);
+
+        assertThat(jwtService.extractTokenVersion(token)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("parseAndVerify() debe reutilizar los claims de un token ya verificado")
+    void parseAndVerify_tokenRepetido_reutilizaClaims() {
+        String token = jwtService.generateToken(testUser);
+
+        Claims first = jwtService.parseAndVerify(token);
+        Claims second = jwtService.parseAndVerify(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(jwtService.isTokenValid(first, testUser)).isTrue();
+    }
+
+    @Test
+    @DisplayName("parseAndVerify() debe rechazar un token con la firma alterada")
+    void parseAndVerify_firmaAlterada_lanzaExcepcion() {
+        String token = jwtService.generateToken(testUser);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtService.parseAndVerify(tampered)).isInstanceOf(JwtException.class);
+        assertThat(jwtService.isTokenValid(tampered, testUser)).isFalse();
+    }
+
+    @Test
+    @DisplayName("toPrincipal() debe reconstruir el usuario desde los claims y las fincas vigentes")
+    void toPrincipal_debeReconstruirUsuarioDesdeClaims() {
+        testUser.setId(7L);
+        testUser.getRol().getPermissions().add(new Permission("VER_REPORTES"));
+        Farm farm = new Farm();
+        farm.setId(3);
+        testUser.getFarms().add(farm);
+
+        Claims claims = jwtService.parseAndVerify(jwtService.generateToken(testUser));
+        // La finca 3 viaja en el token, pero el usuario fue reasignado a la 5 después
+        User principal = jwtService.toPrincipal(claims, List.of(5));
+
+        assertThat(jwtService.extractUserId(claims)).isEqualTo(7L);
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo("admin_test");
+        assertThat(principal.getRol().getRoleName()).isEqualTo("ADMIN");
+        assertThat(principal.getRol().getPermissions()).extracting(Permission::getPermissionName)
+                .containsExactly("VER_REPORTES");
+        assertThat(principal.getFarms()).extracting(Farm::getId).containsExactly(5);
+        assertThat(principal.getAuthorities()).extracting(a -> a.getAuthority()).containsExactly("ROLE_ADMIN");
+    }
 }
@@ -0,0 +1,99 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para LoginBookkeeper.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LoginBookkeeper - Tests Unitarios")
+class LoginBookkeeperTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private AuditWriter auditWriter;
+
+    @InjectMocks
+    private LoginBookkeeper bookkeeper;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Operario", "operario1", "pass", "op@test.com", new Role("OPERARIO"));
+        user.setId(7L);
+    }
+
+    @Test
+    @DisplayName("Los intentos fallidos deben sumarse en memoria y volcarse como un único incremento")
+    @SuppressWarnings("unchecked")
+    void recordFailure_rafaga_unSoloIncrementoPorUsuario() {
+        for (int i = 0; i < 50; i++) {
+            bookkeeper.recordFailure("operario1");
+        }
+        assertThat(bookkeeper.pendingFailures("operario1")).isEqualTo(50);
+
+        bookkeeper.flush();
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("failed_attempts = COALESCE"), captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+        assertThat(captor.getValue().get(0)).containsExactly(50, "operario1");
+        assertThat(bookkeeper.pendingFailures("operario1")).isZero();
+    }
+
+    @Test
+    @DisplayName("Un login exitoso debe descartar los fallos pendientes, volcar el último login y encolar la auditoría")
+    void recordSuccess_vuelcaUltimoLoginYAuditoria() {
+        bookkeeper.recordFailure("operario1");
+        bookkeeper.recordSuccess(user);
+
+        bookkeeper.flush();
+
+        verify(jdbcTemplate).batchUpdate(contains("last_login"), anyList());
+        ArgumentCaptor<AuditWriter.AuditEntry> audit = ArgumentCaptor.forClass(AuditWriter.AuditEntry.class);
+        verify(auditWriter).enqueue(audit.capture());
+        assertThat(audit.getValue().actionType()).isEqualTo("LOGIN");
+        assertThat(audit.getValue().userId()).isEqualTo(7L);
+        verify(jdbcTemplate, never()).batchUpdate(contains("COALESCE"), anyList());
+
+        // Sin pendientes no se vuelve a escribir
+        bookkeeper.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Si el volcado falla, los datos deben conservarse para el siguiente intento")
+    void flush_errorEnBaseDeDatos_conservaPendientes() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("sin conexión"));
+        bookkeeper.recordFailure("operario1");
+        bookkeeper.recordSuccess(user);
+        bookkeeper.recordFailure("operario1");
+
+        bookkeeper.flush();
+
+        assertThat(bookkeeper.pendingFailures("operario1")).isEqualTo(1);
+        reset(jdbcTemplate);
+        bookkeeper.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+}
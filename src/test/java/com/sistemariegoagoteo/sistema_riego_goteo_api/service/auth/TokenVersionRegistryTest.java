@@ -0,0 +1,82 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.auth.TokenVersionRegistry.TokenStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitarios para TokenVersionRegistry.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TokenVersionRegistry - Tests Unitarios")
+class TokenVersionRegistryTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @InjectMocks
+    private TokenVersionRegistry registry;
+
+    @Test
+    @DisplayName("status() debe devolver UNKNOWN mientras el registro no se haya cargado")
+    void status_sinCargar_unknown() {
+        assertThat(registry.status(1L, 0)).isEqualTo(TokenStatus.UNKNOWN);
+    }
+
+    @Test
+    @DisplayName("status() debe distinguir tokens vigentes, revocados y desconocidos")
+    void status_trasRefresh_evaluaVersionYEstado() {
+        when(userRepository.findAllTokenStates()).thenReturn(List.of(
+                new Object[] { 1L, 2, true },
+                new Object[] { 2L, 0, false }));
+
+        registry.refresh();
+
+        assertThat(registry.status(1L, 2)).isEqualTo(TokenStatus.CURRENT);
+        assertThat(registry.status(1L, 1)).isEqualTo(TokenStatus.REVOKED);
+        assertThat(registry.status(1L, 3)).isEqualTo(TokenStatus.UNKNOWN);
+        assertThat(registry.status(2L, 0)).isEqualTo(TokenStatus.REVOKED);
+        assertThat(registry.status(99L, 0)).isEqualTo(TokenStatus.UNKNOWN);
+    }
+
+    @Test
+    @DisplayName("refresh() no debe pisar una versión más nueva aplicada localmente")
+    void refresh_lecturaAntigua_noPisaVersionLocal() {
+        when(userRepository.findAllTokenStates()).thenReturn(List.<Object[]>of(new Object[] { 1L, 0, true }));
+        registry.refresh();
+
+        registry.update(1L, 1, false);
+        registry.refresh();
+
+        assertThat(registry.status(1L, 0)).isEqualTo(TokenStatus.REVOKED);
+        assertThat(registry.status(1L, 1)).isEqualTo(TokenStatus.REVOKED);
+    }
+
+    @Test
+    @DisplayName("onInvalidation() debe descartar el estado si otro nodo publicó una versión igual o mayor")
+    void onInvalidation_versionNueva_descartaEstado() {
+        when(userRepository.findAllTokenStates()).thenReturn(List.of(
+                new Object[] { 1L, 2, true },
+                new Object[] { 2L, 5, true }));
+        registry.refresh();
+
+        registry.onInvalidation("1", 3);
+        registry.onInvalidation("2", 4);
+
+        assertThat(registry.status(1L, 2)).isEqualTo(TokenStatus.UNKNOWN);
+        assertThat(registry.status(2L, 5)).isEqualTo(TokenStatus.CURRENT);
+    }
+}
@@ -9,6 +9,7 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.RoleReposi
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification.NotificationService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.FarmMembershipIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -48,6 +49,12 @@ class UserServiceTest {
     private AuditService auditService;
     @Mock
     private NotificationService notificationService;
+    @Mock
+    private PrincipalCache principalCache;
+    @Mock
+    private TokenVersionRegistry tokenVersionRegistry;
+    @Mock
+    private FarmMembershipIndex farmMembershipIndex;
 
     @InjectMocks
     private UserService userService;
@@ -135,6 +142,22 @@ class UserServiceTest {
         verify(userRepository, never()).save(any());
     }
 
+    // =======================================================================
+    // getOwnProfile
+    // =======================================================================
+
+    @Test
+    @DisplayName("getOwnProfile() debe cargar el usuario completo desde la base de datos")
+    void getOwnProfile_cargaUsuarioCompleto() {
+        targetUser.setLastLogin(new java.util.Date());
+        when(userRepository.findByUsername(targetUser.getUsername())).thenReturn(Optional.of(targetUser));
+
+        User profile = userService.getOwnProfile(targetUser.getUsername());
+
+        assertEquals(targetUser.getEmail(), profile.getEmail());
+        assertNotNull(profile.getLastLogin());
+    }
+
     // =======================================================================
     // assignUserToFarm
     // =======================================================================
@@ -149,10 +172,17 @@ class UserServiceTest {
         when(userRepository.findById(2L)).thenReturn(Optional.of(targetUser));
         when(farmRepository.findById(1)).thenReturn(Optional.of(farm));
 
+        int tokenVersion = targetUser.currentTokenVersion();
+
         userService.assignUserToFarm(2L, 1);
 
         assertTrue(targetUser.getFarms().contains(farm));
         verify(userRepository).save(targetUser);
+        // La asignación no revoca el token: el filtro toma las fincas del índice
+        assertEquals(tokenVersion, targetUser.currentTokenVersion());
+        verify(tokenVersionRegistry, never()).updateAfterCommit(any(), anyInt(), anyBoolean());
+        verify(principalCache).evictAfterCommit(targetUser.getUsername());
+        verify(farmMembershipIndex).assignAfterCommit(2L, 1);
         verify(auditService).logChange(any(User.class), eq("ASSIGN"), eq("user_farm"), eq("farm_id"), isNull(),
                 eq("1"));
         verify(notificationService).createNotification(eq(targetUser), anyString(), eq("FARM"), eq(1L), anyString());
@@ -205,6 +235,20 @@ class UserServiceTest {
                 anyString());
     }
 
+    @Test
+    @DisplayName("updateUserStatus() debe revocar los tokens e invalidar el principal cacheado al desactivar")
+    void updateUserStatus_Deactivate_RevokesTokensAndEvictsCache() {
+        int previousVersion = targetUser.currentTokenVersion();
+        when(userRepository.findById(2L)).thenReturn(Optional.of(targetUser));
+        when(userRepository.save(any(User.class))).thenAnswer(i -> i.getArgument(0));
+
+        userService.updateUserStatus(2L, false);
+
+        assertEquals(previousVersion + 1, targetUser.currentTokenVersion());
+        verify(principalCache).evictAfterCommit(targetUser.getUsername());
+        verify(tokenVersionRegistry).updateAfterCommit(targetUser.getId(), previousVersion + 1, false);
+    }
+
     @Test
     @DisplayName("updateUserStatus() no debe hacer nada si el estado ya es el mismo")
     void updateUserStatus_SameState_NoAudit() {
@@ -252,10 +296,13 @@ class UserServiceTest {
         when(userRepository.findByUsername("operario_test")).thenReturn(Optional.of(targetUser));
         when(passwordEncoder.matches("vieja_pass", targetUser.getPassword())).thenReturn(true);
         when(passwordEncoder.encode("nueva_pass")).thenReturn("encoded_nueva");
+        int previousVersion = targetUser.currentTokenVersion();
 
         userService.updateOwnPassword("operario_test", "vieja_pass", "nueva_pass", "nueva_pass");
 
         verify(userRepository).save(targetUser);
+        assertEquals(previousVersion + 1, targetUser.currentTokenVersion());
+        verify(tokenVersionRegistry).updateAfterCommit(targetUser.getId(), previousVersion + 1, true);
         verify(notificationService).createNotification(eq(targetUser), anyString(), eq("GENERAL"), isNull(),
                 anyString());
         verify(auditService).logChange(any(User.class), eq("UPDATE"), eq("User"), eq("password"), eq("********"),
@@ -0,0 +1,181 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests del bus de invalidación con dos nodos que comparten una base H2.
+ */
+@DisplayName("CacheInvalidationBus - Tests de Integración (H2)")
+class CacheInvalidationBusTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private RecordingListener listenerA;
+    private RecordingListener listenerB;
+    private CacheInvalidationBus nodeA;
+    private CacheInvalidationBus nodeB;
+    private MeterRegistry registryB;
+
+    static class RecordingListener implements CacheInvalidationListener {
+        final List<String> received = new ArrayList<>();
+
+        @Override
+        public String cacheName() {
+            return "principals";
+        }
+
+        @Override
+        public void onInvalidation(String key, long version) {
+            received.add(key + "@" + version);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bus-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE invalidation_log (invalidation_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "cache_name VARCHAR(100) NOT NULL, cache_key VARCHAR(255) NOT NULL, version BIGINT NOT NULL, "
+                + "origin_node VARCHAR(64) NOT NULL, created_at TIMESTAMP NOT NULL)");
+
+        listenerA = new RecordingListener();
+        listenerB = new RecordingListener();
+        nodeA = newNode("node-a", listenerA, new SimpleMeterRegistry());
+        registryB = new SimpleMeterRegistry();
+        nodeB = newNode("node-b", listenerB, registryB);
+        nodeA.poll();
+        nodeB.poll();
+    }
+
+    private CacheInvalidationBus newNode(String nodeId, CacheInvalidationListener listener, MeterRegistry registry) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("listener", listener));
+        CacheInvalidationBus bus = new CacheInvalidationBus(jdbcTemplate,
+                beanFactory.getBeanProvider(CacheInvalidationListener.class), registry, nodeId);
+        ReflectionTestUtils.setField(bus, "gapTimeoutMs", 0L);
+        return bus;
+    }
+
+    @Test
+    @DisplayName("Una invalidación publicada en un nodo debe aplicarse sólo en los demás")
+    void publish_enNodoA_seAplicaEnNodoB() {
+        nodeA.publish("principals", "operario1", 3);
+        nodeA.publish("otra-cache", "x");
+
+        nodeA.poll();
+        nodeB.poll();
+
+        assertThat(listenerA.received).isEmpty();
+        assertThat(listenerB.received).containsExactly("operario1@3");
+        assertThat(registryB.get("cache.invalidation.applied").counter().count()).isEqualTo(2.0);
+        assertThat(registryB.get("cache.invalidation.lag").gauge().value()).isGreaterThanOrEqualTo(0.0);
+    }
+
+    @Test
+    @DisplayName("publishAll() debe publicar todas las claves en un lote")
+    void publishAll_publicaCadaClave() {
+        nodeA.publishAll("principals", List.of("u1", "u2", "u3"));
+
+        nodeB.poll();
+
+        assertThat(listenerB.received).containsExactly("u1@0", "u2@0", "u3@0");
+    }
+
+    @Test
+    @DisplayName("Cada invalidación debe entregarse una sola vez aunque se relea la tabla")
+    void poll_repetido_noDuplicaEntregas() {
+        nodeA.publish("principals", "u1");
+        nodeB.poll();
+        nodeA.publish("principals", "u2");
+        nodeB.poll();
+        nodeB.poll();
+
+        assertThat(listenerB.received).containsExactly("u1@0", "u2@0");
+    }
+
+    @Test
+    @DisplayName("Un nodo recién iniciado no debe reprocesar invalidaciones antiguas")
+    void nodoNuevo_ignoraHistorial() {
+        nodeA.publish("principals", "viejo");
+        jdbcTemplate.update("UPDATE invalidation_log SET created_at = ?",
+                new Timestamp(System.currentTimeMillis() - 1000));
+        RecordingListener late = new RecordingListener();
+        CacheInvalidationBus nodeC = newNode("node-c", late, new SimpleMeterRegistry());
+
+        nodeC.poll();
+        nodeA.publish("principals", "nuevo");
+        nodeC.poll();
+
+        assertThat(late.received).containsExactly("nuevo@0");
+    }
+
+    @Test
+    @DisplayName("Una invalidación confirmada tarde debe entregarse aunque ya se hayan aplicado filas posteriores")
+    void commitTardio_seEntrega() throws Exception {
+        ReflectionTestUtils.setField(nodeB, "gapTimeoutMs", 600_000L);
+        try (Connection slowTransaction = dataSource.getConnection()) {
+            slowTransaction.setAutoCommit(false);
+            nodeA.publish(slowTransaction, "principals", "lento", 0);
+            slowTransaction.createStatement().executeUpdate("UPDATE invalidation_log SET created_at = "
+                    + "DATEADD('MINUTE', -5, CURRENT_TIMESTAMP)");
+            nodeA.publish("principals", "rapido");
+            nodeB.poll();
+            assertThat(listenerB.received).containsExactly("rapido@0");
+
+            slowTransaction.commit();
+        }
+        nodeB.poll();
+        nodeA.publish("principals", "siguiente");
+        nodeB.poll();
+
+        assertThat(listenerB.received).containsExactly("rapido@0", "lento@0", "siguiente@0");
+    }
+
+    @Test
+    @DisplayName("El hueco de una transacción revertida debe saltarse pasado el plazo")
+    void huecoRevertido_seSaltaTrasElPlazo() throws Exception {
+        ReflectionTestUtils.setField(nodeB, "gapTimeoutMs", 200L);
+        try (Connection rolledBack = dataSource.getConnection()) {
+            rolledBack.setAutoCommit(false);
+            nodeA.publish(rolledBack, "principals", "revertido", 0);
+            nodeA.publish("principals", "u1");
+            rolledBack.rollback();
+        }
+        nodeB.poll();
+        assertThat(ReflectionTestUtils.getField(nodeB, "watermark")).isEqualTo(0L);
+
+        Thread.sleep(300);
+        nodeB.poll();
+
+        assertThat(ReflectionTestUtils.getField(nodeB, "watermark")).isEqualTo(2L);
+        assertThat(listenerB.received).containsExactly("u1@0");
+    }
+
+    @Test
+    @DisplayName("prune() debe eliminar las filas fuera de la retención")
+    void prune_eliminaFilasAntiguas() {
+        nodeA.publish("principals", "u1");
+        ReflectionTestUtils.setField(nodeA, "retentionMinutes", -1L);
+
+        nodeA.prune();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invalidation_log", Integer.class)).isZero();
+    }
+}
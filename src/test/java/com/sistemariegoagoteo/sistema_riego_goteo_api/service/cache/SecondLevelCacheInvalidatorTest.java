@@ -0,0 +1,233 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.config.ReadReplicaProperties;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.config.SecondLevelCacheConfig;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Permission;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests de la caché de segundo nivel con dos nodos (dos SessionFactory con su
+ * propia caché y su propio bus) que comparten una base H2.
+ */
+@DisplayName("SecondLevelCacheInvalidator - Tests de Integración (H2)")
+class SecondLevelCacheInvalidatorTest {
+
+    private static final Duration MAX_STALENESS = Duration.ofMillis(200);
+
+    /**
+     * Un nodo de la aplicación: Hibernate con caché de segundo nivel, bus de
+     * invalidación e invalidador registrado en los eventos.
+     */
+    static final class Node {
+        final SessionFactory sessionFactory;
+        final CacheInvalidationBus bus;
+        final SecondLevelCacheInvalidator invalidator;
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        Node(String nodeId, DriverManagerDataSource dataSource, String ddl) {
+            SecondLevelCacheConfig cacheConfig = new SecondLevelCacheConfig();
+            CacheManager cacheManager = cacheConfig.hibernateCacheManager(100, 60);
+            Map<String, Object> properties = new HashMap<>();
+            cacheConfig.secondLevelCacheProperties(cacheManager).customize(properties);
+            cacheConfig.secondLevelCacheMetrics(cacheManager).bindTo(meterRegistry);
+
+            Configuration configuration = new Configuration().addAnnotatedClass(Role.class)
+                    .addAnnotatedClass(Permission.class);
+            configuration.getProperties().putAll(properties);
+            configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+            configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, ddl);
+            sessionFactory = configuration.buildSessionFactory();
+
+            StaticListableBeanFactory listeners = new StaticListableBeanFactory();
+            bus = new CacheInvalidationBus(new JdbcTemplate(dataSource),
+                    listeners.getBeanProvider(CacheInvalidationListener.class), meterRegistry, nodeId);
+            invalidator = new SecondLevelCacheInvalidator(bus, sessionFactory, withReplica());
+            listeners.addBean("invalidator", invalidator);
+
+            EventListenerRegistry registry = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry().getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.POST_UPDATE, invalidator);
+            registry.appendListeners(EventType.POST_DELETE, invalidator);
+            registry.appendListeners(EventType.POST_COLLECTION_RECREATE, invalidator);
+            registry.appendListeners(EventType.POST_COLLECTION_UPDATE, invalidator);
+            registry.appendListeners(EventType.POST_COLLECTION_REMOVE, invalidator);
+        }
+
+        private static ReadReplicaProperties withReplica() {
+            ReadReplicaProperties properties = new ReadReplicaProperties();
+            properties.setEnabled(true);
+            properties.getNodes().add(new ReadReplicaProperties.Node());
+            properties.setMaxStaleness(MAX_STALENESS);
+            return properties;
+        }
+
+        Role loadRole(Integer id) {
+            return sessionFactory.fromTransaction(session -> {
+                Role role = session.find(Role.class, id);
+                role.getPermissions().size();
+                return role;
+            });
+        }
+
+        boolean cachesRole(Integer id) {
+            return sessionFactory.getCache().containsEntity(Role.class, id);
+        }
+
+        double hitRatio(String region) {
+            return meterRegistry.get("cache.l2.hit.ratio").tag("region", region).gauge().value();
+        }
+    }
+
+    private JdbcTemplate jdbcTemplate;
+    private Node nodeA;
+    private Node nodeB;
+    private Integer roleId;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:l2-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE invalidation_log (invalidation_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "cache_name VARCHAR(100) NOT NULL, cache_key VARCHAR(255) NOT NULL, version BIGINT NOT NULL, "
+                + "origin_node VARCHAR(64) NOT NULL, created_at TIMESTAMP NOT NULL)");
+        nodeA = new Node("node-a", dataSource, "create");
+        nodeB = new Node("node-b", dataSource, "none");
+
+        roleId = nodeA.sessionFactory.fromTransaction(session -> {
+            Permission read = new Permission("READ");
+            session.persist(read);
+            Role role = new Role("ANALISTA");
+            role.getPermissions().add(read);
+            session.persist(role);
+            return role.getId();
+        });
+        jdbcTemplate.update("DELETE FROM invalidation_log");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeB.sessionFactory.close();
+        nodeA.sessionFactory.close();
+    }
+
+    @Test
+    @DisplayName("Las lecturas repetidas deben servirse desde la caché y reflejarse en la métrica de aciertos")
+    void lecturasRepetidas_aciertanEnCache() {
+        nodeB.loadRole(roleId);
+        long selects = countingSelects(nodeB, () -> nodeB.loadRole(roleId));
+
+        assertThat(selects).isZero();
+        assertThat(nodeB.hitRatio("role")).isGreaterThan(0.0);
+        assertThat(nodeB.hitRatio("role.permissions")).isGreaterThan(0.0);
+        assertThat(nodeB.meterRegistry.get("cache.gets").tag("cache", "l2.permission").tag("result", "hit")
+                .functionCounter().count()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Una modificación en un nodo debe invalidar la entidad en la caché de los demás")
+    void modificacion_invalidaEnOtroNodo() {
+        nodeA.loadRole(roleId);
+        nodeB.loadRole(roleId);
+
+        nodeA.sessionFactory.inTransaction(session -> session.find(Role.class, roleId).setRoleName("OPERARIO"));
+
+        assertThat(nodeA.invalidator.pendingSessions()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT cache_key FROM invalidation_log", String.class))
+                .isEqualTo(Role.class.getName() + "#" + roleId);
+        assertThat(nodeB.loadRole(roleId).getRoleName()).isEqualTo("ANALISTA");
+
+        nodeB.bus.poll();
+
+        assertThat(nodeB.cachesRole(roleId)).isFalse();
+        assertThat(nodeB.loadRole(roleId).getRoleName()).isEqualTo("OPERARIO");
+    }
+
+    @Test
+    @DisplayName("Un cambio en los permisos de un rol debe invalidar la colección en los demás nodos")
+    void cambioDeColeccion_invalidaEnOtroNodo() {
+        nodeB.loadRole(roleId);
+
+        nodeA.sessionFactory.inTransaction(session -> {
+            Permission write = new Permission("WRITE");
+            session.persist(write);
+            session.find(Role.class, roleId).getPermissions().add(write);
+        });
+        assertThat(nodeB.loadRole(roleId).getPermissions()).hasSize(1);
+
+        nodeB.bus.poll();
+
+        assertThat(nodeB.loadRole(roleId).getPermissions()).extracting(Permission::getPermissionName)
+                .containsExactlyInAnyOrder("READ", "WRITE");
+    }
+
+    @Test
+    @DisplayName("Una transacción revertida no debe publicar invalidaciones")
+    void transaccionRevertida_noPublica() {
+        nodeA.loadRole(roleId);
+
+        Session session = nodeA.sessionFactory.openSession();
+        session.beginTransaction();
+        session.find(Role.class, roleId).setRoleName("OPERARIO");
+        session.flush();
+        session.getTransaction().rollback();
+        session.close();
+
+        assertThat(nodeA.invalidator.pendingSessions()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invalidation_log", Integer.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("Con réplicas, la entidad debe invalidarse de nuevo en todos los nodos pasado el margen")
+    void conReplicas_invalidaDeNuevoTrasElMargen() throws InterruptedException {
+        nodeB.loadRole(roleId);
+        nodeA.sessionFactory.inTransaction(session -> session.find(Role.class, roleId).setRoleName("OPERARIO"));
+        nodeB.bus.poll();
+
+        // Cargas que podrían venir de una réplica atrasada
+        nodeA.loadRole(roleId);
+        nodeB.loadRole(roleId);
+        nodeA.invalidator.evictDeferred();
+        nodeB.invalidator.evictDeferred();
+        assertThat(nodeA.cachesRole(roleId)).isTrue();
+        assertThat(nodeB.cachesRole(roleId)).isTrue();
+
+        Thread.sleep(MAX_STALENESS.toMillis() + 100);
+        nodeA.invalidator.evictDeferred();
+        nodeB.invalidator.evictDeferred();
+
+        assertThat(nodeA.cachesRole(roleId)).isFalse();
+        assertThat(nodeB.cachesRole(roleId)).isFalse();
+    }
+
+    private static long countingSelects(Node node, Runnable action) {
+        var statistics = node.sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
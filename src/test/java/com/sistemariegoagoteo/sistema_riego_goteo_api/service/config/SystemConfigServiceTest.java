@@ -0,0 +1,130 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.config.AgronomicConfigDTO;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.config.ReportConfigDTO;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.ConfigType;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.SystemConfig;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.config.SystemConfigRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para SystemConfigService y su copia en memoria.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("SystemConfigService - Tests Unitarios")
+class SystemConfigServiceTest {
+
+    @Mock
+    private SystemConfigRepository systemConfigRepository;
+    @Mock
+    private AuditService auditService;
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private SystemConfigService systemConfigService;
+    private List<SystemConfig> rows;
+
+    @BeforeEach
+    void setUp() {
+        systemConfigService = new SystemConfigService(systemConfigRepository, auditService, new ObjectMapper(),
+                invalidationBus);
+        rows = new ArrayList<>(List.of(
+                new SystemConfig("AGRONOMIC_EFF_RAIN_COEF", "0.75", ConfigType.FLOAT, null),
+                new SystemConfig("AGRONOMIC_MAX_IRRIG_HOURS", "10", ConfigType.INTEGER, null),
+                new SystemConfig("REP_RETENTION_DAYS", "45", ConfigType.INTEGER, null),
+                new SystemConfig(SystemConfigSnapshot.VERSION_KEY, "3", ConfigType.INTEGER, null)));
+        when(systemConfigRepository.findAll()).thenAnswer(inv -> List.copyOf(rows));
+    }
+
+    @Test
+    @DisplayName("Las lecturas deben resolverse desde la copia en memoria con una sola carga")
+    void getConfig_variasLecturas_unaSolaConsulta() {
+        AgronomicConfigDTO agronomic = systemConfigService.getAgronomicConfig();
+        ReportConfigDTO report = systemConfigService.getReportConfig();
+        systemConfigService.getAgronomicConfig();
+
+        assertThat(agronomic.getEffectiveRainCoefficient()).isEqualTo(0.75f);
+        assertThat(agronomic.getMaxIrrigationHoursPerDay()).isEqualTo(10);
+        assertThat(agronomic.getMinIrrigationIntervalHours()).isEqualTo(4); // valor por defecto
+        assertThat(report.getReportRetentionDays()).isEqualTo(45);
+        assertThat(systemConfigService.getSnapshot().getVersion()).isEqualTo(3L);
+        verify(systemConfigRepository, times(1)).findAll();
+        verify(systemConfigRepository, never()).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("Una actualización debe incrementar la versión una sola vez y recargar la copia")
+    void updateConfig_incrementaVersionYRecarga() {
+        systemConfigService.getSnapshot();
+        SystemConfig versionRow = rows.get(3);
+        when(systemConfigRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(systemConfigRepository.findForUpdate(SystemConfigSnapshot.VERSION_KEY)).thenReturn(Optional.of(versionRow));
+        when(systemConfigRepository.save(any(SystemConfig.class))).thenAnswer(inv -> {
+            SystemConfig saved = inv.getArgument(0);
+            rows.removeIf(r -> r.getConfigKey().equals(saved.getConfigKey()));
+            rows.add(saved);
+            return saved;
+        });
+
+        ReportConfigDTO dto = new ReportConfigDTO();
+        dto.setReportRetentionDays(90);
+        dto.setMaxReportDateRangeMonths(6);
+        dto.setDefaultReportFormat("EXCEL");
+        systemConfigService.updateReportConfig(dto, new User("Admin", "admin", "p", "a@test.com", new Role("ADMIN")));
+
+        assertThat(systemConfigService.getReportConfig().getReportRetentionDays()).isEqualTo(90);
+        assertThat(systemConfigService.getSnapshot().getVersion()).isGreaterThan(3L);
+        ArgumentCaptor<SystemConfig> captor = ArgumentCaptor.forClass(SystemConfig.class);
+        verify(systemConfigRepository, atLeastOnce()).save(captor.capture());
+        assertThat(captor.getAllValues()).extracting(SystemConfig::getConfigKey)
+                .contains(SystemConfigSnapshot.VERSION_KEY);
+        verify(invalidationBus, atLeastOnce()).publish(eq(SystemConfigService.CACHE_NAME), eq(CacheInvalidationBus.ALL_KEYS),
+                anyLong());
+    }
+
+    @Test
+    @DisplayName("reloadIfStale() debe recargar sólo si la versión persistida cambió")
+    void reloadIfStale_recargaSoloConVersionDistinta() {
+        systemConfigService.getSnapshot();
+        when(systemConfigRepository.findById(SystemConfigSnapshot.VERSION_KEY))
+                .thenReturn(Optional.of(new SystemConfig(SystemConfigSnapshot.VERSION_KEY, "3", ConfigType.INTEGER,
+                        null)));
+
+        systemConfigService.reloadIfStale();
+        verify(systemConfigRepository, times(1)).findAll();
+
+        rows.set(2, new SystemConfig("REP_RETENTION_DAYS", "60", ConfigType.INTEGER, null));
+        rows.set(3, new SystemConfig(SystemConfigSnapshot.VERSION_KEY, "4", ConfigType.INTEGER, null));
+        when(systemConfigRepository.findById(SystemConfigSnapshot.VERSION_KEY)).thenReturn(Optional.of(rows.get(3)));
+
+        systemConfigService.reloadIfStale();
+
+        verify(systemConfigRepository, times(2)).findAll();
+        assertThat(systemConfigService.getReportConfig().getReportRetentionDays()).isEqualTo(60);
+    }
+}
@@ -0,0 +1,99 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.SecondLevelCacheInvalidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para FarmGeocodingBackfill.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("FarmGeocodingBackfill - Tests Unitarios")
+class FarmGeocodingBackfillTest {
+
+    @Mock
+    private FarmRepository farmRepository;
+    @Mock
+    private GeocodingService geocodingService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private SecondLevelCacheInvalidator cacheInvalidator;
+
+    private FarmGeocodingBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        backfill = new FarmGeocodingBackfill(farmRepository, geocodingService, transactionTemplate, cacheInvalidator, 1000, 2);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(farmRepository.fillCoordinates(any(), any(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    @DisplayName("Debe recorrer las fincas pendientes por lotes y completar las resueltas")
+    void run_recorrePorLotesYCompleta() {
+        when(farmRepository.findMissingCoordinates(eq(0), any(Pageable.class)))
+                .thenReturn(List.of(new Object[] { 1, "Maipú" }, new Object[] { 3, "Luján" }));
+        when(farmRepository.findMissingCoordinates(eq(3), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[] { 7, "Desconocido" }));
+        when(geocodingService.getCoordinates("Maipú")).thenReturn(Optional.of(
+                new GeocodingService.Coordinates(new BigDecimal("-32.98"), new BigDecimal("-68.78"))));
+        when(geocodingService.getCoordinates("Luján")).thenReturn(Optional.of(
+                new GeocodingService.Coordinates(new BigDecimal("-33.03"), new BigDecimal("-68.87"))));
+        when(geocodingService.getCoordinates("Desconocido")).thenReturn(Optional.empty());
+
+        int filled = backfill.run();
+
+        assertThat(filled).isEqualTo(2);
+        verify(farmRepository).fillCoordinates(1, "Maipú", new BigDecimal("-32.98"), new BigDecimal("-68.78"));
+        verify(farmRepository).fillCoordinates(3, "Luján", new BigDecimal("-33.03"), new BigDecimal("-68.87"));
+        verify(farmRepository, never()).fillCoordinates(eq(7), any(), any(), any());
+        verify(cacheInvalidator).publishEviction(Farm.class, 1);
+        verify(cacheInvalidator).publishEviction(Farm.class, 3);
+        verify(farmRepository, never()).findMissingCoordinates(eq(7), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Si la ubicación cambió mientras se geocodificaba, no debe contarse ni invalidarse la finca")
+    void run_ubicacionCambiada_noCompleta() {
+        when(farmRepository.findMissingCoordinates(eq(0), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[] { 1, "Maipú" }));
+        when(geocodingService.getCoordinates("Maipú")).thenReturn(Optional.of(
+                new GeocodingService.Coordinates(new BigDecimal("-32.98"), new BigDecimal("-68.78"))));
+        when(farmRepository.fillCoordinates(eq(1), eq("Maipú"), any(), any())).thenReturn(0);
+
+        assertThat(backfill.run()).isZero();
+        verify(cacheInvalidator, never()).publishEviction(any(), any());
+    }
+
+    @Test
+    @DisplayName("Sin fincas pendientes no debe consultar al proveedor")
+    void run_sinPendientes_noConsulta() {
+        when(farmRepository.findMissingCoordinates(eq(0), any(Pageable.class))).thenReturn(List.of());
+
+        assertThat(backfill.run()).isZero();
+        verifyNoInteractions(geocodingService);
+    }
+}
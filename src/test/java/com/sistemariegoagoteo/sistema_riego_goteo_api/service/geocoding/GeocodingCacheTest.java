@@ -0,0 +1,81 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.cache.GeocodingCacheEntry;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.cache.GeocodingCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para GeocodingCache.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("GeocodingCache - Tests Unitarios")
+class GeocodingCacheTest {
+
+    @Mock
+    private GeocodingCacheRepository repository;
+
+    private GeocodingCache geocodingCache;
+
+    @BeforeEach
+    void setUp() {
+        geocodingCache = new GeocodingCache(repository, 100, 24);
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @DisplayName("normalize() debe ignorar mayúsculas, tildes y espacios repetidos")
+    void normalize_unificaVariantes() {
+        assertThat(GeocodingCache.normalize("  San Martín ,   Mendoza "))
+                .isEqualTo(GeocodingCache.normalize("san martin, MENDOZA"))
+                .isEqualTo("san martin, mendoza");
+    }
+
+    @Test
+    @DisplayName("Un resultado guardado debe servirse desde memoria sin consultar la tabla")
+    void store_luegoFind_sirveDesdeMemoria() {
+        geocodingCache.store("Maipú, Mendoza", Optional.of(
+                new GeocodingService.Coordinates(new BigDecimal("-32.98"), new BigDecimal("-68.78"))));
+
+        Optional<GeocodingCacheEntry> entry = geocodingCache.find("maipu, mendoza");
+
+        assertThat(entry).isPresent();
+        assertThat(entry.get().getLatitude()).isEqualByComparingTo("-32.98");
+        verify(repository).save(any(GeocodingCacheEntry.class));
+        verify(repository, never()).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("Un resultado negativo vencido debe tratarse como ausente")
+    void find_negativoVencido_retornaVacio() {
+        when(repository.findById("lugar inexistente")).thenReturn(Optional.of(new GeocodingCacheEntry(
+                "lugar inexistente", false, null, null, LocalDateTime.now().minusHours(25))));
+
+        assertThat(geocodingCache.find("Lugar inexistente")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Un resultado negativo vigente debe servirse como encontrado en caché")
+    void find_negativoVigente_retornaEntrada() {
+        geocodingCache.store("Lugar inexistente", Optional.empty());
+
+        assertThat(geocodingCache.find("Lugar inexistente")).hasValueSatisfying(
+                entry -> assertThat(entry.isFound()).isFalse());
+    }
+}
@@ -0,0 +1,102 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.http;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests unitarios para ProviderGuard (bulkhead y circuit breaker).
+ */
+@DisplayName("ProviderGuard - Tests Unitarios")
+class ProviderGuardTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProviderGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        guard = new ProviderGuard("weather", 1, 2, 50, meterRegistry);
+    }
+
+    private void fail() {
+        try {
+            guard.call(() -> {
+                throw new IllegalStateException("upstream caído");
+            });
+        } catch (IllegalStateException expected) {
+            // el fallo se propaga tal cual
+        }
+    }
+
+    @Test
+    @DisplayName("Tras los fallos consecutivos configurados el circuito debe abrirse y rechazar sin llamar")
+    void fallosConsecutivos_abrenElCircuito() {
+        fail();
+        fail();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(guard.getState()).isEqualTo(ProviderGuard.State.OPEN);
+        assertThatThrownBy(() -> guard.call(calls::incrementAndGet))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(calls.get()).isZero();
+        assertThat(meterRegistry.get("http.client.rejected").tag("reason", "circuit-open").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Pasado el tiempo abierto, una llamada exitosa de prueba debe cerrar el circuito")
+    void circuitoAbierto_pruebaExitosa_cierra() throws InterruptedException {
+        fail();
+        fail();
+        Thread.sleep(80);
+
+        assertThat(guard.call(() -> "ok")).isEqualTo("ok");
+        assertThat(guard.getState()).isEqualTo(ProviderGuard.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Una prueba fallida debe volver a abrir el circuito")
+    void circuitoSemiabierto_pruebaFallida_reabre() throws InterruptedException {
+        fail();
+        fail();
+        Thread.sleep(80);
+
+        fail();
+
+        assertThat(guard.getState()).isEqualTo(ProviderGuard.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("El bulkhead debe rechazar llamadas por encima del límite de concurrencia")
+    void bulkheadLleno_rechaza() throws Exception {
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> guard.call(() -> {
+            inside.countDown();
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        assertThat(inside.await(2, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> guard.call(() -> "otra")).isInstanceOf(ServiceUnavailableException.class);
+
+        release.countDown();
+        holder.join(2000);
+        assertThat(guard.call(() -> "otra")).isEqualTo("otra");
+    }
+}
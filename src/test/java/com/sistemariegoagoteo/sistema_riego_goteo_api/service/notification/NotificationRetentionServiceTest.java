@@ -0,0 +1,149 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.config.NotificationRetentionProperties;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.notification.NotificationType;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler.SchedulerLeases;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests de la purga de notificaciones contra una base H2.
+ */
+@DisplayName("NotificationRetentionService - Tests de Integración (H2)")
+class NotificationRetentionServiceTest {
+
+    private static final long DAY_MS = Duration.ofDays(1).toMillis();
+
+    private JdbcTemplate jdbcTemplate;
+    private UnreadNotificationCounter unreadCounter;
+    private NotificationRetentionProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private SchedulerLeases schedulerLeases;
+    private NotificationRetentionService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:retention-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE app_notification (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "message VARCHAR(500) NOT NULL, type VARCHAR(20) NOT NULL, is_read BOOLEAN NOT NULL, "
+                + "destinatario_id BIGINT NOT NULL, created_at TIMESTAMP NOT NULL, entity_type VARCHAR(50), "
+                + "entity_id BIGINT, action_url VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE app_notification_archive (id BIGINT PRIMARY KEY, "
+                + "message VARCHAR(500) NOT NULL, type VARCHAR(20) NOT NULL, is_read BOOLEAN NOT NULL, "
+                + "destinatario_id BIGINT NOT NULL, created_at TIMESTAMP NOT NULL, entity_type VARCHAR(50), "
+                + "entity_id BIGINT, action_url VARCHAR(255), archived_at TIMESTAMP NOT NULL)");
+
+        unreadCounter = mock(UnreadNotificationCounter.class);
+        properties = new NotificationRetentionProperties();
+        properties.setChunkSize(2);
+        properties.setPauseBetweenChunks(Duration.ZERO);
+        meterRegistry = new SimpleMeterRegistry();
+        schedulerLeases = mock(SchedulerLeases.class);
+        when(schedulerLeases.tryAcquire(eq(NotificationRetentionService.LEASE_JOB), any())).thenReturn(true);
+        service = new NotificationRetentionService(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), unreadCounter, properties,
+                meterRegistry, schedulerLeases);
+    }
+
+    private void insert(NotificationType type, int ageDays, int count) {
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update("INSERT INTO app_notification (message, type, is_read, destinatario_id, created_at) "
+                    + "VALUES ('m', ?, FALSE, 1, ?)", type.name(),
+                    new Timestamp(System.currentTimeMillis() - ageDays * DAY_MS));
+        }
+    }
+
+    private long count(String table, String type) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE type = ?", Long.class, type);
+    }
+
+    @Test
+    @DisplayName("Debe archivar en lotes sólo las notificaciones que superan el TTL de su tipo")
+    void purge_respetaTtlPorTipoYArchiva() {
+        insert(NotificationType.INFO, 40, 5);
+        insert(NotificationType.INFO, 5, 1);
+        insert(NotificationType.WARNING, 40, 3);
+        insert(NotificationType.WARNING, 100, 1);
+
+        Map<NotificationType, Integer> purged = service.purge();
+
+        assertThat(purged).containsEntry(NotificationType.INFO, 5).containsEntry(NotificationType.WARNING, 1);
+        assertThat(count("app_notification", "INFO")).isEqualTo(1L);
+        assertThat(count("app_notification", "WARNING")).isEqualTo(3L);
+        assertThat(count("app_notification_archive", "INFO")).isEqualTo(5L);
+        assertThat(count("app_notification_archive", "WARNING")).isEqualTo(1L);
+        assertThat(meterRegistry.get("notifications.rows").gauge().value()).isEqualTo(4.0);
+        assertThat(meterRegistry.get("notifications.retention.duration").timer().count()).isEqualTo(1L);
+        verify(unreadCounter).reconcile();
+    }
+
+    @Test
+    @DisplayName("Sin archivo debe borrar directamente y no reconciliar si no hubo cambios")
+    void purge_sinArchivo_borra() {
+        properties.setArchive(false);
+        insert(NotificationType.SUCCESS, 40, 3);
+
+        service.purge();
+
+        assertThat(count("app_notification", "SUCCESS")).isZero();
+        assertThat(count("app_notification_archive", "SUCCESS")).isZero();
+
+        service.purge();
+        verify(unreadCounter).reconcile();
+    }
+
+    @Test
+    @DisplayName("Un tipo sin TTL configurado no se purga")
+    void purge_tipoSinTtl_seConserva() {
+        properties.getTtl().remove(NotificationType.INFO);
+        insert(NotificationType.INFO, 400, 2);
+
+        service.purge();
+
+        assertThat(count("app_notification", "INFO")).isEqualTo(2L);
+        verify(unreadCounter, never()).reconcile();
+    }
+
+    @Test
+    @DisplayName("La purga programada no debe ejecutarse si otro nodo tiene la concesión")
+    void scheduledPurge_sinConcesion_noPurga() {
+        when(schedulerLeases.tryAcquire(eq(NotificationRetentionService.LEASE_JOB), any())).thenReturn(false);
+        insert(NotificationType.INFO, 400, 2);
+
+        service.scheduledPurge();
+
+        assertThat(count("app_notification", "INFO")).isEqualTo(2L);
+        verify(unreadCounter, never()).reconcile();
+    }
+
+    @Test
+    @DisplayName("La purga programada debe ejecutarse en el nodo con la concesión")
+    void scheduledPurge_conConcesion_purga() {
+        insert(NotificationType.INFO, 400, 2);
+
+        service.scheduledPurge();
+
+        assertThat(count("app_notification", "INFO")).isZero();
+    }
+}
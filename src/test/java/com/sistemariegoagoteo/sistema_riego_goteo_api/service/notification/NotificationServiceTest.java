@@ -40,6 +40,9 @@ class NotificationServiceTest {
     @Mock
     private NotificationRepository notificationRepository;
 
+    @Mock
+    private UnreadNotificationCounter unreadCounter;
+
     @InjectMocks
     private NotificationService notificationService;
 
@@ -120,6 +123,7 @@ class NotificationServiceTest {
 
         assertThat(testNotification.isRead()).isTrue();
         verify(notificationRepository, times(1)).save(testNotification);
+        verify(unreadCounter).decrement(1L);
     }
 
     @Test
@@ -144,13 +148,26 @@ class NotificationServiceTest {
     }
 
     @Test
-    @DisplayName("getUnreadNotificationsCount() debe retornar el conteo para el usuario")
+    @DisplayName("getUnreadNotificationsCount() debe retornar el conteo cacheado sin consultar las notificaciones")
     void getUnreadCountForUser_usuarioValido_retornaConteo() {
-        when(notificationRepository.countByDestinatarioAndIsReadFalse(testUser)).thenReturn(5L);
+        when(unreadCounter.get(1L)).thenReturn(5L);
 
         long count = notificationService.getUnreadCountForUser(testUser);
 
         assertThat(count).isEqualTo(5L);
-        verify(notificationRepository, times(1)).countByDestinatarioAndIsReadFalse(testUser);
+        verify(unreadCounter, times(1)).get(1L);
+        verify(notificationRepository, never()).countByDestinatarioAndIsReadFalse(any());
+    }
+
+    @Test
+    @DisplayName("markAsRead() sólo debe decrementar el contador si la notificación no estaba leída")
+    void markAsRead_yaLeida_noDecrementa() {
+        testNotification.setRead(true);
+        when(notificationRepository.findById(1L)).thenReturn(Optional.of(testNotification));
+        when(notificationRepository.save(any(AppNotification.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        notificationService.markAsRead(1L, testUser);
+
+        verify(unreadCounter, never()).decrement(any());
     }
 }
@@ -0,0 +1,136 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.notification;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.scheduler.SchedulerLeases;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests del contador de no leídas contra una base H2.
+ */
+@DisplayName("UnreadNotificationCounter - Tests de Integración (H2)")
+class UnreadNotificationCounterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CacheInvalidationBus invalidationBus;
+    private SchedulerLeases schedulerLeases;
+    private UnreadNotificationCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:unread-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE app_notification (notification_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "destinatario_id BIGINT NOT NULL, is_read BOOLEAN NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE notification_unread_counter (user_id BIGINT PRIMARY KEY, "
+                + "unread_count BIGINT NOT NULL, updated_at TIMESTAMP NOT NULL)");
+        insertNotifications(1L, 3, false);
+        insertNotifications(1L, 2, true);
+
+        invalidationBus = mock(CacheInvalidationBus.class);
+        schedulerLeases = mock(SchedulerLeases.class);
+        counter = new UnreadNotificationCounter(jdbcTemplate, invalidationBus, schedulerLeases);
+    }
+
+    private void insertNotifications(Long userId, int count, boolean read) {
+        for (int i = 0; i < count; i++) {
+            jdbcTemplate.update("INSERT INTO app_notification (destinatario_id, is_read) VALUES (?, ?)", userId, read);
+        }
+    }
+
+    @Test
+    @DisplayName("La primera lectura debe inicializar el contador desde app_notification")
+    void get_primeraLectura_inicializaDesdeLaTabla() {
+        assertThat(counter.get(1L)).isEqualTo(3L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT unread_count FROM notification_unread_counter WHERE user_id = 1", Long.class)).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("Las lecturas siguientes deben responder desde memoria")
+    void get_segundaLectura_noConsultaLaBase() {
+        counter.get(1L);
+        jdbcTemplate.update("UPDATE notification_unread_counter SET unread_count = 99");
+
+        assertThat(counter.get(1L)).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("Incrementar, decrementar y reiniciar deben persistirse y publicar la invalidación")
+    void add_decrement_reset_persistenYPublican() {
+        counter.get(1L);
+
+        counter.add(List.of(1L), 2);
+        assertThat(counter.get(1L)).isEqualTo(5L);
+
+        counter.decrement(1L);
+        assertThat(counter.get(1L)).isEqualTo(4L);
+
+        counter.reset(1L);
+        counter.decrement(1L);
+        assertThat(counter.get(1L)).isZero();
+        verify(invalidationBus, times(4)).publishAll(UnreadNotificationCounter.CACHE_NAME, List.of("1"));
+    }
+
+    @Test
+    @DisplayName("Un aviso a varios usuarios debe publicar sus invalidaciones en una sola llamada")
+    void add_variosUsuarios_unaPublicacion() {
+        counter.get(1L);
+        counter.get(2L);
+
+        counter.add(List.of(1L, 2L, 3L), 1);
+
+        verify(invalidationBus).publishAll(UnreadNotificationCounter.CACHE_NAME, List.of("1", "2", "3"));
+        verifyNoMoreInteractions(invalidationBus);
+        assertThat(counter.get(1L)).isEqualTo(4L);
+        assertThat(counter.get(2L)).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("La reconciliación debe corregir la deriva contra app_notification")
+    void reconcile_corrigeDeriva() {
+        counter.get(1L);
+        counter.add(List.of(1L), 10);
+        insertNotifications(1L, 1, false);
+
+        counter.reconcile();
+
+        assertThat(counter.get(1L)).isEqualTo(4L);
+        verify(invalidationBus).publish(UnreadNotificationCounter.CACHE_NAME, CacheInvalidationBus.ALL_KEYS);
+    }
+
+    @Test
+    @DisplayName("La reconciliación programada sólo debe ejecutarse en el nodo con la concesión")
+    void scheduledReconcile_sinConcesion_noActualiza() {
+        counter.get(1L);
+        counter.add(List.of(1L), 10);
+        when(schedulerLeases.tryAcquire(eq(UnreadNotificationCounter.LEASE_JOB), any())).thenReturn(false);
+
+        counter.scheduledReconcile();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT unread_count FROM notification_unread_counter WHERE user_id = 1", Long.class)).isEqualTo(13L);
+
+        when(schedulerLeases.tryAcquire(eq(UnreadNotificationCounter.LEASE_JOB), any())).thenReturn(true);
+        counter.scheduledReconcile();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT unread_count FROM notification_unread_counter WHERE user_id = 1", Long.class)).isEqualTo(3L);
+    }
+}
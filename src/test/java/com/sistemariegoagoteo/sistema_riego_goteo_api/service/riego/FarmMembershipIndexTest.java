@@ -0,0 +1,113 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.user.UserRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.cache.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitarios para FarmMembershipIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FarmMembershipIndex - Tests Unitarios")
+class FarmMembershipIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @InjectMocks
+    private FarmMembershipIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findAllFarmMemberships()).thenReturn(List.of(
+                new Object[] { 1L, 10 },
+                new Object[] { 2L, 10 },
+                new Object[] { 2L, 20 }));
+        index.rebuild();
+    }
+
+    @Test
+    @DisplayName("rebuild() debe cargar ambas direcciones del índice")
+    void rebuild_cargaIndiceBidireccional() {
+        assertThat(index.isLoaded()).isTrue();
+        assertThat(index.isMember(2L, 20)).isTrue();
+        assertThat(index.isMember(1L, 20)).isFalse();
+        assertThat(index.farmsOf(2L)).containsExactlyInAnyOrder(10, 20);
+        assertThat(index.usersOf(10)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.farmsOf(99L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Las altas y bajas sin transacción activa deben aplicarse de inmediato")
+    void asignarYDesasignar_sinTransaccion_actualizaIndice() {
+        index.assignAfterCommit(1L, 20);
+        index.unassignAfterCommit(2L, 10);
+
+        assertThat(index.usersOf(20)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.usersOf(10)).containsExactly(1L);
+        assertThat(index.farmsOf(2L)).containsExactly(20);
+    }
+
+    @Test
+    @DisplayName("Eliminar una finca o un usuario debe quitar todos sus vínculos")
+    void eliminarFincaYUsuario_quitaVinculos() {
+        index.removeFarmAfterCommit(10);
+
+        assertThat(index.usersOf(10)).isEmpty();
+        assertThat(index.farmsOf(1L)).isEmpty();
+        assertThat(index.farmsOf(2L)).containsExactly(20);
+
+        index.removeUserAfterCommit(2L);
+
+        assertThat(index.usersOf(20)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Una baja confirmada mientras se reconstruye el índice no debe perderse")
+    void rebuild_bajaDuranteLaLectura_seConserva() {
+        // La lectura ve el vínculo 1-10; la baja se confirma antes del intercambio
+        when(userRepository.findAllFarmMemberships()).thenAnswer(inv -> {
+            List<Object[]> snapshot = List.of(new Object[] { 1L, 10 }, new Object[] { 2L, 10 });
+            index.unassignAfterCommit(1L, 10);
+            return snapshot;
+        });
+
+        index.rebuild();
+
+        assertThat(index.isMember(1L, 10)).isFalse();
+        assertThat(index.usersOf(10)).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Una reconstrucción lenta no debe pisar el resultado de otra iniciada después")
+    void rebuild_lecturaAntigua_noPisaUnaPosterior() {
+        AtomicBoolean first = new AtomicBoolean(true);
+        when(userRepository.findAllFarmMemberships()).thenAnswer(inv -> {
+            if (first.getAndSet(false)) {
+                // Mientras la primera lectura está en curso, llega una invalidación
+                index.onInvalidation("user:1", 0);
+                return List.<Object[]>of(new Object[] { 1L, 10 });
+            }
+            return List.<Object[]>of(new Object[] { 3L, 30 });
+        });
+
+        index.rebuild();
+
+        assertThat(index.isMember(1L, 10)).isFalse();
+        assertThat(index.isMember(3L, 30)).isTrue();
+    }
+}
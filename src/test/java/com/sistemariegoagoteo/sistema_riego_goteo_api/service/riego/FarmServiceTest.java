@@ -7,11 +7,13 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding.FarmGeocodingBackfill;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.geocoding.GeocodingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -20,10 +22,13 @@ import org.mockito.quality.Strictness;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -45,6 +50,12 @@ class FarmServiceTest {
     private AuditService auditService;
     @Mock
     private GeocodingService geocodingService;
+    @Mock
+    private FarmMembershipIndex farmMembershipIndex;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private FarmGeocodingBackfill farmGeocodingBackfill;
 
     @InjectMocks
     private FarmService farmService;
@@ -56,6 +67,9 @@ class FarmServiceTest {
 
     @BeforeEach
     void setUp() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
         Role adminRole = new Role("ADMIN");
         adminRole.setId(1);
         adminUser = new User("Admin", "admin", "pass", "admin@test.com", adminRole);
@@ -64,6 +78,7 @@ class FarmServiceTest {
         Role operarioRole = new Role("OPERARIO");
         operarioRole.setId(3);
         operarioUser = new User("Operario", "operario1", "pass", "op@test.com", operarioRole);
+        operarioUser.setId(2L);
 
         testFarm = new Farm();
         testFarm.setId(1);
@@ -111,18 +126,39 @@ class FarmServiceTest {
     }
 
     @Test
-    @DisplayName("createFarm() debe usar geocodificación si no se proveen coordenadas")
+    @DisplayName("createFarm() debe usar la caché de geocodificación si no se proveen coordenadas")
     void createFarm_sinCoordenadas_intentaGeocodificar() {
         mockSecurityContext(adminUser);
         farmRequest.setLatitude(null);
         farmRequest.setLongitude(null);
-        when(geocodingService.getCoordinates(anyString())).thenReturn(Optional.empty());
+        when(geocodingService.getCachedCoordinates(anyString())).thenReturn(Optional.empty());
         when(farmRepository.save(any(Farm.class))).thenReturn(testFarm);
         doNothing().when(auditService).logChange(any(), any(), any(), any(), any(), any());
 
         farmService.createFarm(farmRequest);
 
-        verify(geocodingService, times(1)).getCoordinates(anyString());
+        verify(geocodingService, times(1)).getCachedCoordinates(anyString());
+        verify(geocodingService, never()).getCoordinates(anyString());
+        verify(farmGeocodingBackfill).requestAfterCommit();
+    }
+
+    @Test
+    @DisplayName("createFarm() debe consultar la geocodificación antes de abrir la transacción")
+    void createFarm_sinCoordenadas_geocodificaFueraDeLaTransaccion() {
+        mockSecurityContext(adminUser);
+        farmRequest.setLatitude(null);
+        farmRequest.setLongitude(null);
+        when(geocodingService.getCachedCoordinates(anyString())).thenReturn(Optional.of(
+                new GeocodingService.Coordinates(new BigDecimal("-29.9"), new BigDecimal("-71.25"))));
+        when(farmRepository.save(any(Farm.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Farm result = farmService.createFarm(farmRequest);
+
+        InOrder inOrder = inOrder(geocodingService, transactionTemplate);
+        inOrder.verify(geocodingService).getCachedCoordinates(anyString());
+        inOrder.verify(transactionTemplate).execute(any());
+        assertThat(result.getLatitude()).isEqualByComparingTo("-29.9");
+        verify(farmGeocodingBackfill, never()).requestAfterCommit();
     }
 
     // ===== TESTS DE getFarmById() =====
@@ -189,4 +225,18 @@ class FarmServiceTest {
         verify(farmRepository, times(1)).findFarmsByUsername("operario1");
         verify(farmRepository, never()).findAll();
     }
+
+    @Test
+    @DisplayName("getAllFarms() debe resolver las fincas del operario desde el índice cuando está cargado")
+    void getAllFarms_rolOperarioConIndice_noConsultaTablaDeUnion() {
+        mockSecurityContext(operarioUser);
+        when(farmMembershipIndex.isLoaded()).thenReturn(true);
+        when(farmMembershipIndex.farmsOf(operarioUser.getId())).thenReturn(Set.of(1));
+        when(farmRepository.findAllById(Set.of(1))).thenReturn(List.of(testFarm));
+
+        List<Farm> result = farmService.getAllFarms();
+
+        assertThat(result).containsExactly(testFarm);
+        verify(farmRepository, never()).findFarmsByUsername(anyString());
+    }
 }
@@ -8,7 +8,6 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Sector;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.HumiditySensorRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.SectorRepository;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,8 +23,6 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,8 +32,6 @@ class HumiditySensorServiceTest {
     private HumiditySensorRepository humiditySensorRepository;
     @Mock
     private SectorRepository sectorRepository;
-    @Mock
-    private AuditService auditService;
 
     @InjectMocks
     private HumiditySensorService humiditySensorService;
@@ -91,8 +86,6 @@ class HumiditySensorServiceTest {
 
         assertEquals(2, result.getId());
         assertEquals("SONDA", result.getSensorType());
-        verify(auditService).logChange(any(User.class), eq("CREATE"), eq("HumiditySensor"), eq("sensorType"), isNull(),
-                eq("SONDA"));
     }
 
     @Test
@@ -108,8 +101,6 @@ class HumiditySensorServiceTest {
         HumiditySensor result = humiditySensorService.updateHumiditySensor(1, request);
 
         assertEquals("SONDA", result.getSensorType());
-        verify(auditService, times(1)).logChange(any(User.class), eq("UPDATE"), eq("HumiditySensor"), anyString(),
-                anyString(), anyString());
     }
 
     @Test
@@ -119,7 +110,5 @@ class HumiditySensorServiceTest {
         humiditySensorService.deleteHumiditySensor(1);
 
         verify(humiditySensorRepository).delete(sensor);
-        verify(auditService).logChange(any(User.class), eq("DELETE"), eq("HumiditySensor"), eq("id"), eq("1"),
-                isNull());
     }
 }
@@ -1,6 +1,7 @@
 package com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.IrrigationRequest;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.IrrigationRecordedEvent;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.exceptions.ResourceNotFoundException;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Irrigation;
@@ -22,6 +23,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -55,6 +57,8 @@ class IrrigationServiceTest {
     private AuditService auditService;
     @Mock
     private FarmRepository farmRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private IrrigationService irrigationService;
@@ -135,6 +139,7 @@ class IrrigationServiceTest {
         // Verificar agua: 5 m³/h * 2h * 10 hL/m³ = 100 hL
         assertThat(result.getWaterAmount()).isEqualByComparingTo(new BigDecimal("100.00"));
         verify(irrigationRepository, times(1)).save(any(Irrigation.class));
+        verify(eventPublisher).publishEvent(any(IrrigationRecordedEvent.class));
     }
 
     @Test
@@ -4,15 +4,16 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.PrecipitationReq
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Precipitation;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.PrecipitationSource;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.PrecipitationRepository;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.config.AgronomicConfigDTO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -21,12 +22,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,8 +38,6 @@ class PrecipitationServiceTest {
     @Mock
     private FarmRepository farmRepository;
     @Mock
-    private AuditService auditService;
-    @Mock
     private SystemConfigService systemConfigService;
 
     @InjectMocks
@@ -94,9 +93,7 @@ class PrecipitationServiceTest {
         assertEquals(new BigDecimal("15.50"), result.getMmRain());
         // (15.5 - 5) * 0.75 = 7.875 -> 7.88
         assertEquals(new BigDecimal("7.88"), result.getMmEffectiveRain());
-
-        verify(auditService).logChange(any(User.class), eq("CREATE"), eq("Precipitation"), eq("mmRain"), isNull(),
-                eq("15.50"));
+        verify(precipitationRepository).deleteObservedRain(1, LocalDate.of(2026, 2, 28));
     }
 
     @Test
@@ -129,8 +126,6 @@ class PrecipitationServiceTest {
 
         assertEquals(new BigDecimal("12.00"), result.getMmRain());
         assertEquals(new BigDecimal("5.25"), result.getMmEffectiveRain()); // (12-5)*0.75
-        verify(auditService).logChange(any(User.class), eq("UPDATE"), eq("Precipitation"), eq("mmRain"), eq("10.00"),
-                eq("12.00"));
     }
 
     @Test
@@ -140,6 +135,45 @@ class PrecipitationServiceTest {
         precipitationService.deletePrecipitation(1);
 
         verify(precipitationRepository).delete(precipitation);
-        verify(auditService).logChange(any(User.class), eq("DELETE"), eq("Precipitation"), eq("id"), eq("1"), isNull());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void addObservedRain_SumsAutomaticRowsAndSkipsManualDays() {
+        Farm other = new Farm();
+        other.setId(2);
+        Precipitation automatic = new Precipitation();
+        automatic.setFarm(other);
+        automatic.setPrecipitationDate(LocalDate.of(2026, 2, 27));
+        automatic.setMmRain(new BigDecimal("4.00"));
+        automatic.setSource(PrecipitationSource.WEATHER_API);
+        // precipitation (finca 1, 27/02) es una carga manual anterior: source null;
+        // duplicated es lluvia observada que se guardó a la vez que ella
+        Precipitation duplicated = new Precipitation();
+        duplicated.setFarm(farm);
+        duplicated.setPrecipitationDate(LocalDate.of(2026, 2, 27));
+        duplicated.setMmRain(new BigDecimal("9.00"));
+        duplicated.setSource(PrecipitationSource.WEATHER_API);
+        when(precipitationRepository.findByFarmIdsAndDates(any(), any()))
+                .thenReturn(List.of(precipitation, automatic, duplicated));
+        when(farmRepository.getReferenceById(1)).thenReturn(farm);
+        when(systemConfigService.getAgronomicConfig()).thenReturn(agConfig);
+
+        int saved = precipitationService.addObservedRain(Map.of(
+                new PrecipitationService.FarmDay(1, LocalDate.of(2026, 2, 27)), new BigDecimal("2.00"),
+                new PrecipitationService.FarmDay(2, LocalDate.of(2026, 2, 27)), new BigDecimal("3.00"),
+                new PrecipitationService.FarmDay(1, LocalDate.of(2026, 2, 28)), new BigDecimal("1.50")));
+
+        assertEquals(2, saved);
+        ArgumentCaptor<List<Precipitation>> captor = ArgumentCaptor.forClass(List.class);
+        verify(precipitationRepository).saveAll(captor.capture());
+        assertEquals(new BigDecimal("7.00"), automatic.getMmRain());
+        assertEquals(new BigDecimal("1.50"), automatic.getMmEffectiveRain()); // (7 - 5) * 0.75
+        Precipitation created = captor.getValue().stream().filter(p -> p != automatic).findFirst().orElseThrow();
+        assertEquals(LocalDate.of(2026, 2, 28), created.getPrecipitationDate());
+        assertEquals(PrecipitationSource.WEATHER_API, created.getSource());
+        assertEquals(new BigDecimal("1.50"), created.getMmRain());
+        assertEquals(new BigDecimal("10.00"), precipitation.getMmRain());
+        verify(precipitationRepository).deleteAll(List.of(duplicated));
     }
 }
@@ -10,7 +10,6 @@ import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationEquipmentRepository;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.SectorRepository;
-import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -47,8 +46,6 @@ class SectorServiceTest {
     private FarmRepository farmRepository;
     @Mock
     private IrrigationEquipmentRepository irrigationEquipmentRepository;
-    @Mock
-    private AuditService auditService;
 
     @InjectMocks
     private SectorService sectorService;
@@ -104,7 +101,6 @@ class SectorServiceTest {
         when(sectorRepository.findByNameAndFarm(anyString(), any(Farm.class))).thenReturn(Optional.empty());
         when(irrigationEquipmentRepository.findById(10)).thenReturn(Optional.of(testEquipment));
         when(sectorRepository.save(any(Sector.class))).thenReturn(testSector);
-        doNothing().when(auditService).logChange(any(), any(), any(), any(), any(), any());
 
         Sector result = sectorService.createSector(1, sectorRequest);
 
@@ -181,14 +177,12 @@ class SectorServiceTest {
     // ===== TESTS DE deleteSector() =====
 
     @Test
-    @DisplayName("deleteSector() debe eliminar el sector y registrar auditoría")
-    void deleteSector_sectorExistente_eliminaYRegistraAuditoria() {
+    @DisplayName("deleteSector() debe eliminar el sector")
+    void deleteSector_sectorExistente_elimina() {
         when(sectorRepository.findByIdAndFarm_Id(100, 1)).thenReturn(Optional.of(testSector));
-        doNothing().when(auditService).logChange(any(), any(), any(), any(), any(), any());
 
         sectorService.deleteSector(1, 100);
 
         verify(sectorRepository, times(1)).delete(testSector);
-        verify(auditService, times(1)).logChange(any(), eq("DELETE"), any(), any(), any(), any());
     }
 }
@@ -0,0 +1,309 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.riego.IrrigationRequest;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.IrrigationRecordedEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.event.WaterUsageAnomalyEvent;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.EquipmentUsageStats;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Irrigation;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.IrrigationEquipment;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Sector;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.Role;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.user.User;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.EquipmentUsageStatsRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.FarmRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationEquipmentRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.IrrigationRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.PrecipitationRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.repository.riego.SectorRepository;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.audit.AuditService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para WaterUsageAnomalyService.
+ * Verifica las estadísticas incrementales y la detección de consumos anómalos.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("WaterUsageAnomalyService - Tests Unitarios")
+class WaterUsageAnomalyServiceTest {
+
+    @Mock
+    private EquipmentUsageStatsRepository statsRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private IrrigationRepository irrigationRepository;
+    @Mock
+    private SectorRepository sectorRepository;
+    @Mock
+    private IrrigationEquipmentRepository equipmentRepository;
+
+    private WaterUsageAnomalyService anomalyService;
+    private IrrigationService irrigationService;
+
+    @BeforeEach
+    void setUp() {
+        when(statsRepository.findById(anyInt())).thenReturn(Optional.empty());
+        when(statsRepository.findForUpdate(anyInt())).thenReturn(Optional.empty());
+        doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        anomalyService = new WaterUsageAnomalyService(statsRepository, eventPublisher, transactionTemplate);
+
+        // IrrigationService real: sus eventos llegan al detector como tras el commit
+        ApplicationEventPublisher irrigationEvents = event -> {
+            if (event instanceof IrrigationRecordedEvent recorded) {
+                anomalyService.onIrrigationRecorded(recorded);
+            }
+        };
+        irrigationService = new IrrigationService(irrigationRepository, sectorRepository, equipmentRepository,
+                mock(AuditService.class), mock(FarmRepository.class), mock(PrecipitationRepository.class),
+                irrigationEvents);
+
+        Farm farm = new Farm();
+        farm.setId(1);
+        Sector sector = new Sector();
+        sector.setId(100);
+        sector.setFarm(farm);
+        IrrigationEquipment equipment = new IrrigationEquipment();
+        equipment.setId(10);
+        equipment.setName("Bomba");
+        equipment.setMeasuredFlow(new BigDecimal("5.00")); // 5 m³/h = 50 hL/h nominales
+        equipment.setHasFlowMeter(true);
+        when(sectorRepository.findById(100)).thenReturn(Optional.of(sector));
+        when(equipmentRepository.findById(10)).thenReturn(Optional.of(equipment));
+        when(irrigationRepository.save(any(Irrigation.class))).thenAnswer(inv -> {
+            Irrigation saved = inv.getArgument(0);
+            saved.setId(1000);
+            return saved;
+        });
+
+        User operator = new User("Operario", "operario", "pass", "op@test.com", new Role("OPERARIO"));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(operator, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Registra un riego de {@code minutes} minutos a través de IrrigationService,
+     * con la lectura de caudalímetro indicada (o sin ella).
+     */
+    private void irrigate(int minutes, String meteredWaterAmount) {
+        IrrigationRequest request = new IrrigationRequest();
+        request.setSectorId(100);
+        request.setEquipmentId(10);
+        request.setStartDateTime(LocalDateTime.of(2026, 3, 1, 8, 0));
+        request.setEndDateTime(LocalDateTime.of(2026, 3, 1, 8, 0).plusMinutes(minutes));
+        request.setMeteredWaterAmount(meteredWaterAmount == null ? null : new BigDecimal(meteredWaterAmount));
+        irrigationService.createIrrigation(request);
+    }
+
+    private void feedNormalSamples(int equipmentId, int count) {
+        for (int i = 0; i < count; i++) {
+            // Consumo estable alrededor de 50 hL/h con pequeña variación
+            anomalyService.recordSample(equipmentId, 1, "Bomba", 50.0 + (i % 3 - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("RunningStats debe calcular media y varianza igual que el cálculo por lotes")
+    void runningStats_welford_coincideConCalculoPorLotes() {
+        double[] values = { 10, 12, 9, 11, 13, 8 };
+        WaterUsageAnomalyService.RunningStats stats = new WaterUsageAnomalyService.RunningStats();
+        for (double v : values) {
+            stats.add(v, 0.2);
+        }
+
+        double mean = 63.0 / 6;
+        double variance = 0;
+        for (double v : values) {
+            variance += (v - mean) * (v - mean);
+        }
+        variance /= values.length - 1;
+
+        assertThat(stats.count).isEqualTo(6);
+        assertThat(stats.mean).isCloseTo(mean, within(1e-9));
+        assertThat(stats.variance()).isCloseTo(variance, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("recordSample() no debe alertar con consumos normales")
+    void recordSample_consumoNormal_noPublicaEvento() {
+        feedNormalSamples(10, 30);
+
+        Double score = anomalyService.recordSample(10, 1, "Bomba", 50.5);
+
+        assertThat(score).isNull();
+        verify(eventPublisher, never()).publishEvent(any(WaterUsageAnomalyEvent.class));
+    }
+
+    @Test
+    @DisplayName("recordSample() debe publicar WaterUsageAnomalyEvent ante un pico de consumo")
+    void recordSample_picoDeConsumo_publicaEvento() {
+        feedNormalSamples(10, 30);
+
+        Double score = anomalyService.recordSample(10, 1, "Bomba", 120.0);
+
+        assertThat(score).isNotNull().isGreaterThan(3.0);
+        ArgumentCaptor<WaterUsageAnomalyEvent> captor = ArgumentCaptor.forClass(WaterUsageAnomalyEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertThat(captor.getValue().equipmentId()).isEqualTo(10);
+        assertThat(captor.getValue().observedWaterPerHour()).isEqualTo(120.0);
+        assertThat(captor.getValue().expectedWaterPerHour()).isCloseTo(50.0, within(1.0));
+    }
+
+    @Test
+    @DisplayName("recordSample() no debe alertar antes de alcanzar el mínimo de muestras")
+    void recordSample_historiaInsuficiente_noPublicaEvento() {
+        feedNormalSamples(10, 5);
+
+        Double score = anomalyService.recordSample(10, 1, "Bomba", 500.0);
+
+        assertThat(score).isNull();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("onIrrigationRecorded() debe ignorar riegos sin duración")
+    void onIrrigationRecorded_sinHoras_seIgnora() {
+        anomalyService.onIrrigationRecorded(new IrrigationRecordedEvent(1, 1, 1, 10, "Bomba",
+                LocalDateTime.now(), BigDecimal.ZERO, new BigDecimal("10.00"), new BigDecimal("10.00")));
+
+        anomalyService.snapshot();
+
+        verify(statsRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("snapshot() debe persistir solo los equipos modificados y continuar desde el snapshot")
+    void snapshot_persisteEquiposModificados() {
+        anomalyService.onIrrigationRecorded(new IrrigationRecordedEvent(1, 1, 1, 10, "Bomba",
+                LocalDateTime.now(), new BigDecimal("2.00"), new BigDecimal("100.00"), new BigDecimal("100.00")));
+
+        anomalyService.snapshot();
+
+        ArgumentCaptor<EquipmentUsageStats> captor = ArgumentCaptor.forClass(EquipmentUsageStats.class);
+        verify(statsRepository).save(captor.capture());
+        EquipmentUsageStats saved = captor.getValue();
+        assertThat(saved.getEquipmentId()).isEqualTo(10);
+        assertThat(saved.getSampleCount()).isEqualTo(1);
+        assertThat(saved.getMean()).isEqualTo(50.0);
+
+        // Un segundo snapshot sin cambios no vuelve a escribir
+        anomalyService.snapshot();
+        verify(statsRepository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("snapshot() de dos nodos debe sumar sus muestras en lugar de sobrescribirse")
+    void snapshot_dosNodos_fusionaLasMuestras() {
+        Map<Integer, EquipmentUsageStats> rows = new HashMap<>();
+        when(statsRepository.findForUpdate(anyInt())).thenAnswer(inv -> Optional.ofNullable(rows.get(inv.getArgument(0)))
+                .map(row -> new EquipmentUsageStats(row.getEquipmentId(), row.getSampleCount(), row.getMean(),
+                        row.getM2(), row.getEwma(), row.getLastValue(), row.getUpdatedAt())));
+        when(statsRepository.save(any(EquipmentUsageStats.class))).thenAnswer(inv -> {
+            EquipmentUsageStats row = inv.getArgument(0);
+            rows.put(row.getEquipmentId(), row);
+            return row;
+        });
+        WaterUsageAnomalyService otherNode = new WaterUsageAnomalyService(statsRepository, eventPublisher,
+                transactionTemplate);
+
+        double[] first = { 48, 50, 52, 49 };
+        double[] second = { 60, 61, 59 };
+        for (double v : first) {
+            anomalyService.recordSample(10, 1, "Bomba", v);
+        }
+        for (double v : second) {
+            otherNode.recordSample(10, 1, "Bomba", v);
+        }
+        anomalyService.snapshot();
+        otherNode.snapshot();
+
+        WaterUsageAnomalyService.RunningStats expected = new WaterUsageAnomalyService.RunningStats();
+        for (double v : first) {
+            expected.add(v, 0.2);
+        }
+        for (double v : second) {
+            expected.add(v, 0.2);
+        }
+        EquipmentUsageStats row = rows.get(10);
+        assertThat(row.getSampleCount()).isEqualTo(7);
+        assertThat(row.getMean()).isCloseTo(expected.mean, within(1e-9));
+        assertThat(row.getM2()).isCloseTo(expected.m2, within(1e-9));
+
+        // El nodo que volcó último ve también las muestras del otro
+        anomalyService.recordSample(10, 1, "Bomba", 50);
+        anomalyService.snapshot();
+        assertThat(rows.get(10).getSampleCount()).isEqualTo(8);
+    }
+
+    @Test
+    @DisplayName("Los riegos sin caudalímetro no deben alimentar al detector: su consumo es el caudal nominal")
+    void riegoSinCaudalimetro_noAlimentaAlDetector() {
+        for (int i = 0; i < 30; i++) {
+            irrigate(60 + i * 10, null);
+        }
+
+        anomalyService.snapshot();
+
+        verify(statsRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("Un consumo medido anómalo registrado por IrrigationService debe publicar alerta")
+    void consumoMedidoAnomalo_desdeIrrigationService_publicaEvento() {
+        // Dos horas a 50 hL/h nominales: el caudalímetro ronda los 100 hL
+        String[] normalReadings = { "98.00", "101.00", "100.00", "99.00", "102.00" };
+        for (int i = 0; i < 20; i++) {
+            irrigate(120, normalReadings[i % normalReadings.length]);
+        }
+        verify(eventPublisher, never()).publishEvent(any());
+
+        // Fuga: el caudalímetro registra un 60% más que el caudal nominal
+        irrigate(120, "160.00");
+
+        ArgumentCaptor<WaterUsageAnomalyEvent> captor = ArgumentCaptor.forClass(WaterUsageAnomalyEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertThat(captor.getValue().equipmentId()).isEqualTo(10);
+        assertThat(captor.getValue().observedWaterPerHour()).isEqualTo(80.0);
+        assertThat(captor.getValue().expectedWaterPerHour()).isCloseTo(50.0, within(1.0));
+    }
+}
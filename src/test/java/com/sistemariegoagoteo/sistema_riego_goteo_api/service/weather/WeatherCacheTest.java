@@ -0,0 +1,136 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.ConfigType;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.config.SystemConfig;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para WeatherCache.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("WeatherCache - Tests Unitarios")
+class WeatherCacheTest {
+
+    @Mock
+    private WeatherService weatherService;
+    @Mock
+    private SystemConfigService systemConfigService;
+
+    private WeatherCache weatherCache;
+    private Farm farm;
+
+    @BeforeEach
+    void setUp() {
+        setTtlMinutes("15");
+        weatherCache = new WeatherCache(weatherService, systemConfigService, 120, 100);
+        farm = new Farm();
+        farm.setId(1);
+        farm.setLatitude(new BigDecimal("-32.8895"));
+        farm.setLongitude(new BigDecimal("-68.8458"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        weatherCache.shutdown();
+    }
+
+    private void setTtlMinutes(String minutes) {
+        when(systemConfigService.getSnapshot()).thenReturn(SystemConfigSnapshot.of(List.of(
+                new SystemConfig("WTH_UPDATE_INTERVAL_MIN", minutes, ConfigType.INTEGER, null))));
+    }
+
+    @Test
+    @DisplayName("Una entrada fresca debe servirse sin llamar al proveedor")
+    void get_entradaFresca_noLlamaAlProveedor() {
+        WeatherResponse response = new WeatherResponse();
+        when(weatherService.getCurrentWeather(any(BigDecimal.class), any(BigDecimal.class))).thenReturn(response);
+
+        assertThat(weatherCache.get(farm)).isSameAs(response);
+        assertThat(weatherCache.get(farm)).isSameAs(response);
+
+        verify(weatherService, times(1)).getCurrentWeather(new BigDecimal("-32.89"), new BigDecimal("-68.85"));
+    }
+
+    @Test
+    @DisplayName("Una entrada vencida debe servirse mientras se revalida en segundo plano")
+    @SuppressWarnings("unchecked")
+    void get_entradaVencida_sirveYRevalida() throws InterruptedException {
+        WeatherResponse old = new WeatherResponse();
+        WeatherResponse fresh = new WeatherResponse();
+        when(weatherService.getCurrentWeather(any(BigDecimal.class), any(BigDecimal.class))).thenReturn(fresh);
+        Cache<WeatherCell, WeatherCache.CachedWeather> cache =
+                (Cache<WeatherCell, WeatherCache.CachedWeather>) ReflectionTestUtils.getField(weatherCache, "cache");
+        cache.put(weatherCache.cellOf(farm),
+                new WeatherCache.CachedWeather(old, System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(20)));
+
+        assertThat(weatherCache.get(farm)).isSameAs(old);
+
+        verify(weatherService, timeout(2000).times(1)).getCurrentWeather(any(BigDecimal.class),
+                any(BigDecimal.class));
+        Thread.sleep(100);
+        assertThat(weatherCache.get(farm)).isSameAs(fresh);
+    }
+
+    @Test
+    @DisplayName("Consultas concurrentes sin datos deben compartir una sola llamada al proveedor")
+    void get_missesConcurrentes_unaSolaLlamada() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WeatherResponse response = new WeatherResponse();
+        when(weatherService.getCurrentWeather(any(BigDecimal.class), any(BigDecimal.class))).thenAnswer(inv -> {
+            release.await(2, TimeUnit.SECONDS);
+            return response;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<WeatherResponse>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(pool.submit(() -> weatherCache.get(farm)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<WeatherResponse> result : results) {
+                assertThat(result.get(2, TimeUnit.SECONDS)).isSameAs(response);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(weatherService, times(1)).getCurrentWeather(any(BigDecimal.class), any(BigDecimal.class));
+    }
+
+    @Test
+    @DisplayName("Una finca sin coordenadas debe lanzar IllegalStateException")
+    void get_sinCoordenadas_lanzaExcepcion() {
+        assertThatThrownBy(() -> weatherCache.get(new Farm())).isInstanceOf(IllegalStateException.class);
+        verifyNoInteractions(weatherService);
+    }
+}
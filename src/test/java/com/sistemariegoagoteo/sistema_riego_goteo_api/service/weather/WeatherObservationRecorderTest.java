@@ -0,0 +1,142 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.PrecipitationService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.riego.PrecipitationService.FarmDay;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests del registro de observaciones del clima contra una base H2.
+ */
+@DisplayName("WeatherObservationRecorder - Tests de Integración (H2)")
+class WeatherObservationRecorderTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 3, 10, 10, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private PrecipitationService precipitationService;
+    private WeatherObservationRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:weather-obs-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE weather_observation (observation_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "farm_id INT NOT NULL, observed_at TIMESTAMP NOT NULL, temperature DECIMAL(5,2), "
+                + "humidity DECIMAL(5,2), wind_speed DECIMAL(5,2), rain_1h_mm DECIMAL(6,2), rain_mm DECIMAL(6,2), "
+                + "weather_main VARCHAR(30), CONSTRAINT uk_weather_observation_farm_time UNIQUE (farm_id, observed_at))");
+        precipitationService = mock(PrecipitationService.class);
+        recorder = new WeatherObservationRecorder(jdbcTemplate, precipitationService,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    private static WeatherResponse response(LocalDateTime observedAt, String rain1h) {
+        WeatherResponse response = new WeatherResponse();
+        response.setDt(observedAt.atZone(ZoneId.systemDefault()).toEpochSecond());
+        WeatherResponse.Main main = new WeatherResponse.Main();
+        main.setTemperature(new BigDecimal("18.50"));
+        main.setHumidity(new BigDecimal("80"));
+        response.setMain(main);
+        if (rain1h != null) {
+            WeatherResponse.Rain rain = new WeatherResponse.Rain();
+            rain.setOneHour(new BigDecimal(rain1h));
+            response.setRain(rain);
+        }
+        return response;
+    }
+
+    @Test
+    @DisplayName("La misma medición no debe registrarse dos veces para una finca")
+    void record_mismaMedicion_seDescarta() {
+        WeatherResponse response = response(T0, null);
+
+        assertThat(recorder.record(1, response)).isTrue();
+        assertThat(recorder.record(1, response)).isFalse();
+        assertThat(recorder.record(2, response)).isTrue();
+
+        assertThat(recorder.flush()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM weather_observation", Integer.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("La lluvia debe prorratearse por el intervalo entre observaciones y sumarse por día")
+    @SuppressWarnings("unchecked")
+    void flush_prorrateaLluviaYSumaPorDia() {
+        recorder.record(1, response(T0, "2.00"));
+        recorder.record(1, response(T0.plusMinutes(15), "4.00"));
+
+        recorder.flush();
+
+        assertThat(jdbcTemplate.queryForList("SELECT rain_mm FROM weather_observation ORDER BY observed_at",
+                BigDecimal.class)).containsExactly(new BigDecimal("2.00"), new BigDecimal("1.00"));
+        ArgumentCaptor<Map<FarmDay, BigDecimal>> rain = ArgumentCaptor.forClass(Map.class);
+        verify(precipitationService).addObservedRain(rain.capture());
+        assertThat(rain.getValue()).containsExactly(
+                Map.entry(new FarmDay(1, T0.toLocalDate()), new BigDecimal("3.00")));
+    }
+
+    @Test
+    @DisplayName("Tras reiniciar debe continuar desde la última observación guardada")
+    void record_reinicio_leeUltimaObservacion() {
+        recorder.record(1, response(T0, null));
+        recorder.flush();
+        WeatherObservationRecorder restarted = new WeatherObservationRecorder(jdbcTemplate, precipitationService,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+
+        assertThat(restarted.record(1, response(T0, "1.00"))).isFalse();
+        assertThat(restarted.record(1, response(T0.plusMinutes(30), "1.00"))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Una medición ya guardada por otro nodo no debe volver a sumar su lluvia")
+    @SuppressWarnings("unchecked")
+    void flush_medicionGuardadaPorOtroNodo_noSumaLluvia() {
+        WeatherObservationRecorder otherNode = new WeatherObservationRecorder(jdbcTemplate, precipitationService,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+        recorder.record(1, response(T0, "2.00"));
+        otherNode.record(1, response(T0, "2.00"));
+
+        assertThat(recorder.flush()).isEqualTo(1);
+        assertThat(otherNode.flush()).isZero();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM weather_observation", Integer.class))
+                .isEqualTo(1);
+        ArgumentCaptor<Map<FarmDay, BigDecimal>> rain = ArgumentCaptor.forClass(Map.class);
+        verify(precipitationService, times(2)).addObservedRain(rain.capture());
+        assertThat(rain.getAllValues().get(0)).hasSize(1);
+        assertThat(rain.getAllValues().get(1)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Si el volcado falla las observaciones deben conservarse")
+    void flush_error_conservaPendientes() {
+        recorder.record(1, response(T0, "1.00"));
+        doThrow(new IllegalStateException("db")).doReturn(1).when(precipitationService).addObservedRain(any());
+
+        assertThat(recorder.flush()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM weather_observation", Integer.class))
+                .isZero();
+        assertThat(recorder.flush()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM weather_observation", Integer.class))
+                .isEqualTo(1);
+    }
+}
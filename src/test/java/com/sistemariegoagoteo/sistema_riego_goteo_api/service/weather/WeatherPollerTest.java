@@ -0,0 +1,119 @@
+package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
+
+import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigService;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.config.SystemConfigSnapshot;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.http.ProviderGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests de WeatherPoller contra un servidor HTTP local que simula al proveedor.
+ */
+@DisplayName("WeatherPoller - Tests con servidor HTTP local")
+class WeatherPollerTest {
+
+    private static final String SLOW_LAT = "-10.00";
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private WeatherPoller poller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/weather", exchange -> {
+            requests.incrementAndGet();
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(exchange.getRequestURI().getQuery().contains("lat=" + SLOW_LAT) ? 3000 : 100);
+                byte[] body = "{\"weather\":[{\"main\":\"Rain\",\"description\":\"lluvia ligera\"}]}"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (Exception e) {
+                exchange.close();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        });
+        server.start();
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setReadTimeout(1000);
+        WeatherService weatherService = new WeatherService(new RestTemplate(requestFactory),
+                new ProviderGuard("weather", 10, 100, 30000, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(weatherService, "apiKey", "test");
+        ReflectionTestUtils.setField(weatherService, "apiUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/weather");
+        SystemConfigService systemConfigService = mock(SystemConfigService.class);
+        when(systemConfigService.getSnapshot()).thenReturn(SystemConfigSnapshot.of(List.of()));
+        poller = new WeatherPoller(new WeatherCache(weatherService, systemConfigService, 120, 100), 4, 100, 100,
+                1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        poller.shutdown();
+        server.stop(0);
+    }
+
+    private static WeatherCell cell(String lat, String lon) {
+        return new WeatherCell(new BigDecimal(lat), new BigDecimal(lon));
+    }
+
+    @Test
+    @DisplayName("Debe consultar cada celda una vez y en paralelo")
+    void fetch_consultaCeldasEnParalelo() {
+        List<WeatherCell> cells = List.of(cell("-32.89", "-68.85"), cell("-32.90", "-68.85"),
+                cell("-33.00", "-68.50"), cell("-34.61", "-68.33"));
+
+        Map<WeatherCell, WeatherResponse> result = poller.fetch(cells);
+
+        assertThat(result).hasSize(4);
+        assertThat(result.get(cells.get(0)).getWeather().get(0).getMain()).isEqualTo("Rain");
+        assertThat(requests.get()).isEqualTo(4);
+        assertThat(maxConcurrent.get()).isGreaterThan(1);
+    }
+
+    @Test
+    @DisplayName("Una celda lenta no debe detener al resto de la ronda")
+    void fetch_celdaLenta_noBloqueaElCiclo() {
+        WeatherCell slow = cell(SLOW_LAT, "-60.00");
+        WeatherCell fast = cell("-32.89", "-68.85");
+
+        long start = System.nanoTime();
+        Map<WeatherCell, WeatherResponse> result = poller.fetch(List.of(slow, fast));
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(result).containsOnlyKeys(fast);
+        assertThat(elapsedMs).isLessThan(2500);
+    }
+}
@@ -2,10 +2,11 @@ package com.sistemariegoagoteo.sistema_riego_goteo_api.service.weather;
 
 import com.sistemariegoagoteo.sistema_riego_goteo_api.dto.weather.WeatherResponse;
 import com.sistemariegoagoteo.sistema_riego_goteo_api.model.riego.Farm;
+import com.sistemariegoagoteo.sistema_riego_goteo_api.service.http.ProviderGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -22,13 +23,14 @@ class WeatherServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
-    @InjectMocks
     private WeatherService weatherService;
 
     private Farm farm;
 
     @BeforeEach
     void setUp() {
+        weatherService = new WeatherService(restTemplate,
+                new ProviderGuard("weather", 10, 5, 30000, new SimpleMeterRegistry()));
         // Inyectar properties simulando @Value
         ReflectionTestUtils.setField(weatherService, "apiKey", "test-api-key");
         ReflectionTestUtils.setField(weatherService, "apiUrl", "http://api.openweathermap.org/data/2.5/weather");